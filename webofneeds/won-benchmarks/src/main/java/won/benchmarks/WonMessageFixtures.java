@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.benchmarks;
+
+import java.net.URI;
+
+import won.protocol.message.WonMessage;
+import won.protocol.message.builder.WonMessageBuilder;
+import won.protocol.util.DefaultAtomModelWrapper;
+import won.protocol.vocabulary.WXCHAT;
+
+/**
+ * Realistic messages of the shapes that make up most of the traffic between
+ * owners and nodes, created with the WonMessageBuilder.
+ */
+public class WonMessageFixtures {
+    private static final URI ATOM_URI_1 = URI.create("https://node.matchat.org/won/resource/atom/3030440624813201400");
+    private static final URI ATOM_URI_2 = URI.create("https://node.matchat.org/won/resource/atom/8863100035920632000");
+    private static final URI SOCKET_URI_1 = URI.create(ATOM_URI_1 + "#chatSocket");
+    private static final URI SOCKET_URI_2 = URI.create(ATOM_URI_2 + "#chatSocket");
+
+    /**
+     * The shapes of messages available as fixtures.
+     */
+    public enum Shape {
+        CREATE, CONNECT, CHAT, HINT
+    }
+
+    public static WonMessage create(Shape shape) {
+        switch (shape) {
+            case CREATE:
+                return createAtomMessage();
+            case CONNECT:
+                return connectMessage();
+            case CHAT:
+                return chatMessage();
+            case HINT:
+                return hintMessage();
+        }
+        throw new IllegalArgumentException("Unknown message shape " + shape);
+    }
+
+    public static WonMessage createAtomMessage() {
+        DefaultAtomModelWrapper atomModelWrapper = new DefaultAtomModelWrapper(ATOM_URI_1);
+        atomModelWrapper.setTitle("Offering tennis lessons");
+        atomModelWrapper.setDescription("Tennis lessons for kids and adults of all levels. Courts are available "
+                        + "in the 9th district on weekdays, equipment can be provided if needed.");
+        atomModelWrapper.addTag("tennis");
+        atomModelWrapper.addTag("lesson");
+        atomModelWrapper.addTag("offer");
+        atomModelWrapper.setSeeksTitle("tennis students");
+        atomModelWrapper.setSeeksDescription("people learning tennis");
+        atomModelWrapper.addSeeksTag("tennis");
+        atomModelWrapper.addSocket(SOCKET_URI_1.toString(), WXCHAT.ChatSocketString);
+        return WonMessageBuilder
+                        .createAtom()
+                        .atom(ATOM_URI_1)
+                        .content().dataset(atomModelWrapper.copyDatasetWithoutSysinfo())
+                        .direction().fromOwner()
+                        .build();
+    }
+
+    public static WonMessage connectMessage() {
+        return WonMessageBuilder.connect()
+                        .sockets()
+                        .sender(SOCKET_URI_1)
+                        .recipient(SOCKET_URI_2)
+                        .direction().fromOwner()
+                        .content().text("Hello there! I saw your request and would like to offer my help.")
+                        .build();
+    }
+
+    public static WonMessage chatMessage() {
+        return WonMessageBuilder.connectionMessage()
+                        .sockets()
+                        .sender(SOCKET_URI_1)
+                        .recipient(SOCKET_URI_2)
+                        .direction().fromOwner()
+                        .content().text("Great, how about Tuesday at 5pm at the courts near the park?")
+                        .build();
+    }
+
+    public static WonMessage hintMessage() {
+        return WonMessageBuilder.socketHint()
+                        .recipientSocket(SOCKET_URI_1)
+                        .hintTargetSocket(SOCKET_URI_2)
+                        .hintScore(0.87)
+                        .direction().fromExternal()
+                        .build();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.benchmarks.crypto;
+
+import java.security.MessageDigest;
+import java.security.Security;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.rdf.model.StmtIterator;
+import org.apache.jena.vocabulary.RDFS;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.SignatureAlgorithmInterface;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm.SignatureAlgorithmFisteus2010;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.GraphCollection;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.NamedGraph;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.Triple;
+import io.ipfs.multihash.Multihash;
+import won.cryptography.rdfsign.WonHasher;
+import won.cryptography.rdfsign.WonSigner;
+import won.protocol.vocabulary.WONMSG;
+
+/**
+ * Measures WonHasher.calculateHashIdForDataset on a content graph of
+ * <code>triples</code> triples, compared with hashing the way WonHasher did
+ * before it kept its digests per thread and ModelConverter reused its string
+ * buffer (<code>hashIdWithNewInstances</code>). The setup fails if the two do
+ * not produce the same hash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WonHasherBenchmark {
+    @Param({ "10", "100", "10000" })
+    private int triples;
+    private Dataset dataset;
+    private WonHasher hasher;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        dataset = createDataset(triples);
+        hasher = new WonHasher();
+        String current = hashId();
+        String previous = hashIdWithNewInstances();
+        if (!current.equals(previous)) {
+            throw new IllegalStateException("hash ids differ: " + current + " vs. " + previous);
+        }
+    }
+
+    @Benchmark
+    public String hashId() throws Exception {
+        return hasher.calculateHashIdForDataset(dataset);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String hashIdConcurrently() throws Exception {
+        return hasher.calculateHashIdForDataset(dataset);
+    }
+
+    @Benchmark
+    public String hashIdWithNewInstances() throws Exception {
+        SignatureAlgorithmInterface algorithm = new SignatureAlgorithmFisteus2010();
+        GraphCollection graphCollection = toGraphCollection(dataset);
+        algorithm.canonicalize(graphCollection);
+        algorithm.postCanonicalize(graphCollection);
+        algorithm.hash(graphCollection, WonHasher.ENV_HASH_ALGORITHM);
+        algorithm.postHash(graphCollection);
+        graphCollection.getSignature().getDigestGen().reset();
+        MessageDigest md = MessageDigest.getInstance(WonHasher.ENV_HASH_ALGORITHM,
+                        WonSigner.SIGNING_ALGORITHM_PROVIDER);
+        byte[] hashed = md.digest(graphCollection.getSignature().getHash().toByteArray());
+        return new Multihash(WonHasher.MULTIHASH_TYPE, hashed).toBase58();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String hashIdWithNewInstancesConcurrently() throws Exception {
+        return hashIdWithNewInstances();
+    }
+
+    /**
+     * A content graph with URIs, typed and plain literals and blank nodes.
+     */
+    private static Dataset createDataset(int triples) {
+        String base = WONMSG.MESSAGE_SELF.toString();
+        Model content = ModelFactory.createDefaultModel();
+        Resource subject = content.createResource(base + "#item-0");
+        for (int i = 0; i < triples; i++) {
+            if (i % 10 == 0) {
+                subject = i % 20 == 0 ? content.createResource(base + "#item-" + i) : content.createResource();
+            }
+            switch (i % 3) {
+                case 0:
+                    subject.addProperty(RDFS.seeAlso, content.createResource(base + "#ref-" + i));
+                    break;
+                case 1:
+                    subject.addLiteral(RDFS.comment, content.createTypedLiteral(i));
+                    break;
+                default:
+                    subject.addProperty(RDFS.label, "label " + i);
+            }
+        }
+        Dataset dataset = DatasetFactory.createGeneral();
+        dataset.addNamedModel(base + "#content", content);
+        return dataset;
+    }
+
+    /**
+     * Converts the dataset like ModelConverter did before it reused its string
+     * buffer.
+     */
+    private static GraphCollection toGraphCollection(Dataset dataset) {
+        GraphCollection graphCollection = new GraphCollection();
+        Iterator<String> names = dataset.listNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            NamedGraph namedGraph = new NamedGraph("<" + name + ">", 0, null);
+            StmtIterator it = dataset.getNamedModel(name).listStatements();
+            while (it.hasNext()) {
+                Statement stmt = it.nextStatement();
+                namedGraph.addTriple(new Triple(nodeAsString(stmt.getSubject()),
+                                "<" + stmt.getPredicate().getURI() + ">", nodeAsString(stmt.getObject())));
+            }
+            graphCollection.addGraph(namedGraph);
+        }
+        return graphCollection;
+    }
+
+    private static String nodeAsString(RDFNode node) {
+        if (node.isURIResource()) {
+            return "<" + node.asResource().getURI() + ">";
+        }
+        if (node.isLiteral()) {
+            String result = "\"" + node.asLiteral().getLexicalForm() + "\"";
+            if (node.asLiteral().getDatatypeURI() != null) {
+                return result + "^^" + "<" + node.asLiteral().getDatatypeURI() + ">";
+            }
+            if (node.asLiteral().getLanguage() != null && !node.asLiteral().getLanguage().isEmpty()) {
+                return result + "@" + node.asLiteral().getLanguage();
+            }
+            return result;
+        }
+        return "_:" + node.asResource().getId().getLabelString();
+    }
+}
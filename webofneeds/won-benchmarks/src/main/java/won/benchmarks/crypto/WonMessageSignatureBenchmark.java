@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.benchmarks.crypto;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.Security;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.Dataset;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import won.benchmarks.WonMessageFixtures;
+import won.cryptography.rdfsign.SignatureVerificationState;
+import won.cryptography.rdfsign.WonHasher;
+import won.cryptography.service.KeyPairService;
+import won.protocol.message.WonMessage;
+import won.protocol.message.processor.impl.WonMessageSignerVerifier;
+
+/**
+ * Measures signing, sealing and verifying messages, and WonHasher, which
+ * calculates the message URI from the message content when sealing. Uses a
+ * freshly generated secp384r1 key, like the ones generated for atoms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WonMessageSignatureBenchmark {
+    private static final String KEY_URI = "https://node.matchat.org/won/resource/atom/3030440624813201400#key";
+    @Param({ "CREATE", "CONNECT", "CHAT", "HINT" })
+    private WonMessageFixtures.Shape shape;
+    private KeyPair keyPair;
+    private Map<String, PublicKey> publicKeys;
+    private WonMessage message;
+    private WonMessage signedMessage;
+    private Dataset signedDataset;
+    private WonHasher hasher;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        keyPair = new KeyPairService().generateNewKeyPairInSecp384r1();
+        publicKeys = Collections.singletonMap(KEY_URI, keyPair.getPublic());
+        message = WonMessageFixtures.create(shape);
+        signedMessage = signAndSeal();
+        SignatureVerificationState result = verify();
+        if (!result.isVerificationPassed()) {
+            throw new IllegalStateException("signed fixture does not verify: " + result.getMessage());
+        }
+        signedDataset = signedMessage.getCompleteDataset();
+        hasher = new WonHasher();
+    }
+
+    @Benchmark
+    public WonMessage signAndSeal() throws Exception {
+        return WonMessageSignerVerifier.signAndSeal(keyPair.getPrivate(), keyPair.getPublic(), KEY_URI, message);
+    }
+
+    @Benchmark
+    public SignatureVerificationState verify() throws Exception {
+        return WonMessageSignerVerifier.verify(publicKeys, signedMessage);
+    }
+
+    @Benchmark
+    public String calculateHashIdForDataset() throws Exception {
+        return hasher.calculateHashIdForDataset(signedDataset);
+    }
+}
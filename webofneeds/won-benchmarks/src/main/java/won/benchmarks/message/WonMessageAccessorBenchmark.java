@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.benchmarks.message;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.jena.query.Dataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import won.benchmarks.WonMessageFixtures;
+import won.protocol.message.WonMessage;
+
+/**
+ * Measures reading the envelope properties that message processing looks at for
+ * every message. <code>readEnvelopeOfNewMessage</code> includes creating the
+ * WonMessage from its dataset (compare with <code>createMessage</code>),
+ * <code>readEnvelopeAgain</code> reads from a message whose properties have
+ * been read before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WonMessageAccessorBenchmark {
+    @Param({ "CREATE", "CONNECT", "CHAT", "HINT" })
+    private WonMessageFixtures.Shape shape;
+    private Dataset dataset;
+    private WonMessage message;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dataset = WonMessageFixtures.create(shape).getCompleteDataset();
+        message = WonMessage.of(dataset);
+        // the first read of each property fills the message's caches
+        readEnvelope(message, value -> {
+        });
+    }
+
+    @Benchmark
+    public WonMessage createMessage() {
+        return WonMessage.of(dataset);
+    }
+
+    @Benchmark
+    public void readEnvelopeOfNewMessage(Blackhole blackhole) {
+        readEnvelope(WonMessage.of(dataset), blackhole::consume);
+    }
+
+    @Benchmark
+    public void readEnvelopeAgain(Blackhole blackhole) {
+        readEnvelope(message, blackhole::consume);
+    }
+
+    private static void readEnvelope(WonMessage message, Consumer<Object> values) {
+        values.accept(message.getMessageURI());
+        values.accept(message.getMessageType());
+        values.accept(message.getEnvelopeType());
+        values.accept(message.getAtomURI());
+        values.accept(message.getConnectionURI());
+        values.accept(message.getSenderAtomURI());
+        values.accept(message.getSenderSocketURI());
+        values.accept(message.getSenderNodeURI());
+        values.accept(message.getRecipientAtomURI());
+        values.accept(message.getRecipientSocketURI());
+        values.accept(message.getRecipientNodeURI());
+        values.accept(message.getHintTargetSocketURI());
+        values.accept(message.getContentGraphURIs());
+        values.accept(message.getPreviousMessageURIs());
+    }
+}
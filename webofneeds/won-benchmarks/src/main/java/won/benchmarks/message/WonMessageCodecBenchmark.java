@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.benchmarks.message;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import won.benchmarks.WonMessageFixtures;
+import won.protocol.message.WonMessage;
+import won.protocol.message.WonMessageDecoder;
+import won.protocol.message.WonMessageEncoder;
+
+/**
+ * Measures WonMessageEncoder and WonMessageDecoder in the serializations used
+ * between owner and browser (JSON-LD) and between owner and node (TriG).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WonMessageCodecBenchmark {
+    @Param({ "CREATE", "CONNECT", "CHAT", "HINT" })
+    private WonMessageFixtures.Shape shape;
+    @Param({ "TriG", "JSON-LD" })
+    private String langName;
+    private Lang lang;
+    private WonMessage message;
+    private String encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        lang = RDFLanguages.nameToLang(langName);
+        message = WonMessageFixtures.create(shape);
+        encoded = WonMessageEncoder.encode(message, lang);
+    }
+
+    @Benchmark
+    public String encode() {
+        return WonMessageEncoder.encode(message, lang);
+    }
+
+    @Benchmark
+    public WonMessage decode() {
+        WonMessage decoded = WonMessageDecoder.decode(lang, encoded);
+        // make sure the envelope is actually read
+        decoded.getMessageType();
+        return decoded;
+    }
+}
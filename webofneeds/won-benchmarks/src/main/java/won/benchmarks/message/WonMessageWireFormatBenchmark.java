@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.benchmarks.message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import won.benchmarks.WonMessageFixtures;
+import won.protocol.jms.WonMessageWireFormat;
+import won.protocol.message.WonMessage;
+import won.protocol.message.processor.camel.WonCamelConstants;
+
+/**
+ * Compares the JMS wire formats for WonMessages (TriG vs. compressed RDF
+ * Thrift) on the most frequent message shapes. The payload size of each
+ * combination is reported as the secondary result <code>payloadBytes</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WonMessageWireFormatBenchmark {
+    @Param({ "CREATE", "CONNECT", "CHAT", "HINT" })
+    private WonMessageFixtures.Shape shape;
+    @Param({ "TriG", "RDF-THRIFT" })
+    private String langName;
+    private Lang lang;
+    private WonMessage message;
+    private Object encoded;
+    private Map<String, Object> headers;
+    private long payloadBytes;
+
+    /**
+     * Size of the encoded message, reported by JMH next to the timings.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long payloadBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        lang = RDFLanguages.nameToLang(langName);
+        message = WonMessageFixtures.create(shape);
+        encoded = WonMessageWireFormat.encode(message, lang);
+        headers = WonMessageWireFormat.putContentTypeHeader(new HashMap<>(), lang);
+        payloadBytes = encoded instanceof byte[] ? ((byte[]) encoded).length
+                        : encoded.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Benchmark
+    public Object encode(PayloadSize size) {
+        size.payloadBytes = payloadBytes;
+        return WonMessageWireFormat.encode(message, lang);
+    }
+
+    @Benchmark
+    public WonMessage decode(PayloadSize size) {
+        size.payloadBytes = payloadBytes;
+        WonMessage decoded = WonMessageWireFormat.decode(encoded,
+                        headers.get(WonCamelConstants.CONTENT_TYPE_HEADER),
+                        headers.get(WonCamelConstants.CONTENT_ENCODING_HEADER));
+        // make sure the dataset is actually parsed and the envelope is read
+        decoded.getMessageType();
+        return decoded;
+    }
+}
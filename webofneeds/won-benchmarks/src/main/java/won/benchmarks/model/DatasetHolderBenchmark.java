@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.benchmarks.model;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import won.benchmarks.WonMessageFixtures;
+import won.protocol.model.DatasetHolder;
+
+/**
+ * Measures writing a message dataset to a DatasetHolder and reading it back the
+ * way it happens after the holder was loaded from the database, i.e. without
+ * the holder's cached dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatasetHolderBenchmark {
+    @Param({ "CREATE", "CONNECT", "CHAT", "HINT" })
+    private WonMessageFixtures.Shape shape;
+    private URI uri;
+    private Dataset dataset;
+    private byte[] datasetBytes;
+    // the format written by earlier versions, which is converted in the background
+    private byte[] nquadsBytes;
+    private DatasetHolder holder;
+    private Constructor<DatasetHolder> loadedHolderConstructor;
+    private Method setDatasetBytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        uri = URI.create("https://node.matchat.org/won/resource/dataset/1");
+        dataset = WonMessageFixtures.create(shape).getCompleteDataset();
+        holder = new DatasetHolder(uri, dataset);
+        datasetBytes = holder.getDatasetBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, dataset, Lang.NQUADS);
+        nquadsBytes = out.toByteArray();
+        // JPA creates holders with the default constructor and sets the bytes
+        loadedHolderConstructor = DatasetHolder.class.getDeclaredConstructor();
+        loadedHolderConstructor.setAccessible(true);
+        setDatasetBytes = DatasetHolder.class.getDeclaredMethod("setDatasetBytes", byte[].class);
+        setDatasetBytes.setAccessible(true);
+    }
+
+    @Benchmark
+    public byte[] setDataset() {
+        holder.setDataset(dataset);
+        return holder.getDatasetBytes();
+    }
+
+    @Benchmark
+    public Dataset getDatasetOfLoadedHolder() throws Exception {
+        DatasetHolder loaded = loadedHolderConstructor.newInstance();
+        loaded.setUri(uri);
+        setDatasetBytes.invoke(loaded, (Object) datasetBytes);
+        return loaded.getDataset();
+    }
+
+    @Benchmark
+    public Dataset getDatasetOfLoadedNQuadsHolder() throws Exception {
+        DatasetHolder loaded = loadedHolderConstructor.newInstance();
+        loaded.setUri(uri);
+        setDatasetBytes.invoke(loaded, (Object) nquadsBytes);
+        return loaded.getDataset();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.benchmarks.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import won.benchmarks.WonMessageFixtures;
+import won.protocol.util.RdfUtils;
+
+/**
+ * Measures RdfUtils.addDatasetToDataset, which is used whenever messages are
+ * combined, e.g. a message with its responses. The message is added once to an
+ * empty dataset and once to a dataset that already contains all of its graphs,
+ * so that the graphs have to be merged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RdfUtilsBenchmark {
+    @Param({ "CREATE", "CONNECT", "CHAT", "HINT" })
+    private WonMessageFixtures.Shape shape;
+    private Dataset dataset;
+    private Dataset otherMessageDataset;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dataset = WonMessageFixtures.create(shape).getCompleteDataset();
+        // an unsealed message of the same shape has the same graph names
+        otherMessageDataset = WonMessageFixtures.create(shape).getCompleteDataset();
+    }
+
+    @Benchmark
+    public Dataset addToEmptyDataset() {
+        return RdfUtils.addDatasetToDataset(DatasetFactory.createGeneral(), dataset);
+    }
+
+    @Benchmark
+    public Dataset addToDatasetWithSameGraphs() {
+        Dataset base = RdfUtils.cloneDataset(otherMessageDataset);
+        return RdfUtils.addDatasetToDataset(base, dataset);
+    }
+
+    @Benchmark
+    public Dataset cloneDataset() {
+        // baseline for addToDatasetWithSameGraphs
+        return RdfUtils.cloneDataset(otherMessageDataset);
+    }
+}
@@ -69,6 +69,15 @@ public class CryptographyUtils {
         }
     }
 
+    /**
+     * Returns the (cached) SSL context using the key with the specified alias as
+     * client certificate.
+     */
+    public static SSLContext getSSLContext(final String privateKeyAlias, final KeyStore keyStore,
+                    final String ksPass, final KeyStore trustStore, TrustStrategy trustStrategy) throws Exception {
+        return getSSLContext(privateKeyAlias, keyStore, ksPass, trustStore, trustStrategy, true);
+    }
+
     private static String makeCacheKey(String privateKeyAlias) {
         return privateKeyAlias == null ? "no client cert" : privateKeyAlias;
     }
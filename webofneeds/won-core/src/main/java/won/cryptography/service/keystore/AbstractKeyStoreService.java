@@ -80,7 +80,7 @@ public abstract class AbstractKeyStoreService implements KeyStoreService {
      * java.security.PrivateKey, java.security.cert.Certificate[], boolean)
      */
     @Override
-    public synchronized void putKey(String alias, PrivateKey key, Certificate[] certificateChain, boolean replace)
+    public void putKey(String alias, PrivateKey key, Certificate[] certificateChain, boolean replace)
                     throws IOException {
         putEntry(alias, key, certificateChain, null, replace);
     }
@@ -92,7 +92,7 @@ public abstract class AbstractKeyStoreService implements KeyStoreService {
      * java.security.cert.Certificate, boolean)
      */
     @Override
-    public synchronized void putCertificate(String alias, Certificate certificate, boolean replace) throws IOException {
+    public void putCertificate(String alias, Certificate certificate, boolean replace) throws IOException {
         putEntry(alias, null, null, certificate, replace);
     }
 
@@ -130,7 +130,7 @@ public abstract class AbstractKeyStoreService implements KeyStoreService {
                 throw new RuntimeException(
                                 "Could not add keystore entry: neither key and cert chain nor certificate is provided");
             }
-            persistStore();
+            persistEntry(alias);
         } catch (Exception e) {
             throw new RuntimeException("Could not add entry for " + alias + " to the key store", e);
         }
@@ -138,6 +138,14 @@ public abstract class AbstractKeyStoreService implements KeyStoreService {
 
     protected abstract void persistStore() throws Exception;
 
+    /**
+     * Called after the entry for the alias has been added to the key store, while
+     * the lock of this service is held. Persists the whole store unless overridden.
+     */
+    protected void persistEntry(String alias) throws Exception {
+        persistStore();
+    }
+
     public boolean containsEntry(String alias) {
         try {
             return getUnderlyingKeyStore().containsAlias(alias);
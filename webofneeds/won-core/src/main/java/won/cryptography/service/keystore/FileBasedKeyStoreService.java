@@ -1,23 +1,55 @@
 package won.cryptography.service.keystore;
 
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import won.cryptography.service.BCProvider;
 
 import java.io.*;
 import java.lang.invoke.MethodHandles;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
+import java.util.Collections;
 import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Key store kept in memory and saved to a file.
+ * <p>
+ * By default, the whole file is rewritten for each entry that is added. If
+ * <code>flushDelayMillis</code> is positive, an added entry is only appended to
+ * a journal next to the file (<code>[file].journal</code>, encrypted like the
+ * key store), and the file is rewritten at most <code>flushDelayMillis</code>
+ * later, once for all entries added in the meantime. Journals left behind by a
+ * crash are replayed by {@link #init()}. The file is replaced atomically, so a
+ * crash while it is written does not corrupt it.
+ * </p>
+ * Reading entries does not wait for entries being added or the file being
+ * written. The time spent writing the file is recorded in the JavaSimon
+ * stopwatch <code>won.cryptography.keyStore.write</code>.
+ * <p>
  * User: fsalcher Date: 12.06.2014
+ * </p>
  */
 public class FileBasedKeyStoreService extends AbstractKeyStoreService {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     private static final String KEY_STORE_TYPE = "UBER";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    // the journal while the entries in it are being written to the file
+    private static final String FLUSHING_JOURNAL_SUFFIX = ".journal.flushing";
+    private static final Stopwatch writeTime = SimonManager.getStopwatch("won.cryptography.keyStore.write");
+    private static final ScheduledExecutorService flushExecutor = createFlushExecutor();
     private final String keyStoreType;
     // 'UBER' is more secure, 'PKCS12' is supported by all tools, easier for
     // debugging, e.g. when importing keys,
@@ -26,6 +58,18 @@ public class FileBasedKeyStoreService extends AbstractKeyStoreService {
     private String storePW;
     private File storeFile;
     private java.security.KeyStore store;
+    private int flushDelayMillis = 0;
+    // guarded by this
+    private DataOutputStream journal;
+    // the channel of the journal, to force its content to the disk, guarded by this
+    private FileChannel journalChannel;
+    // guarded by this
+    private boolean flushScheduled = false;
+    // the journal entry for the entry being added, guarded by this
+    private byte[] pendingJournalEntry;
+    // held while the file is written by flush(), so that snapshots are written in
+    // the order they were taken
+    private final Object flushLock = new Object();
 
     public FileBasedKeyStoreService(String filePath, String storePW) {
         this(new File(filePath), storePW, KEY_STORE_TYPE);
@@ -44,6 +88,27 @@ public class FileBasedKeyStoreService extends AbstractKeyStoreService {
                         new Object[] { storeFile, keyStoreType, BCProvider.getInstance().getClass().getName() });
     }
 
+    private static ScheduledExecutorService createFlushExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "keystore-flush-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Maximum time in milliseconds between adding an entry and rewriting the file;
+     * 0 (the default) rewrites it before the entry is returned.
+     */
+    public void setFlushDelayMillis(int flushDelayMillis) {
+        this.flushDelayMillis = flushDelayMillis;
+    }
+
+    public int getFlushDelayMillis() {
+        return flushDelayMillis;
+    }
+
     /*
      * (non-Javadoc)
      * @see won.cryptography.service.KeyStoreService#getPrivateKey(java.lang.String)
@@ -139,30 +204,222 @@ public class FileBasedKeyStoreService extends AbstractKeyStoreService {
      * java.security.cert.Certificate, boolean)
      */
     @Override
-    public synchronized void putCertificate(String alias, Certificate certificate, boolean replace) throws IOException {
+    public void putCertificate(String alias, Certificate certificate, boolean replace) throws IOException {
         putEntry(alias, null, null, certificate, replace);
     }
 
     protected synchronized void persistStore() throws Exception {
-        FileOutputStream outputStream;
+        writeStoreFile(serializeStore());
+    }
+
+    /**
+     * With write-behind enabled, the journal entry is encrypted before the lock is
+     * taken, so that threads adding entries only wait for each other while the
+     * entry is added to the store and appended to the journal.
+     */
+    @Override
+    protected void putEntry(String alias, PrivateKey key, Certificate[] certificateChain, Certificate certificate,
+                    boolean replace) {
+        if (flushDelayMillis <= 0 || alias == null || (!replace && containsEntry(alias))) {
+            super.putEntry(alias, key, certificateChain, certificate, replace);
+            return;
+        }
+        byte[] journalEntry;
         try {
-            outputStream = new FileOutputStream(storeFile);
-        } catch (IOException e) {
-            logger.error("Could not create key store in file " + storeFile.getName(), e);
-            throw e;
+            journalEntry = createJournalEntry(alias, key, certificateChain, certificate);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not add entry for " + alias + " to the key store", e);
+        }
+        synchronized (this) {
+            pendingJournalEntry = journalEntry;
+            try {
+                super.putEntry(alias, key, certificateChain, certificate, replace);
+            } finally {
+                pendingJournalEntry = null;
+            }
+        }
+    }
+
+    @Override
+    protected void persistEntry(String alias) throws Exception {
+        if (pendingJournalEntry == null) {
+            persistStore();
+            return;
+        }
+        appendToJournal(pendingJournalEntry);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            flushExecutor.schedule(this::flushQuietly, flushDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the entries added since the last flush to the file. Called
+     * automatically with write-behind enabled, and should be called on shutdown.
+     */
+    public void flush() throws Exception {
+        synchronized (flushLock) {
+            byte[] snapshot;
+            synchronized (this) {
+                flushScheduled = false;
+                File current = getJournalFile(JOURNAL_SUFFIX);
+                // after a failed flush, the entries are still in the journal files
+                if (journal == null && !current.exists() && !getJournalFile(FLUSHING_JOURNAL_SUFFIX).exists()) {
+                    return;
+                }
+                snapshot = serializeStore();
+                if (journal != null) {
+                    journal.close();
+                    journal = null;
+                    journalChannel = null;
+                }
+                if (current.exists()) {
+                    rotateJournal();
+                }
+            }
+            writeStoreFile(snapshot);
+            Files.deleteIfExists(getJournalFile(FLUSHING_JOURNAL_SUFFIX).toPath());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // the entries are still in the journal, try again later
+            logger.error("Could not save key store to file " + storeFile.getName() + ", retrying in "
+                            + flushDelayMillis + " ms", e);
+            synchronized (this) {
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    flushExecutor.schedule(this::flushQuietly, flushDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the journal aside, so that entries added while the file is written go
+     * to a new journal. If the last flush failed, the journal is appended to the
+     * one it left behind.
+     */
+    private void rotateJournal() throws IOException {
+        File current = getJournalFile(JOURNAL_SUFFIX);
+        File flushing = getJournalFile(FLUSHING_JOURNAL_SUFFIX);
+        if (flushing.exists()) {
+            Files.write(flushing.toPath(), Files.readAllBytes(current.toPath()), StandardOpenOption.APPEND,
+                            StandardOpenOption.SYNC);
+            Files.delete(current.toPath());
+        } else {
+            Files.move(current.toPath(), flushing.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Returns the entry as a key store of its own.
+     */
+    private byte[] createJournalEntry(String alias, PrivateKey key, Certificate[] certificateChain,
+                    Certificate certificate) throws Exception {
+        KeyStore entryStore = createKeyStore();
+        entryStore.load(null, null);
+        if (key != null && certificateChain != null) {
+            entryStore.setKeyEntry(alias, key, storePW.toCharArray(), certificateChain);
+        } else if (certificate != null) {
+            entryStore.setCertificateEntry(alias, certificate);
+        }
+        ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        entryStore.store(entryBytes, storePW.toCharArray());
+        return entryBytes.toByteArray();
+    }
+
+    /**
+     * Appends the entry, preceded by its length, and forces it to the disk.
+     */
+    private void appendToJournal(byte[] journalEntry) throws IOException {
+        if (journal == null) {
+            FileOutputStream out = new FileOutputStream(getJournalFile(JOURNAL_SUFFIX), true);
+            journalChannel = out.getChannel();
+            journal = new DataOutputStream(new BufferedOutputStream(out));
+        }
+        journal.writeInt(journalEntry.length);
+        journal.write(journalEntry);
+        journal.flush();
+        journalChannel.force(true);
+    }
+
+    /**
+     * Adds the entries of the journals left behind by a crash to the store.
+     * 
+     * @return the number of entries added
+     */
+    private int replayJournals() throws Exception {
+        int replayed = 0;
+        for (String suffix : new String[] { FLUSHING_JOURNAL_SUFFIX, JOURNAL_SUFFIX }) {
+            File journalFile = getJournalFile(suffix);
+            if (!journalFile.isFile()) {
+                continue;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+                while (true) {
+                    byte[] entryBytes;
+                    try {
+                        entryBytes = new byte[in.readInt()];
+                        in.readFully(entryBytes);
+                    } catch (EOFException e) {
+                        // end of the journal, or an entry that was not written completely
+                        break;
+                    }
+                    KeyStore entryStore = createKeyStore();
+                    entryStore.load(new ByteArrayInputStream(entryBytes), storePW.toCharArray());
+                    for (String alias : Collections.list(entryStore.aliases())) {
+                        if (entryStore.isKeyEntry(alias)) {
+                            store.setKeyEntry(alias, entryStore.getKey(alias, storePW.toCharArray()),
+                                            storePW.toCharArray(), entryStore.getCertificateChain(alias));
+                        } else {
+                            store.setCertificateEntry(alias, entryStore.getCertificate(alias));
+                        }
+                        replayed++;
+                    }
+                }
+            }
         }
+        return replayed;
+    }
+
+    private File getJournalFile(String suffix) {
+        return new File(storeFile.getPath() + suffix);
+    }
+
+    private byte[] serializeStore() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
         try {
-            store.store(outputStream, storePW.toCharArray());
+            store.store(bytes, storePW.toCharArray());
         } catch (Exception e) {
             logger.error("Could not save key store to file" + storeFile.getName(), e);
             throw new IOException(e);
-        } finally {
-            try {
-                outputStream.close();
-            } catch (Exception e) {
-                logger.error("Error closing stream of file" + storeFile.getName(), e);
-                throw e;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes to a temporary file first, which then replaces the key store file
+     * once its content is on the disk.
+     */
+    private void writeStoreFile(byte[] content) throws IOException {
+        File tempFile = new File(storeFile.getPath() + ".tmp");
+        Split split = writeTime.start();
+        try {
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                out.write(content);
+                out.getChannel().force(true);
             }
+            Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not save key store to file " + storeFile.getName(), e);
+            throw e;
+        } finally {
+            split.stop();
         }
     }
 
@@ -191,30 +448,44 @@ public class FileBasedKeyStoreService extends AbstractKeyStoreService {
 
     public void init() throws Exception {
         try {
-            try {
-                store = java.security.KeyStore.getInstance(keyStoreType, BCProvider.getInstance());
-            } catch (Exception e) {
-                // try again with standard provider resolution
-                try {
-                    store = java.security.KeyStore.getInstance(keyStoreType);
-                } catch (Exception e2) {
-                    logger.error("Error initializing key store with provider {}: {} - fallback to default provider failed, too (see stacktrace below).",
-                                    BCProvider.getInstance().getClass(), e.getMessage());
-                    throw e2;
-                }
-            }
+            store = createKeyStore();
             logger.debug("KEYSTORE: " + store);
             if (storeFile == null || !storeFile.exists() || !storeFile.isFile()) {
                 store.load(null, null);
             } else {
                 loadStoreFromFile();
             }
+            if (storeFile != null) {
+                int replayed = replayJournals();
+                if (replayed > 0) {
+                    logger.info("Added {} entries from the journal of key store file {}", replayed,
+                                    storeFile.getName());
+                    persistStore();
+                    Files.deleteIfExists(getJournalFile(FLUSHING_JOURNAL_SUFFIX).toPath());
+                    Files.deleteIfExists(getJournalFile(JOURNAL_SUFFIX).toPath());
+                }
+            }
         } catch (Exception e) {
             logger.error("Error initializing key store " + storeFile.getName(), e);
             throw e;
         }
     }
 
+    private KeyStore createKeyStore() throws Exception {
+        try {
+            return java.security.KeyStore.getInstance(keyStoreType, BCProvider.getInstance());
+        } catch (Exception e) {
+            // try again with standard provider resolution
+            try {
+                return java.security.KeyStore.getInstance(keyStoreType);
+            } catch (Exception e2) {
+                logger.error("Error initializing key store with provider {}: {} - fallback to default provider failed, too (see stacktrace below).",
+                                BCProvider.getInstance().getClass(), e.getMessage());
+                throw e2;
+            }
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,90 @@
+package won.db;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.AttributeConverter;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import won.protocol.model.URICount;
+import won.protocol.model.URICountSetConverter;
+import won.protocol.model.URIMapToURISetConverter;
+
+/**
+ * Copies the serialized sets of unconfirmed messages and pending confirmations
+ * of all message containers into the unconfirmed_message and
+ * pending_confirmation tables. The sets are java-serialized, so this can't be
+ * done in SQL. Node and owner each have a versioned subclass in their
+ * <code>db.migration</code> package.
+ */
+public abstract class CopyMessageContainerConfirmationsMigration extends BaseJavaMigration {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        URICountSetConverter unconfirmedConverter = new URICountSetConverter();
+        URIMapToURISetConverter pendingConverter = new URIMapToURISetConverter();
+        long containers = 0;
+        try (Statement select = connection.createStatement();
+                        PreparedStatement insertUnconfirmed = connection.prepareStatement(
+                                        "INSERT INTO unconfirmed_message (id, container_id, messageuri, referencecount) "
+                                                        + "VALUES (nextval('hibernate_sequence'), ?, ?, ?)");
+                        PreparedStatement insertPending = connection.prepareStatement(
+                                        "INSERT INTO pending_confirmation (id, container_id, confirmingmessageuri, confirmedmessageuri) "
+                                                        + "VALUES (nextval('hibernate_sequence'), ?, ?, ?)")) {
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rs = select.executeQuery(
+                            "SELECT id, unconfirmed, pendingconfirmations FROM message_container")) {
+                while (rs.next()) {
+                    long containerId = rs.getLong(1);
+                    Set<URICount> unconfirmed = convert(unconfirmedConverter, rs.getBytes(2));
+                    if (unconfirmed != null) {
+                        for (URICount uc : unconfirmed) {
+                            insertUnconfirmed.setLong(1, containerId);
+                            insertUnconfirmed.setString(2, uc.getUri().toString());
+                            insertUnconfirmed.setInt(3, uc.getCount());
+                            insertUnconfirmed.addBatch();
+                        }
+                    }
+                    Map<URI, Set<URI>> pending = convert(pendingConverter, rs.getBytes(3));
+                    if (pending != null) {
+                        for (Map.Entry<URI, Set<URI>> entry : pending.entrySet()) {
+                            for (URI confirmed : entry.getValue()) {
+                                insertPending.setLong(1, containerId);
+                                insertPending.setString(2, entry.getKey().toString());
+                                insertPending.setString(3, confirmed.toString());
+                                insertPending.addBatch();
+                            }
+                        }
+                    }
+                    if (++containers % BATCH_SIZE == 0) {
+                        insertUnconfirmed.executeBatch();
+                        insertPending.executeBatch();
+                    }
+                }
+            }
+            insertUnconfirmed.executeBatch();
+            insertPending.executeBatch();
+        }
+        logger.info("copied unconfirmed messages and pending confirmations of {} message containers", containers);
+    }
+
+    private static <T> T convert(AttributeConverter<T, byte[]> converter, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        return converter.convertToEntityAttribute(data);
+    }
+}
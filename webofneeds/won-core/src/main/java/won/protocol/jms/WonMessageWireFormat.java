@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.protocol.jms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import won.protocol.message.WonMessage;
+import won.protocol.message.WonMessageDecoder;
+import won.protocol.message.WonMessageEncoder;
+import won.protocol.message.processor.camel.WonCamelConstants;
+import won.protocol.service.WonNodeInfo;
+import won.protocol.service.WonNodeInformationService;
+import won.protocol.vocabulary.WON;
+
+/**
+ * Encoding and decoding of WonMessages sent over JMS. Messages are encoded
+ * either as TriG (text) or in the binary format
+ * {@link WonCamelConstants#RDF_BINARY_LANGUAGE_FOR_MESSAGE} (RDF Thrift). The
+ * binary format is only used if the recipient node advertises support for it
+ * via <code>won:supportsMessageFormat</code> in its node description. The
+ * format used is indicated in the {@link WonCamelConstants#CONTENT_TYPE_HEADER}
+ * header. Messages without that header are expected to be TriG, which is what
+ * peers that do not know about the binary format send.
+ * <p>
+ * RDF Thrift does not abbreviate IRIs, so binary messages are deflate-compressed
+ * to make them smaller than TriG. The compression is indicated in the
+ * {@link WonCamelConstants#CONTENT_ENCODING_HEADER} header; a binary body
+ * without that header is read uncompressed.
+ * </p>
+ */
+public class WonMessageWireFormat {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    public static final String CONTENT_ENCODING_DEFLATE = "deflate";
+
+    /**
+     * Returns the content type to advertise in the node description.
+     *
+     * @return
+     */
+    public static String getSupportedBinaryContentType() {
+        return WonCamelConstants.RDF_BINARY_LANGUAGE_FOR_MESSAGE.getContentType().getContentTypeStr();
+    }
+
+    /**
+     * Determines the language to use for sending a message to the specified node.
+     * Falls back to TriG if the node does not advertise support for the binary
+     * format, or if its node information cannot be obtained.
+     *
+     * @param wonNodeInformationService may be null, in which case TriG is used
+     * @param recipientNodeURI
+     * @return
+     */
+    public static Lang negotiateLang(WonNodeInformationService wonNodeInformationService, URI recipientNodeURI) {
+        if (wonNodeInformationService == null || recipientNodeURI == null) {
+            return WonCamelConstants.RDF_LANGUAGE_FOR_MESSAGE;
+        }
+        try {
+            WonNodeInfo nodeInfo = wonNodeInformationService.getWonNodeInformation(recipientNodeURI);
+            String supportedFormat = nodeInfo.getSupportedProtocolImplParamValue(WON.WonOverActiveMq.getURI(),
+                            WON.supportsMessageFormat.getURI());
+            if (getSupportedBinaryContentType().equals(supportedFormat)) {
+                return WonCamelConstants.RDF_BINARY_LANGUAGE_FOR_MESSAGE;
+            }
+        } catch (Exception e) {
+            logger.debug("Could not determine message formats supported by node {}, using TriG", recipientNodeURI,
+                            e);
+        }
+        return WonCamelConstants.RDF_LANGUAGE_FOR_MESSAGE;
+    }
+
+    /**
+     * Encodes the message for use as a JMS message body: a deflate-compressed
+     * <code>byte[]</code> for binary languages, a <code>String</code> otherwise.
+     *
+     * @param message
+     * @param lang
+     * @return
+     */
+    public static Object encode(WonMessage message, Lang lang) {
+        if (isBinary(lang)) {
+            return deflate(WonMessageEncoder.encodeAsBytes(message, lang));
+        }
+        return WonMessageEncoder.encode(message, lang);
+    }
+
+    /**
+     * Adds the content type header for the specified language to the headers and,
+     * for binary languages, the content encoding header.
+     *
+     * @param headers
+     * @param lang
+     * @return the headers
+     */
+    public static Map<String, Object> putContentTypeHeader(Map<String, Object> headers, Lang lang) {
+        headers.put(WonCamelConstants.CONTENT_TYPE_HEADER, lang.getContentType().getContentTypeStr());
+        if (isBinary(lang)) {
+            headers.put(WonCamelConstants.CONTENT_ENCODING_HEADER, CONTENT_ENCODING_DEFLATE);
+        }
+        return headers;
+    }
+
+    /**
+     * Decodes the message body using the language indicated by the content type
+     * header value. If the content type is null or unknown, the body is assumed to
+     * be TriG.
+     *
+     * @param body a <code>byte[]</code> or an object whose <code>toString()</code>
+     * is the serialized message
+     * @param contentType may be null
+     * @return
+     */
+    public static WonMessage decode(Object body, Object contentType) {
+        return decode(body, contentType, null);
+    }
+
+    /**
+     * Decodes the message body using the language indicated by the content type
+     * header value, inflating it first if the content encoding header value says
+     * it is compressed.
+     *
+     * @param body a <code>byte[]</code> or an object whose <code>toString()</code>
+     * is the serialized message
+     * @param contentType may be null
+     * @param contentEncoding may be null
+     * @return
+     */
+    public static WonMessage decode(Object body, Object contentType, Object contentEncoding) {
+        if (body instanceof byte[] && contentEncoding != null
+                        && CONTENT_ENCODING_DEFLATE.equals(contentEncoding.toString())) {
+            body = inflate((byte[]) body);
+        }
+        Lang lang = null;
+        if (contentType != null) {
+            lang = RDFLanguages.contentTypeToLang(contentType.toString());
+        }
+        if (lang == null) {
+            lang = WonCamelConstants.RDF_LANGUAGE_FOR_MESSAGE;
+        }
+        if (body instanceof byte[]) {
+            if (isBinary(lang)) {
+                return WonMessageDecoder.decode(lang, (byte[]) body);
+            }
+            return WonMessageDecoder.decode(lang, new String((byte[]) body, StandardCharsets.UTF_8));
+        }
+        return WonMessageDecoder.decode(lang, body.toString());
+    }
+
+    private static boolean isBinary(Lang lang) {
+        return RDFLanguages.RDFTHRIFT.equals(lang);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream compressed = new DeflaterOutputStream(out, deflater)) {
+            compressed.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not compress message", e);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] data) {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not decompress message", e);
+        }
+    }
+}
@@ -26,7 +26,11 @@ import java.util.stream.Collectors;
 /**
  * Wraps an RDF dataset representing a WoN message.
  * <p>
- * Note: this implementation is not thread-safe.
+ * The envelope properties are read from the envelope graph once and kept in an
+ * immutable index, so the getters for them are plain field reads that do not
+ * lock the message and may be called from several threads. The index is rebuilt
+ * after a message property is added. Modifying the message concurrently with
+ * reading it is not supported.
  */
 public class WonMessage implements Serializable {
     public static final String CONTENT_URI_SUFFIX_BASE = "#content-";
@@ -41,25 +45,12 @@ public class WonMessage implements Serializable {
     // private URI messageEventURI;
     private List<String> envelopeGraphNames;
     private URI outerEnvelopeGraphURI;
-    private Model envelopeGraph;
-    private URI messageURI;
-    private WonMessageType messageType; // ConnectMessage, CreateMessage, AtomStateMessage
-    private WonMessageDirection envelopeType;
-    private URI connectionURI;
-    private URI atomURI;
-    private URI senderSocketURI;
-    private URI recipientSocketURI;
-    private URI hintTargetAtomURI;
-    private URI hintTargetSocketURI;
-    private Double hintScore;
-    private List<URI> previousMessages = null;
-    private List<URI> injectIntoConnections = null;
-    private URI isResponseToMessageURI;
+    private volatile Model envelopeGraph;
+    private volatile URI messageURI;
+    // envelope properties of the message, read in one pass over the envelope
+    private transient volatile EnvelopeIndex envelopeIndex;
     private URI isRemoteResponseToMessageURI;
-    private List<String> contentGraphNames;
-    private WonMessageType respondingToMessageType;
     private URI correspondingRemoteMessageURI;
-    private List<URI> forwardedMessageURIs;
     private List<AttachmentHolder> attachmentHolders;
     private Map<String, Resource> graphSignatures;
     private Optional<WonMessage> deliveryChain = Optional.empty();
@@ -454,6 +445,7 @@ public class WonMessage implements Serializable {
                             new Object[] { property, value, getMessageURI(), getEnvelopeURI() });
         }
         getEnvelopeGraph().getResource(getMessageURI().toString()).addProperty(property, value);
+        envelopeChanged();
     }
 
     public synchronized void addMessagePropertiesRDFNode(Property property, Collection<RDFNode> values) {
@@ -466,6 +458,7 @@ public class WonMessage implements Serializable {
         }
         Resource msg = getEnvelopeGraph().getResource(getMessageURI().toString());
         values.forEach(v -> msg.addProperty(property, v));
+        envelopeChanged();
     }
 
     /**
@@ -664,18 +657,40 @@ public class WonMessage implements Serializable {
         return newAttachmentHolders;
     }
 
-    private synchronized Model getEnvelopeGraph() {
-        if (headMessage.envelopeGraph != null) {
-            return headMessage.envelopeGraph;
+    private Model getEnvelopeGraph() {
+        Model envelope = headMessage.envelopeGraph;
+        if (envelope != null) {
+            return envelope;
         }
-        headMessage.envelopeGraph = headMessage.completeDataset
-                        .getNamedModel(headMessage.getEnvelopeURI().toString());
-        if (headMessage.envelopeGraph == null) {
+        envelope = headMessage.completeDataset.getNamedModel(headMessage.getEnvelopeURI().toString());
+        if (envelope == null) {
             throw new WonMessageNotWellFormedException(
                             "Did not find required envelope graph '" + headMessage.getEnvelopeURI().toString()
                                             + "' in message dataset");
         }
-        return headMessage.envelopeGraph;
+        headMessage.envelopeGraph = envelope;
+        return envelope;
+    }
+
+    /**
+     * Returns the index of the head message's envelope properties, building it on
+     * first use. Building it twice concurrently is harmless, as the index is
+     * immutable and only depends on the envelope.
+     */
+    private EnvelopeIndex getEnvelopeIndex() {
+        EnvelopeIndex index = headMessage.envelopeIndex;
+        if (index == null) {
+            index = new EnvelopeIndex(getEnvelopeGraph(), getMessageURI());
+            headMessage.envelopeIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Drops the envelope index after the envelope was changed.
+     */
+    private void envelopeChanged() {
+        headMessage.envelopeIndex = null;
     }
 
     @Deprecated
@@ -688,24 +703,24 @@ public class WonMessage implements Serializable {
         return model.contains(model.getResource(modelUri), RDF.type, WONMSG.EnvelopeGraph);
     }
 
-    public synchronized List<String> getContentGraphURIs() {
-        if (headMessage.contentGraphNames == null) {
-            Model env = getEnvelopeGraph();
-            headMessage.contentGraphNames = RdfUtils
-                            .getObjectStreamOfProperty(getEnvelopeGraph(), getMessageURIRequired(),
-                                            URI.create(WONMSG.content.getURI()), res -> res.asResource().getURI())
-                            .collect(Collectors.toList());
+    public List<String> getContentGraphURIs() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        if (index.contentGraphURIs != null) {
+            return index.contentGraphURIs;
         }
-        return Collections.unmodifiableList(headMessage.contentGraphNames);
+        return Collections.unmodifiableList(index.values(WONMSG.content).stream()
+                        .map(node -> node.asResource().getURI())
+                        .collect(Collectors.toList()));
     }
 
     private synchronized NodeIterator getContentGraphReferences(Model model, Resource envelopeGraphResource) {
         return model.listObjectsOfProperty(envelopeGraphResource, WONMSG.content);
     }
 
-    public synchronized URI getMessageURI() {
-        if (headMessage.messageURI == null) {
-            Dataset ds = headMessage.getCompleteDataset();
+    public URI getMessageURI() {
+        URI uri = headMessage.messageURI;
+        if (uri == null) {
+            Dataset ds = headMessage.completeDataset;
             if (ds == null) {
                 throw new WonMessageNotWellFormedException("No underlying dataset found");
             }
@@ -715,12 +730,13 @@ public class WonMessage implements Serializable {
                                 "Underlying dataset is expected to contain named graphs, but none were found");
             }
             String graphURI = it.next();
-            headMessage.messageURI = WonRelativeUriHelper.stripFragment(URI.create(graphURI));
+            uri = WonRelativeUriHelper.stripFragment(URI.create(graphURI));
+            headMessage.messageURI = uri;
         }
-        return headMessage.messageURI;
+        return uri;
     }
 
-    public synchronized URI getMessageURIRequired() {
+    public URI getMessageURIRequired() {
         URI ret = getMessageURI();
         if (ret == null) {
             throw new IllegalStateException("Could not determine message URI");
@@ -728,15 +744,15 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized WonMessageType getMessageType() {
-        if (headMessage.messageType == null) {
-            URI type = getEnvelopePropertyURIValue(WONMSG.messageType);
-            headMessage.messageType = WonMessageType.getWonMessageType(type);
+    public WonMessageType getMessageType() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        if (index.messageType != null) {
+            return index.messageType;
         }
-        return headMessage.messageType;
+        return WonMessageType.getWonMessageType(index.firstURI(WONMSG.messageType));
     }
 
-    public synchronized WonMessageType getMessageTypeRequired() {
+    public WonMessageType getMessageTypeRequired() {
         WonMessageType ret = getMessageType();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.messageType);
@@ -744,17 +760,16 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized WonMessageDirection getEnvelopeType() {
-        if (headMessage.envelopeType == null) {
-            URI type = getEnvelopePropertyURIValue(RDF.type);
-            if (type != null) {
-                headMessage.envelopeType = WonMessageDirection.getWonMessageDirection(type);
-            }
+    public WonMessageDirection getEnvelopeType() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        if (index.envelopeType != null) {
+            return index.envelopeType;
         }
-        return headMessage.envelopeType;
+        URI type = index.firstURI(RDF.type);
+        return type == null ? null : WonMessageDirection.getWonMessageDirection(type);
     }
 
-    public synchronized WonMessageDirection getEnvelopeTypeRequired() {
+    public WonMessageDirection getEnvelopeTypeRequired() {
         WonMessageDirection ret = getEnvelopeType();
         if (ret == null) {
             throw new MissingMessagePropertyException(RDF.type);
@@ -762,14 +777,12 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized URI getConnectionURI() {
-        if (headMessage.connectionURI == null) {
-            headMessage.connectionURI = getEnvelopePropertyURIValue(WONMSG.connection);
-        }
-        return headMessage.connectionURI;
+    public URI getConnectionURI() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uri(index.connectionURI, WONMSG.connection);
     }
 
-    public synchronized URI getConnectionURIRequired() {
+    public URI getConnectionURIRequired() {
         URI ret = getConnectionURI();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.connection);
@@ -777,14 +790,12 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized URI getAtomURI() {
-        if (headMessage.atomURI == null) {
-            headMessage.atomURI = getEnvelopePropertyURIValue(WONMSG.atom);
-        }
-        return headMessage.atomURI;
+    public URI getAtomURI() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uri(index.atomURI, WONMSG.atom);
     }
 
-    public synchronized URI getAtomURIRequired() {
+    public URI getAtomURIRequired() {
         URI ret = getAtomURI();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.atom);
@@ -792,14 +803,12 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized URI getSenderSocketURI() {
-        if (headMessage.senderSocketURI == null) {
-            headMessage.senderSocketURI = getEnvelopePropertyURIValue(WONMSG.senderSocket);
-        }
-        return headMessage.senderSocketURI;
+    public URI getSenderSocketURI() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uri(index.senderSocketURI, WONMSG.senderSocket);
     }
 
-    public synchronized URI getSenderSocketURIRequired() {
+    public URI getSenderSocketURIRequired() {
         URI senderSocketUri = getSenderSocketURI();
         if (senderSocketUri == null) {
             throw new MissingMessagePropertyException(WONMSG.senderSocket);
@@ -807,7 +816,7 @@ public class WonMessage implements Serializable {
         return senderSocketUri;
     }
 
-    public synchronized URI getSenderAtomURI() {
+    public URI getSenderAtomURI() {
         URI atomURI = headMessage.getAtomURI();
         if (atomURI != null) {
             return atomURI;
@@ -819,7 +828,7 @@ public class WonMessage implements Serializable {
         return null;
     }
 
-    public synchronized URI getSenderAtomURIRequired() {
+    public URI getSenderAtomURIRequired() {
         URI ret = getSenderAtomURI();
         if (ret == null) {
             throw new WonMessageProcessingException("Could not determine sender atom URI");
@@ -827,7 +836,7 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized URI getSenderNodeURI() {
+    public URI getSenderNodeURI() {
         URI atomURI = getSenderAtomURI();
         if (atomURI != null) {
             return WonRelativeUriHelper.stripAtomSuffix(atomURI);
@@ -835,7 +844,7 @@ public class WonMessage implements Serializable {
         return null;
     }
 
-    public synchronized URI getSenderNodeURIRequired() {
+    public URI getSenderNodeURIRequired() {
         URI atomURI = getSenderAtomURIRequired();
         if (atomURI != null) {
             return WonRelativeUriHelper.stripAtomSuffix(atomURI);
@@ -843,14 +852,12 @@ public class WonMessage implements Serializable {
         throw new WonMessageProcessingException("Could not determine sender node URI");
     }
 
-    public synchronized URI getRecipientSocketURI() {
-        if (headMessage.recipientSocketURI == null) {
-            headMessage.recipientSocketURI = getEnvelopePropertyURIValue(WONMSG.recipientSocket);
-        }
-        return headMessage.recipientSocketURI;
+    public URI getRecipientSocketURI() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uri(index.recipientSocketURI, WONMSG.recipientSocket);
     }
 
-    public synchronized URI getRecipientSocketURIRequired() {
+    public URI getRecipientSocketURIRequired() {
         URI recipientSocketUri = getRecipientSocketURI();
         if (recipientSocketUri == null) {
             throw new MissingMessagePropertyException(WONMSG.recipientSocket);
@@ -858,7 +865,7 @@ public class WonMessage implements Serializable {
         return recipientSocketUri;
     }
 
-    public synchronized URI getRecipientAtomURI() {
+    public URI getRecipientAtomURI() {
         URI atomURI = headMessage.getAtomURI();
         if (atomURI != null) {
             return atomURI;
@@ -870,7 +877,7 @@ public class WonMessage implements Serializable {
         return null;
     }
 
-    public synchronized URI getRecipientAtomURIRequired() {
+    public URI getRecipientAtomURIRequired() {
         URI ret = getRecipientAtomURI();
         if (ret == null) {
             throw new WonMessageProcessingException("Could not determine recipient atom URI");
@@ -878,7 +885,7 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized URI getRecipientNodeURI() {
+    public URI getRecipientNodeURI() {
         URI atomURI = getRecipientAtomURI();
         if (atomURI != null) {
             return WonRelativeUriHelper.stripAtomSuffix(atomURI);
@@ -886,7 +893,7 @@ public class WonMessage implements Serializable {
         return null;
     }
 
-    public synchronized URI getRecipientNodeURIRequired() {
+    public URI getRecipientNodeURIRequired() {
         URI atomURI = getRecipientAtomURIRequired();
         if (atomURI != null) {
             return WonRelativeUriHelper.stripAtomSuffix(atomURI);
@@ -894,14 +901,12 @@ public class WonMessage implements Serializable {
         throw new WonMessageProcessingException("Could not determine recipient node URI");
     }
 
-    public synchronized URI getHintTargetSocketURI() {
-        if (headMessage.hintTargetSocketURI == null) {
-            headMessage.hintTargetSocketURI = getEnvelopePropertyURIValue(WONMSG.hintTargetSocket);
-        }
-        return headMessage.hintTargetSocketURI;
+    public URI getHintTargetSocketURI() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uri(index.hintTargetSocketURI, WONMSG.hintTargetSocket);
     }
 
-    public synchronized URI getHintTargetSocketURIRequired() {
+    public URI getHintTargetSocketURIRequired() {
         URI ret = getHintTargetSocketURI();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.hintTargetSocket);
@@ -909,14 +914,12 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized URI getHintTargetAtomURI() {
-        if (headMessage.hintTargetAtomURI == null) {
-            headMessage.hintTargetAtomURI = getEnvelopePropertyURIValue(WONMSG.hintTargetAtom);
-        }
-        return headMessage.hintTargetAtomURI;
+    public URI getHintTargetAtomURI() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uri(index.hintTargetAtomURI, WONMSG.hintTargetAtom);
     }
 
-    public synchronized URI getHintTargetAtomURIRequired() {
+    public URI getHintTargetAtomURIRequired() {
         URI ret = getHintTargetAtomURI();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.hintTargetAtom);
@@ -924,15 +927,15 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized Double getHintScore() {
-        if (headMessage.hintScore == null) {
-            headMessage.hintScore = getEnvelopePropertyValue(WONMSG.hintScore,
-                            x -> x.isLiteral() ? x.asLiteral().getDouble() : null);
+    public Double getHintScore() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        if (index.hintScore != null) {
+            return index.hintScore;
         }
-        return headMessage.hintScore;
+        return getEnvelopePropertyValue(WONMSG.hintScore, x -> x.isLiteral() ? x.asLiteral().getDouble() : null);
     }
 
-    public synchronized Double getHintScoreRequired() {
+    public Double getHintScoreRequired() {
         Double ret = getHintScore();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.hintScore);
@@ -940,14 +943,12 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized List<URI> getInjectIntoConnectionURIs() {
-        if (headMessage.injectIntoConnections == null) {
-            headMessage.injectIntoConnections = getEnvelopePropertyURIValues(WONMSG.injectIntoConnection);
-        }
-        return headMessage.injectIntoConnections;
+    public List<URI> getInjectIntoConnectionURIs() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uris(index.injectIntoConnectionURIs, WONMSG.injectIntoConnection);
     }
 
-    public synchronized List<URI> getInjectIntoConnectionURIsRequired() {
+    public List<URI> getInjectIntoConnectionURIsRequired() {
         List<URI> ret = getInjectIntoConnectionURIs();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.injectIntoConnection);
@@ -955,14 +956,12 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized List<URI> getPreviousMessageURIs() {
-        if (headMessage.previousMessages == null) {
-            headMessage.previousMessages = getEnvelopePropertyURIValues(WONMSG.previousMessage);
-        }
-        return headMessage.previousMessages;
+    public List<URI> getPreviousMessageURIs() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uris(index.previousMessageURIs, WONMSG.previousMessage);
     }
 
-    public synchronized List<URI> getPreviousMessageURIsRequired() {
+    public List<URI> getPreviousMessageURIsRequired() {
         List<URI> ret = getPreviousMessageURIs();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.previousMessage);
@@ -970,14 +969,12 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized URI getRespondingToMessageURI() {
-        if (headMessage.isResponseToMessageURI == null) {
-            headMessage.isResponseToMessageURI = getEnvelopePropertyURIValue(WONMSG.respondingTo);
-        }
-        return headMessage.isResponseToMessageURI;
+    public URI getRespondingToMessageURI() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uri(index.respondingToMessageURI, WONMSG.respondingTo);
     }
 
-    public synchronized URI getRespondingToMessageURIRequired() {
+    public URI getRespondingToMessageURIRequired() {
         URI ret = getRespondingToMessageURI();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.respondingTo);
@@ -985,14 +982,12 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized List<URI> getForwardedMessageURIs() {
-        if (headMessage.forwardedMessageURIs == null) {
-            headMessage.forwardedMessageURIs = getEnvelopePropertyURIValues(WONMSG.forwardedMessage);
-        }
-        return headMessage.forwardedMessageURIs;
+    public List<URI> getForwardedMessageURIs() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        return index.uris(index.forwardedMessageURIs, WONMSG.forwardedMessage);
     }
 
-    public synchronized List<URI> getForwardedMessageURIRequired() {
+    public List<URI> getForwardedMessageURIRequired() {
         List<URI> ret = getForwardedMessageURIs();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.forwardedMessage);
@@ -1000,17 +995,16 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized WonMessageType getRespondingToMessageType() {
-        if (headMessage.respondingToMessageType == null) {
-            URI typeURI = getEnvelopePropertyURIValue(WONMSG.respondingToMessageType);
-            if (typeURI != null) {
-                headMessage.respondingToMessageType = WonMessageType.getWonMessageType(typeURI);
-            }
+    public WonMessageType getRespondingToMessageType() {
+        EnvelopeIndex index = getEnvelopeIndex();
+        if (index.respondingToMessageType != null) {
+            return index.respondingToMessageType;
         }
-        return headMessage.respondingToMessageType;
+        URI typeURI = index.firstURI(WONMSG.respondingToMessageType);
+        return typeURI == null ? null : WonMessageType.getWonMessageType(typeURI);
     }
 
-    public synchronized WonMessageType getRespondingToMessageTypeRequired() {
+    public WonMessageType getRespondingToMessageTypeRequired() {
         WonMessageType ret = getRespondingToMessageType();
         if (ret == null) {
             throw new MissingMessagePropertyException(WONMSG.respondingToMessageType);
@@ -1018,64 +1012,20 @@ public class WonMessage implements Serializable {
         return ret;
     }
 
-    public synchronized URI getEnvelopePropertyURIValue(URI propertyURI) {
-        Property property = headMessage.completeDataset.getDefaultModel().createProperty(propertyURI.toString());
-        return getEnvelopePropertyURIValue(property);
-    }
-
-    public synchronized URI getEnvelopePropertyURIValue(Property property) {
-        Model currentEnvelope = getEnvelopeGraph();
-        URI currentEnvelopeUri = getEnvelopeURI();
-        // TODO would make sense to order envelope graphs in order from container to
-        // containee in the first place,
-        // if proper done, we should avoid ending up in infinite loop if someone sends
-        // us malformed envelopes that
-        // contain-in-other circular...
-        if (currentEnvelope != null) {
-            URI currentMessageURI = getMessageURI();
-            StmtIterator it = currentEnvelope.listStatements(currentEnvelope.getResource(currentMessageURI.toString()),
-                            property, (RDFNode) null);
-            if (it.hasNext()) {
-                return URI.create(it.nextStatement().getObject().asResource().toString());
-            }
-        }
-        return null;
+    public URI getEnvelopePropertyURIValue(URI propertyURI) {
+        return getEnvelopePropertyURIValue(ResourceFactory.createProperty(propertyURI.toString()));
     }
 
-    public synchronized <T> T getEnvelopePropertyValue(Property property, Function<RDFNode, T> mapper) {
-        Model currentEnvelope = getEnvelopeGraph();
-        URI currentEnvelopeUri = getEnvelopeURI();
-        // TODO would make sense to order envelope graphs in order from container to
-        // containee in the first place,
-        // if proper done, we should avoid ending up in infinite loop if someone sends
-        // us malformed envelopes that
-        // contain-in-other circular...
-        if (currentEnvelope != null) {
-            URI currentMessageURI = getMessageURI();
-            StmtIterator it = currentEnvelope.listStatements(currentEnvelope.getResource(currentMessageURI.toString()),
-                            property, (RDFNode) null);
-            if (it.hasNext()) {
-                return mapper.apply(it.nextStatement().getObject());
-            }
-        }
-        return null;
+    public URI getEnvelopePropertyURIValue(Property property) {
+        return getEnvelopeIndex().firstURI(property);
     }
 
-    private synchronized List<URI> getEnvelopePropertyURIValues(Property property) {
-        List<URI> values = new ArrayList<>();
-        Model currentEnvelope = getEnvelopeGraph();
-        URI currentEnvelopeUri = getEnvelopeURI();
-        // TODO would make sense to order envelope graphs in order from container to
-        // containee in the first place
-        if (currentEnvelope != null) {
-            URI currentMessageURI = getMessageURI();
-            StmtIterator it = currentEnvelope.listStatements(currentEnvelope.getResource(currentMessageURI.toString()),
-                            property, (RDFNode) null);
-            while (it.hasNext()) {
-                values.add(URI.create(it.nextStatement().getObject().asResource().toString()));
-            }
+    public <T> T getEnvelopePropertyValue(Property property, Function<RDFNode, T> mapper) {
+        List<RDFNode> values = getEnvelopeIndex().values(property);
+        if (values.isEmpty()) {
+            return null;
         }
-        return values;
+        return mapper.apply(values.get(0));
     }
 
     private void addIfPresent(List<Object> values, List<String> labels, Object value, String label) {
@@ -1279,6 +1229,117 @@ public class WonMessage implements Serializable {
         }
     }
 
+    /**
+     * The properties of the message resource in its envelope, collected in a single
+     * pass over the envelope graph. The properties the getters ask for are
+     * converted up front; a property that cannot be converted is left null here and
+     * converted again when it is requested, so that the getter fails just like it
+     * would when reading from the envelope.
+     */
+    private static final class EnvelopeIndex {
+        private final Map<Property, List<RDFNode>> values = new HashMap<>();
+        private final WonMessageType messageType;
+        private final WonMessageDirection envelopeType;
+        private final URI connectionURI;
+        private final URI atomURI;
+        private final URI senderSocketURI;
+        private final URI recipientSocketURI;
+        private final URI hintTargetAtomURI;
+        private final URI hintTargetSocketURI;
+        private final Double hintScore;
+        private final URI respondingToMessageURI;
+        private final WonMessageType respondingToMessageType;
+        private final List<URI> previousMessageURIs;
+        private final List<URI> injectIntoConnectionURIs;
+        private final List<URI> forwardedMessageURIs;
+        private final List<String> contentGraphURIs;
+
+        EnvelopeIndex(Model envelope, URI messageURI) {
+            StmtIterator it = envelope.listStatements(envelope.getResource(messageURI.toString()), null,
+                            (RDFNode) null);
+            while (it.hasNext()) {
+                Statement stmt = it.nextStatement();
+                values.computeIfAbsent(stmt.getPredicate(), p -> new ArrayList<>(1)).add(stmt.getObject());
+            }
+            URI type = tryFirstURI(WONMSG.messageType);
+            messageType = type == null ? null : WonMessageType.getWonMessageType(type);
+            URI direction = tryFirstURI(RDF.type);
+            envelopeType = direction == null ? null : WonMessageDirection.getWonMessageDirection(direction);
+            connectionURI = tryFirstURI(WONMSG.connection);
+            atomURI = tryFirstURI(WONMSG.atom);
+            senderSocketURI = tryFirstURI(WONMSG.senderSocket);
+            recipientSocketURI = tryFirstURI(WONMSG.recipientSocket);
+            hintTargetAtomURI = tryFirstURI(WONMSG.hintTargetAtom);
+            hintTargetSocketURI = tryFirstURI(WONMSG.hintTargetSocket);
+            hintScore = tryConvert(WONMSG.hintScore, nodes -> {
+                RDFNode node = nodes.get(0);
+                return node.isLiteral() ? node.asLiteral().getDouble() : null;
+            });
+            respondingToMessageURI = tryFirstURI(WONMSG.respondingTo);
+            URI respondingToType = tryFirstURI(WONMSG.respondingToMessageType);
+            respondingToMessageType = respondingToType == null ? null
+                            : WonMessageType.getWonMessageType(respondingToType);
+            previousMessageURIs = tryURIs(WONMSG.previousMessage);
+            injectIntoConnectionURIs = tryURIs(WONMSG.injectIntoConnection);
+            forwardedMessageURIs = tryURIs(WONMSG.forwardedMessage);
+            contentGraphURIs = values.containsKey(WONMSG.content)
+                            ? tryConvert(WONMSG.content, nodes -> Collections.unmodifiableList(nodes.stream()
+                                            .map(node -> node.asResource().getURI())
+                                            .collect(Collectors.toList())))
+                            : Collections.emptyList();
+        }
+
+        List<RDFNode> values(Property property) {
+            return values.getOrDefault(property, Collections.emptyList());
+        }
+
+        /**
+         * Returns the indexed value if there is one, otherwise reads it from the
+         * property's values.
+         */
+        URI uri(URI indexed, Property property) {
+            return indexed != null ? indexed : firstURI(property);
+        }
+
+        List<URI> uris(List<URI> indexed, Property property) {
+            return indexed != null ? indexed : toURIs(values(property));
+        }
+
+        URI firstURI(Property property) {
+            List<RDFNode> nodes = values.get(property);
+            return nodes == null ? null : toURI(nodes.get(0));
+        }
+
+        private URI tryFirstURI(Property property) {
+            return tryConvert(property, nodes -> toURI(nodes.get(0)));
+        }
+
+        private List<URI> tryURIs(Property property) {
+            return values.containsKey(property) ? tryConvert(property, EnvelopeIndex::toURIs)
+                            : Collections.emptyList();
+        }
+
+        private <T> T tryConvert(Property property, Function<List<RDFNode>, T> converter) {
+            List<RDFNode> nodes = values.get(property);
+            if (nodes == null) {
+                return null;
+            }
+            try {
+                return converter.apply(nodes);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        private static URI toURI(RDFNode node) {
+            return URI.create(node.asResource().toString());
+        }
+
+        private static List<URI> toURIs(List<RDFNode> nodes) {
+            return Collections.unmodifiableList(nodes.stream().map(EnvelopeIndex::toURI).collect(Collectors.toList()));
+        }
+    }
+
     public static class AttachmentHolder {
         private URI destinationUri;
         // holds the attachment graph and the signature graph
@@ -1,5 +1,6 @@
 package won.protocol.message;
 
+import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 import java.lang.invoke.MethodHandles;
 
@@ -31,6 +32,16 @@ public class WonMessageDecoder {
         return decodeFromDataset(dataset);
     }
 
+    public static WonMessage decode(Lang lang, byte[] message) {
+        if (message == null || message.length == 0) {
+            logger.warn("cannot decode empty or null byte array to message");
+            return null;
+        }
+        Dataset dataset = DatasetFactory.createGeneral();
+        RDFDataMgr.read(dataset, new ByteArrayInputStream(message), lang);
+        return decodeFromDataset(dataset);
+    }
+
     public static WonMessage decodeFromDataset(Dataset message) {
         return WonMessage.of(message);
     }
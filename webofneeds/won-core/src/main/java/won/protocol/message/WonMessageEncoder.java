@@ -1,5 +1,6 @@
 package won.protocol.message;
 
+import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
 
 import org.apache.jena.query.Dataset;
@@ -31,6 +32,24 @@ public class WonMessageEncoder {
         return sw.toString();
     }
 
+    /**
+     * Encodes the WonMessage object as serialized RDF in the given language,
+     * writing to a byte array. Use this method for binary languages such as
+     * <code>Lang.RDFTHRIFT</code>. If no WonMessage object is provided an empty
+     * array is returned.
+     *
+     * @param message <code>WonMessage</code> object which will be serialized
+     * @param lang defines the serialization language
+     * @return the serialized RDF
+     */
+    public static byte[] encodeAsBytes(WonMessage message, Lang lang) {
+        if (message == null)
+            return new byte[0];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, message.getCompleteDataset(), lang);
+        return out.toByteArray();
+    }
+
     public static Dataset encodeAsDataset(WonMessage wonMessage) {
         return wonMessage.getCompleteDataset();
     }
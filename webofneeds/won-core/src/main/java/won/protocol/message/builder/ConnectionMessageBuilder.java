@@ -41,6 +41,21 @@ public class ConnectionMessageBuilder
         return this;
     }
 
+    /**
+     * Like {@link #forward(WonMessage)}, but only references the forwarded message
+     * in the envelope without copying its graphs. The message that is built must be
+     * combined with the forwarded message using
+     * {@link WonMessage#of(WonMessage...)} before it is sent. This allows sending
+     * the same message to many recipients without copying it for each of them.
+     * 
+     * @param forwardedMessageURI
+     * @return the connection message builder.
+     */
+    public ConnectionMessageBuilder forwardReference(URI forwardedMessageURI) {
+        builder.forwardReference(forwardedMessageURI);
+        return this;
+    }
+
     /**
      * Sets the specified URIs as 'injection targets' using
      * msg:injectIntoConnection.
@@ -57,6 +57,8 @@ public class WonMessageBuilder {
     private Map<URI, Model> contentMap = new HashMap<>();
     private Map<URI, Model> signatureMap = new HashMap<>();
     private List<WonMessage> forwardedMessages;
+    // forwarded messages that are only referenced, their graphs are added later
+    private List<URI> forwardedMessageReferences;
     private List<URI> previousMessages;
     private Long timestamp;
 
@@ -243,6 +245,10 @@ public class WonMessageBuilder {
                 RdfUtils.addDatasetToDataset(dataset, msg.getCompleteDataset());
             });
         }
+        if (forwardedMessageReferences != null) {
+            forwardedMessageReferences.forEach(uri -> messageEventResource.addProperty(WONMSG.forwardedMessage,
+                            envelopeGraph.getResource(uri.toString())));
+        }
         if (previousMessages != null) {
             previousMessages.forEach(msg -> {
                 messageEventResource.addProperty(WONMSG.previousMessage,
@@ -656,4 +662,13 @@ public class WonMessageBuilder {
         this.forwardedMessages.add(toForward);
         return this;
     }
+
+    WonMessageBuilder forwardReference(URI forwardedMessageURI) {
+        Objects.requireNonNull(forwardedMessageURI);
+        if (this.forwardedMessageReferences == null) {
+            this.forwardedMessageReferences = new ArrayList<URI>();
+        }
+        this.forwardedMessageReferences.add(forwardedMessageURI);
+        return this;
+    }
 }
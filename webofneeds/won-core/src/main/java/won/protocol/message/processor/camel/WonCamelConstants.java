@@ -29,6 +29,9 @@ public class WonCamelConstants {
     public static final String SOCKET_TYPE_URI_HEADER = "won.socketType";
     public static final String MESSAGE_TYPE_HEADER = "won.messageType";
     public static final Lang RDF_LANGUAGE_FOR_MESSAGE = Lang.TRIG;
+    public static final Lang RDF_BINARY_LANGUAGE_FOR_MESSAGE = Lang.RDFTHRIFT;
+    public static final String CONTENT_TYPE_HEADER = "won.contentType";
+    public static final String CONTENT_ENCODING_HEADER = "won.contentEncoding";
     public static final String OUTBOUND_MESSAGE_HEADER = "won.outboundMessage";
     public static final String CONNECTION_URI_HEADER = "won.connectionURI";
     public static final String CONNECTION_HEADER = "won.connection";
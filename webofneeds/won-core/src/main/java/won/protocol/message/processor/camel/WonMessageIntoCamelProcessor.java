@@ -15,21 +15,21 @@ import java.util.Map;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
-import org.apache.jena.riot.Lang;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import won.protocol.exception.WonMessageProcessingException;
+import won.protocol.jms.WonMessageWireFormat;
 import won.protocol.message.WonMessage;
-import won.protocol.message.WonMessageDecoder;
 
 /**
  * First processor for incoming messages. It expects a serialized WonMessage in
- * TriG format in the exchange's in, in the body or a WonMessage object in the
- * in header 'wonMessgage'. If that header is empty, the WonMessage found in the
- * body is deserialized and put into the in header 'wonMessage'. Moreover, the
+ * the exchange's in, in the body or a WonMessage object in the in header
+ * 'wonMessgage'. If that header is empty, the WonMessage found in the body is
+ * deserialized and put into the in header 'wonMessage'. Moreover, the
  * 'messageType' header is set. To avoid confusions, the body of the exchange's
- * in is deleted.
+ * in is deleted. The serialization format of the body is taken from the
+ * 'won.contentType' header, defaulting to TriG.
  */
 public class WonMessageIntoCamelProcessor implements Processor {
     Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -45,15 +45,17 @@ public class WonMessageIntoCamelProcessor implements Processor {
                 wonMessage = (WonMessage) body;
             } else {
                 try {
-                    // try to decode the body from TriG
-                    wonMessage = WonMessageDecoder.decode(Lang.TRIG, exchange.getIn().getBody().toString());
+                    // try to decode the body, using TriG if no content type is specified
+                    wonMessage = WonMessageWireFormat.decode(body,
+                                    exchange.getIn().getHeader(WonCamelConstants.CONTENT_TYPE_HEADER),
+                                    exchange.getIn().getHeader(WonCamelConstants.CONTENT_ENCODING_HEADER));
                 } catch (Exception e) {
                     // stop the exchange in this case - maybe at some point we can return a failure
                     // response but
                     // currently, we would have to look into the message for doing that, and looking
                     // into
                     // the message is not possible if we cannot decode it.
-                    logger.info("could not decode message as TriG, ignoring it (the offending message is logged at loglevel 'DEBUG')",
+                    logger.info("could not decode message, ignoring it (the offending message is logged at loglevel 'DEBUG')",
                                     e);
                     if (logger.isDebugEnabled()) {
                         logger.debug("offending message: {}", exchange.getIn().getBody().toString());
@@ -78,5 +80,8 @@ public class WonMessageIntoCamelProcessor implements Processor {
                         URI.create(wonMessage.getMessageType().getResource().getURI()));
         exchange.getIn().setHeader(WonCamelConstants.MESSAGE_HEADER, wonMessage);
         exchange.getIn().setBody(null);
+        // content type and encoding only described the body, which is gone now
+        exchange.getIn().removeHeader(WonCamelConstants.CONTENT_TYPE_HEADER);
+        exchange.getIn().removeHeader(WonCamelConstants.CONTENT_ENCODING_HEADER);
     }
 }
@@ -20,17 +20,20 @@ import javax.persistence.*;
 import javax.xml.bind.annotation.XmlTransient;
 import java.net.URI;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  *
  */
 @Entity
-@Table(name = "atom", uniqueConstraints = {
-                @UniqueConstraint(name = "IDX_ATOM_UNIQUE_MESSAGE_CONTAINER_ID", columnNames = "message_container_id"),
-                @UniqueConstraint(name = "IDX_ATOM_UNIQUE_DATASETHOLDER_ID", columnNames = "datatsetholder_id") })
+@Table(name = "atom", indexes = {
+                @Index(name = "IDX_ATOM_CREATIONDATE_ID", columnList = "creationDate, id") }, uniqueConstraints = {
+                                @UniqueConstraint(name = "IDX_ATOM_UNIQUE_MESSAGE_CONTAINER_ID", columnNames = "message_container_id"),
+                                @UniqueConstraint(name = "IDX_ATOM_UNIQUE_DATASETHOLDER_ID", columnNames = "datatsetholder_id") })
 // @Inheritance(strategy=InheritanceType.JOINED)
 public class Atom implements VersionedEntity {
     public static final String ACL_GRAPH_URI_FRAGMENT = "#acl";
@@ -83,6 +86,19 @@ public class Atom implements VersionedEntity {
     private AtomMessageContainer messageContainer;
     @OneToOne(fetch = FetchType.LAZY, mappedBy = "atom", cascade = CascadeType.ALL, orphanRemoval = true)
     private ConnectionContainer connectionContainer;
+    // rdf:types of the atom's content, copied from the dataset for filtering in
+    // queries
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "atom_type", joinColumns = @JoinColumn(name = "atom_id"), indexes = {
+                    @Index(name = "IDX_ATOM_TYPE_ATOM_ID", columnList = "atom_id"),
+                    @Index(name = "IDX_ATOM_TYPE_TYPE_URI", columnList = "typeURI") })
+    @Column(name = "typeURI", nullable = false)
+    @Convert(converter = URIConverter.class)
+    private Set<URI> types = new HashSet<>();
+    // true once types has been filled from the dataset, so that atoms without
+    // any type are not indexed again
+    @Column(name = "types_indexed", columnDefinition = "boolean DEFAULT false", nullable = false)
+    private boolean typesIndexed = false;
 
     public AtomMessageContainer getMessageContainer() {
         return messageContainer;
@@ -222,6 +238,22 @@ public class Atom implements VersionedEntity {
         this.attachmentDatasetHolders = attachmentDatasetHolders;
     }
 
+    public Set<URI> getTypes() {
+        return types;
+    }
+
+    public void setTypes(final Set<URI> types) {
+        this.types = types;
+    }
+
+    public boolean isTypesIndexed() {
+        return typesIndexed;
+    }
+
+    public void setTypesIndexed(final boolean typesIndexed) {
+        this.typesIndexed = typesIndexed;
+    }
+
     @Override
     public String toString() {
         return "Atom{" + "id=" + id + ", atomURI=" + atomURI + ", state=" + state + ", ownerURI=" + ownerURI
@@ -41,7 +41,9 @@ import won.protocol.model.parentaware.VersionedEntity;
  */
 @Entity
 @Table(name = "connection", indexes = {
-                @Index(name = "IDX_CONNECTION_ATOMURI_TARGETATOMURI", columnList = "atomURI, targetAtomURI"), }, uniqueConstraints = {
+                @Index(name = "IDX_CONNECTION_ATOMURI_TARGETATOMURI", columnList = "atomURI, targetAtomURI"),
+                @Index(name = "IDX_CONNECTION_CREATIONDATE_ID", columnList = "creationDate, id"),
+                @Index(name = "IDX_CONNECTION_ATOMURI_CREATIONDATE_ID", columnList = "atomURI, creationDate, id"), }, uniqueConstraints = {
                                 @UniqueConstraint(name = "IDX_CONNECTION_UNIQUE_MESSAGE_CONTAINER_ID", columnNames = "message_container_id"),
                                 @UniqueConstraint(name = "IDX_CONNECTION_UNIQUE_DATASETHOLDER_ID", columnNames = "datasetholder_id"),
                                 @UniqueConstraint(name = "IDX_UNIQUE_CONNECTION", columnNames = { "atomURI",
@@ -56,6 +58,10 @@ public class Connection implements ParentAware<ConnectionContainer>, VersionedEn
     @Temporal(TemporalType.TIMESTAMP)
     @Column(name = "last_update", nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     private Date lastUpdate = new Date();
+    /* The creation date of the connection, used for ordering connection lists */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "creationDate", nullable = false, updatable = false)
+    private Date creationDate = new Date();
     /* The public URI of this connection */
     @Column(name = "connectionURI", unique = true, nullable = false)
     @Convert(converter = URIConverter.class)
@@ -132,7 +138,14 @@ public class Connection implements ParentAware<ConnectionContainer>, VersionedEn
         this.lastUpdate = new Date();
     }
 
-    // TODO: we may want to introduce a creation date?
+    public Date getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(final Date creationDate) {
+        this.creationDate = creationDate;
+    }
+
     public URI getTypeURI() {
         return typeURI;
     }
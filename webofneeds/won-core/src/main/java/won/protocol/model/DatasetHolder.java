@@ -12,10 +12,15 @@ package won.protocol.model;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
 import java.util.Objects;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import javax.persistence.Column;
 import javax.persistence.Convert;
@@ -34,11 +39,19 @@ import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFOps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Encapsulates a jena dataset for storing it in a relational db.
+ * <p>
+ * Datasets are stored as deflate-compressed RDF Thrift, preceded by a header
+ * byte identifying that format. Rows written by earlier versions have no header
+ * and contain N-Quads (or, even older, TriG) text; they are still readable and
+ * are converted by {@link #recode()}.
  */
 @Entity
 @Table(name = "rdf_datasets", uniqueConstraints = {
@@ -46,6 +59,12 @@ import org.slf4j.LoggerFactory;
 })
 public class DatasetHolder {
     private static final int DEFAULT_BYTE_ARRAY_SIZE = 500;
+    // header byte of the current format. Text formats never start with it.
+    private static final byte FORMAT_THRIFT_DEFLATE = 1;
+    // value of the format column for rows written by earlier versions
+    public static final int FORMAT_LEGACY = 0;
+    // value of the format column for rows in the current format
+    public static final int FORMAT_CURRENT = FORMAT_THRIFT_DEFLATE;
     // the URI of the dataset
     @Id
     @GeneratedValue
@@ -62,6 +81,10 @@ public class DatasetHolder {
     @Lob
     @Column(name = "dataset", nullable = false, length = 10000000)
     private byte[] datasetBytes;
+    // the format of datasetBytes, so that rows still to be recoded can be found
+    // without reading their dataset
+    @Column(name = "format", columnDefinition = "integer DEFAULT 0", nullable = false)
+    private int format = FORMAT_LEGACY;
     // for multiple accesses to model, cache it.
     @Transient
     private Dataset cachedDataset;
@@ -111,11 +134,41 @@ public class DatasetHolder {
 
     void setDatasetBytes(final byte[] datasetBytes) {
         this.datasetBytes = datasetBytes;
+        this.format = isStoredInCurrentFormat() ? FORMAT_THRIFT_DEFLATE : FORMAT_LEGACY;
         this.cachedDataset = null;
     }
 
     /**
-     * Careful, expensive operation: writes dataset to string.
+     * Checks if the dataset is stored in the format written by
+     * {@link #setDataset(Dataset)}, or if it was stored by an earlier version.
+     */
+    public boolean isStoredInCurrentFormat() {
+        return this.datasetBytes != null && this.datasetBytes.length > 0
+                        && this.datasetBytes[0] == FORMAT_THRIFT_DEFLATE;
+    }
+
+    /**
+     * Rewrites a dataset stored by an earlier version in the current format.
+     * Unlike {@link #getDataset()}, a dataset that cannot be read causes an
+     * exception, and the stored bytes are left as they are.
+     *
+     * @return false if the dataset already was in the current format
+     */
+    public boolean recode() {
+        if (isStoredInCurrentFormat()) {
+            this.format = FORMAT_THRIFT_DEFLATE;
+            return false;
+        }
+        Objects.requireNonNull(this.uri);
+        Objects.requireNonNull(this.datasetBytes);
+        Dataset dataset = DatasetFactory.createGeneral();
+        parseDatasetBytes(StreamRDFLib.dataset(dataset.asDatasetGraph()));
+        setDataset(dataset);
+        return true;
+    }
+
+    /**
+     * Careful, expensive operation: writes dataset to bytes.
      *
      * @param dataset
      */
@@ -123,9 +176,18 @@ public class DatasetHolder {
         Objects.requireNonNull(this.uri);
         Objects.requireNonNull(dataset);
         ByteArrayOutputStream out = new ByteArrayOutputStream(DEFAULT_BYTE_ARRAY_SIZE);
+        out.write(FORMAT_THRIFT_DEFLATE);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
         synchronized (this) {
-            RDFDataMgr.write(out, dataset, Lang.NQUADS);
+            try (DeflaterOutputStream compressed = new DeflaterOutputStream(out, deflater)) {
+                RDFDataMgr.write(compressed, dataset, Lang.RDFTHRIFT);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not write dataset " + this.uri, e);
+            } finally {
+                deflater.end();
+            }
             this.datasetBytes = out.toByteArray();
+            this.format = FORMAT_THRIFT_DEFLATE;
             this.cachedDataset = dataset;
             if (logger.isDebugEnabled()) {
                 logger.debug("wrote dataset {} to byte array of length {}", this.uri, this.datasetBytes.length);
@@ -134,7 +196,7 @@ public class DatasetHolder {
     }
 
     /**
-     * Careful, expensive operation: reads dataset from string.
+     * Careful, expensive operation: reads dataset from bytes.
      *
      * @return
      */
@@ -147,15 +209,8 @@ public class DatasetHolder {
             if (this.cachedDataset != null)
                 return cachedDataset;
             Dataset dataset = DatasetFactory.createGeneral();
-            InputStream is = new ByteArrayInputStream(this.datasetBytes);
             try {
-                try {
-                    RDFDataMgr.read(dataset, is, this.uri.toString(), Lang.NQUADS);
-                } catch (RiotException ex) {
-                    // assume that the data is stored in TRIG old format, try that.
-                    is = new ByteArrayInputStream(this.datasetBytes);
-                    RDFDataMgr.read(dataset, is, Lang.TRIG);
-                }
+                readDataset(StreamRDFLib.dataset(dataset.asDatasetGraph()));
             } catch (Exception e) {
                 logger.warn("could not read dataset {} from byte array. Byte array is null: {}, has length {}",
                                 new Object[] { this.uri, this.datasetBytes == null,
@@ -166,4 +221,40 @@ public class DatasetHolder {
             return dataset;
         }
     }
+
+    /**
+     * Parses the stored dataset directly into the specified sink, without creating
+     * a Dataset and without caching it. Use this for copying the data somewhere
+     * else, e.g. into an aggregated dataset. If the dataset is already cached, the
+     * cached one is sent to the sink.
+     */
+    public void readDataset(StreamRDF sink) {
+        Objects.requireNonNull(this.uri);
+        Dataset cached = this.cachedDataset;
+        if (cached != null) {
+            StreamRDFOps.sendDatasetToStream(cached.asDatasetGraph(), sink);
+            return;
+        }
+        parseDatasetBytes(sink);
+    }
+
+    private void parseDatasetBytes(StreamRDF sink) {
+        Objects.requireNonNull(this.datasetBytes);
+        if (isStoredInCurrentFormat()) {
+            try (InputStream in = new InflaterInputStream(
+                            new ByteArrayInputStream(this.datasetBytes, 1, this.datasetBytes.length - 1))) {
+                RDFDataMgr.parse(sink, in, Lang.RDFTHRIFT);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not read dataset " + this.uri, e);
+            }
+            return;
+        }
+        try {
+            RDFDataMgr.parse(sink, new ByteArrayInputStream(this.datasetBytes), this.uri.toString(), Lang.NQUADS);
+        } catch (RiotException ex) {
+            // assume that the data is stored in TRIG old format, try that. The sink may
+            // already have received some quads, which are re-sent.
+            RDFDataMgr.parse(sink, new ByteArrayInputStream(this.datasetBytes), Lang.TRIG);
+        }
+    }
 }
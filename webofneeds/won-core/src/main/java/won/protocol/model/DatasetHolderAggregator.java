@@ -14,11 +14,12 @@ import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.StopWatch;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.lang.invoke.MethodHandles;
@@ -29,12 +30,14 @@ import java.util.List;
 /**
  * Aggregates the datasets wrapped by a number of dataset holders. As soon as
  * the aggregate() function is called, all datasetHolders added so far are read
- * (via their getDatasetBytes() method) and an aggregated dataset is created.
- * All subsequent calls to aggregate just yield the already aggregated dataset.
+ * (streamed into the result via their readDataset() method) and an aggregated
+ * dataset is created. All subsequent calls to aggregate just yield the already
+ * aggregated dataset.
  */
 public class DatasetHolderAggregator {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     private List<InputStream> inputStreams;
+    private List<DatasetHolder> datasetHolders = new LinkedList<>();
     private Lang rdfLanguage;
     private static final Lang DEFAULT_RDF_LANGUAGE = Lang.NQUADS;
     private Dataset aggregatedDataset = null;
@@ -59,7 +62,7 @@ public class DatasetHolderAggregator {
     public void appendDataset(DatasetHolder datasetHolder) {
         if (this.aggregatedDataset != null)
             throw new IllegalStateException("Cannot append a dataset after the aggregate" + "() function was called");
-        this.inputStreams.add(new ByteArrayInputStream(datasetHolder.getDatasetBytes()));
+        this.datasetHolders.add(datasetHolder);
     }
 
     public Dataset aggregate() {
@@ -76,13 +79,16 @@ public class DatasetHolderAggregator {
             logger.debug("init dataset: " + stopWatch.getLastTaskTimeMillis());
             stopWatch.start();
             this.aggregatedDataset = result;
-            if (this.inputStreams == null || this.inputStreams.size() == 0) {
-                return this.aggregatedDataset;
+            StreamRDF sink = StreamRDFLib.dataset(result.asDatasetGraph());
+            for (DatasetHolder datasetHolder : this.datasetHolders) {
+                datasetHolder.readDataset(sink);
+            }
+            if (this.inputStreams.size() > 0) {
+                RDFDataMgr.read(result,
+                                new SequenceInputStream(Collections
+                                                .enumeration(Collections.unmodifiableCollection(this.inputStreams))),
+                                this.rdfLanguage);
             }
-            RDFDataMgr.read(result,
-                            new SequenceInputStream(Collections
-                                            .enumeration(Collections.unmodifiableCollection(this.inputStreams))),
-                            this.rdfLanguage);
             stopWatch.stop();
             logger.debug("read dataset: " + stopWatch.getLastTaskTimeMillis());
             return this.aggregatedDataset;
@@ -11,16 +11,7 @@
 package won.protocol.model;
 
 import java.net.URI;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import javax.persistence.Column;
 import javax.persistence.Convert;
@@ -37,7 +28,6 @@ import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.UniqueConstraint;
 
-import won.protocol.WonConstants;
 import won.protocol.model.parentaware.VersionedEntity;
 
 @Entity
@@ -55,10 +45,6 @@ public abstract class MessageContainer implements VersionedEntity {
     @Column(name = "parent_uri", nullable = false, unique = true, updatable = false)
     @Convert(converter = URIConverter.class)
     private URI parentUri;
-    @Convert(converter = URICountSetConverter.class)
-    private Set<URICount> unconfirmed = new HashSet<>();
-    @Convert(converter = URIMapToURISetConverter.class)
-    private Map<URI, Set<URI>> pendingConfirmations = new HashMap<>();
     @Column(name = "version", columnDefinition = "integer DEFAULT 0", nullable = false)
     private int version = 0;
     @Temporal(TemporalType.TIMESTAMP)
@@ -108,73 +94,4 @@ public abstract class MessageContainer implements VersionedEntity {
     public void setParentUri(final URI parentUri) {
         this.parentUri = parentUri;
     }
-
-    /**
-     * Returns the set of unconfirmed message URIs, increments the counter for each
-     * URI and removes the entries whose counts are now greater than
-     * <code>WonConstants.MAX_CONFIRMATIONS</code>.
-     * 
-     * @return the unconfirmed message URIs
-     */
-    public synchronized Set<URI> getUnconfirmedAndIncrementAndCleanup() {
-        Set<URI> result = unconfirmed.stream().map(uc -> uc.getUri()).collect(Collectors.toSet());
-        unconfirmed = unconfirmed.stream()
-                        .filter(uc -> uc.getCount() < WonConstants.MAX_CONFIRMATIONS)
-                        .map(uc -> uc.increment())
-                        .collect(Collectors.toSet());
-        return result;
-    }
-
-    /**
-     * Get the list of unconfirmed messages WITHOUT affecting counters. Should only
-     * be used for diagnostic purposes.
-     * 
-     * @return
-     */
-    public synchronized Set<URICount> peekAtUnconfirmed() {
-        return Collections.unmodifiableSet(unconfirmed);
-    }
-
-    public int getUnconfirmedCount() {
-        return unconfirmed.size();
-    }
-
-    public synchronized void addUnconfirmed(URI toAdd) {
-        Objects.requireNonNull(toAdd);
-        // will not cause duplicates because URICount.equals only looks at the URI
-        if (!unconfirmed.stream().anyMatch(uc -> toAdd.equals(uc.getUri()))) {
-            unconfirmed.add(new URICount(toAdd, 0));
-        }
-    }
-
-    public synchronized void removeUnconfirmed(URI toRemove) {
-        Iterator<URICount> it = unconfirmed.iterator();
-        while (it.hasNext()) {
-            URICount uc = it.next();
-            if (Objects.equals(uc.getUri(), toRemove)) {
-                it.remove();
-            }
-        }
-    }
-
-    public synchronized void removeUnconfirmed(Collection<URI> toRemove) {
-        Iterator<URICount> it = unconfirmed.iterator();
-        while (it.hasNext()) {
-            URICount uc = it.next();
-            if (toRemove.contains(uc.getUri()))
-                it.remove();
-        }
-    }
-
-    public synchronized Map<URI, Set<URI>> getPendingConfirmations() {
-        return Collections.unmodifiableMap(pendingConfirmations);
-    }
-
-    public synchronized void removePendingConfirmations(Collection<URI> toDelete) {
-        toDelete.forEach(uri -> pendingConfirmations.remove(uri));
-    }
-
-    public void addPendingConfirmation(URI toBeConfirmed, Set<URI> transitiveConfirmations) {
-        pendingConfirmations.put(toBeConfirmed, transitiveConfirmations);
-    }
 }
@@ -29,6 +29,7 @@ import won.protocol.model.parentaware.ParentAware;
 @Table(name = "message_event", indexes = {
                 // indices for this class have the name prefix "IDX_ME"
                 @Index(name = "IDX_ME_PARENT_URI", columnList = "parentURI"),
+                @Index(name = "IDX_ME_PARENT_URI_CREATIONDATE_ID", columnList = "parentURI, creationDate, id"),
                 @Index(name = "IDX_ME_PARENT_URI_MESSAGE_TYPE", columnList = "parentURI, messageType"),
                 @Index(name = "IDX_ME_PARENT_URI_REFERENCED_BY_OTHER_MESSAGE", columnList = "parentURI, referencedByOtherMessage"),
                 @Index(name = "IDX_ME_RECIPIENT_ATOM_URI", columnList = "messageURI, recipientAtomURI")
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.protocol.model;
+
+import java.net.URI;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+/**
+ * Records that our message <code>confirmingMessageURI</code> referenced (and
+ * thus confirmed) the remote message <code>confirmedMessageURI</code>. As soon
+ * as the other side references our message, the remote message is known to be
+ * confirmed and can be removed from the unconfirmed messages.
+ */
+@Entity
+@Table(name = "pending_confirmation", indexes = {
+                @Index(name = "IDX_PENDING_CONFIRMATION_CONFIRMING", columnList = "container_id, confirmingMessageURI")
+})
+public class PendingConfirmation {
+    @Id
+    @GeneratedValue
+    @Column(name = "id")
+    private Long id;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "container_id", nullable = false, updatable = false)
+    private MessageContainer container;
+    @Column(name = "confirmingMessageURI", nullable = false, updatable = false)
+    @Convert(converter = URIConverter.class)
+    private URI confirmingMessageURI;
+    @Column(name = "confirmedMessageURI", nullable = false, updatable = false)
+    @Convert(converter = URIConverter.class)
+    private URI confirmedMessageURI;
+
+    PendingConfirmation() {
+    }
+
+    public PendingConfirmation(MessageContainer container, URI confirmingMessageURI, URI confirmedMessageURI) {
+        this.container = container;
+        this.confirmingMessageURI = confirmingMessageURI;
+        this.confirmedMessageURI = confirmedMessageURI;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public MessageContainer getContainer() {
+        return container;
+    }
+
+    public URI getConfirmingMessageURI() {
+        return confirmingMessageURI;
+    }
+
+    public URI getConfirmedMessageURI() {
+        return confirmedMessageURI;
+    }
+}
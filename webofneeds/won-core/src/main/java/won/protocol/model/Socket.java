@@ -5,7 +5,8 @@ import java.net.URI;
 import java.util.Objects;
 
 @Entity
-@Table(name = "socket", indexes = { @Index(name = "IDX_UNIQUE_SOCKET", columnList = "socketURI") })
+@Table(name = "socket", indexes = { @Index(name = "IDX_UNIQUE_SOCKET", columnList = "socketURI"),
+                @Index(name = "IDX_SOCKET_TYPE_ATOM", columnList = "typeURI, atomURI") })
 public class Socket {
     @Id
     @GeneratedValue
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.protocol.model;
+
+import java.net.URI;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * A message in a message container that has not been confirmed by the other
+ * side yet, i.e. that must be referenced (msg:previousMessage) by the
+ * container's next response. Counts how often it has been referenced.
+ */
+@Entity
+@Table(name = "unconfirmed_message", uniqueConstraints = {
+                @UniqueConstraint(name = "IDX_UNIQUE_UNCONFIRMED_MESSAGE", columnNames = { "container_id",
+                                "messageURI" })
+})
+public class UnconfirmedMessage {
+    @Id
+    @GeneratedValue
+    @Column(name = "id")
+    private Long id;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "container_id", nullable = false, updatable = false)
+    private MessageContainer container;
+    @Column(name = "messageURI", nullable = false, updatable = false)
+    @Convert(converter = URIConverter.class)
+    private URI messageURI;
+    @Column(name = "referenceCount", nullable = false)
+    private int referenceCount = 0;
+
+    UnconfirmedMessage() {
+    }
+
+    public UnconfirmedMessage(MessageContainer container, URI messageURI) {
+        this.container = container;
+        this.messageURI = messageURI;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public MessageContainer getContainer() {
+        return container;
+    }
+
+    public URI getMessageURI() {
+        return messageURI;
+    }
+
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    @Override
+    public String toString() {
+        return "UnconfirmedMessage [messageURI=" + messageURI + ", referenceCount=" + referenceCount + "]";
+    }
+}
@@ -4,22 +4,40 @@ import java.net.URI;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import won.protocol.model.Atom;
 import won.protocol.model.AtomState;
+import won.protocol.util.KeysetPageItem;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * User: Gabriel Date: 02.11.12 Time: 15:28
  */
 public interface AtomRepository extends WonRepository<Atom> {
+    /**
+     * Restricts atoms to the ones with the specified state, socket type and type;
+     * parameters that are null do not restrict the result. Deleted atoms have no
+     * content, so they never match a socket type or type.
+     */
+    String FILTER_BY_STATE_AND_TYPES = "(:atomState is null or atom.state = :atomState) "
+                    + "and ((:socketType is null and :atomType is null) "
+                    + "or atom.state <> won.protocol.model.AtomState.DELETED) "
+                    + "and (:socketType is null or exists (select s.id from Socket s "
+                    + "where s.atomURI = atom.atomURI and s.typeURI = :socketType)) "
+                    + "and (:atomType is null or :atomType member of atom.types)";
+
     List<Atom> findByAtomURI(URI URI);
 
     @Query("select atomURI from Atom atom where :atomState is null or atom.state = :atomState")
@@ -30,8 +48,74 @@ public interface AtomRepository extends WonRepository<Atom> {
 
     Optional<Atom> findOneByAtomURI(URI atomURI);
 
+    @Query("select atomURI from Atom atom where " + FILTER_BY_STATE_AND_TYPES)
+    List<URI> getAllAtomURIs(@Param("atomState") AtomState atomState, @Param("socketType") URI socketType,
+                    @Param("atomType") URI atomType);
+
+    @Query("select atomURI from Atom atom where " + FILTER_BY_STATE_AND_TYPES)
+    Slice<URI> getAllAtomURIs(@Param("atomState") AtomState atomState, @Param("socketType") URI socketType,
+                    @Param("atomType") URI atomType, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select atomURI from Atom atom where " + FILTER_BY_STATE_AND_TYPES
+                    + " order by atom.creationDate desc, atom.id desc")
+    Stream<URI> streamAllAtomURIs(@Param("atomState") AtomState atomState, @Param("socketType") URI socketType,
+                    @Param("atomType") URI atomType);
+
+    @Query("select atomURI from Atom atom where atom.lastUpdate > :modifiedDate and " + FILTER_BY_STATE_AND_TYPES)
+    List<URI> getAllAtomURIsModifiedAfter(@Param("modifiedDate") Date modifiedDate,
+                    @Param("atomState") AtomState atomState, @Param("socketType") URI socketType,
+                    @Param("atomType") URI atomType);
+
+    @Query("select atomURI from Atom atom where atom.creationDate > :createdDate and " + FILTER_BY_STATE_AND_TYPES)
+    List<URI> getAllAtomURIsCreatedAfter(@Param("createdDate") Date createdDate,
+                    @Param("atomState") AtomState atomState, @Param("socketType") URI socketType,
+                    @Param("atomType") URI atomType);
+
+    /**
+     * Keyset pagination: the first page, newest first. Used instead of
+     * {@link #getAtomURIsBeforeCursor} for {@link won.protocol.util.KeysetCursor#NEWEST},
+     * which is not a valid timestamp for the database.
+     */
+    @Query("select new won.protocol.util.KeysetPageItem(atom.atomURI, atom.creationDate, atom.id) from Atom atom "
+                    + "where " + FILTER_BY_STATE_AND_TYPES + " order by atom.creationDate desc, atom.id desc")
+    Slice<KeysetPageItem> getNewestAtomURIs(@Param("atomState") AtomState atomState,
+                    @Param("socketType") URI socketType, @Param("atomType") URI atomType, Pageable pageable);
+
+    /**
+     * Keyset pagination: the atoms created before the cursor position, newest
+     * first. The redundant <code>creationDate &lt;= :date</code> lets the database
+     * start the index range scan at the cursor.
+     */
+    @Query("select new won.protocol.util.KeysetPageItem(atom.atomURI, atom.creationDate, atom.id) from Atom atom "
+                    + "where atom.creationDate <= :date and (atom.creationDate < :date or atom.id < :id) and "
+                    + FILTER_BY_STATE_AND_TYPES + " order by atom.creationDate desc, atom.id desc")
+    Slice<KeysetPageItem> getAtomURIsBeforeCursor(@Param("date") Date date, @Param("id") long id,
+                    @Param("atomState") AtomState atomState, @Param("socketType") URI socketType,
+                    @Param("atomType") URI atomType, Pageable pageable);
+
+    /**
+     * Keyset pagination: the atoms created after the cursor position, oldest first.
+     */
+    @Query("select new won.protocol.util.KeysetPageItem(atom.atomURI, atom.creationDate, atom.id) from Atom atom "
+                    + "where atom.creationDate >= :date and (atom.creationDate > :date or atom.id > :id) and "
+                    + FILTER_BY_STATE_AND_TYPES + " order by atom.creationDate asc, atom.id asc")
+    Slice<KeysetPageItem> getAtomURIsAfterCursor(@Param("date") Date date, @Param("id") long id,
+                    @Param("atomState") AtomState atomState, @Param("socketType") URI socketType,
+                    @Param("atomType") URI atomType, Pageable pageable);
+
+    /**
+     * Finds atoms whose types have not been copied to the atom_type table yet,
+     * ordered by id.
+     */
+    @Query("select atom from Atom atom where atom.id > :afterId and atom.typesIndexed = false order by atom.id")
+    Slice<Atom> findAtomsWithTypesNotIndexedAfter(@Param("afterId") Long afterId, Pageable pageable);
+
     Atom findOneByAtomURIAndVersionNot(URI atomURI, int version);
 
+    @Query("select atom.version from Atom atom where atom.atomURI = :atomURI")
+    Optional<Integer> findVersionByAtomURI(@Param("atomURI") URI atomURI);
+
     @Query("select atomURI from Atom atom where atom.creationDate < :referenceDate")
     Slice<URI> getAtomURIsBefore(@Param("referenceDate") Date referenceDate, Pageable pageable);
 
@@ -433,4 +433,86 @@ public interface ConnectionRepository extends WonRepository<Connection> {
                     @Param("allowedStates") Collection<ConnectionState> allowedStates,
                     @Param("allowedSocketTypes") Collection<URI> allowedSocketTypes,
                     @Param("allowedSockets") Collection<URI> allowedSockets);
+
+    /**
+     * Keyset pagination: the first page of connections created before
+     * <code>referenceDate</code>, newest first. Used instead of
+     * {@link #getConnectionsBeforeCursor(Date, long, Date, Pageable)} for
+     * {@link won.protocol.util.KeysetCursor#NEWEST}, which is not a valid
+     * timestamp for the database.
+     */
+    @Query("select conn from Connection conn where conn.creationDate < :referenceDate "
+                    + "order by conn.creationDate desc, conn.id desc")
+    Slice<Connection> getNewestConnections(@Param("referenceDate") Date referenceDate, Pageable pageable);
+
+    /**
+     * Keyset pagination: the connections created before the cursor position and
+     * before <code>referenceDate</code>, newest first.
+     */
+    @Query("select conn from Connection conn where conn.creationDate < :referenceDate "
+                    + "and conn.creationDate <= :date and (conn.creationDate < :date or conn.id < :id) "
+                    + "order by conn.creationDate desc, conn.id desc")
+    Slice<Connection> getConnectionsBeforeCursor(@Param("date") Date date, @Param("id") long id,
+                    @Param("referenceDate") Date referenceDate, Pageable pageable);
+
+    /**
+     * Keyset pagination: the connections created after the cursor position and
+     * before <code>referenceDate</code>, oldest first.
+     */
+    @Query("select conn from Connection conn where conn.creationDate < :referenceDate "
+                    + "and conn.creationDate >= :date and (conn.creationDate > :date or conn.id > :id) "
+                    + "order by conn.creationDate asc, conn.id asc")
+    Slice<Connection> getConnectionsAfterCursor(@Param("date") Date date, @Param("id") long id,
+                    @Param("referenceDate") Date referenceDate, Pageable pageable);
+
+    /**
+     * Keyset pagination: the first page of the atom's connections created before
+     * <code>referenceDate</code>, newest first. Used instead of
+     * {@link #getConnectionsBeforeCursor(URI, Date, long, WonMessageType, Date, ConnectionState, Pageable)}
+     * for {@link won.protocol.util.KeysetCursor#NEWEST}, which is not a valid
+     * timestamp for the database.
+     */
+    @Query("select conn from Connection conn where conn.atomURI = :atom and conn.creationDate < :referenceDate "
+                    + "and (:state is null or conn.state = :state) "
+                    + "and (:messageType is null or exists (select msg.id from MessageEvent msg "
+                    + "where msg.parentURI = conn.connectionURI and msg.messageType = :messageType "
+                    + "and msg.creationDate < :referenceDate)) "
+                    + "order by conn.creationDate desc, conn.id desc")
+    Slice<Connection> getNewestConnections(@Param("atom") URI atomURI,
+                    @Param("messageType") WonMessageType messageType, @Param("referenceDate") Date referenceDate,
+                    @Param("state") ConnectionState state, Pageable pageable);
+
+    /**
+     * Keyset pagination: the atom's connections created before the cursor position
+     * and before <code>referenceDate</code>, newest first. If
+     * <code>messageType</code> is set, only connections with a message of that type
+     * sent before <code>referenceDate</code> are included.
+     */
+    @Query("select conn from Connection conn where conn.atomURI = :atom and conn.creationDate < :referenceDate "
+                    + "and conn.creationDate <= :date and (conn.creationDate < :date or conn.id < :id) "
+                    + "and (:state is null or conn.state = :state) "
+                    + "and (:messageType is null or exists (select msg.id from MessageEvent msg "
+                    + "where msg.parentURI = conn.connectionURI and msg.messageType = :messageType "
+                    + "and msg.creationDate < :referenceDate)) "
+                    + "order by conn.creationDate desc, conn.id desc")
+    Slice<Connection> getConnectionsBeforeCursor(@Param("atom") URI atomURI, @Param("date") Date date,
+                    @Param("id") long id, @Param("messageType") WonMessageType messageType,
+                    @Param("referenceDate") Date referenceDate, @Param("state") ConnectionState state,
+                    Pageable pageable);
+
+    /**
+     * Keyset pagination: the atom's connections created after the cursor position
+     * and before <code>referenceDate</code>, oldest first.
+     */
+    @Query("select conn from Connection conn where conn.atomURI = :atom and conn.creationDate < :referenceDate "
+                    + "and conn.creationDate >= :date and (conn.creationDate > :date or conn.id > :id) "
+                    + "and (:state is null or conn.state = :state) "
+                    + "and (:messageType is null or exists (select msg.id from MessageEvent msg "
+                    + "where msg.parentURI = conn.connectionURI and msg.messageType = :messageType "
+                    + "and msg.creationDate < :referenceDate)) "
+                    + "order by conn.creationDate asc, conn.id asc")
+    Slice<Connection> getConnectionsAfterCursor(@Param("atom") URI atomURI, @Param("date") Date date,
+                    @Param("id") long id, @Param("messageType") WonMessageType messageType,
+                    @Param("referenceDate") Date referenceDate, @Param("state") ConnectionState state,
+                    Pageable pageable);
 }
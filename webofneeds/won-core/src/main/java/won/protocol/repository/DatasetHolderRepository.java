@@ -11,10 +11,14 @@
 package won.protocol.repository;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import javax.persistence.LockModeType;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -29,6 +33,9 @@ public interface DatasetHolderRepository extends CrudRepository<DatasetHolder, U
     @Query("select id from DatasetHolder d where d.uri = :uri")
     Optional<Long> findIdByUri(@Param("uri") URI uri);
 
+    @Query("select d.uri, d.id from DatasetHolder d where d.uri in :uris")
+    List<Object[]> findUrisAndIdsByUris(@Param("uris") Collection<URI> uris);
+
     Optional<DatasetHolder> findOneByUriAndVersionNot(URI uri, Integer version);
 
     Optional<DatasetHolder> findOneByUri(URI uri);
@@ -36,4 +43,9 @@ public interface DatasetHolderRepository extends CrudRepository<DatasetHolder, U
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select d from DatasetHolder d where d.uri = :uri")
     Optional<DatasetHolder> findOneByUriForUpdate(@Param("uri") URI uri);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from DatasetHolder d where d.format = :format and d.id > :afterId order by d.id")
+    Slice<DatasetHolder> findByFormatAfterIdForUpdate(@Param("format") int format, @Param("afterId") Long afterId,
+                    Pageable pageable);
 }
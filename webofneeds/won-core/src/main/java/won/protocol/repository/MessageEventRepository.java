@@ -5,19 +5,25 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import won.protocol.message.WonMessageType;
+import won.protocol.model.DatasetHolder;
 import won.protocol.model.MessageEvent;
 import won.protocol.model.unread.UnreadMessageInfoForConnection;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface MessageEventRepository extends WonRepository<MessageEvent> {
     List<MessageEvent> findByMessageURI(URI messageURI);
 
@@ -28,6 +34,10 @@ public interface MessageEventRepository extends WonRepository<MessageEvent> {
     Optional<MessageEvent> findOneByParentURIAndRespondingToURIAndResponseContainerURI(URI parentURI, URI responseToURI,
                     URI responseParentURI);
 
+    @Query("select msg.respondingToURI, msg.responseContainerURI from MessageEvent msg where msg.parentURI = :parent and msg.respondingToURI in :respondingTo")
+    List<Object[]> findRespondingToAndResponseContainerURIs(@Param("parent") URI parentURI,
+                    @Param("respondingTo") Collection<URI> respondingToURIs);
+
     // read is permitted iff any of these conditions apply:
     // * the WebId is the sender atom
     // * the WebId is the recipient atom
@@ -106,6 +116,14 @@ public interface MessageEventRepository extends WonRepository<MessageEvent> {
 
     List<MessageEvent> findByParentURI(URI URI);
 
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select msg.messageURI from MessageEvent msg where msg.parentURI = :parent order by msg.creationDate, msg.id")
+    Stream<URI> streamMessageURIsByParentURI(@Param("parent") URI parentURI);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select h from MessageEvent msg join msg.datasetHolder h where msg.parentURI = :parent order by msg.creationDate, msg.id")
+    Stream<DatasetHolder> streamDatasetHoldersByParentURI(@Param("parent") URI parentURI);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select msg from MessageEvent msg where msg.parentURI = :parent and msg.messageType = :messageType")
     List<MessageEvent> findByParentURIAndMessageTypeForUpdate(@Param("parent") URI parentURI,
@@ -233,5 +251,61 @@ public interface MessageEventRepository extends WonRepository<MessageEvent> {
     Date findMaxActivityDateOfParentAtTime(@Param("parent") URI parentURI,
                     @Param("messageType") WonMessageType messageType, @Param("referenceDate") Date referenceDate);
 
+    /**
+     * Keyset pagination: the first page of the parent's messages, newest first.
+     * Used instead of {@link #findByParentURIBeforeCursor} for
+     * {@link won.protocol.util.KeysetCursor#NEWEST}, which is not a valid
+     * timestamp for the database.
+     */
+    @Query("select msg from MessageEvent msg where msg.parentURI = :parent "
+                    + "and (:messageType is null or msg.messageType = :messageType) "
+                    + "order by msg.creationDate desc, msg.id desc")
+    Slice<MessageEvent> findNewestByParentURI(@Param("parent") URI parentURI,
+                    @Param("messageType") WonMessageType messageType, Pageable pageable);
+
+    @Query("select msg from MessageEvent msg left join fetch msg.datasetHolder where msg.parentURI = :parent "
+                    + "and (:messageType is null or msg.messageType = :messageType) "
+                    + "order by msg.creationDate desc, msg.id desc")
+    Slice<MessageEvent> findNewestByParentURIFetchDatasetEagerly(@Param("parent") URI parentURI,
+                    @Param("messageType") WonMessageType messageType, Pageable pageable);
+
+    /**
+     * Keyset pagination: the messages of the parent created before the cursor
+     * position, newest first.
+     */
+    @Query("select msg from MessageEvent msg where msg.parentURI = :parent "
+                    + "and msg.creationDate <= :date and (msg.creationDate < :date or msg.id < :id) "
+                    + "and (:messageType is null or msg.messageType = :messageType) "
+                    + "order by msg.creationDate desc, msg.id desc")
+    Slice<MessageEvent> findByParentURIBeforeCursor(@Param("parent") URI parentURI, @Param("date") Date date,
+                    @Param("id") long id, @Param("messageType") WonMessageType messageType, Pageable pageable);
+
+    @Query("select msg from MessageEvent msg left join fetch msg.datasetHolder where msg.parentURI = :parent "
+                    + "and msg.creationDate <= :date and (msg.creationDate < :date or msg.id < :id) "
+                    + "and (:messageType is null or msg.messageType = :messageType) "
+                    + "order by msg.creationDate desc, msg.id desc")
+    Slice<MessageEvent> findByParentURIBeforeCursorFetchDatasetEagerly(@Param("parent") URI parentURI,
+                    @Param("date") Date date,
+                    @Param("id") long id, @Param("messageType") WonMessageType messageType, Pageable pageable);
+
+    /**
+     * Keyset pagination: the messages of the parent created after the cursor
+     * position, oldest first.
+     */
+    @Query("select msg from MessageEvent msg where msg.parentURI = :parent "
+                    + "and msg.creationDate >= :date and (msg.creationDate > :date or msg.id > :id) "
+                    + "and (:messageType is null or msg.messageType = :messageType) "
+                    + "order by msg.creationDate asc, msg.id asc")
+    Slice<MessageEvent> findByParentURIAfterCursor(@Param("parent") URI parentURI, @Param("date") Date date,
+                    @Param("id") long id, @Param("messageType") WonMessageType messageType, Pageable pageable);
+
+    @Query("select msg from MessageEvent msg left join fetch msg.datasetHolder where msg.parentURI = :parent "
+                    + "and msg.creationDate >= :date and (msg.creationDate > :date or msg.id > :id) "
+                    + "and (:messageType is null or msg.messageType = :messageType) "
+                    + "order by msg.creationDate asc, msg.id asc")
+    Slice<MessageEvent> findByParentURIAfterCursorFetchDatasetEagerly(@Param("parent") URI parentURI,
+                    @Param("date") Date date,
+                    @Param("id") long id, @Param("messageType") WonMessageType messageType, Pageable pageable);
+
     void deleteByParentURI(URI parentUri);
 }
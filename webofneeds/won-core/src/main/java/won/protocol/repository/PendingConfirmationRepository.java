@@ -0,0 +1,23 @@
+package won.protocol.repository;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import won.protocol.model.MessageContainer;
+import won.protocol.model.PendingConfirmation;
+
+public interface PendingConfirmationRepository extends WonRepository<PendingConfirmation> {
+    @Query("select p.confirmedMessageURI from PendingConfirmation p where p.container = :container and p.confirmingMessageURI in :confirmingMessageURIs")
+    List<URI> findConfirmedMessageURIs(@Param("container") MessageContainer container,
+                    @Param("confirmingMessageURIs") Collection<URI> confirmingMessageURIs);
+
+    @Modifying
+    @Query("delete from PendingConfirmation p where p.container = :container and p.confirmingMessageURI in :confirmingMessageURIs")
+    int deleteByContainerAndConfirmingMessageURIs(@Param("container") MessageContainer container,
+                    @Param("confirmingMessageURIs") Collection<URI> confirmingMessageURIs);
+}
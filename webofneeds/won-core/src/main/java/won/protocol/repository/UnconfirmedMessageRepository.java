@@ -0,0 +1,37 @@
+package won.protocol.repository;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import won.protocol.model.MessageContainer;
+import won.protocol.model.UnconfirmedMessage;
+
+public interface UnconfirmedMessageRepository extends WonRepository<UnconfirmedMessage> {
+    List<UnconfirmedMessage> findByContainer(MessageContainer container);
+
+    @Query("select u.messageURI from UnconfirmedMessage u where u.container = :container")
+    List<URI> findMessageURIsByContainer(@Param("container") MessageContainer container);
+
+    long countByContainer(MessageContainer container);
+
+    boolean existsByContainerAndMessageURI(MessageContainer container, URI messageURI);
+
+    @Modifying
+    @Query("update UnconfirmedMessage u set u.referenceCount = u.referenceCount + 1 where u.container = :container")
+    int incrementReferenceCounts(@Param("container") MessageContainer container);
+
+    @Modifying
+    @Query("delete from UnconfirmedMessage u where u.container = :container and u.referenceCount >= :maxReferenceCount")
+    int deleteReferencedAtLeast(@Param("container") MessageContainer container,
+                    @Param("maxReferenceCount") int maxReferenceCount);
+
+    @Modifying
+    @Query("delete from UnconfirmedMessage u where u.container = :container and u.messageURI in :messageURIs")
+    int deleteByContainerAndMessageURIs(@Param("container") MessageContainer container,
+                    @Param("messageURIs") Collection<URI> messageURIs);
+}
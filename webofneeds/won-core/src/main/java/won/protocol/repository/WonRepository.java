@@ -19,6 +19,12 @@ import org.springframework.data.repository.PagingAndSortingRepository;
  */
 @NoRepositoryBean
 public interface WonRepository<M> extends PagingAndSortingRepository<M, Long> {
+    /**
+     * Rows fetched per round trip by queries returning a Stream. Such queries must
+     * be run in a transaction so that the database can use a cursor.
+     */
+    String STREAM_FETCH_SIZE = "500";
+
     // Removed the annotation as it interferes with CGLIB autoproxying aop.
     // @Transactional(propagation = Propagation.REQUIRES_NEW)
     // if needed, the business level services must be annotated.
@@ -7,11 +7,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 import won.cryptography.keymanagement.KeyPairAliasDerivationStrategy;
-import won.cryptography.service.CryptographyUtils;
 import won.cryptography.service.TrustStoreService;
 import won.cryptography.service.keystore.KeyStoreService;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.lang.invoke.MethodHandles;
 
 /**
@@ -26,6 +26,7 @@ public class LinkedDataRestBridge {
     private TrustStoreService trustStoreService;
     private TrustStrategy trustStrategy;
     private KeyPairAliasDerivationStrategy keyPairAliasDerivationStrategy;
+    private SslRestTemplateCache restTemplateCache;
 
     public LinkedDataRestBridge(KeyStoreService keyStoreService, TrustStoreService trustStoreService,
                     TrustStrategy trustStrategy, KeyPairAliasDerivationStrategy keyPairAliasDerivationStrategy) {
@@ -39,6 +40,18 @@ public class LinkedDataRestBridge {
 
     @PostConstruct
     public void initialize() {
+        this.restTemplateCache = new SslRestTemplateCache(keyStoreService, trustStoreService, trustStrategy,
+                        readTimeout, connectionTimeout, template -> {
+                            // prevent the RestTemplate from throwing an exception when the server
+                            // responds with 4xx or 5xx status because we want to hand the orginal
+                            // response back to the original caller in BridgeForLinkedDataController
+                            template.setErrorHandler(new DefaultResponseErrorHandler() {
+                                @Override
+                                protected boolean hasError(final HttpStatus statusCode) {
+                                    return false;
+                                }
+                            });
+                        }, 500, 3600 * 1000, "won.protocol.rest.LinkedDataRestBridge.restTemplateCache");
         String defaultAlias = keyPairAliasDerivationStrategy.getAliasForAtomUri(null);
         if (defaultAlias != null) {
             // we are using a fixed alias strategy (or at least, there is a default alias
@@ -54,6 +67,11 @@ public class LinkedDataRestBridge {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        this.restTemplateCache.close();
+    }
+
     public RestTemplate getRestTemplate() {
         return restTemplateWithDefaultWebId;
     }
@@ -78,21 +96,6 @@ public class LinkedDataRestBridge {
 
     private RestTemplate createRestTemplateForReadingLinkedData(String webID) throws Exception {
         String privateKeyAlias = keyPairAliasDerivationStrategy.getAliasForAtomUri(webID);
-        RestTemplate template = CryptographyUtils.createSslRestTemplate(privateKeyAlias,
-                        this.keyStoreService.getUnderlyingKeyStore(),
-                        this.keyStoreService.getPassword(),
-                        this.trustStoreService.getUnderlyingKeyStore(), this.trustStrategy, readTimeout,
-                        connectionTimeout, true);
-        // prevent the RestTemplate from throwing an exception when the server responds
-        // with 4xx or 5xx status
-        // because we want to hand the orginal response back to the original caller in
-        // BridgeForLinkedDataController
-        template.setErrorHandler(new DefaultResponseErrorHandler() {
-            @Override
-            protected boolean hasError(final HttpStatus statusCode) {
-                return false;
-            }
-        });
-        return template;
+        return restTemplateCache.getRestTemplate(privateKeyAlias);
     }
 }
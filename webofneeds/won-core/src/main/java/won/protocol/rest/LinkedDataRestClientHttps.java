@@ -23,6 +23,7 @@ import won.cryptography.service.TrustStoreService;
 import won.cryptography.service.keystore.KeyStoreService;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
 
@@ -40,6 +41,7 @@ public class LinkedDataRestClientHttps extends LinkedDataRestClient {
     private TrustStrategy trustStrategy;
     private KeyPairAliasDerivationStrategy keyPairAliasDerivationStrategy;
     private RestTemplate restTemplateWithoutWebId;
+    private SslRestTemplateCache restTemplateCache;
 
     public LinkedDataRestClientHttps(KeyStoreService keyStoreService, TrustStoreService trustStoreService,
                     TrustStrategy trustStrategy, KeyPairAliasDerivationStrategy keyPairAliasDerivationStrategy) {
@@ -61,33 +63,37 @@ public class LinkedDataRestClientHttps extends LinkedDataRestClient {
                                         readTimeout,
                                         connectionTimeout);
         restTemplateWithoutWebId.getMessageConverters().add(0, datasetConverter);
+        // we add our DatasetConverter before any other converter because the jackson
+        // converter feels responsible for "application/*+json" (which matches
+        // "application/ld+json") and is confident it can produce a jena Dataset - but
+        // then of course fails to instantiate one. By putting our converter first, we
+        // can be sure it is used when a jena Dataset is requested.
+        this.restTemplateCache = new SslRestTemplateCache(keyStoreService, trustStoreService, trustStrategy,
+                        readTimeout, connectionTimeout,
+                        template -> template.getMessageConverters().add(0, datasetConverter), 500, 3600 * 1000,
+                        "won.protocol.rest.LinkedDataRestClientHttps.restTemplateCache");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.restTemplateCache.close();
     }
 
     protected RestTemplate createRestTemplateForReadingLinkedData(String webID) {
         RestTemplate template;
         try {
             if (logger.isDebugEnabled()) {
-                logger.debug("creating rest template for webID {} ", webID);
+                logger.debug("obtaining rest template for webID {} ", webID);
             }
             String actualPrivateKeyAlias = keyPairAliasDerivationStrategy.getAliasForAtomUri(webID);
             if (actualPrivateKeyAlias == null) {
                 return restTemplateWithoutWebId;
             }
-            template = CryptographyUtils.createSslRestTemplate(actualPrivateKeyAlias,
-                            this.keyStoreService.getUnderlyingKeyStore(),
-                            this.keyStoreService.getPassword(),
-                            this.trustStoreService.getUnderlyingKeyStore(), this.trustStrategy, readTimeout,
-                            connectionTimeout, true);
+            template = restTemplateCache.getRestTemplate(actualPrivateKeyAlias);
             if (logger.isDebugEnabled()) {
-                logger.debug("rest template for webID {} created (privateKeyAlias actually used: {})", webID,
+                logger.debug("rest template for webID {} obtained (privateKeyAlias actually used: {})", webID,
                                 actualPrivateKeyAlias);
             }
-            // we add our DatasetConverter before any other converter because the jackson
-            // converter feels responsible for "application/*+json" (which matches
-            // "application/ld+json") and is confident it can produce a jena Dataset - but
-            // then of course fails to instantiate one. By putting our converter first, we
-            // can be sure it is used when a jena Dataset is requested.
-            template.getMessageConverters().add(0, datasetConverter);
             return template;
         } catch (Exception e) {
             throw new RuntimeException("Failed to create rest template for webID '" + webID + "'", e);
@@ -102,7 +108,6 @@ public class LinkedDataRestClientHttps extends LinkedDataRestClient {
     @Override
     public DatasetResponseWithStatusCodeAndHeaders readResourceDataWithHeaders(URI resourceURI,
                     final URI requesterWebID) {
-        HttpMessageConverter datasetConverter = new RdfDatasetConverter();
         RestTemplate restTemplate;
         try {
             restTemplate = getRestTemplateForReadingLinkedData(
@@ -111,7 +116,6 @@ public class LinkedDataRestClientHttps extends LinkedDataRestClient {
             logger.error("Failed to create ssl tofu rest template", e);
             throw new RuntimeException(e);
         }
-        restTemplate.getMessageConverters().add(datasetConverter);
         HttpHeaders requestHeaders = new HttpHeaders();
         requestHeaders.add(HttpHeaders.ACCEPT, this.acceptHeaderValue);
         return super.readResourceData(resourceURI, restTemplate, requestHeaders);
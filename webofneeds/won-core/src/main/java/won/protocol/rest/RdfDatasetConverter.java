@@ -1,6 +1,7 @@
 package won.protocol.rest;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.util.Arrays;
 import java.util.List;
@@ -10,6 +11,8 @@ import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFFormat;
 import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpInputMessage;
@@ -71,9 +74,8 @@ public class RdfDatasetConverter extends AbstractHttpMessageConverter<Dataset> {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
         MediaType contentType = httpOutputMessage.getHeaders().getContentType();
-        Lang rdfLanguage = mimeTypeToJenaLanguage(contentType, Lang.TRIG);
         WonEtagHelper.setMediaTypeForEtagHeaderIfPresent(contentType, httpOutputMessage.getHeaders());
-        RDFDataMgr.write(httpOutputMessage.getBody(), dataset, rdfLanguage);
+        write(dataset, contentType, httpOutputMessage.getBody());
         // append content type to ETAG header to avoid confusing different
         // representations of the same resource
         httpOutputMessage.getBody().flush();
@@ -81,6 +83,32 @@ public class RdfDatasetConverter extends AbstractHttpMessageConverter<Dataset> {
         logger.debug("writing dataset took " + stopWatch.getLastTaskTimeMillis() + " millls");
     }
 
+    /**
+     * Writes the dataset in the representation for the media type, exactly as it is
+     * written to HTTP responses.
+     */
+    public static void write(Dataset dataset, MediaType mediaType, OutputStream out) {
+        RDFDataMgr.write(out, dataset, mimeTypeToJenaLanguage(mediaType, Lang.TRIG));
+    }
+
+    /**
+     * Returns a writer that serializes quads to the stream as they are sent to it,
+     * for responses too large to be collected in a Dataset first. N-Quads and TriG
+     * (in blocks) are written by Jena, JSON-LD by {@link StreamingJsonLdWriter}.
+     * Other media types are written as TriG. The caller must call
+     * {@link StreamRDF#start()} and {@link StreamRDF#finish()}.
+     */
+    public static StreamRDF createStreamWriter(MediaType mediaType, OutputStream out) {
+        Lang lang = mimeTypeToJenaLanguage(mediaType, Lang.TRIG);
+        if (Lang.JSONLD.equals(lang)) {
+            return new StreamingJsonLdWriter(out);
+        }
+        if (Lang.NQUADS.equals(lang)) {
+            return StreamRDFWriter.getWriterStream(out, RDFFormat.NQUADS);
+        }
+        return StreamRDFWriter.getWriterStream(out, RDFFormat.TRIG_BLOCKS);
+    }
+
     private static Lang mimeTypeToJenaLanguage(MediaType mediaType, Lang defaultLanguage) {
         Lang lang = RDFLanguages.contentTypeToLang(mediaType.toString());
         if (lang == null)
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.protocol.rest;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.TrustStrategy;
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import won.cryptography.service.CryptographyUtils;
+import won.cryptography.service.TrustStoreService;
+import won.cryptography.service.keystore.KeyStoreService;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bounded cache of RestTemplates that authenticate with a client certificate,
+ * one per private key alias. Each RestTemplate keeps its HTTP client and
+ * connection pool, so consecutive requests with the same WebID reuse
+ * connections (and TLS sessions) instead of handshaking every time.
+ * <p>
+ * Connections can't be shared between aliases because the client certificate is
+ * bound to the connection, so every alias gets its own pool, all configured the
+ * same way. Idle connections of all pools are closed by one shared reaper
+ * thread. Pools of evicted aliases are shut down by the reaper as soon as they
+ * have no leased connections left.
+ * </p>
+ * <p>
+ * Hits, misses, evictions and TLS handshakes are counted in JavaSimon counters
+ * named <code>[simonPrefix].hit</code>, <code>.miss</code>,
+ * <code>.evicted</code> and <code>.handshake</code>.
+ * </p>
+ */
+public class SslRestTemplateCache {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String NO_ALIAS = "no client cert";
+    // we mostly talk to few WoN nodes per WebID
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 10;
+    private static final int MAX_CONNECTIONS_TOTAL = 50;
+    private static final long MAX_IDLE_MILLIS = 30000;
+    private static final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ssl-connection-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final KeyStoreService keyStoreService;
+    private final TrustStoreService trustStoreService;
+    private final TrustStrategy trustStrategy;
+    private final Integer readTimeout;
+    private final Integer connectionTimeout;
+    private final Consumer<RestTemplate> restTemplateCustomizer;
+    private final LoadingCache<String, PooledRestTemplate> restTemplates;
+    private final Queue<PooledRestTemplate> retired = new ConcurrentLinkedQueue<>();
+    private final ScheduledFuture<?> reaperTask;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictedCounter;
+    private final Counter handshakeCounter;
+
+    /**
+     * @param restTemplateCustomizer called once for each new RestTemplate, e.g. for
+     * adding message converters
+     * @param maxSize maximum number of aliases to keep a RestTemplate for
+     * @param expireAfterAccessMillis time after which the RestTemplate of an unused
+     * alias is dropped
+     * @param simonPrefix prefix of the JavaSimon counters
+     */
+    public SslRestTemplateCache(KeyStoreService keyStoreService, TrustStoreService trustStoreService,
+                    TrustStrategy trustStrategy, Integer readTimeout, Integer connectionTimeout,
+                    Consumer<RestTemplate> restTemplateCustomizer, int maxSize, long expireAfterAccessMillis,
+                    String simonPrefix) {
+        this.keyStoreService = keyStoreService;
+        this.trustStoreService = trustStoreService;
+        this.trustStrategy = trustStrategy;
+        this.readTimeout = readTimeout;
+        this.connectionTimeout = connectionTimeout;
+        this.restTemplateCustomizer = restTemplateCustomizer;
+        this.hitCounter = SimonManager.getCounter(simonPrefix + ".hit");
+        this.missCounter = SimonManager.getCounter(simonPrefix + ".miss");
+        this.evictedCounter = SimonManager.getCounter(simonPrefix + ".evicted");
+        this.handshakeCounter = SimonManager.getCounter(simonPrefix + ".handshake");
+        this.restTemplates = CacheBuilder.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfterAccess(expireAfterAccessMillis, TimeUnit.MILLISECONDS)
+                        .removalListener(this::onRemoval)
+                        .build(new CacheLoader<String, PooledRestTemplate>() {
+                            @Override
+                            public PooledRestTemplate load(String key) throws Exception {
+                                missCounter.increase();
+                                return createPooledRestTemplate(NO_ALIAS.equals(key) ? null : key);
+                            }
+                        });
+        this.reaperTask = reaper.scheduleWithFixedDelay(this::reapConnections, 5, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the RestTemplate using the key with the specified alias as client
+     * certificate, creating it if necessary.
+     *
+     * @param privateKeyAlias the alias, or null for a RestTemplate without client
+     * certificate
+     */
+    public RestTemplate getRestTemplate(String privateKeyAlias) throws Exception {
+        String key = privateKeyAlias == null ? NO_ALIAS : privateKeyAlias;
+        PooledRestTemplate pooled = restTemplates.getIfPresent(key);
+        if (pooled != null) {
+            hitCounter.increase();
+            return pooled.restTemplate;
+        }
+        try {
+            return restTemplates.get(key).restTemplate;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops all RestTemplates and shuts down their connection pools.
+     */
+    public void close() {
+        reaperTask.cancel(false);
+        restTemplates.invalidateAll();
+        PooledRestTemplate pooled;
+        while ((pooled = retired.poll()) != null) {
+            pooled.connectionManager.shutdown();
+        }
+    }
+
+    private PooledRestTemplate createPooledRestTemplate(String privateKeyAlias) throws Exception {
+        if (logger.isDebugEnabled()) {
+            logger.debug("creating pooled rest template for private key alias {}", privateKeyAlias);
+        }
+        SSLContext sslContext = CryptographyUtils.getSSLContext(privateKeyAlias,
+                        keyStoreService.getUnderlyingKeyStore(), keyStoreService.getPassword(),
+                        trustStoreService.getUnderlyingKeyStore(), trustStrategy);
+        if (sslContext == null) {
+            throw new IllegalStateException("Could not create SSL context for private key alias " + privateKeyAlias);
+        }
+        SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(sslContext) {
+            @Override
+            protected void prepareSocket(SSLSocket socket) throws IOException {
+                socket.addHandshakeCompletedListener(event -> handshakeCounter.increase());
+            }
+        };
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", sslSocketFactory)
+                        .build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+        connectionManager.setValidateAfterInactivity(2000);
+        CloseableHttpClient httpClient = HttpClients.custom()
+                        .setConnectionManager(connectionManager)
+                        // all connections of this pool use the same client certificate, so
+                        // they can be reused regardless of the TLS principal
+                        .disableConnectionState()
+                        .build();
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(
+                        httpClient);
+        if (readTimeout != null) {
+            requestFactory.setReadTimeout(readTimeout);
+        }
+        if (connectionTimeout != null) {
+            requestFactory.setConnectTimeout(connectionTimeout);
+        }
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        if (restTemplateCustomizer != null) {
+            restTemplateCustomizer.accept(restTemplate);
+        }
+        return new PooledRestTemplate(restTemplate, connectionManager);
+    }
+
+    private void onRemoval(RemovalNotification<String, PooledRestTemplate> notification) {
+        if (notification.wasEvicted()) {
+            evictedCounter.increase();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("dropping pooled rest template for private key alias {} ({})", notification.getKey(),
+                            notification.getCause());
+        }
+        // requests may still be running on this pool - leave the shutdown to the
+        // reaper
+        retired.add(notification.getValue());
+    }
+
+    private void reapConnections() {
+        try {
+            restTemplates.cleanUp();
+            for (PooledRestTemplate pooled : restTemplates.asMap().values()) {
+                pooled.connectionManager.closeExpiredConnections();
+                pooled.connectionManager.closeIdleConnections(MAX_IDLE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            for (Iterator<PooledRestTemplate> it = retired.iterator(); it.hasNext();) {
+                PooledRestTemplate pooled = it.next();
+                if (pooled.connectionManager.getTotalStats().getLeased() == 0) {
+                    pooled.connectionManager.shutdown();
+                    it.remove();
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("error reaping idle connections", e);
+        }
+    }
+
+    private static class PooledRestTemplate {
+        private final RestTemplate restTemplate;
+        private final PoolingHttpClientConnectionManager connectionManager;
+
+        public PooledRestTemplate(RestTemplate restTemplate, PoolingHttpClientConnectionManager connectionManager) {
+            this.restTemplate = restTemplate;
+            this.connectionManager = connectionManager;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package won.protocol.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.out.NodeToLabel;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes quads as JSON-LD while they arrive, without collecting them first.
+ * Jena's JSON-LD writer needs the complete dataset for compaction, so this
+ * writer uses a fixed frame instead: expanded JSON-LD with full IRIs, one
+ * top-level <code>@graph</code> holding the default graph's nodes and one
+ * <code>{"@id": graph, "@graph": [...]}</code> object per named graph.
+ * Consecutive quads with the same graph and subject are written as one node
+ * object, so quads that arrive grouped by graph and subject (as from a Jena
+ * dataset) produce compact output. Quads in any other order still produce valid
+ * JSON-LD, with a graph or node object repeated where needed.
+ */
+public class StreamingJsonLdWriter implements StreamRDF {
+    private static final JsonFactory jsonFactory = new JsonFactory()
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final OutputStream out;
+    private final NodeToLabel blankNodeLabels = NodeToLabel.createScopeByDocument();
+    private JsonGenerator generator;
+    // graph of the currently open named graph object, null in the default graph
+    private Node currentGraph = null;
+    // subject of the currently open node object, null if none is open
+    private Node currentSubject = null;
+    // predicate of the currently open property array, null if none is open
+    private Node currentPredicate = null;
+    private final Set<Node> predicatesOfCurrentSubject = new HashSet<>();
+
+    public StreamingJsonLdWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start() {
+        try {
+            generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("@graph");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        write(Quad.defaultGraphIRI, triple.getSubject(), triple.getPredicate(), triple.getObject());
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        write(quad.getGraph(), quad.getSubject(), quad.getPredicate(), quad.getObject());
+    }
+
+    @Override
+    public void base(String base) {
+        // all IRIs are written in full
+    }
+
+    @Override
+    public void prefix(String prefix, String iri) {
+        // all IRIs are written in full
+    }
+
+    @Override
+    public void finish() {
+        try {
+            closeNodeObject();
+            closeGraphObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(Node graph, Node subject, Node predicate, Node object) {
+        Node graphName = (graph == null || Quad.isDefaultGraph(graph)) ? null : graph;
+        try {
+            if (!Objects.equals(graphName, currentGraph)) {
+                closeNodeObject();
+                closeGraphObject();
+                openGraphObject(graphName);
+            }
+            if (!subject.equals(currentSubject)
+                            || (!predicate.equals(currentPredicate)
+                                            && predicatesOfCurrentSubject.contains(predicate))) {
+                // a property may only appear once per node object
+                closeNodeObject();
+                openNodeObject(subject);
+            }
+            if (!predicate.equals(currentPredicate)) {
+                closePropertyArray();
+                generator.writeArrayFieldStart(predicate.getURI());
+                currentPredicate = predicate;
+                predicatesOfCurrentSubject.add(predicate);
+            }
+            writeObject(object);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openGraphObject(Node graphName) throws IOException {
+        if (graphName != null) {
+            generator.writeStartObject();
+            generator.writeStringField("@id", toId(graphName));
+            generator.writeArrayFieldStart("@graph");
+        }
+        currentGraph = graphName;
+    }
+
+    private void closeGraphObject() throws IOException {
+        if (currentGraph != null) {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            currentGraph = null;
+        }
+    }
+
+    private void openNodeObject(Node subject) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("@id", toId(subject));
+        currentSubject = subject;
+    }
+
+    private void closeNodeObject() throws IOException {
+        if (currentSubject != null) {
+            closePropertyArray();
+            generator.writeEndObject();
+            currentSubject = null;
+            predicatesOfCurrentSubject.clear();
+        }
+    }
+
+    private void closePropertyArray() throws IOException {
+        if (currentPredicate != null) {
+            generator.writeEndArray();
+            currentPredicate = null;
+        }
+    }
+
+    private void writeObject(Node object) throws IOException {
+        generator.writeStartObject();
+        if (object.isLiteral()) {
+            generator.writeStringField("@value", object.getLiteralLexicalForm());
+            String language = object.getLiteralLanguage();
+            String datatype = object.getLiteralDatatypeURI();
+            if (language != null && !language.isEmpty()) {
+                generator.writeStringField("@language", language);
+            } else if (datatype != null && !XSDDatatype.XSDstring.getURI().equals(datatype)) {
+                generator.writeStringField("@type", datatype);
+            }
+        } else {
+            generator.writeStringField("@id", toId(object));
+        }
+        generator.writeEndObject();
+    }
+
+    private String toId(Node node) {
+        if (node.isBlank()) {
+            return blankNodeLabels.get(null, node);
+        }
+        return node.getURI();
+    }
+}
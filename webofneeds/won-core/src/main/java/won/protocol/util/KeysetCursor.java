@@ -0,0 +1,109 @@
+package won.protocol.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Position in a list of entities ordered by (creationDate, id), used for keyset
+ * (seek) pagination: the next page is selected by comparing with the cursor
+ * instead of skipping all rows of the previous pages, so every page costs the
+ * same. Clients only see the cursor as an opaque token (see
+ * {@link #toToken()}).
+ */
+public final class KeysetCursor {
+    /**
+     * Position before the newest entity; listing entities older than this cursor
+     * returns the first page of a newest-first list. Its date is outside the range
+     * of database timestamps, so it must not be used as a query parameter:
+     * repositories have separate queries for the first page.
+     */
+    public static final KeysetCursor NEWEST = new KeysetCursor(new Date(Long.MAX_VALUE), Long.MAX_VALUE);
+    private static final char SEPARATOR = '.';
+    private final Date creationDate;
+    private final long id;
+
+    public KeysetCursor(Date creationDate, long id) {
+        this.creationDate = Objects.requireNonNull(creationDate);
+        this.id = id;
+    }
+
+    public Date getCreationDate() {
+        return creationDate;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean isNewest() {
+        return this.equals(NEWEST);
+    }
+
+    /**
+     * Returns the cursor as a URL-safe string without a ':', so that it can't be
+     * mistaken for a URI.
+     */
+    public String toToken() {
+        String plain = Long.toString(creationDate.getTime(), 36) + SEPARATOR + Long.toString(id, 36);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Parses a token created by {@link #toToken()}.
+     *
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static KeysetCursor fromToken(String token) {
+        try {
+            String plain = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int separator = plain.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Not a cursor: " + token);
+            }
+            return new KeysetCursor(new Date(Long.parseLong(plain.substring(0, separator), 36)),
+                            Long.parseLong(plain.substring(separator + 1), 36));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a cursor: " + token, e);
+        }
+    }
+
+    /**
+     * Checks if the value of a paging parameter is a cursor token rather than the
+     * URI of a reference entity, as accepted by older versions.
+     */
+    public static boolean isToken(String value) {
+        if (value == null || value.indexOf(':') >= 0) {
+            return false;
+        }
+        try {
+            fromToken(value);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        KeysetCursor that = (KeysetCursor) o;
+        return id == that.id && creationDate.equals(that.creationDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(creationDate, id);
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetCursor{" + "creationDate=" + creationDate.getTime() + ", id=" + id + '}';
+    }
+}
@@ -0,0 +1,27 @@
+package won.protocol.util;
+
+import java.net.URI;
+import java.util.Date;
+
+/**
+ * URI of an entity in a keyset-paged list, together with its position. Created
+ * by JPQL constructor expressions, so that listing URIs does not require
+ * loading the entities.
+ */
+public class KeysetPageItem {
+    private final URI uri;
+    private final KeysetCursor cursor;
+
+    public KeysetPageItem(URI uri, Date creationDate, Long id) {
+        this.uri = uri;
+        this.cursor = new KeysetCursor(creationDate, id);
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public KeysetCursor getCursor() {
+        return cursor;
+    }
+}
@@ -11,6 +11,8 @@
 package won.protocol.util.linkeddata;
 
 import ch.qos.logback.core.util.Duration;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import net.sf.ehcache.CacheException;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
@@ -18,6 +20,14 @@ import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.DatasetGraphReadOnly;
+import org.apache.jena.sparql.core.Quad;
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -51,7 +61,10 @@ import java.util.stream.Stream;
 import static java.util.EnumSet.noneOf;
 
 /**
- * LinkedDataSource implementation that uses an ehcache for caching.
+ * LinkedDataSource implementation that uses an ehcache for caching. The ehcache
+ * holds the datasets in serialized (N-Quads) form. In front of it, a
+ * size-bounded in-memory tier holds read-only, already parsed snapshots of the
+ * cached datasets so that cache hits do not have to run the parser again.
  */
 @Qualifier("default")
 public class CachingLinkedDataSource extends LinkedDataSourceBase implements LinkedDataSource, InitializingBean {
@@ -60,6 +73,12 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
     private static final int DEFAULT_BYTE_ARRAY_SIZE = 500;
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     private static final long DEFAULT_LIFETIME = 600 * 1000;
+    private static final long DEFAULT_PARSED_DATASET_CACHE_MAX_QUADS = 1000000;
+    private static final String SIMON_PREFIX = CachingLinkedDataSource.class.getName();
+    private static final Counter parsedHitCounter = SimonManager.getCounter(SIMON_PREFIX + ".parsedHits");
+    private static final Counter byteHitCounter = SimonManager.getCounter(SIMON_PREFIX + ".byteHits");
+    private static final Counter missCounter = SimonManager.getCounter(SIMON_PREFIX + ".misses");
+    private static final Stopwatch parseStopwatch = SimonManager.getStopwatch(SIMON_PREFIX + ".parse");
     private static Pattern CACHE_CONTROL_MAX_AGE_PATTERN = Pattern.compile("max-age=(\\d+)");
     @Autowired(required = true)
     private EhCacheCacheManager cacheManager;
@@ -71,6 +90,11 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
     // In-memory dataset for caching linked data.
     // synchronziation for concurrent requests to the same resource
     private ConcurrentMap<String, CountDownLatch> countDownLatchMap = new ConcurrentHashMap<>(10);
+    // upper bound for the number of quads held in the parsed dataset tier
+    private long parsedDatasetCacheMaxQuads = DEFAULT_PARSED_DATASET_CACHE_MAX_QUADS;
+    // parsed, read-only snapshots of the datasets held by the ehcache, using the
+    // same keys
+    private Cache<String, ParsedDatasetSnapshot> parsedDatasetCache;
 
     private static Dataset readDatasetFromByteArray(byte[] datasetbytes) {
         Dataset dataset = DatasetFactory.create();
@@ -78,6 +102,20 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
         return dataset;
     }
 
+    /**
+     * Creates a modifiable copy of the specified (read-only) snapshot. Copying the
+     * quads is much cheaper than parsing them again, and it guarantees that callers
+     * manipulating the result cannot change the snapshot.
+     *
+     * @param snapshot
+     * @return
+     */
+    private static Dataset copyOfSnapshot(DatasetGraph snapshot) {
+        DatasetGraph copy = DatasetGraphFactory.createGeneral();
+        snapshot.find().forEachRemaining(copy::add);
+        return DatasetFactory.wrap(copy);
+    }
+
     private static byte[] writeDatasetToByteArray(Dataset dataset) {
         ByteArrayOutputStream out = new ByteArrayOutputStream(DEFAULT_BYTE_ARRAY_SIZE);
         RDFDataMgr.write(out, dataset, Lang.NQUADS);
@@ -102,6 +140,20 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
         this.sharedCache = sharedCache;
     }
 
+    public long getParsedDatasetCacheMaxQuads() {
+        return parsedDatasetCacheMaxQuads;
+    }
+
+    /**
+     * Sets the maximum number of quads held in the tier of parsed datasets. Set to
+     * 0 to disable the tier. Must be set before the bean is initialized.
+     *
+     * @param parsedDatasetCacheMaxQuads
+     */
+    public void setParsedDatasetCacheMaxQuads(long parsedDatasetCacheMaxQuads) {
+        this.parsedDatasetCacheMaxQuads = parsedDatasetCacheMaxQuads;
+    }
+
     /**
      * Removes the element associated with the specified URI from the cache
      *
@@ -114,7 +166,7 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
         if (logger.isDebugEnabled()) {
             logger.debug("invalidating cached resource {}", resource);
         }
-        cache.remove(makeCacheKey(resource, null));
+        removeFromCache(makeCacheKey(resource, null));
     }
 
     public void invalidate(URI resource, URI requesterWebID) {
@@ -124,11 +176,12 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
         if (logger.isDebugEnabled()) {
             logger.debug("invalidating cached resource {} for webid {}", resource, requesterWebID);
         }
-        cache.remove(makeCacheKey(resource, requesterWebID));
+        removeFromCache(makeCacheKey(resource, requesterWebID));
     }
 
     public void clear() {
         cache.removeAll();
+        parsedDatasetCache.invalidateAll();
     }
 
     /**
@@ -141,9 +194,8 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
      * the global cache)
      */
     public void addToCache(Dataset dataset, URI resource, URI requesterWebID) {
-        String key = makeCacheKey(resource, requesterWebID);
         LinkedDataCacheEntry entry = new LinkedDataCacheEntry(writeDatasetToByteArray(dataset));
-        this.cache.put(new Element(makeCacheKey(resource, requesterWebID), entry));
+        putIntoCache(makeCacheKey(resource, requesterWebID), entry);
     }
 
     public void addToCache(Dataset dataset, URI resource) {
@@ -221,7 +273,8 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
             // are allowed to do that:
             if (linkedDataCacheEntry.isExpiredAtDate(now)) {
                 // cache item is expired. Remove from cache and fetch again
-                cache.remove(makeCacheKey(resource, requesterWebID));
+                missCounter.increase();
+                removeFromCache(makeCacheKey(resource, requesterWebID));
                 if (logger.isDebugEnabled()) {
                     logger.debug("cache item {} expired, fetching again.", resource);
                 }
@@ -243,9 +296,10 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
                 logger.debug("returning cached version of {}", resource);
             }
             // we can use the cached result directly
-            return linkedDataCacheEntry.recreateResponse();
+            return recreateResponse(makeCacheKey(resource, requesterWebID), linkedDataCacheEntry);
         }
         // nothing found in the cache, fetch the resource remotely
+        missCounter.increase();
         if (logger.isDebugEnabled()) {
             logger.debug("Nothing found in cache for {}, fetching remotely", resource);
         }
@@ -298,10 +352,8 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
                         logger.debug("resource {} turned out to be cacheable, using it", cacheKey);
                     }
                     // ok, we'll recreate a response from the cache.
-                    // Caution: this is not a copy, it's the SAME dataset - so manipulating the
-                    // result causes side-effects.
                     LinkedDataCacheEntry entry = (LinkedDataCacheEntry) element.getObjectValue();
-                    return entry.recreateResponse();
+                    return recreateResponse(cacheKey, entry);
                 }
                 if (logger.isDebugEnabled()) {
                     logger.debug("resource {} did not turn out to be cacheable - fetching it, too", cacheKey);
@@ -346,7 +398,7 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
                         || cacheControlFlags.contains(CacheControlFlag.NO_CACHE)) {
             // we are not allowed to cache the result
             // make sure it's not in the cache from a previous request
-            cache.remove(makeCacheKey(resource, requesterWebID));
+            removeFromCache(makeCacheKey(resource, requesterWebID));
             if (logger.isDebugEnabled()) {
                 logger.debug("Fetched {}. Will not be cached due to Cache-Control headers sent by server", resource);
             }
@@ -362,7 +414,7 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
                     logger.debug("Fetched {}. Will not be cached due to Expires/Date header combination sent by server",
                                     resource);
                 }
-                cache.remove(makeCacheKey(resource, requesterWebID));
+                removeFromCache(makeCacheKey(resource, requesterWebID));
                 return responseData;
             }
         }
@@ -377,7 +429,7 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
         LinkedDataCacheEntry entry = new LinkedDataCacheEntry(etag, expires,
                         writeDatasetToByteArray(responseData.getDataset()), cacheControlFlags,
                         responseData.getResponseHeaders(), responseData.getStatusCode());
-        this.cache.put(new Element(makeCacheKey(resource, requesterWebID), entry));
+        putIntoCache(makeCacheKey(resource, requesterWebID), entry);
         if (logger.isDebugEnabled()) {
             logger.debug("Fetched and cached {}, will {}", resource, expires == null ? "never expire"
                             : "expire in " + new Duration(expires.getTime() - new Date().getTime()).toString());
@@ -421,7 +473,7 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
                 logger.debug("server said our ETAG is still valid, using cached dataset for URI {} ", resource);
             }
             datasetResponse = new DatasetResponseWithStatusCodeAndHeaders(
-                            readDatasetFromByteArray(linkedDataCacheEntry.getDataset()),
+                            readCachedDataset(makeCacheKey(resource, requesterWebID), linkedDataCacheEntry),
                             datasetResponse.getStatusCode(), datasetResponse.getResponseHeaders());
         } else {
             if (logger.isDebugEnabled()) {
@@ -438,6 +490,69 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
         return datasetResponse;
     }
 
+    /**
+     * Recreates the response stored in the specified cache entry, using the parsed
+     * dataset tier if possible.
+     *
+     * @param cacheKey
+     * @param linkedDataCacheEntry
+     * @return
+     */
+    private DatasetResponseWithStatusCodeAndHeaders recreateResponse(final String cacheKey,
+                    final LinkedDataCacheEntry linkedDataCacheEntry) {
+        return new DatasetResponseWithStatusCodeAndHeaders(readCachedDataset(cacheKey, linkedDataCacheEntry),
+                        linkedDataCacheEntry.statusCode, linkedDataCacheEntry.headers);
+    }
+
+    /**
+     * Returns a (modifiable) copy of the dataset held in the specified cache entry.
+     * If the parsed dataset tier holds a snapshot that was created from exactly
+     * this cache entry, the snapshot is copied. Otherwise, the entry's bytes are
+     * parsed and a read-only snapshot of the result is added to the parsed dataset
+     * tier. Comparing the entry identity ensures we never serve a snapshot that
+     * outlived its ehcache entry, e.g. due to expiry or eviction in the ehcache.
+     *
+     * @param cacheKey
+     * @param linkedDataCacheEntry
+     * @return
+     */
+    private Dataset readCachedDataset(final String cacheKey, final LinkedDataCacheEntry linkedDataCacheEntry) {
+        ParsedDatasetSnapshot snapshot = parsedDatasetCache.getIfPresent(cacheKey);
+        if (snapshot != null && snapshot.getSource() == linkedDataCacheEntry) {
+            parsedHitCounter.increase();
+            return copyOfSnapshot(snapshot.getDatasetGraph());
+        }
+        byteHitCounter.increase();
+        Split split = parseStopwatch.start();
+        Dataset dataset;
+        try {
+            dataset = readDatasetFromByteArray(linkedDataCacheEntry.getDataset());
+        } finally {
+            split.stop();
+        }
+        if (parsedDatasetCacheMaxQuads > 0) {
+            DatasetGraph snapshotGraph = DatasetGraphFactory.createGeneral();
+            long quads = 0;
+            for (Iterator<Quad> it = dataset.asDatasetGraph().find(); it.hasNext(); quads++) {
+                snapshotGraph.add(it.next());
+            }
+            parsedDatasetCache.put(cacheKey,
+                            new ParsedDatasetSnapshot(linkedDataCacheEntry, snapshotGraph, quads));
+        }
+        return dataset;
+    }
+
+    private void putIntoCache(final String cacheKey, final LinkedDataCacheEntry linkedDataCacheEntry) {
+        // the snapshot would not be used anyway as it was made from another entry
+        parsedDatasetCache.invalidate(cacheKey);
+        cache.put(new Element(cacheKey, linkedDataCacheEntry));
+    }
+
+    private void removeFromCache(final String cacheKey) {
+        cache.remove(cacheKey);
+        parsedDatasetCache.invalidate(cacheKey);
+    }
+
     /**
      * Performs the actual request via the linkedDataRestClient.
      *
@@ -578,6 +693,10 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
         // this.cache = new SelfPopulatingCache(baseCache, new
         // LinkedDataCacheEntryFactory());
         this.cache = baseCache;
+        this.parsedDatasetCache = CacheBuilder.newBuilder()
+                        .maximumWeight(parsedDatasetCacheMaxQuads)
+                        .weigher((String key, ParsedDatasetSnapshot snapshot) -> snapshot.getWeight())
+                        .build();
     }
 
     public void setCacheManager(final EhCacheCacheManager cacheManager) {
@@ -635,6 +754,33 @@ public class CachingLinkedDataSource extends LinkedDataSourceBase implements Lin
         }
     }
 
+    /**
+     * Read-only parsed form of the dataset held by a LinkedDataCacheEntry.
+     */
+    private static class ParsedDatasetSnapshot {
+        private final LinkedDataCacheEntry source;
+        private final DatasetGraph datasetGraph;
+        private final int weight;
+
+        public ParsedDatasetSnapshot(LinkedDataCacheEntry source, DatasetGraph datasetGraph, long quads) {
+            this.source = source;
+            this.datasetGraph = new DatasetGraphReadOnly(datasetGraph);
+            this.weight = (int) Math.min(Integer.MAX_VALUE, Math.max(1, quads));
+        }
+
+        public LinkedDataCacheEntry getSource() {
+            return source;
+        }
+
+        public DatasetGraph getDatasetGraph() {
+            return datasetGraph;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+
     public static class LinkedDataCacheEntry {
         private String etag;
         private Date expires = null;
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.protocol.util.linkeddata;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.path.P_Inverse;
+import org.apache.jena.sparql.path.P_Link;
+import org.apache.jena.sparql.path.P_ReverseLink;
+import org.apache.jena.sparql.path.P_Seq;
+import org.apache.jena.sparql.path.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import won.protocol.util.RdfUtils;
+
+/**
+ * Evaluates a set of property paths starting at one resource while the data
+ * they are evaluated on is being crawled. Instead of querying the whole crawled
+ * dataset after each crawl step, {@link #update(Dataset, Dataset)} is called
+ * with each newly fetched dataset and only extends the nodes reached so far by
+ * the edges found in that dataset (and the edges leading away from newly
+ * reached nodes).
+ * <p>
+ * Only sequences of (possibly inverted) properties are evaluated that way,
+ * which covers the paths used for crawling atoms and conversations. Paths
+ * sharing a prefix share its evaluation state. Any other path (alternatives,
+ * repetition etc.) is evaluated with a SPARQL query on the whole dataset in
+ * {@link #getReachedURIs(Dataset)}.
+ * </p>
+ * <p>
+ * Nodes, once reached, stay reached even if the statements leading to them are
+ * later removed from the crawled dataset (e.g. because a named graph is
+ * replaced by a newer version). Not thread-safe.
+ * </p>
+ */
+class IncrementalPropertyPathEvaluator {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private final URI resourceURI;
+    private final PathState root;
+    private final List<PathState> terminalStates = new ArrayList<>();
+    private final List<Path> fallbackPaths = new ArrayList<>();
+
+    public IncrementalPropertyPathEvaluator(URI resourceURI, List<Path> propertyPaths) {
+        Objects.requireNonNull(resourceURI);
+        Objects.requireNonNull(propertyPaths);
+        this.resourceURI = resourceURI;
+        this.root = new PathState(null);
+        this.root.reached.add(NodeFactory.createURI(resourceURI.toString()));
+        for (Path path : propertyPaths) {
+            List<Step> steps = compile(path, false);
+            if (steps == null || steps.isEmpty()) {
+                logger.debug("cannot evaluate property path {} incrementally, falling back to query", path);
+                fallbackPaths.add(path);
+                continue;
+            }
+            PathState state = root;
+            for (Step step : steps) {
+                state = state.children.computeIfAbsent(step, PathState::new);
+            }
+            if (!state.terminal) {
+                state.terminal = true;
+                terminalStates.add(state);
+            }
+        }
+    }
+
+    /**
+     * Extends the evaluation state with the specified dataset, which must already
+     * have been added to the crawled dataset.
+     *
+     * @param crawledData all data crawled so far, including the fetched data
+     * @param fetchedData the newly fetched data
+     */
+    public void update(Dataset crawledData, Dataset fetchedData) {
+        DatasetGraph crawledGraph = crawledData.asDatasetGraph();
+        DatasetGraph fetchedGraph = fetchedData.asDatasetGraph();
+        for (PathState child : root.children.values()) {
+            child.update(root.reached, root.delta, crawledGraph, fetchedGraph);
+        }
+    }
+
+    /**
+     * Returns the URIs reached by any of the property paths. Non-URI nodes at the
+     * end of a path are ignored.
+     *
+     * @param crawledData all data crawled so far, used for the paths that cannot be
+     * evaluated incrementally
+     * @return
+     */
+    public Set<URI> getReachedURIs(Dataset crawledData) {
+        Set<URI> reached = new HashSet<>();
+        for (PathState state : terminalStates) {
+            for (Node node : state.reached) {
+                if (node.isURI()) {
+                    reached.add(URI.create(node.getURI()));
+                }
+            }
+        }
+        for (Path path : fallbackPaths) {
+            Iterator<RDFNode> nodes = RdfUtils.getNodesForPropertyPathByQuery(crawledData, resourceURI, path);
+            while (nodes.hasNext()) {
+                RDFNode node = nodes.next();
+                if (node.isURIResource()) {
+                    reached.add(URI.create(node.asResource().getURI()));
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Flattens the path into a list of steps or returns null if the path is not a
+     * sequence of simple or inverted properties.
+     */
+    private static List<Step> compile(Path path, boolean inverse) {
+        if (path instanceof P_Link) {
+            return asList(new Step(((P_Link) path).getNode(), inverse));
+        }
+        if (path instanceof P_ReverseLink) {
+            return asList(new Step(((P_ReverseLink) path).getNode(), !inverse));
+        }
+        if (path instanceof P_Inverse) {
+            return compile(((P_Inverse) path).getSubPath(), !inverse);
+        }
+        if (path instanceof P_Seq) {
+            P_Seq seq = (P_Seq) path;
+            // the inverse of a/b is ^b/^a
+            List<Step> first = compile(inverse ? seq.getRight() : seq.getLeft(), inverse);
+            List<Step> second = compile(inverse ? seq.getLeft() : seq.getRight(), inverse);
+            if (first == null || second == null) {
+                return null;
+            }
+            first.addAll(second);
+            return first;
+        }
+        return null;
+    }
+
+    private static List<Step> asList(Step step) {
+        List<Step> steps = new ArrayList<>();
+        steps.add(step);
+        return steps;
+    }
+
+    /**
+     * One property of a path, possibly followed from object to subject.
+     */
+    private static class Step {
+        private final Node property;
+        private final boolean inverse;
+
+        public Step(Node property, boolean inverse) {
+            this.property = property;
+            this.inverse = inverse;
+        }
+
+        /**
+         * Adds the nodes reachable from the specified node via this step.
+         */
+        public void follow(Node node, DatasetGraph graph, Set<Node> result) {
+            Iterator<Quad> it = inverse ? graph.find(Node.ANY, Node.ANY, property, node)
+                            : graph.find(Node.ANY, node, property, Node.ANY);
+            while (it.hasNext()) {
+                Quad quad = it.next();
+                result.add(inverse ? quad.getSubject() : quad.getObject());
+            }
+        }
+
+        /**
+         * Adds the nodes reachable via this step from any of the specified nodes, using
+         * only statements in the specified graph.
+         */
+        public void followAll(Set<Node> nodes, DatasetGraph graph, Set<Node> result) {
+            Iterator<Quad> it = graph.find(Node.ANY, Node.ANY, property, Node.ANY);
+            while (it.hasNext()) {
+                Quad quad = it.next();
+                if (nodes.contains(inverse ? quad.getObject() : quad.getSubject())) {
+                    result.add(inverse ? quad.getSubject() : quad.getObject());
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Step other = (Step) o;
+            return inverse == other.inverse && property.equals(other.property);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(property, inverse);
+        }
+
+        @Override
+        public String toString() {
+            return (inverse ? "^" : "") + property;
+        }
+    }
+
+    /**
+     * The nodes reached by one path prefix. The delta holds the nodes added in the
+     * current update.
+     */
+    private static class PathState {
+        private final Step step;
+        private final Set<Node> reached = new HashSet<>();
+        private Set<Node> delta = new HashSet<>();
+        private final Map<Step, PathState> children = new LinkedHashMap<>();
+        private boolean terminal = false;
+
+        public PathState(Step step) {
+            this.step = step;
+        }
+
+        /**
+         * Semi-naive evaluation: new nodes are those reached from the parent's new
+         * nodes via any statement, plus those reached from any of the parent's nodes
+         * via a newly fetched statement.
+         */
+        public void update(Set<Node> parentReached, Set<Node> parentDelta, DatasetGraph crawledGraph,
+                        DatasetGraph fetchedGraph) {
+            Set<Node> candidates = new HashSet<>();
+            step.followAll(parentReached, fetchedGraph, candidates);
+            for (Node node : parentDelta) {
+                step.follow(node, crawledGraph, candidates);
+            }
+            delta = new HashSet<>();
+            for (Node candidate : candidates) {
+                if (reached.add(candidate)) {
+                    delta.add(candidate);
+                }
+            }
+            for (PathState child : children.values()) {
+                child.update(reached, delta, crawledGraph, fetchedGraph);
+            }
+        }
+    }
+}
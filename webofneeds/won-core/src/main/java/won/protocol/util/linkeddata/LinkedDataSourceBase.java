@@ -37,10 +37,13 @@ import won.protocol.util.linkeddata.uriresolver.WonMessageUriResolver;
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -155,8 +158,7 @@ public class LinkedDataSourceBase implements LinkedDataSource {
     public Dataset getDataForResource(final URI resourceURI, final URI requesterWebID, final List<URI> properties,
                     final int maxRequest, final int maxDepth) {
         return getDataForResource(resourceURI, Optional.ofNullable(requesterWebID), maxRequest, maxDepth,
-                        (Dataset crawledData,
-                                        Set<URI> crawledUris) -> getURIsToCrawl(crawledData, crawledUris, properties));
+                        new PropertyObjectsDiscovery(properties));
     }
 
     private Set<URI> retainOnlyAllowedAmount(Set<URI> newlyDiscoveredURIs, final int maxRequest, int requests) {
@@ -183,20 +185,18 @@ public class LinkedDataSourceBase implements LinkedDataSource {
     public Dataset getDataForResourceWithPropertyPath(final URI resourceURI, final Optional<URI> requesterWebID,
                     final List<Path> properties, final int maxRequest, final int maxDepth) {
         return getDataForResource(resourceURI, requesterWebID, maxRequest, maxDepth,
-                        (Dataset crawledData, Set<URI> crawledUris) -> getURIsToCrawlWithPropertyPath(crawledData,
-                                        resourceURI, crawledUris, properties));
+                        new PropertyPathDiscovery(resourceURI, properties));
     }
 
     @Override
     public Dataset getDataForResourceWithPropertyPath(final URI resourceURI, final URI requesterWebID,
                     final List<Path> properties, final int maxRequest, final int maxDepth) {
         return getDataForResource(resourceURI, Optional.ofNullable(requesterWebID), maxRequest, maxDepth,
-                        (Dataset crawledData, Set<URI> crawledUris) -> getURIsToCrawlWithPropertyPath(crawledData,
-                                        resourceURI, crawledUris, properties));
+                        new PropertyPathDiscovery(resourceURI, properties));
     }
 
     private Dataset getDataForResource(final URI resourceURI, final Optional<URI> requesterWebID, final int maxRequest,
-                    final int maxDepth, BiFunction<Dataset, Set<URI>, Set<URI>> findNextUrisFunction) {
+                    final int maxDepth, UriDiscovery uriDiscovery) {
         Set<URI> crawledURIs = new HashSet<>();
         Set<URI> newlyDiscoveredURIs = new HashSet<>();
         newlyDiscoveredURIs.add(resourceURI);
@@ -205,132 +205,171 @@ public class LinkedDataSourceBase implements LinkedDataSource {
         final Dataset dataset = makeDataset();
         while (newlyDiscoveredURIs.size() > 0 && depth < maxDepth && requests < maxRequest) {
             final Set<URI> urisToCrawl = retainOnlyAllowedAmount(newlyDiscoveredURIs, maxRequest, requests);
-            // hack: there may be a threadLocal with the authentication data we need further
-            // down the call stack
-            // if there is one, we need to add that to the threads we use in the following
-            // parallel construct
-            final Optional<Object> authenticationOpt = AuthenticationThreadLocal.hasValue()
-                            ? Optional.of(AuthenticationThreadLocal.getAuthentication())
-                            : Optional.empty();
-            Future<Optional<Dataset>> crawledData = parallelRequestsThreadpool
-                            .submit(() -> urisToCrawl.parallelStream().map(uri -> {
-                                try {
-                                    if (authenticationOpt.isPresent()) {
-                                        // theadlocal hack mentioned above
-                                        AuthenticationThreadLocal.setAuthentication(authenticationOpt.get());
-                                    }
-                                    return requesterWebID.isPresent() ? getDataForResource(uri, requesterWebID.get())
-                                                    : getDataForPublicResource(uri);
-                                } finally {
-                                    // be sure to remove the principal from the threadlocal after the call
-                                    AuthenticationThreadLocal.remove();
-                                }
-                            }).reduce(RdfUtils::addDatasetToDataset));
-            Optional<Dataset> crawledDataset;
-            try {
-                crawledDataset = crawledData.get();
-            } catch (ExecutionException e) {
-                Throwable cause = e.getCause();
-                if (cause instanceof LinkedDataFetchingException) {
-                    throw (LinkedDataFetchingException) cause;
-                }
-                throw new RuntimeException("Could not retrieve data for multiple URIs", e);
-            } catch (Exception e) {
-                throw new RuntimeException("Could not retrieve data for multiple URIs", e);
-            }
-            if (crawledDataset.isPresent()) {
-                // Add crawledDataset to dataset, replacing any named models contained in both.
+            fetchAll(urisToCrawl, requesterWebID, fetchedDataset -> {
+                // Add fetchedDataset to dataset, replacing any named models contained in both.
                 // We do this because
                 // 1. merging does not work properly in the presence of blank nodes - they end
                 // up duplicated
                 // 2. we do not expect to find the same named model with different content, so
                 // merging should have no visible effect at all
-                RdfUtils.addDatasetToDataset(dataset, crawledDataset.get(), true);
-            }
+                RdfUtils.addDatasetToDataset(dataset, fetchedDataset, true);
+                uriDiscovery.onFetched(dataset, fetchedDataset);
+            });
             crawledURIs.addAll(urisToCrawl);
             requests += urisToCrawl.size();
-            newlyDiscoveredURIs = new HashSet<>(findNextUrisFunction.apply(dataset, crawledURIs));
+            newlyDiscoveredURIs = new HashSet<>(uriDiscovery.getDiscoveredURIs(dataset));
+            newlyDiscoveredURIs.removeAll(crawledURIs);
             depth++;
-            logger.debug("current Depth: " + depth);
+            logger.debug("current Depth: {}, discovered {} new URIs", depth, newlyDiscoveredURIs.size());
         }
         return dataset;
     }
 
     /**
-     * For the specified resourceURI, evaluates the specified property paths and
-     * adds the identified resources to the returned set if they are not contained
-     * in the specified exclude set.
-     *
-     * @param dataset
-     * @param resourceURI
-     * @param excludedUris
-     * @param properties
-     * @return
+     * Fetches the specified URIs in parallel, passing each result to the consumer
+     * in the calling thread as soon as it is available. At most as many requests as
+     * the threadpool has threads are in flight at a time; if the threadpool rejects
+     * a request, it is executed in the calling thread.
      */
-    private Set<URI> getURIsToCrawlWithPropertyPath(Dataset dataset, URI resourceURI, Set<URI> excludedUris,
-                    List<Path> properties) {
-        if (logger.isDebugEnabled()) {
-            logger.debug("evaluating property paths on data crawled so far");
-            RDFDataMgr.write(System.out, dataset, Lang.TRIG);
-        }
-        Set<URI> toCrawl = new HashSet<>();
-        properties.stream().forEach(path -> {
-            Iterator<URI> newURIs = RdfUtils.getURIsForPropertyPathByQuery(dataset, resourceURI, path);
-            if (!newURIs.hasNext()) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("found no uris starting at {}, using path {}", new Object[] { resourceURI, path });
-                }
-                return;
-            }
-            Set<URI> newUrisThisIteration = new HashSet<>();
-            int skipped = 0;
-            while (newURIs.hasNext()) {
-                URI newUri = newURIs.next();
-                boolean skip = excludedUris.contains(newUri);
-                if (skip) {
-                    skipped++;
-                } else {
-                    newUrisThisIteration.add(newUri);
+    private void fetchAll(final Set<URI> uris, final Optional<URI> requesterWebID,
+                    final Consumer<Dataset> fetchedDatasetConsumer) {
+        // hack: there may be a threadLocal with the authentication data we need further
+        // down the call stack
+        // if there is one, we need to add that to the threads we use for fetching
+        final Optional<Object> authenticationOpt = AuthenticationThreadLocal.hasValue()
+                        ? Optional.of(AuthenticationThreadLocal.getAuthentication())
+                        : Optional.empty();
+        CompletionService<Dataset> completionService = new ExecutorCompletionService<>(parallelRequestsThreadpool);
+        List<Future<Dataset>> pending = new ArrayList<>();
+        int maxInFlight = Math.max(1, parallelRequestsThreadpool.getMaximumPoolSize());
+        int inFlight = 0;
+        Iterator<URI> toFetch = uris.iterator();
+        try {
+            while (toFetch.hasNext() || inFlight > 0) {
+                while (toFetch.hasNext() && inFlight < maxInFlight) {
+                    final URI uri = toFetch.next();
+                    try {
+                        pending.add(completionService.submit(() -> {
+                            try {
+                                if (authenticationOpt.isPresent()) {
+                                    // theadlocal hack mentioned above
+                                    AuthenticationThreadLocal.setAuthentication(authenticationOpt.get());
+                                }
+                                return fetch(uri, requesterWebID);
+                            } finally {
+                                // be sure to remove the principal from the threadlocal after the call
+                                AuthenticationThreadLocal.remove();
+                            }
+                        }));
+                        inFlight++;
+                    } catch (RejectedExecutionException e) {
+                        // threadpool is saturated, fetch in this thread (which already has the
+                        // authentication threadlocal, if any)
+                        fetchedDatasetConsumer.accept(fetch(uri, requesterWebID));
+                    }
                 }
-                if (logger.isDebugEnabled()) {
-                    logger.debug("found uri {} starting at {}, using path {}, will {} ",
-                                    new Object[] { newUri, resourceURI, path, skip ? "skip" : "fetch" });
+                if (inFlight > 0) {
+                    Future<Dataset> done = completionService.take();
+                    inFlight--;
+                    pending.remove(done);
+                    fetchedDatasetConsumer.accept(done.get());
                 }
             }
-            toCrawl.addAll(newUrisThisIteration);
-        });
-        return toCrawl;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof LinkedDataFetchingException) {
+                throw (LinkedDataFetchingException) cause;
+            }
+            throw new RuntimeException("Could not retrieve data for multiple URIs", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Could not retrieve data for multiple URIs", e);
+        } finally {
+            // only has an effect if we are leaving because of an exception
+            pending.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private Dataset fetch(URI uri, Optional<URI> requesterWebID) {
+        return requesterWebID.isPresent() ? getDataForResource(uri, requesterWebID.get())
+                        : getDataForPublicResource(uri);
     }
 
     /**
-     * For the specified properties, finds their objects and adds the identified
-     * resources to the returned set if they are not contained in the specified
-     * exclude set.
-     *
-     * @param dataset
-     * @param excludedUris
-     * @param properties
-     * @return
+     * Finds the URIs to crawl next while crawling.
+     */
+    private interface UriDiscovery {
+        /**
+         * Called for each fetched dataset, after it has been added to the crawled data.
+         */
+        void onFetched(Dataset crawledData, Dataset fetchedData);
+
+        /**
+         * Returns all URIs discovered so far, including the ones already crawled.
+         */
+        Set<URI> getDiscoveredURIs(Dataset crawledData);
+    }
+
+    /**
+     * Discovers the resources reachable from the crawled resource via the specified
+     * property paths. The paths are evaluated incrementally, looking only at the
+     * newly fetched data.
      */
-    private Set<URI> getURIsToCrawl(Dataset dataset, Set<URI> excludedUris, final List<URI> properties) {
-        Set<URI> toCrawl = new HashSet<>();
-        for (final URI property : properties) {
-            NodeIterator objectIterator = RdfUtils.visitFlattenedToNodeIterator(dataset,
-                            model -> {
-                                final Property p = model.createProperty(property.toString());
-                                return model.listObjectsOfProperty(p);
-                            });
-            for (; objectIterator.hasNext();) {
-                RDFNode objectNode = objectIterator.next();
-                if (objectNode.isURIResource()) {
-                    URI discoveredUri = URI.create(objectNode.asResource().getURI());
-                    if (!excludedUris.contains(discoveredUri)) {
-                        toCrawl.add(discoveredUri);
+    private static class PropertyPathDiscovery implements UriDiscovery {
+        private final IncrementalPropertyPathEvaluator evaluator;
+
+        public PropertyPathDiscovery(URI resourceURI, List<Path> properties) {
+            this.evaluator = new IncrementalPropertyPathEvaluator(resourceURI, properties);
+        }
+
+        @Override
+        public void onFetched(Dataset crawledData, Dataset fetchedData) {
+            evaluator.update(crawledData, fetchedData);
+        }
+
+        @Override
+        public Set<URI> getDiscoveredURIs(Dataset crawledData) {
+            Set<URI> discovered = evaluator.getReachedURIs(crawledData);
+            if (logger.isDebugEnabled()) {
+                logger.debug("found {} uris using property paths", discovered.size());
+            }
+            return discovered;
+        }
+    }
+
+    /**
+     * Discovers the objects of the specified properties anywhere in the fetched
+     * data.
+     */
+    private static class PropertyObjectsDiscovery implements UriDiscovery {
+        private final List<URI> properties;
+        private final Set<URI> discovered = new HashSet<>();
+
+        public PropertyObjectsDiscovery(List<URI> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public void onFetched(Dataset crawledData, Dataset fetchedData) {
+            for (final URI property : properties) {
+                NodeIterator objectIterator = RdfUtils.visitFlattenedToNodeIterator(fetchedData,
+                                model -> {
+                                    final Property p = model.createProperty(property.toString());
+                                    return model.listObjectsOfProperty(p);
+                                });
+                for (; objectIterator.hasNext();) {
+                    RDFNode objectNode = objectIterator.next();
+                    if (objectNode.isURIResource()) {
+                        discovered.add(URI.create(objectNode.asResource().getURI()));
                     }
                 }
             }
         }
-        return toCrawl;
+
+        @Override
+        public Set<URI> getDiscoveredURIs(Dataset crawledData) {
+            return discovered;
+        }
     }
 
     public void setLinkedDataRestClient(final LinkedDataRestClient linkedDataRestClient) {
@@ -44,6 +44,7 @@ public class WON {
     public static final Property supportsWonProtocolImpl = m.createProperty(BASE_URI + "supportsWonProtocolImpl");
     public static final Resource WonOverActiveMq = m.createResource(BASE_URI + "WonOverActiveMq");
     public static final Property brokerUri = m.createProperty(BASE_URI, "brokerUri");
+    public static final Property supportsMessageFormat = m.createProperty(BASE_URI, "supportsMessageFormat");
     public static final Property atomState = m.createProperty(BASE_URI, "atomState");
     public static final Property contentGraph = m.createProperty(BASE_URI, "contentGraph");
     public static final Property derivedGraph = m.createProperty(BASE_URI, "derivedGraph");
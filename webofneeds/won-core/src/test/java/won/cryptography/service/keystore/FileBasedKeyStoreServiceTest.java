@@ -0,0 +1,188 @@
+package won.cryptography.service.keystore;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.KeyPair;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import won.cryptography.service.CertificateService;
+import won.cryptography.service.KeyPairService;
+
+public class FileBasedKeyStoreServiceTest {
+    private static final String PASSWORD = "temp";
+    private static final String ATOM_URI = "https://node.matchat.org/won/resource/atom/";
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private File storeFile;
+    private KeyPair keyPair;
+    private Certificate[] certificateChain;
+
+    @Before
+    public void setUp() throws Exception {
+        storeFile = new File(folder.getRoot(), "keys.jks");
+        keyPair = new KeyPairService().generateNewKeyPairInSecp384r1();
+        certificateChain = new Certificate[] { new CertificateService()
+                        .createSelfSignedCertificate(BigInteger.ONE, keyPair, ATOM_URI + "0", ATOM_URI + "0") };
+    }
+
+    @Test
+    public void testEntriesAreWrittenImmediatelyByDefault() throws Exception {
+        FileBasedKeyStoreService keyStoreService = createKeyStoreService(0);
+        keyStoreService.putKey(ATOM_URI + "1", keyPair.getPrivate(), certificateChain, false);
+        Assert.assertFalse(journal().exists());
+        Assert.assertEquals(keyPair.getPrivate(), reopen().getPrivateKey(ATOM_URI + "1"));
+    }
+
+    @Test
+    public void testEntriesAreWrittenOnFlush() throws Exception {
+        FileBasedKeyStoreService keyStoreService = createKeyStoreService(60000);
+        keyStoreService.putKey(ATOM_URI + "1", keyPair.getPrivate(), certificateChain, false);
+        keyStoreService.putCertificate(ATOM_URI + "2", certificateChain[0], false);
+        Assert.assertFalse(storeFile.exists());
+        Assert.assertEquals(keyPair.getPrivate(), keyStoreService.getPrivateKey(ATOM_URI + "1"));
+        keyStoreService.flush();
+        Assert.assertTrue(storeFile.exists());
+        Assert.assertFalse(journal().exists());
+        FileBasedKeyStoreService reopened = reopen();
+        Assert.assertEquals(keyPair.getPrivate(), reopened.getPrivateKey(ATOM_URI + "1"));
+        Assert.assertEquals(certificateChain[0], reopened.getCertificate(ATOM_URI + "2"));
+    }
+
+    @Test
+    public void testEntriesAreWrittenAfterFlushDelay() throws Exception {
+        FileBasedKeyStoreService keyStoreService = createKeyStoreService(50);
+        keyStoreService.putKey(ATOM_URI + "1", keyPair.getPrivate(), certificateChain, false);
+        for (int i = 0; i < 100 && journal().exists(); i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertFalse(journal().exists());
+        Assert.assertEquals(keyPair.getPrivate(), reopen().getPrivateKey(ATOM_URI + "1"));
+    }
+
+    @Test
+    public void testJournalIsReplayedAfterCrash() throws Exception {
+        FileBasedKeyStoreService keyStoreService = createKeyStoreService(60000);
+        keyStoreService.putKey(ATOM_URI + "1", keyPair.getPrivate(), certificateChain, false);
+        keyStoreService.flush();
+        keyStoreService.putKey(ATOM_URI + "2", keyPair.getPrivate(), certificateChain, false);
+        keyStoreService.putCertificate(ATOM_URI + "3", certificateChain[0], false);
+        // an entry that was being appended when the process died
+        Files.write(journal().toPath(), new byte[] { 0, 0, 1, 0, 42 }, StandardOpenOption.APPEND);
+        // not flushed: the new entries are only in the journal
+        FileBasedKeyStoreService reopened = reopen();
+        Assert.assertEquals(keyPair.getPrivate(), reopened.getPrivateKey(ATOM_URI + "1"));
+        Assert.assertEquals(keyPair.getPrivate(), reopened.getPrivateKey(ATOM_URI + "2"));
+        Assert.assertEquals(certificateChain[0], reopened.getCertificate(ATOM_URI + "3"));
+        Assert.assertFalse(journal().exists());
+    }
+
+    @Test
+    public void testFlushIsRetriedAfterFailure() throws Exception {
+        FileBasedKeyStoreService keyStoreService = createKeyStoreService(60000);
+        keyStoreService.putKey(ATOM_URI + "1", keyPair.getPrivate(), certificateChain, false);
+        // the temporary file cannot be written while a directory is in its place
+        File tempFile = new File(storeFile.getPath() + ".tmp");
+        Assert.assertTrue(tempFile.mkdir());
+        try {
+            keyStoreService.flush();
+            Assert.fail("flush should fail");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertTrue(flushingJournal().exists());
+        Assert.assertTrue(tempFile.delete());
+        keyStoreService.flush();
+        Assert.assertFalse(flushingJournal().exists());
+        Assert.assertFalse(journal().exists());
+        Assert.assertEquals(keyPair.getPrivate(), reopen().getPrivateKey(ATOM_URI + "1"));
+    }
+
+    @Test
+    public void testExistingEntryIsNotReplaced() throws Exception {
+        FileBasedKeyStoreService keyStoreService = createKeyStoreService(60000);
+        KeyPair otherKeyPair = new KeyPairService().generateNewKeyPairInSecp384r1();
+        keyStoreService.putKey(ATOM_URI + "1", keyPair.getPrivate(), certificateChain, false);
+        keyStoreService.putKey(ATOM_URI + "1", otherKeyPair.getPrivate(), certificateChain, false);
+        Assert.assertEquals(keyPair.getPrivate(), reopen().getPrivateKey(ATOM_URI + "1"));
+    }
+
+    /**
+     * Adds the keys of 50,000 atoms from 8 threads with write-behind. Rewriting the
+     * file for each key takes time quadratic in the number of keys, so both ways
+     * are compared with 2,000 keys first. Set <code>keystore.stress.keys</code> and
+     * <code>keystore.stress.baselineKeys</code> to change the numbers.
+     */
+    @Test
+    @Ignore
+    public void stressTestPutKey() throws Exception {
+        int baselineKeys = Integer.getInteger("keystore.stress.baselineKeys", 2000);
+        putKeys(baselineKeys, 0);
+        putKeys(baselineKeys, 1000);
+        putKeys(Integer.getInteger("keystore.stress.keys", 50000), 1000);
+    }
+
+    private void putKeys(int keys, int flushDelayMillis) throws Exception {
+        File file = folder.newFile();
+        file.delete();
+        FileBasedKeyStoreService keyStoreService = new FileBasedKeyStoreService(file, PASSWORD);
+        keyStoreService.setFlushDelayMillis(flushDelayMillis);
+        keyStoreService.init();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < keys; i++) {
+                String alias = ATOM_URI + i;
+                results.add(executor.submit(() -> {
+                    keyStoreService.putKey(alias, keyPair.getPrivate(), certificateChain, false);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            keyStoreService.flush();
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("flushDelayMillis=%d: %d keys in %.1f s, %.0f keys/s", flushDelayMillis,
+                        keys, seconds, keys / seconds));
+    }
+
+    private FileBasedKeyStoreService createKeyStoreService(int flushDelayMillis) throws Exception {
+        FileBasedKeyStoreService keyStoreService = new FileBasedKeyStoreService(storeFile, PASSWORD);
+        keyStoreService.setFlushDelayMillis(flushDelayMillis);
+        keyStoreService.init();
+        return keyStoreService;
+    }
+
+    private FileBasedKeyStoreService reopen() throws Exception {
+        FileBasedKeyStoreService keyStoreService = new FileBasedKeyStoreService(storeFile, PASSWORD);
+        keyStoreService.init();
+        return keyStoreService;
+    }
+
+    private File journal() {
+        return new File(storeFile.getPath() + ".journal");
+    }
+
+    private File flushingJournal() {
+        return new File(storeFile.getPath() + ".journal.flushing");
+    }
+}
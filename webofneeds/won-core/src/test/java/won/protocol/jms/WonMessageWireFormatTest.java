@@ -0,0 +1,77 @@
+package won.protocol.jms;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import won.protocol.message.WonMessage;
+import won.protocol.message.WonMessageEncoder;
+import won.protocol.message.processor.camel.WonCamelConstants;
+import won.protocol.util.RdfUtils;
+
+public class WonMessageWireFormatTest {
+    private WonMessage message;
+
+    @Before
+    public void loadMessage() {
+        Dataset input = DatasetFactory.createGeneral();
+        InputStream in = getClass().getClassLoader()
+                        .getResourceAsStream("wonmessage/extract_content/create_message.trig");
+        RDFDataMgr.read(input, in, Lang.TRIG);
+        message = WonMessage.of(input);
+    }
+
+    @Test
+    public void testBinaryRoundTrip() {
+        Object body = WonMessageWireFormat.encode(message, Lang.RDFTHRIFT);
+        Assert.assertTrue(body instanceof byte[]);
+        Map<String, Object> headers = WonMessageWireFormat.putContentTypeHeader(new HashMap<>(), Lang.RDFTHRIFT);
+        Assert.assertEquals(WonMessageWireFormat.CONTENT_ENCODING_DEFLATE,
+                        headers.get(WonCamelConstants.CONTENT_ENCODING_HEADER));
+        WonMessage decoded = WonMessageWireFormat.decode(body, headers.get(WonCamelConstants.CONTENT_TYPE_HEADER),
+                        headers.get(WonCamelConstants.CONTENT_ENCODING_HEADER));
+        Assert.assertTrue(RdfUtils.isIsomorphicWith(message.getCompleteDataset(),
+                        decoded.getCompleteDataset()));
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanTrig() {
+        byte[] binary = (byte[]) WonMessageWireFormat.encode(message, Lang.RDFTHRIFT);
+        String trig = (String) WonMessageWireFormat.encode(message, Lang.TRIG);
+        Assert.assertTrue(binary.length < trig.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void testUncompressedBinaryWithoutEncodingHeader() {
+        byte[] body = WonMessageEncoder.encodeAsBytes(message, Lang.RDFTHRIFT);
+        WonMessage decoded = WonMessageWireFormat.decode(body, Lang.RDFTHRIFT.getContentType().getContentTypeStr());
+        Assert.assertTrue(RdfUtils.isIsomorphicWith(message.getCompleteDataset(),
+                        decoded.getCompleteDataset()));
+    }
+
+    @Test
+    public void testTrigRoundTrip() {
+        Object body = WonMessageWireFormat.encode(message, Lang.TRIG);
+        Assert.assertTrue(body instanceof String);
+        WonMessage decoded = WonMessageWireFormat.decode(body, Lang.TRIG.getContentType().getContentTypeStr());
+        Assert.assertTrue(RdfUtils.isIsomorphicWith(message.getCompleteDataset(),
+                        decoded.getCompleteDataset()));
+    }
+
+    @Test
+    public void testMissingContentTypeMeansTrig() {
+        String body = WonMessageEncoder.encode(message, Lang.TRIG);
+        WonMessage decoded = WonMessageWireFormat.decode(body, null);
+        Assert.assertTrue(RdfUtils.isIsomorphicWith(message.getCompleteDataset(),
+                        decoded.getCompleteDataset()));
+    }
+}
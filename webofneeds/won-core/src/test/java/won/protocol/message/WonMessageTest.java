@@ -4,8 +4,13 @@ import static org.junit.Assert.*;
 
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
@@ -121,4 +126,73 @@ public class WonMessageTest {
                         WONMSG.MESSAGE_SELF,
                         msgAndResponse.getMessageURI());
     }
+
+    @Test
+    public void test_forward_reference_combined_with_forwarded_message() {
+        Dataset forwardedDataset = WonMessageBuilder.connectionMessage()
+                        .sockets()
+                        .sender(URI.create("uri:/localAtom#socket"))
+                        .recipient(URI.create("uri:/groupAtom#socket"))
+                        .content().text("hello group").build().getCompleteDataset();
+        URI forwardedURI = URI.create("wm:/forwarded1");
+        RdfUtils.renameResourceWithPrefix(forwardedDataset, WONMSG.MESSAGE_SELF.toString(), forwardedURI.toString());
+        WonMessage forwarded = WonMessage.of(forwardedDataset);
+        WonMessage envelope = WonMessageBuilder.connectionMessage()
+                        .direction().fromSystem()
+                        .forwardReference(forwardedURI)
+                        .sockets()
+                        .sender(URI.create("uri:/groupAtom#socket"))
+                        .recipient(URI.create("uri:/memberAtom#socket"))
+                        .build();
+        // the forwarded message is referenced, but not copied
+        envelope.getCompleteDataset().listNames()
+                        .forEachRemaining(name -> Assert.assertFalse(name.startsWith(forwardedURI.toString())));
+        WonMessage combined = WonMessage.of(envelope, forwarded);
+        Assert.assertEquals(WONMSG.MESSAGE_SELF, combined.getMessageURI());
+        Assert.assertEquals(1, combined.getForwardedMessageURIs().size());
+        Assert.assertEquals(forwardedURI, combined.getForwardedMessageURIs().get(0));
+        Assert.assertSame(forwarded, combined.getForwardedMessages().iterator().next());
+    }
+
+    @Test
+    public void test_envelope_properties_are_read_again_after_adding_a_property() {
+        WonMessage msg = WonMessageBuilder.connectionMessage()
+                        .sockets()
+                        .sender(URI.create("uri:/localAtom#socket"))
+                        .recipient(URI.create("uri:/targetAtom#socket"))
+                        .content().text("hello").build();
+        Assert.assertEquals(WonMessageType.CONNECTION_MESSAGE, msg.getMessageType());
+        Assert.assertNull(msg.getConnectionURI());
+        Assert.assertTrue(msg.getPreviousMessageURIs().isEmpty());
+        msg.addMessageProperty(WONMSG.connection, URI.create("uri:/conn1"));
+        msg.addMessageProperty(WONMSG.previousMessage, URI.create("wm:/previous1"));
+        Assert.assertEquals(URI.create("uri:/conn1"), msg.getConnectionURI());
+        Assert.assertEquals(1, msg.getPreviousMessageURIs().size());
+        Assert.assertEquals(URI.create("uri:/localAtom#socket"), msg.getSenderSocketURI());
+    }
+
+    @Test
+    public void test_envelope_properties_read_concurrently() throws Exception {
+        WonMessage msg = WonMessage.of(WonMessageBuilder.connectionMessage()
+                        .sockets()
+                        .sender(URI.create("uri:/localAtom#socket"))
+                        .recipient(URI.create("uri:/targetAtom#socket"))
+                        .content().text("hello").build().getCompleteDataset());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<URI>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> {
+                    Assert.assertEquals(WonMessageType.CONNECTION_MESSAGE, msg.getMessageTypeRequired());
+                    Assert.assertEquals(URI.create("uri:/targetAtom"), msg.getRecipientAtomURI());
+                    return msg.getSenderSocketURI();
+                }));
+            }
+            for (Future<URI> result : results) {
+                Assert.assertEquals(URI.create("uri:/localAtom#socket"), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,94 @@
+package won.protocol.model;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DatasetHolderTest {
+    private static final URI DATASET_URI = URI.create("https://example.com/won/resource/msg/abc");
+
+    private static Dataset createDataset() {
+        Dataset dataset = DatasetFactory.createGeneral();
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource("https://example.com/won/resource/atom/1")
+                        .addProperty(model.createProperty("https://example.com/ns#title"), "a title")
+                        .addProperty(model.createProperty("https://example.com/ns#related"),
+                                        model.createResource());
+        dataset.addNamedModel("https://example.com/won/resource/atom/1#content", model);
+        return dataset;
+    }
+
+    private static DatasetHolder load(byte[] bytes) {
+        DatasetHolder holder = new DatasetHolder();
+        holder.setUri(DATASET_URI);
+        holder.setDatasetBytes(bytes);
+        return holder;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Dataset dataset = createDataset();
+        DatasetHolder holder = new DatasetHolder(DATASET_URI, dataset);
+        Assert.assertTrue(holder.isStoredInCurrentFormat());
+        Dataset read = load(holder.getDatasetBytes()).getDataset();
+        Assert.assertTrue(read.getNamedModel("https://example.com/won/resource/atom/1#content")
+                        .isIsomorphicWith(dataset.getNamedModel("https://example.com/won/resource/atom/1#content")));
+    }
+
+    @Test
+    public void testReadAndRecodeNQuads() {
+        Dataset dataset = createDataset();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, dataset, Lang.NQUADS);
+        DatasetHolder holder = load(out.toByteArray());
+        Assert.assertFalse(holder.isStoredInCurrentFormat());
+        Assert.assertTrue(holder.recode());
+        Assert.assertTrue(holder.isStoredInCurrentFormat());
+        Assert.assertFalse(holder.recode());
+        Dataset read = load(holder.getDatasetBytes()).getDataset();
+        Assert.assertTrue(read.getNamedModel("https://example.com/won/resource/atom/1#content")
+                        .isIsomorphicWith(dataset.getNamedModel("https://example.com/won/resource/atom/1#content")));
+    }
+
+    @Test
+    public void testRecodeLeavesUnreadableDatasetUntouched() {
+        byte[] bytes = "<not> <valid> rdf {".getBytes(StandardCharsets.UTF_8);
+        DatasetHolder holder = load(bytes);
+        try {
+            holder.recode();
+            Assert.fail("expected an exception for an unreadable dataset");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        Assert.assertArrayEquals(bytes, holder.getDatasetBytes());
+        Assert.assertFalse(holder.isStoredInCurrentFormat());
+        // a failed getDataset() must not make recode() write an empty dataset
+        holder.getDataset();
+        try {
+            holder.recode();
+            Assert.fail("expected an exception for an unreadable dataset");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        Assert.assertArrayEquals(bytes, holder.getDatasetBytes());
+    }
+
+    @Test
+    public void testAggregateKeepsBlankNodesApart() {
+        DatasetHolderAggregator aggregator = new DatasetHolderAggregator();
+        aggregator.appendDataset(load(new DatasetHolder(DATASET_URI, createDataset()).getDatasetBytes()));
+        aggregator.appendDataset(load(new DatasetHolder(DATASET_URI, createDataset()).getDatasetBytes()));
+        Model aggregated = aggregator.aggregate().getNamedModel("https://example.com/won/resource/atom/1#content");
+        // the title is the same literal, the blank nodes are different
+        Assert.assertEquals(3, aggregated.size());
+    }
+}
@@ -0,0 +1,60 @@
+package won.protocol.rest;
+
+import java.io.File;
+
+import org.javasimon.SimonManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.web.client.RestTemplate;
+
+import won.cryptography.service.TrustStoreService;
+import won.cryptography.service.keystore.FileBasedKeyStoreService;
+import won.cryptography.ssl.TrustAnyCertificateStrategy;
+
+public class SslRestTemplateCacheTest {
+    private static final String SIMON_PREFIX = "won.protocol.rest.SslRestTemplateCacheTest";
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private SslRestTemplateCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        FileBasedKeyStoreService keyStoreService = new FileBasedKeyStoreService(
+                        new File(folder.getRoot(), "keystore.jks"), "pw");
+        keyStoreService.init();
+        TrustStoreService trustStoreService = new TrustStoreService(new File(folder.getRoot(), "truststore.jks"),
+                        "pw");
+        trustStoreService.init();
+        cache = new SslRestTemplateCache(keyStoreService, trustStoreService, new TrustAnyCertificateStrategy(),
+                        1000, 1000, template -> template.getMessageConverters().add(0, new RdfDatasetConverter()),
+                        10, 60000, SIMON_PREFIX);
+    }
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    public void testRestTemplateIsReused() throws Exception {
+        long hits = SimonManager.getCounter(SIMON_PREFIX + ".hit").getCounter();
+        long misses = SimonManager.getCounter(SIMON_PREFIX + ".miss").getCounter();
+        RestTemplate first = cache.getRestTemplate(null);
+        RestTemplate second = cache.getRestTemplate(null);
+        Assert.assertSame(first, second);
+        Assert.assertTrue(first.getMessageConverters().get(0) instanceof RdfDatasetConverter);
+        Assert.assertEquals(1, first.getMessageConverters().stream()
+                        .filter(converter -> converter instanceof RdfDatasetConverter).count());
+        Assert.assertEquals(misses + 1, SimonManager.getCounter(SIMON_PREFIX + ".miss").getCounter());
+        Assert.assertEquals(hits + 1, SimonManager.getCounter(SIMON_PREFIX + ".hit").getCounter());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownAliasFails() throws Exception {
+        cache.getRestTemplate("no-such-alias");
+    }
+}
@@ -0,0 +1,72 @@
+package won.protocol.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingJsonLdWriterTest {
+    private static final String TRIG = "@prefix ex: <http://example.org/> .\n"
+                    + "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n"
+                    + "ex:s ex:p ex:o ; ex:p \"plain\" .\n"
+                    + "ex:g1 { ex:s a ex:Type ; ex:p \"text\"@en , \"42\"^^xsd:int ; ex:q [ ex:p \"nested\" ] . "
+                    + "ex:t ex:p ex:s . }\n"
+                    + "ex:g2 { ex:s ex:p \"line\\nbreak \\\"quoted\\\"\" . }\n";
+
+    @Test
+    public void testRoundTrip() {
+        Dataset dataset = DatasetFactory.createGeneral();
+        RDFDataMgr.read(dataset, new StringReader(TRIG), null, Lang.TRIG);
+        Dataset parsed = writeAndParse(dataset);
+        Assert.assertTrue(IsoMatcher.isomorphic(dataset.asDatasetGraph(), parsed.asDatasetGraph()));
+    }
+
+    @Test
+    public void testRoundTripOfInterleavedQuads() {
+        Dataset dataset = DatasetFactory.createGeneral();
+        RDFDataMgr.read(dataset, new StringReader(TRIG), null, Lang.TRIG);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDF writer = new StreamingJsonLdWriter(out);
+        writer.start();
+        // quads not grouped by graph and subject
+        List<Quad> quads = new ArrayList<>();
+        dataset.asDatasetGraph().find().forEachRemaining(quads::add);
+        Collections.shuffle(quads, new Random(4711));
+        quads.forEach(writer::quad);
+        writer.finish();
+        Dataset parsed = DatasetFactory.createGeneral();
+        RDFDataMgr.read(parsed, new ByteArrayInputStream(out.toByteArray()), Lang.JSONLD);
+        Assert.assertTrue(IsoMatcher.isomorphic(dataset.asDatasetGraph(), parsed.asDatasetGraph()));
+    }
+
+    @Test
+    public void testEmptyDataset() {
+        Dataset parsed = writeAndParse(DatasetFactory.createGeneral());
+        Assert.assertTrue(parsed.isEmpty());
+    }
+
+    private static Dataset writeAndParse(Dataset dataset) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDF writer = new StreamingJsonLdWriter(out);
+        writer.start();
+        StreamRDFOps.sendDatasetToStream(dataset.asDatasetGraph(), writer);
+        writer.finish();
+        Dataset parsed = DatasetFactory.createGeneral();
+        RDFDataMgr.read(parsed, new ByteArrayInputStream(out.toByteArray()), Lang.JSONLD);
+        return parsed;
+    }
+}
@@ -0,0 +1,36 @@
+package won.protocol.util;
+
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeysetCursorTest {
+    @Test
+    public void testTokenRoundTrip() {
+        KeysetCursor cursor = new KeysetCursor(new Date(1571234567890L), 4711L);
+        KeysetCursor parsed = KeysetCursor.fromToken(cursor.toToken());
+        Assert.assertEquals(cursor, parsed);
+        Assert.assertEquals(1571234567890L, parsed.getCreationDate().getTime());
+        Assert.assertEquals(4711L, parsed.getId());
+    }
+
+    @Test
+    public void testNewestRoundTrip() {
+        Assert.assertTrue(KeysetCursor.fromToken(KeysetCursor.NEWEST.toToken()).isNewest());
+    }
+
+    @Test
+    public void testTokenIsNotMistakenForUri() {
+        String token = new KeysetCursor(new Date(), 1L).toToken();
+        Assert.assertTrue(KeysetCursor.isToken(token));
+        Assert.assertFalse(KeysetCursor.isToken("https://node.example.org/won/resource/atom/abc"));
+        Assert.assertFalse(KeysetCursor.isToken("wm:/abc"));
+        Assert.assertFalse(KeysetCursor.isToken(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidToken() {
+        KeysetCursor.fromToken("not-a-cursor");
+    }
+}
@@ -0,0 +1,134 @@
+package won.protocol.util.linkeddata;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.sparql.path.Path;
+import org.apache.jena.sparql.path.PathParser;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Assert;
+import org.junit.Test;
+
+import won.protocol.util.RdfUtils;
+import won.protocol.vocabulary.WON;
+import won.protocol.vocabulary.WONMSG;
+
+public class IncrementalPropertyPathEvaluatorTest {
+    private static final String ATOM = "https://node.example.com/won/resource/atom/a1";
+    private static final String NODE = "https://node.example.com/won/resource";
+
+    private static PrefixMapping prefixes() {
+        PrefixMapping pmap = new PrefixMappingImpl();
+        pmap.withDefaultMappings(PrefixMapping.Standard);
+        pmap.setNsPrefix("won", WON.getURI());
+        pmap.setNsPrefix("msg", WONMSG.getURI());
+        pmap.setNsPrefix("rdfs", RDFS.getURI());
+        return pmap;
+    }
+
+    /**
+     * One dataset per resource, as they would be fetched when crawling an atom with
+     * a connection and a conversation of three messages.
+     */
+    private static List<Dataset> crawlLevels() {
+        String conn = ATOM + "/c/c1";
+        List<Dataset> datasets = new ArrayList<>();
+        datasets.add(dataset(ATOM, m -> {
+            m.add(m.createResource(ATOM), WON.connections, m.createResource(ATOM + "/c"));
+            m.add(m.createResource(ATOM), WON.messageContainer, m.createResource(ATOM + "#msgs"));
+            m.add(m.createResource(ATOM), WON.wonNode, m.createResource(NODE));
+        }));
+        datasets.add(dataset(ATOM + "/c", m -> m.add(m.createResource(ATOM + "/c"), RDFS.member,
+                        m.createResource(conn))));
+        datasets.add(dataset(conn, m -> {
+            m.add(m.createResource(conn), WON.messageContainer, m.createResource(conn + "/msg"));
+            m.add(m.createResource(conn), WON.sourceAtom, m.createResource(ATOM));
+        }));
+        datasets.add(dataset(conn + "/msg", m -> {
+            for (int i = 0; i < 3; i++) {
+                m.add(m.createResource(conn + "/msg"), RDFS.member,
+                                m.createResource("https://node.example.com/won/resource/msg/m" + i));
+            }
+        }));
+        for (int i = 1; i < 3; i++) {
+            String msg = "https://node.example.com/won/resource/msg/m" + i;
+            String previous = "https://node.example.com/won/resource/msg/m" + (i - 1);
+            datasets.add(dataset(msg, m -> m.add(m.createResource(msg), WONMSG.previousMessage,
+                            m.createResource(previous))));
+        }
+        return datasets;
+    }
+
+    private interface ModelFiller {
+        void fill(Model model);
+    }
+
+    private static Dataset dataset(String graphName, ModelFiller filler) {
+        Dataset ds = DatasetFactory.createGeneral();
+        Model model = ds.getNamedModel(graphName);
+        filler.fill(model);
+        ds.addNamedModel(graphName, model);
+        return ds;
+    }
+
+    private static Set<URI> evaluateByQuery(Dataset dataset, List<Path> paths) {
+        Set<URI> result = new HashSet<>();
+        for (Path path : paths) {
+            Iterator<RDFNode> it = RdfUtils.getNodesForPropertyPathByQuery(dataset, URI.create(ATOM), path);
+            while (it.hasNext()) {
+                RDFNode node = it.next();
+                if (node.isURIResource()) {
+                    result.add(URI.create(node.asResource().getURI()));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void assertSameAsQuery(List<String> pathStrings) {
+        PrefixMapping pmap = prefixes();
+        List<Path> paths = new ArrayList<>();
+        for (String pathString : pathStrings) {
+            paths.add(PathParser.parse(pathString, pmap));
+        }
+        IncrementalPropertyPathEvaluator evaluator = new IncrementalPropertyPathEvaluator(URI.create(ATOM), paths);
+        Dataset crawled = LinkedDataSourceBase.makeDataset();
+        for (Dataset fetched : crawlLevels()) {
+            RdfUtils.addDatasetToDataset(crawled, fetched, true);
+            evaluator.update(crawled, fetched);
+            Assert.assertEquals(evaluateByQuery(crawled, paths), evaluator.getReachedURIs(crawled));
+        }
+    }
+
+    @Test
+    public void testSequencePathsMatchQuery() {
+        assertSameAsQuery(Arrays.asList("won:connections", "won:connections/rdfs:member",
+                        "won:connections/rdfs:member/won:messageContainer",
+                        "won:connections/rdfs:member/won:messageContainer/rdfs:member",
+                        "won:connections/rdfs:member/won:messageContainer/rdfs:member/msg:previousMessage",
+                        "won:connections/rdfs:member/won:sourceAtom/won:wonNode"));
+    }
+
+    @Test
+    public void testInversePathsMatchQuery() {
+        assertSameAsQuery(Arrays.asList("won:connections/rdfs:member/won:sourceAtom/^won:sourceAtom",
+                        "^(won:sourceAtom/^rdfs:member)", "won:wonNode/^won:wonNode"));
+    }
+
+    @Test
+    public void testFallbackPathsMatchQuery() {
+        assertSameAsQuery(Arrays.asList("won:connections/rdfs:member/(won:sourceAtom|won:messageContainer)",
+                        "won:connections/rdfs:member/won:messageContainer/rdfs:member/msg:previousMessage+"));
+    }
+}
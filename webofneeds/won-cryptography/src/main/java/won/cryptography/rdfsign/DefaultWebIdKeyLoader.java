@@ -1,20 +1,27 @@
 package won.cryptography.rdfsign;
 
-import net.sf.ehcache.Cache;
-import net.sf.ehcache.CacheManager;
-import net.sf.ehcache.Ehcache;
-import net.sf.ehcache.Element;
 import org.apache.jena.query.Dataset;
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import won.cryptography.service.CryptographyService;
 import won.cryptography.service.TrustStoreService;
 import won.cryptography.service.keystore.KeyStoreService;
 import won.protocol.rest.LinkedDataFetchingException;
 import won.protocol.util.linkeddata.LinkedDataSource;
 
-import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
 import java.security.NoSuchAlgorithmException;
@@ -22,15 +29,48 @@ import java.security.NoSuchProviderException;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
 import java.security.spec.InvalidKeySpecException;
-import java.time.Duration;
-import java.time.Instant;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class DefaultWebIdKeyLoader implements WebIdKeyLoader {
+/**
+ * Loads the keys of WebIDs from the local key store, the local trust store or
+ * the WebID's linked data, in that order, and caches the result.
+ * <p>
+ * Concurrent requests for the same WebID wait for a single load. A cached key
+ * that is older than <code>webid.keyCache.refreshAfterSeconds</code> is
+ * reloaded in the background on its next use, while the cached key is served;
+ * if the reload finds no key, the cached one is kept until it expires after
+ * <code>webid.keyCache.expireAfterSeconds</code>. WebIDs without a key are
+ * remembered for <code>webid.keyCache.negativeSeconds</code> only.
+ * </p>
+ * The JavaSimon counter <code>won.cryptography.webIdKeyCache.request</code> and
+ * stopwatch <code>won.cryptography.webIdKeyCache.load</code> give the hit rate
+ * (1 - loads / requests) and the load latency; refreshes and requests answered
+ * from a negative entry are counted in
+ * <code>won.cryptography.webIdKeyCache.refresh/negative</code>.
+ */
+public class DefaultWebIdKeyLoader implements WebIdKeyLoader, InitializingBean {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-    private static Duration retryInterval = Duration.ofHours(1);
-    private final Ehcache webIdCache;
+    private static final String SIMON_PREFIX = "won.cryptography.webIdKeyCache";
+    private static final ExecutorService refreshExecutor = createRefreshExecutor();
+    private final Counter requests = SimonManager.getCounter(SIMON_PREFIX + ".request");
+    private final Counter refreshes = SimonManager.getCounter(SIMON_PREFIX + ".refresh");
+    private final Counter negativeHits = SimonManager.getCounter(SIMON_PREFIX + ".negative");
+    private final Stopwatch loadTime = SimonManager.getStopwatch(SIMON_PREFIX + ".load");
+    @Value("${webid.keyCache.maxSize:1000}")
+    private int maxSize = 1000;
+    @Value("${webid.keyCache.refreshAfterSeconds:3000}")
+    private int refreshAfterSeconds = 3000;
+    @Value("${webid.keyCache.expireAfterSeconds:3600}")
+    private int expireAfterSeconds = 3600;
+    @Value("${webid.keyCache.negativeSeconds:60}")
+    private int negativeSeconds = 60;
+    private LoadingCache<String, CachedKeys> webIdCache;
     @Autowired
     private LinkedDataSource linkedDataSource;
     private WonKeysReaderWriter wonKeysReaderWriter = new WonKeysReaderWriter();
@@ -42,19 +82,94 @@ public class DefaultWebIdKeyLoader implements WebIdKeyLoader {
     private CryptographyService cryptographyService;
 
     public DefaultWebIdKeyLoader() {
-        CacheManager manager = CacheManager.getInstance();
-        Cache cache = manager.getCache(this.getClass().getName());
-        if (cache == null) {
-            cache = new Cache(this.getClass().getName(), 1000, false, false, 3600, 3600);
-            manager.addCache(cache);
+        this.webIdCache = createCache();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (refreshAfterSeconds >= expireAfterSeconds) {
+            throw new IllegalStateException(
+                            "webid.keyCache.refreshAfterSeconds must be less than webid.keyCache.expireAfterSeconds");
         }
-        this.webIdCache = cache;
+        // the configured values are only available now
+        this.webIdCache = createCache();
+    }
+
+    private LoadingCache<String, CachedKeys> createCache() {
+        return CacheBuilder.newBuilder()
+                        .maximumSize(maxSize)
+                        .refreshAfterWrite(refreshAfterSeconds, TimeUnit.SECONDS)
+                        .expireAfterWrite(expireAfterSeconds, TimeUnit.SECONDS)
+                        .build(CacheLoader.asyncReloading(new CacheLoader<String, CachedKeys>() {
+                            @Override
+                            public CachedKeys load(String keyURI) throws Exception {
+                                Split split = loadTime.start();
+                                try {
+                                    return new CachedKeys(loadKeyUncached(keyURI));
+                                } finally {
+                                    split.stop();
+                                }
+                            }
+
+                            @Override
+                            public ListenableFuture<CachedKeys> reload(String keyURI, CachedKeys oldValue) {
+                                refreshes.increase();
+                                CachedKeys reloaded;
+                                try {
+                                    reloaded = new CachedKeys(loadKeyUncached(keyURI));
+                                } catch (Exception e) {
+                                    logger.info("Could not reload key {}: {}", keyURI, e.getMessage());
+                                    reloaded = null;
+                                }
+                                if (reloaded == null || (reloaded.keys.isEmpty() && !oldValue.keys.isEmpty())) {
+                                    // a failed reload keeps the old keys until they expire. The cache
+                                    // stores them as if they had been reloaded, so that the next
+                                    // refresh is only due after refreshAfterSeconds again, and their
+                                    // expiry is checked in loadKey()
+                                    return Futures.immediateFuture(oldValue);
+                                }
+                                return Futures.immediateFuture(reloaded);
+                            }
+                        }, refreshExecutor));
+    }
+
+    private static ExecutorService createRefreshExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "webid-key-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public void setLinkedDataSource(LinkedDataSource linkedDataSource) {
         this.linkedDataSource = linkedDataSource;
     }
 
+    public void setKeyStoreService(KeyStoreService keyStoreService) {
+        this.keyStoreService = keyStoreService;
+    }
+
+    public void setTrustStoreService(TrustStoreService trustStoreService) {
+        this.trustStoreService = trustStoreService;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void setRefreshAfterSeconds(int refreshAfterSeconds) {
+        this.refreshAfterSeconds = refreshAfterSeconds;
+    }
+
+    public void setExpireAfterSeconds(int expireAfterSeconds) {
+        this.expireAfterSeconds = expireAfterSeconds;
+    }
+
+    public void setNegativeSeconds(int negativeSeconds) {
+        this.negativeSeconds = negativeSeconds;
+    }
+
     /**
      * Loads the key with the specified URI. Returns an empty set if none found.
      *
@@ -68,20 +183,55 @@ public class DefaultWebIdKeyLoader implements WebIdKeyLoader {
     public Set<PublicKey> loadKey(String keyURI)
                     throws NoSuchAlgorithmException, NoSuchProviderException,
                     InvalidKeySpecException {
-        Element cachedElement = webIdCache.get(keyURI);
-        if (cachedElement != null) {
-            if (cachedElement.getObjectValue() instanceof Set) {
-                return (Set<PublicKey>) cachedElement.getObjectValue();
-            } else if (cachedElement.getObjectValue() instanceof UnavailableKey) {
-                if (!((UnavailableKey) cachedElement.getObjectValue()).isOlderThan(retryInterval)) {
-                    return Collections.emptySet();
-                }
+        requests.increase();
+        // checked before get(), which would start a refresh
+        CachedKeys present = webIdCache.getIfPresent(keyURI);
+        if (present != null && !present.keys.isEmpty() && present.isOlderThan(expireAfterSeconds)) {
+            // kept by failed reloads for too long
+            webIdCache.asMap().remove(keyURI, present);
+        }
+        CachedKeys cached = getCached(keyURI);
+        if (cached.keys.isEmpty()) {
+            if (cached.isOlderThan(negativeSeconds)) {
+                // only remove this entry, another thread may have reloaded it already
+                webIdCache.asMap().remove(keyURI, cached);
+                cached = getCached(keyURI);
+            } else {
+                negativeHits.increase();
+            }
+        }
+        return cached.keys;
+    }
+
+    private CachedKeys getCached(String keyURI)
+                    throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeySpecException {
+        try {
+            return webIdCache.get(keyURI);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NoSuchAlgorithmException) {
+                throw (NoSuchAlgorithmException) cause;
+            }
+            if (cause instanceof NoSuchProviderException) {
+                throw (NoSuchProviderException) cause;
+            }
+            if (cause instanceof InvalidKeySpecException) {
+                throw (InvalidKeySpecException) cause;
+            }
+            throw new IllegalStateException("Could not load key " + keyURI, cause);
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
         }
+    }
+
+    private Set<PublicKey> loadKeyUncached(String keyURI)
+                    throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeySpecException {
         PublicKey key = keyStoreService.getPublicKey(keyURI);
         if (key != null) {
             logger.debug("found key {} in local key store", keyURI);
-            webIdCache.put(new Element(keyURI, key));
             return Set.of(key);
         }
         Certificate cert = trustStoreService.getCertificate(keyURI);
@@ -89,19 +239,11 @@ public class DefaultWebIdKeyLoader implements WebIdKeyLoader {
             key = cert.getPublicKey();
             if (key != null) {
                 logger.debug("found key {} in local trust store", keyURI);
-                webIdCache.put(new Element(keyURI, key));
                 return Set.of(key);
             }
         }
         Set<PublicKey> ret = loadKeyRemotely(keyURI);
-        if (ret != null) {
-            if (ret.size() > 0) {
-                webIdCache.put(new Element(keyURI, ret));
-            } else {
-                webIdCache.put(new Element(keyURI, new UnavailableKey(URI.create(keyURI))));
-            }
-        }
-        return ret;
+        return ret == null ? Collections.emptySet() : Collections.unmodifiableSet(ret);
     }
 
     public Set<PublicKey> loadKeyRemotely(String refKey)
@@ -119,25 +261,17 @@ public class DefaultWebIdKeyLoader implements WebIdKeyLoader {
         }
     }
 
-    private static class UnavailableKey implements Serializable {
-        private URI uri;
-        private Instant timestamp;
-
-        public UnavailableKey(URI uri) {
-            this.uri = uri;
-            this.timestamp = Instant.now();
-        }
-
-        public boolean isOlderThan(Duration duration) {
-            return timestamp.isBefore(Instant.from(retryInterval.subtractFrom(Instant.now())));
-        }
+    private static class CachedKeys {
+        private final Set<PublicKey> keys;
+        // when the keys were loaded, which failed reloads do not change
+        private final long loadedAt = System.nanoTime();
 
-        public URI getUri() {
-            return uri;
+        public CachedKeys(Set<PublicKey> keys) {
+            this.keys = keys;
         }
 
-        public Instant getTimestamp() {
-            return timestamp;
+        public boolean isOlderThan(int seconds) {
+            return System.nanoTime() - loadedAt > TimeUnit.SECONDS.toNanos(seconds);
         }
     }
 }
@@ -9,6 +9,7 @@ import java.util.List;
 
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Statement;
@@ -147,39 +148,42 @@ public class ModelConverter {
 
     public static NamedGraph fromModel(String name, Model model) {
         NamedGraph namedGraph = new NamedGraph(enclose(name, "<", ">"), 0, null);
+        // one buffer for all the strings of the graph's triples
+        StringBuilder sb = new StringBuilder(128);
         StmtIterator iterator = model.listStatements();
         while (iterator.hasNext()) {
             Statement stmt = iterator.nextStatement();
-            String subjString = rdfNodeAsString(stmt.getSubject());
-            String objString = rdfNodeAsString(stmt.getObject());
-            String predString = enclose(stmt.getPredicate().asResource().getURI(), "<", ">");
+            String subjString = rdfNodeAsString(stmt.getSubject(), sb);
+            String objString = rdfNodeAsString(stmt.getObject(), sb);
+            sb.setLength(0);
+            String predString = sb.append('<').append(stmt.getPredicate().getURI()).append('>').toString();
             Triple gcTriple = new Triple(subjString, predString, objString);
             namedGraph.addTriple(gcTriple);
         }
         return namedGraph;
     }
 
-    private static String rdfNodeAsString(final RDFNode rdfNode) {
-        String result;
+    private static String rdfNodeAsString(final RDFNode rdfNode, final StringBuilder sb) {
+        sb.setLength(0);
         if (rdfNode.isURIResource()) {
-            String uri = rdfNode.asResource().getURI();
-            result = enclose(uri, "<", ">");
+            sb.append('<').append(rdfNode.asResource().getURI()).append('>');
         } else if (rdfNode.isLiteral()) {
-            result = enclose(rdfNode.asLiteral().getLexicalForm(), "\"", "\"");
-            if (rdfNode.asLiteral().getDatatypeURI() != null) {
-                result = enclose(result, "", "^^" + "<" + rdfNode.asLiteral().getDatatypeURI() + ">");
-            } else if (rdfNode.asLiteral().getLanguage() != null && !rdfNode.asLiteral().getLanguage().isEmpty()) {
-                result = enclose(result, "", "@" + rdfNode.asLiteral().getLanguage());
+            Literal literal = rdfNode.asLiteral();
+            sb.append('"').append(literal.getLexicalForm()).append('"');
+            if (literal.getDatatypeURI() != null) {
+                sb.append("^^<").append(literal.getDatatypeURI()).append('>');
+            } else if (literal.getLanguage() != null && !literal.getLanguage().isEmpty()) {
+                sb.append('@').append(literal.getLanguage());
             }
         } else if (rdfNode.isAnon()) {
-            result = enclose(rdfNode.asResource().getId().getLabelString(), "_:", "");
+            sb.append("_:").append(rdfNode.asResource().getId().getLabelString());
         } else {
             // TODO It might need to be improved as some syntax cases might not be covered
             // so far
             // a collection??
             throw new UnsupportedOperationException("support missing for converting: " + rdfNode.toString());
         }
-        return result;
+        return sb.toString();
     }
 
     private static String enclose(String string, String start, String end) {
@@ -0,0 +1,89 @@
+package won.cryptography.rdfsign;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.query.Dataset;
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.GraphCollection;
+
+/**
+ * Holds the dataset of one message while its signatures are verified and
+ * remembers the hashes computed for it. Graphs covered by more than one
+ * signature reference, like a content graph whose signature is found both in
+ * its signature graph and in the envelope, are canonicalized and hashed only
+ * once.
+ * <p>
+ * The time spent in each phase is recorded in the JavaSimon stopwatches
+ * <code>won.cryptography.verify.[phase]</code>, reused hashes are counted in
+ * <code>won.cryptography.verify.hashReused</code>.
+ * </p>
+ * Not thread-safe; use one context per message.
+ */
+public class VerificationContext {
+    private static final String SIMON_PREFIX = "won.cryptography.verify";
+    static final Stopwatch HASH_MESSAGE = SimonManager.getStopwatch(SIMON_PREFIX + ".hashMessage");
+    static final Stopwatch HASH_GRAPHS = SimonManager.getStopwatch(SIMON_PREFIX + ".hashGraphs");
+    static final Stopwatch CHECK_SIGNATURE = SimonManager.getStopwatch(SIMON_PREFIX + ".checkSignature");
+    private static final Counter HASH_REUSED = SimonManager.getCounter(SIMON_PREFIX + ".hashReused");
+    private final Dataset dataset;
+    private final WonHasher hasher = new WonHasher();
+    private final Map<List<String>, BigInteger> graphHashes = new HashMap<>();
+    private String datasetHashId;
+
+    /**
+     * @param dataset the message dataset, which must not be modified while the
+     * context is in use
+     */
+    public VerificationContext(Dataset dataset) {
+        this.dataset = dataset;
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Returns the hash id of the whole dataset, as used for the message URI.
+     */
+    public String getDatasetHashId() throws Exception {
+        if (datasetHashId == null) {
+            Split split = HASH_MESSAGE.start();
+            try {
+                datasetHashId = hasher.calculateHashIdForDataset(dataset);
+            } finally {
+                split.stop();
+            }
+        }
+        return datasetHashId;
+    }
+
+    /**
+     * Returns the hash of the specified graphs that a signature of them must
+     * contain.
+     */
+    public BigInteger getGraphsHash(List<String> graphURIs) throws Exception {
+        BigInteger hash = graphHashes.get(graphURIs);
+        if (hash != null) {
+            HASH_REUSED.increase();
+            return hash;
+        }
+        Split split = HASH_GRAPHS.start();
+        try {
+            GraphCollection inputGraph = ModelConverter.modelsToGraphCollection(dataset,
+                            graphURIs.toArray(new String[graphURIs.size()]));
+            hash = hasher.hashNamedGraphForSigning(inputGraph).getHash();
+        } finally {
+            split.stop();
+        }
+        graphHashes.put(new ArrayList<>(graphURIs), hash);
+        return hash;
+    }
+}
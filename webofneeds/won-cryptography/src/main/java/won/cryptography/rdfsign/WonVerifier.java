@@ -1,7 +1,5 @@
 package won.cryptography.rdfsign;
 
-import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.GraphCollection;
-import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.SignatureData;
 import io.ipfs.multibase.Base58;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Model;
@@ -9,6 +7,7 @@ import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.StmtIterator;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.javasimon.Split;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import won.protocol.message.WonMessage;
@@ -37,13 +36,22 @@ import static won.cryptography.rdfsign.WonSigner.SIGNING_ALGORITHM_PROVIDER;
 public class WonVerifier {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     private final Dataset dataset;
+    private final VerificationContext context;
     private final SignatureVerificationState verificationState = new SignatureVerificationState();
-    private final WonHasher hasher = new WonHasher();
     private URI messageURI;
 
     public WonVerifier(WonMessage message) {
-        this.dataset = message.getCompleteDataset();
-        this.messageURI = message.getMessageURIRequired();
+        this(new VerificationContext(message.getCompleteDataset()), message.getMessageURIRequired());
+    }
+
+    /**
+     * Verifies the message found in the context's dataset, reusing the hashes
+     * already computed in the context.
+     */
+    public WonVerifier(VerificationContext context, URI messageURI) {
+        this.context = context;
+        this.dataset = context.getDataset();
+        this.messageURI = messageURI;
         prepareForVerifying();
     }
 
@@ -67,7 +75,7 @@ public class WonVerifier {
     }
 
     private boolean checkMessageURI() throws Exception {
-        String hashId = hasher.calculateHashIdForDataset(dataset);
+        String hashId = context.getDatasetHashId();
         String idFromMessageURI = WonMessageUriHelper.getIdFromMessageURI(messageURI);
         if (Objects.equals(hashId, idFromMessageURI)) {
             verificationState.verificationFailed(
@@ -145,13 +153,10 @@ public class WonVerifier {
                                                 + wonSignatureData.getSignatureUri());
                 return verificationState.isVerificationPassed();
             }
-            // normalize, hash and post-hash signed graph data
-            GraphCollection inputGraph = ModelConverter.modelsToGraphCollection(dataset,
-                            wonSignatureData.getSignedGraphUris()
-                                            .toArray(new String[wonSignatureData.getSignedGraphUris().size()]));
-            SignatureData sigData = hasher.hashNamedGraphForSigning(inputGraph);
+            // normalize, hash and post-hash signed graph data (unless another signature
+            // of the same graphs did that already)
+            BigInteger hashValue = context.getGraphsHash(wonSignatureData.getSignedGraphUris());
             // check the hash of the data. It must be identical to the hash in the signature
-            BigInteger hashValue = sigData.getHash();
             String hashString = WonHasher.hashToString(hashValue);
             if (!wonSignatureData.getHash().equals(hashString)) {
                 verificationState.setVerificationFailed(wonSignatureData.getSignatureUri(),
@@ -169,12 +174,19 @@ public class WonVerifier {
                 return verificationState.isVerificationPassed();
             }
             // verify the signature
-            Signature sig = Signature.getInstance(WonSigner.SIGNING_ALGORITHM_NAME, SIGNING_ALGORITHM_PROVIDER);
-            sig.initVerify(publicKey);
-            sig.update(hashValue.toByteArray());
-            // Verify
-            byte[] sigBytes = Base58.decode(sigString);
-            if (!sig.verify(sigBytes)) {
+            Split split = VerificationContext.CHECK_SIGNATURE.start();
+            boolean signatureValid;
+            try {
+                Signature sig = Signature.getInstance(WonSigner.SIGNING_ALGORITHM_NAME, SIGNING_ALGORITHM_PROVIDER);
+                sig.initVerify(publicKey);
+                sig.update(hashValue.toByteArray());
+                // Verify
+                byte[] sigBytes = Base58.decode(sigString);
+                signatureValid = sig.verify(sigBytes);
+            } finally {
+                split.stop();
+            }
+            if (!signatureValid) {
                 verificationState.setVerificationFailed(wonSignatureData.getSignatureUri(),
                                 "Failed to verify " + wonSignatureData.getSignatureUri() + " with public key "
                                                 + wonSignatureData.getVerificationCertificateUri());
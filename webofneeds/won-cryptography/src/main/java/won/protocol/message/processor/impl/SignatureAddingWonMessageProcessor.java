@@ -52,6 +52,11 @@ public class SignatureAddingWonMessageProcessor implements WonMessageProcessor {
         PrivateKey privateKey = cryptographyService.getDefaultPrivateKey();
         String webId = cryptographyService.getDefaultPrivateKeyAlias();
         PublicKey publicKey = cryptographyService.getPublicKey(webId);
+        if (message.getAllMessages().stream()
+                        .noneMatch(part -> Objects.equals(part.getMessageURIRequired(), WONMSG.MESSAGE_SELF))) {
+            // everything is signed already, e.g. a message signed before it was sent
+            return message;
+        }
         try {
             List<WonMessage> ret = new ArrayList<WonMessage>();
             for (WonMessage part : message.getAllMessages()) {
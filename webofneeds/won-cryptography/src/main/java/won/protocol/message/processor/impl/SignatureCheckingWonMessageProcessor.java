@@ -12,12 +12,17 @@ package won.protocol.message.processor.impl;
 
 import org.apache.jena.query.Dataset;
 import org.apache.jena.riot.Lang;
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.util.StopWatch;
 import org.springframework.web.client.HttpClientErrorException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import won.cryptography.rdfsign.SignatureVerificationState;
 import won.cryptography.rdfsign.WebIdKeyLoader;
 import won.cryptography.rdfsign.WonKeysReaderWriter;
@@ -39,8 +44,18 @@ import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * Checks all signatures found in a WonMessage. It is assumed that the message
@@ -50,6 +65,19 @@ public class SignatureCheckingWonMessageProcessor implements WonMessageProcessor
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     @Autowired
     private WebIdKeyLoader webIdKeyLoader;
+    /**
+     * Messages that passed the check, held weakly and compared by identity. The
+     * same WonMessage object is only seen again if the node itself reuses it, like
+     * a group socket that forwards one message to all its members; messages read
+     * from the wire are always new objects and are always checked.
+     */
+    private final Cache<WonMessage, Boolean> verifiedMessages = CacheBuilder.newBuilder().weakKeys().build();
+    /**
+     * Shared by all instances. Bounded in threads and queue length; if it is
+     * saturated, the calling thread verifies the message itself.
+     */
+    private static final ExecutorService VERIFICATION_POOL = createVerificationPool();
+    private static final Stopwatch LOAD_KEYS = SimonManager.getStopwatch("won.cryptography.verify.loadKeys");
 
     public SignatureCheckingWonMessageProcessor() {
     }
@@ -58,11 +86,22 @@ public class SignatureCheckingWonMessageProcessor implements WonMessageProcessor
         this.webIdKeyLoader = webIdKeyLoader;
     }
 
+    private static ExecutorService createVerificationPool() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads * 16),
+                        runnable -> {
+                            Thread thread = new Thread(runnable,
+                                            "signature-verification-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
     @Override
     public WonMessage process(final WonMessage message) throws WonMessageProcessingException {
         StopWatch sw = new StopWatch();
         try {
-            SignatureVerificationState result;
             /*
              * If the message is a successResponse to a delete Message then we can't check
              * the signature as it is stored in the deleted Atom, so we just accept the
@@ -72,90 +111,163 @@ public class SignatureCheckingWonMessageProcessor implements WonMessageProcessor
                             && message.getMessageType() == WonMessageType.SUCCESS_RESPONSE) {
                 return message;
             }
-            for (WonMessage toCheck : message.getAllMessages()) {
-                try {
-                    // obtain public keys
-                    sw.start("get public keys");
-                    Map<String, PublicKey> keys = WonKeysReaderWriter.readKeyFromMessage(toCheck);
-                    WonMessageType type = toCheck.getMessageType();
-                    switch (type) {
-                        case CREATE_ATOM:
-                            if (keys.isEmpty()) {
-                                throw new WonMessageProcessingException("No key found in CREATE message");
-                            }
-                            break;
-                        case REPLACE:
-                            if (keys.isEmpty()) {
-                                keys.putAll(getRequiredPublicKeys(toCheck.getCompleteDataset()));
-                            }
-                            break;
-                        default:
-                            if (!keys.isEmpty()) {
-                                throw new WonMessageProcessingException(String.format(
-                                                "An Atom key may only be embedded in CREATE or REPLACE messages! Found one in %s message %s",
-                                                type, message.getMessageURIRequired()));
-                            }
+            sw.start("verify");
+            List<WonMessage> toCheck = message.getAllMessages().stream()
+                            .filter(m -> verifiedMessages.getIfPresent(m) == null)
+                            .collect(Collectors.toList());
+            WonMessage accepted = checkAll(message, toCheck);
+            return accepted != null ? accepted : message;
+        } finally {
+            if (sw.isRunning()) {
+                sw.stop();
+            }
+            logger.debug(LogMarkers.TIMING, "Signature check for message {} took {} millis, details:\n {}",
+                            new Object[] { message.getMessageURIRequired(), sw.getTotalTimeMillis(),
+                                            sw.prettyPrint() });
+        }
+    }
+
+    /**
+     * Checks the messages of a delivery chain, which are signed independently. All
+     * but the first one are checked in parallel while the calling thread checks
+     * the first one. The results are evaluated in order, so the first failure or
+     * accepted message decides the outcome; checks whose result is not needed
+     * anymore are cancelled.
+     *
+     * @return the first message to be accepted without a signature check, or null
+     * @throws WonMessageProcessingException if a check fails
+     */
+    WonMessage checkAll(final WonMessage message, final List<WonMessage> toCheck) {
+        if (toCheck.isEmpty()) {
+            return null;
+        }
+        List<Future<WonMessage>> others = toCheck.stream()
+                        .skip(1)
+                        .map(m -> VERIFICATION_POOL.submit(() -> check(message, m)))
+                        .collect(Collectors.toList());
+        try {
+            WonMessage accepted = check(message, toCheck.get(0));
+            for (Iterator<Future<WonMessage>> it = others.iterator(); accepted == null && it.hasNext();) {
+                accepted = getResult(it.next());
+            }
+            return accepted;
+        } finally {
+            // no-op for the checks that are done
+            others.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static WonMessage getResult(Future<WonMessage> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WonMessageProcessingException("Interrupted while verifying message", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof WonMessageProcessingException) {
+                throw (WonMessageProcessingException) e.getCause();
+            }
+            throw new WonMessageProcessingException("Could not verify message", e.getCause());
+        }
+    }
+
+    /**
+     * Checks the signatures of one message of the delivery chain.
+     * 
+     * @return the checked message if it is to be accepted without a signature
+     * check, null if the signatures are valid
+     * @throws WonMessageProcessingException if the signatures are invalid
+     */
+    WonMessage check(final WonMessage message, final WonMessage toCheck) {
+        StopWatch sw = new StopWatch();
+        SignatureVerificationState result;
+        try {
+            // obtain public keys
+            sw.start("get public keys");
+            Split split = LOAD_KEYS.start();
+            Map<String, PublicKey> keys;
+            try {
+                keys = WonKeysReaderWriter.readKeyFromMessage(toCheck);
+                WonMessageType type = toCheck.getMessageType();
+                switch (type) {
+                    case CREATE_ATOM:
+                        if (keys.isEmpty()) {
+                            throw new WonMessageProcessingException("No key found in CREATE message");
+                        }
+                        break;
+                    case REPLACE:
+                        if (keys.isEmpty()) {
                             keys.putAll(getRequiredPublicKeys(toCheck.getCompleteDataset()));
-                    }
-                    sw.stop();
-                    // verify with those public keys
-                    sw.start("verify");
-                    result = WonMessageSignerVerifier.verify(keys, toCheck);
-                    sw.stop();
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("VERIFIED=" + result.isVerificationPassed()
-                                        + " with keys: " + keys.values()
-                                        + " for\n"
-                                        + RdfUtils.writeDatasetToString(
-                                                        Prefixer.setPrefixes(toCheck.getCompleteDataset()),
-                                                        Lang.TRIG));
-                    }
-                } catch (LinkedDataFetchingException e) {
-                    /*
-                     * If a delete message could not be validated because the atom was already
-                     * deleted, we assume that this message is just mirrored back to the owner and
-                     * is to be accepteed
-                     */
-                    if (WonMessageType.DELETE.equals(toCheck.getMessageType())) {
-                        if (e.getCause() instanceof HttpClientErrorException
-                                        && HttpStatus.GONE.equals(
-                                                        ((HttpClientErrorException) e.getCause()).getStatusCode())) {
-                            if (logger.isDebugEnabled()) {
-                                logger.debug("Failure during processing signature check of message"
-                                                + toCheck.getMessageURI()
-                                                + " (messageType was DELETE, but atom is already deleted, accept message anyway)");
-                            }
-                            return toCheck;
                         }
-                    }
-                    // TODO SignatureProcessingException?
-                    throw new WonMessageProcessingException("Could not verify message " + toCheck.getMessageURI(), e);
-                } catch (Exception e) {
-                    // TODO SignatureProcessingException?
-                    throw new WonMessageProcessingException("Could not verify message " + toCheck.getMessageURI(), e);
+                        break;
+                    default:
+                        if (!keys.isEmpty()) {
+                            throw new WonMessageProcessingException(String.format(
+                                            "An Atom key may only be embedded in CREATE or REPLACE messages! Found one in %s message %s",
+                                            type, message.getMessageURIRequired()));
+                        }
+                        keys.putAll(getRequiredPublicKeys(toCheck.getCompleteDataset()));
                 }
-                // throw exception if the verification fails:
-                if (!result.isVerificationPassed()) {
-                    String errormessage = "Message verification failed. Message:"
-                                    + toCheck.toStringForDebug(false)
-                                    + ", Problem:"
-                                    + result.getMessage();
+            } finally {
+                split.stop();
+            }
+            sw.stop();
+            // verify with those public keys
+            sw.start("verify");
+            result = WonMessageSignerVerifier.verify(keys, toCheck);
+            sw.stop();
+            if (logger.isDebugEnabled()) {
+                logger.debug("VERIFIED=" + result.isVerificationPassed()
+                                + " with keys: " + keys.values()
+                                + " for\n"
+                                + RdfUtils.writeDatasetToString(
+                                                Prefixer.setPrefixes(toCheck.getCompleteDataset()),
+                                                Lang.TRIG));
+                logger.debug(LogMarkers.TIMING, "Signature check for message {} took {} millis, details:\n {}",
+                                new Object[] { toCheck.getMessageURI(), sw.getTotalTimeMillis(),
+                                                sw.prettyPrint() });
+            }
+        } catch (LinkedDataFetchingException e) {
+            /*
+             * If a delete message could not be validated because the atom was already
+             * deleted, we assume that this message is just mirrored back to the owner and
+             * is to be accepteed
+             */
+            if (WonMessageType.DELETE.equals(toCheck.getMessageType())) {
+                if (e.getCause() instanceof HttpClientErrorException
+                                && HttpStatus.GONE.equals(
+                                                ((HttpClientErrorException) e.getCause()).getStatusCode())) {
                     if (logger.isDebugEnabled()) {
-                        logger.debug(errormessage + ". Offending message:\n"
-                                        + RdfUtils.toString(Prefixer.setPrefixes(toCheck.getCompleteDataset())));
+                        logger.debug("Failure during processing signature check of message"
+                                        + toCheck.getMessageURI()
+                                        + " (messageType was DELETE, but atom is already deleted, accept message anyway)");
                     }
-                    // TODO SignatureProcessingException?
-                    throw new WonMessageProcessingException(new SignatureException(
-                                    errormessage + ". To log the offending message, set Loglevel to DEBUG for logger '"
-                                                    + this.getClass().getName() + "'"));
+                    return toCheck;
                 }
             }
-            return message;
-        } finally {
-            logger.debug(LogMarkers.TIMING, "Signature check for message {} took {} millis, details:\n {}",
-                            new Object[] { message.getMessageURIRequired(), sw.getTotalTimeMillis(),
-                                            sw.prettyPrint() });
+            // TODO SignatureProcessingException?
+            throw new WonMessageProcessingException("Could not verify message " + toCheck.getMessageURI(), e);
+        } catch (Exception e) {
+            // TODO SignatureProcessingException?
+            throw new WonMessageProcessingException("Could not verify message " + toCheck.getMessageURI(), e);
+        }
+        // throw exception if the verification fails:
+        if (!result.isVerificationPassed()) {
+            String errormessage = "Message verification failed. Message:"
+                            + toCheck.toStringForDebug(false)
+                            + ", Problem:"
+                            + result.getMessage();
+            if (logger.isDebugEnabled()) {
+                logger.debug(errormessage + ". Offending message:\n"
+                                + RdfUtils.toString(Prefixer.setPrefixes(toCheck.getCompleteDataset())));
+            }
+            // TODO SignatureProcessingException?
+            throw new WonMessageProcessingException(new SignatureException(
+                            errormessage + ". To log the offending message, set Loglevel to DEBUG for logger '"
+                                            + this.getClass().getName() + "'"));
         }
+        verifiedMessages.put(toCheck, Boolean.TRUE);
+        return null;
     }
 
     private boolean appendIfPresent(URI uri, String label, StringBuilder sb) {
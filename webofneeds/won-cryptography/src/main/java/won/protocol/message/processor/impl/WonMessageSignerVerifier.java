@@ -64,7 +64,8 @@ public class WonMessageSignerVerifier {
         Dataset ds = message.getCompleteDataset();
         RdfUtils.renameResourceWithPrefix(ds, message.getMessageURIRequired().toString(),
                         WONMSG.MESSAGE_SELF.toString());
-        WonVerifier verifier = new WonVerifier(WonMessage.of(ds));
+        // verify the renamed copy directly, there is no need to copy it again
+        WonVerifier verifier = new WonVerifier(new VerificationContext(ds), WONMSG.MESSAGE_SELF);
         verifier.verify(keys);
         return verifier.getVerificationResult();
     }
@@ -0,0 +1,166 @@
+package won.cryptography.rdfsign;
+
+import java.io.File;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import won.cryptography.service.TrustStoreService;
+import won.cryptography.service.keystore.FileBasedKeyStoreService;
+
+public class DefaultWebIdKeyLoaderTest {
+    private static final String KEY_URI = "https://node.matchat.org/won/resource/atom/abc123#key";
+    private PublicKey publicKey;
+    private CountingKeyLoader keyLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        publicKey = KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic();
+        // the stores are created empty, as their files don't exist
+        File missing = new File(System.getProperty("java.io.tmpdir"), "missing-" + System.nanoTime() + ".jks");
+        FileBasedKeyStoreService keyStoreService = new FileBasedKeyStoreService(missing, "temp");
+        keyStoreService.init();
+        TrustStoreService trustStoreService = new TrustStoreService(missing, "temp");
+        trustStoreService.init();
+        keyLoader = new CountingKeyLoader();
+        keyLoader.setKeyStoreService(keyStoreService);
+        keyLoader.setTrustStoreService(trustStoreService);
+    }
+
+    @Test
+    public void testConcurrentLoadsAreCoalesced() throws Exception {
+        keyLoader.result = Set.of(publicKey);
+        keyLoader.afterPropertiesSet();
+        keyLoader.blocked = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Set<PublicKey>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> keyLoader.loadKey(KEY_URI)));
+            }
+            Thread.sleep(100);
+            keyLoader.blocked.countDown();
+            for (Future<Set<PublicKey>> result : results) {
+                Assert.assertEquals(Set.of(publicKey), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, keyLoader.remoteLoads.get());
+        keyLoader.loadKey(KEY_URI);
+        Assert.assertEquals(1, keyLoader.remoteLoads.get());
+    }
+
+    @Test
+    public void testMissingKeyIsRememberedForNegativeSeconds() throws Exception {
+        keyLoader.result = Collections.emptySet();
+        keyLoader.afterPropertiesSet();
+        Assert.assertTrue(keyLoader.loadKey(KEY_URI).isEmpty());
+        Assert.assertTrue(keyLoader.loadKey(KEY_URI).isEmpty());
+        Assert.assertEquals(1, keyLoader.remoteLoads.get());
+    }
+
+    @Test
+    public void testMissingKeyIsLoadedAgainAfterNegativeSeconds() throws Exception {
+        keyLoader.result = Collections.emptySet();
+        keyLoader.setNegativeSeconds(1);
+        keyLoader.afterPropertiesSet();
+        Assert.assertTrue(keyLoader.loadKey(KEY_URI).isEmpty());
+        Thread.sleep(1100);
+        keyLoader.result = Set.of(publicKey);
+        Assert.assertEquals(Set.of(publicKey), keyLoader.loadKey(KEY_URI));
+        Assert.assertEquals(2, keyLoader.remoteLoads.get());
+    }
+
+    @Test
+    public void testStaleKeyIsServedWhileReloading() throws Exception {
+        PublicKey newKey = KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic();
+        keyLoader.result = Set.of(publicKey);
+        keyLoader.setRefreshAfterSeconds(1);
+        keyLoader.setExpireAfterSeconds(60);
+        keyLoader.afterPropertiesSet();
+        Assert.assertEquals(Set.of(publicKey), keyLoader.loadKey(KEY_URI));
+        Thread.sleep(1100);
+        keyLoader.result = Set.of(newKey);
+        keyLoader.blocked = new CountDownLatch(1);
+        try {
+            // the reload is started, but blocked, and the stale key is served meanwhile
+            Assert.assertEquals(Set.of(publicKey), keyLoader.loadKey(KEY_URI));
+            waitForRemoteLoads(2);
+            Assert.assertEquals(Set.of(publicKey), keyLoader.loadKey(KEY_URI));
+        } finally {
+            keyLoader.blocked.countDown();
+        }
+        for (int i = 0; i < 50 && !keyLoader.loadKey(KEY_URI).equals(Set.of(newKey)); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(Set.of(newKey), keyLoader.loadKey(KEY_URI));
+        Assert.assertEquals(2, keyLoader.remoteLoads.get());
+    }
+
+    @Test
+    public void testFailedReloadKeepsKeyUntilExpiry() throws Exception {
+        PublicKey newKey = KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic();
+        keyLoader.result = Set.of(publicKey);
+        keyLoader.setRefreshAfterSeconds(1);
+        keyLoader.setExpireAfterSeconds(3);
+        keyLoader.afterPropertiesSet();
+        long loadedAt = System.nanoTime();
+        Assert.assertEquals(Set.of(publicKey), keyLoader.loadKey(KEY_URI));
+        Thread.sleep(1100);
+        keyLoader.result = Collections.emptySet();
+        Assert.assertEquals(Set.of(publicKey), keyLoader.loadKey(KEY_URI));
+        waitForRemoteLoads(2);
+        Thread.sleep(100);
+        // the old key is kept, and not reloaded on every access
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(Set.of(publicKey), keyLoader.loadKey(KEY_URI));
+        }
+        Assert.assertEquals(2, keyLoader.remoteLoads.get());
+        // it expires as if the reload had not happened
+        keyLoader.result = Set.of(newKey);
+        Thread.sleep(Math.max(0, TimeUnit.SECONDS.toMillis(3) + 100
+                        - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadedAt)));
+        Assert.assertEquals(Set.of(newKey), keyLoader.loadKey(KEY_URI));
+        Assert.assertEquals(3, keyLoader.remoteLoads.get());
+    }
+
+    private void waitForRemoteLoads(int expected) throws InterruptedException {
+        for (int i = 0; i < 50 && keyLoader.remoteLoads.get() < expected; i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(expected, keyLoader.remoteLoads.get());
+    }
+
+    private static class CountingKeyLoader extends DefaultWebIdKeyLoader {
+        private final AtomicInteger remoteLoads = new AtomicInteger();
+        private volatile Set<PublicKey> result;
+        private volatile CountDownLatch blocked;
+
+        @Override
+        public Set<PublicKey> loadKeyRemotely(String refKey) {
+            remoteLoads.incrementAndGet();
+            try {
+                if (blocked != null) {
+                    blocked.await(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package won.cryptography.rdfsign;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+import won.protocol.message.WonMessage;
+import won.protocol.util.RdfUtils;
+
+public class VerificationContextTest {
+    private static final String CHAIN_FILE = "/verification/chain-with-response-and-forward.trig";
+    private static final Counter hashReused = SimonManager.getCounter("won.cryptography.verify.hashReused");
+
+    @Test
+    public void testGraphHashesAreComputedOncePerContext() throws Exception {
+        WonMessage chain = WonMessage.of(loadDataset(CHAIN_FILE));
+        Assert.assertEquals(3, chain.getAllMessages().size());
+        Assert.assertEquals(1, chain.getForwardedMessages().size());
+        int expectedReuses = 0;
+        long reusedBefore = hashReused.getCounter();
+        for (WonMessage message : chain.getAllMessages()) {
+            VerificationContext context = new VerificationContext(message.getCompleteDataset());
+            List<List<String>> signedGraphLists = new ArrayList<>();
+            // a content graph is referenced by its own signature and by the envelope
+            if (!message.getContentGraphURIs().isEmpty()) {
+                signedGraphLists.add(message.getContentGraphURIs());
+            }
+            signedGraphLists.add(RdfUtils.getModelNames(message.getCompleteDataset()));
+            for (List<String> graphs : signedGraphLists) {
+                BigInteger first = context.getGraphsHash(graphs);
+                BigInteger second = context.getGraphsHash(new ArrayList<>(graphs));
+                Assert.assertEquals(first, second);
+                expectedReuses++;
+                // another context computes the same hash itself
+                Assert.assertEquals(first,
+                                new VerificationContext(message.getCompleteDataset()).getGraphsHash(graphs));
+            }
+            if (signedGraphLists.size() > 1) {
+                Assert.assertNotEquals(context.getGraphsHash(signedGraphLists.get(0)),
+                                context.getGraphsHash(signedGraphLists.get(1)));
+                expectedReuses += 2;
+            }
+        }
+        Assert.assertEquals(expectedReuses, hashReused.getCounter() - reusedBefore);
+    }
+
+    @Test
+    public void testDatasetHashIsComputedOnce() throws Exception {
+        WonMessage chain = WonMessage.of(loadDataset(CHAIN_FILE));
+        VerificationContext context = new VerificationContext(chain.getCompleteDataset());
+        long hashedBefore = VerificationContext.HASH_MESSAGE.getCounter();
+        String hashId = context.getDatasetHashId();
+        Assert.assertEquals(hashId, context.getDatasetHashId());
+        Assert.assertEquals(1, VerificationContext.HASH_MESSAGE.getCounter() - hashedBefore);
+        Assert.assertEquals(hashId, new VerificationContext(chain.getCompleteDataset()).getDatasetHashId());
+    }
+
+    private static Dataset loadDataset(String path) throws IOException {
+        Dataset dataset = DatasetFactory.createGeneral();
+        try (InputStream is = VerificationContextTest.class.getResourceAsStream(path)) {
+            RDFDataMgr.read(dataset, is, Lang.TRIG);
+        }
+        return dataset;
+    }
+}
@@ -0,0 +1,73 @@
+package won.cryptography.rdfsign;
+
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jena.query.Dataset;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.SignatureAlgorithmInterface;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm.SignatureAlgorithmFisteus2010;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.GraphCollection;
+import won.cryptography.utils.TestSigningUtils;
+
+public class WonHasherTest {
+    private static final String RESOURCE_FILE = "/won-signed-messages/create-atom-msg.trig";
+    private static final String OTHER_RESOURCE_FILE = "/won-signed-messages/atom-core-nosig.trig";
+
+    @BeforeClass
+    public static void addProvider() {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    @Test
+    public void testHashIdsMatchDirectHashing() throws Exception {
+        WonHasher hasher = new WonHasher();
+        Dataset dataset = TestSigningUtils.prepareTestDataset(RESOURCE_FILE);
+        Dataset other = TestSigningUtils.prepareTestDataset(OTHER_RESOURCE_FILE);
+        String expected = hashWithNewInstances(dataset);
+        String expectedOther = hashWithNewInstances(other);
+        Assert.assertNotEquals(expected, expectedOther);
+        // alternate, so that the per-thread digest is reused for different data
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(expected, hasher.calculateHashIdForDataset(dataset));
+            Assert.assertEquals(expectedOther, hasher.calculateHashIdForDataset(other));
+        }
+    }
+
+    @Test
+    public void testConcurrentHashing() throws Exception {
+        WonHasher hasher = new WonHasher();
+        Dataset dataset = TestSigningUtils.prepareTestDataset(RESOURCE_FILE);
+        String expected = hashWithNewInstances(dataset);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(executor.submit(() -> hasher.calculateHashIdForDataset(dataset)));
+            }
+            for (Future<String> result : results) {
+                Assert.assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static String hashWithNewInstances(Dataset dataset) throws Exception {
+        SignatureAlgorithmInterface algorithm = new SignatureAlgorithmFisteus2010();
+        GraphCollection graphCollection = ModelConverter.fromDataset(dataset);
+        algorithm.canonicalize(graphCollection);
+        algorithm.postCanonicalize(graphCollection);
+        algorithm.hash(graphCollection, WonHasher.ENV_HASH_ALGORITHM);
+        algorithm.postHash(graphCollection);
+        return WonHasher.hashToString(graphCollection.getSignature().getHash());
+    }
+}
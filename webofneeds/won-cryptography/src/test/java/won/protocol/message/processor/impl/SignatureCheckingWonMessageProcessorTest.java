@@ -0,0 +1,148 @@
+package won.protocol.message.processor.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import won.protocol.exception.WonMessageProcessingException;
+import won.protocol.message.WonMessage;
+
+/**
+ * Checks how the results of the parallel checks of a delivery chain are
+ * combined. The signature check itself is replaced by the test.
+ */
+public class SignatureCheckingWonMessageProcessorTest {
+    private static final String CHAIN_FILE = "/verification/chain-with-response-and-forward.trig";
+    private WonMessage chain;
+    // forwarding message, forwarded message, response
+    private List<WonMessage> messages;
+
+    @Before
+    public void setUp() throws Exception {
+        chain = WonMessage.of(loadDataset(CHAIN_FILE));
+        messages = chain.getAllMessages().stream()
+                        .sorted(Comparator.comparing((WonMessage m) -> !m.getForwardedMessageURIs().isEmpty())
+                                        .reversed()
+                                        .thenComparing(m -> m.getMessageTypeRequired().isResponseMessage()))
+                        .collect(Collectors.toList());
+        Assert.assertEquals(URI.create("https://node.example/msg/forwarding"), messages.get(0).getMessageURI());
+        Assert.assertEquals(URI.create("https://node.example/msg/forwarded"), messages.get(1).getMessageURI());
+        Assert.assertEquals(URI.create("https://node.example/msg/response"), messages.get(2).getMessageURI());
+    }
+
+    @Test
+    public void testAllMessagesAreChecked() {
+        Map<URI, String> checkedBy = new ConcurrentHashMap<>();
+        SignatureCheckingWonMessageProcessor processor = processor(m -> {
+            checkedBy.put(m.getMessageURI(), Thread.currentThread().getName());
+            return null;
+        });
+        Assert.assertSame(chain, processor.process(chain));
+        Assert.assertEquals(3, checkedBy.size());
+        Assert.assertNull(processor.checkAll(chain, new ArrayList<>()));
+    }
+
+    @Test
+    public void testFirstFailureInOrderDecides() {
+        SignatureCheckingWonMessageProcessor processor = processor(m -> {
+            if (m == messages.get(1)) {
+                sleep(200);
+                throw new WonMessageProcessingException("forwarded");
+            }
+            if (m == messages.get(2)) {
+                throw new WonMessageProcessingException("response");
+            }
+            return null;
+        });
+        try {
+            processor.checkAll(chain, messages);
+            Assert.fail("the check should fail");
+        } catch (WonMessageProcessingException e) {
+            // the response failed first, but the forwarded message comes first
+            Assert.assertEquals("forwarded", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAcceptedMessageDecides() {
+        SignatureCheckingWonMessageProcessor processor = processor(m -> {
+            if (m == messages.get(2)) {
+                throw new WonMessageProcessingException("response");
+            }
+            return m == messages.get(1) ? m : null;
+        });
+        Assert.assertSame(messages.get(1), processor.checkAll(chain, messages));
+    }
+
+    @Test
+    public void testOtherChecksAreCancelledWhenFirstFails() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        SignatureCheckingWonMessageProcessor processor = processor(m -> {
+            if (m == messages.get(0)) {
+                try {
+                    started.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new WonMessageProcessingException("forwarding");
+            }
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+        try {
+            processor.checkAll(chain, messages);
+            Assert.fail("the check should fail");
+        } catch (WonMessageProcessingException e) {
+            Assert.assertEquals("forwarding", e.getMessage());
+        }
+        Assert.assertTrue("the other checks were not cancelled", interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    private static SignatureCheckingWonMessageProcessor processor(Function<WonMessage, WonMessage> check) {
+        return new SignatureCheckingWonMessageProcessor() {
+            @Override
+            WonMessage check(WonMessage message, WonMessage toCheck) {
+                return check.apply(toCheck);
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Dataset loadDataset(String path) throws IOException {
+        Dataset dataset = DatasetFactory.createGeneral();
+        try (InputStream is = SignatureCheckingWonMessageProcessorTest.class.getResourceAsStream(path)) {
+            RDFDataMgr.read(dataset, is, Lang.TRIG);
+        }
+        return dataset;
+    }
+}
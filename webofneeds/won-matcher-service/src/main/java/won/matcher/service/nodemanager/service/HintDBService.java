@@ -1,35 +1,123 @@
 package won.matcher.service.nodemanager.service;
 
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import com.google.common.base.Charsets;
-import com.google.common.hash.BloomFilter;
-import com.google.common.hash.Funnels;
-
 import won.matcher.service.common.event.HintEvent;
+import won.matcher.service.nodemanager.service.hintstore.HintStore;
+import won.matcher.service.nodemanager.service.hintstore.InMemoryBloomFilterHintStore;
+import won.matcher.service.nodemanager.service.hintstore.RotatingBloomFilterHintStore;
 
 /**
- * Created by hfriedrich on 06.07.2016. Currently the hint "database" is just
- * implemented as an in memory bloom filter so that (best guess) duplicate
- * checks are possible to avoid sending duplicate hints. In a future version
- * this might be changed to a persistent hint database.
+ * Created by hfriedrich on 06.07.2016. The hint "database" remembers sent hints
+ * so that (best guess) duplicate checks are possible to avoid sending duplicate
+ * hints. The {@link HintStore} used is configured by
+ * <code>hintStore.type</code>: <code>memory</code> keeps one bloom filter on
+ * the heap that is lost on restart, <code>rotating</code> keeps time-bucketed
+ * bloom filters that are persisted to <code>hintStore.directory</code> and
+ * forgotten after the retention period. For both,
+ * <code>hintStore.expectedInsertions</code> and
+ * <code>hintStore.falsePositiveProbability</code> apply to all hints kept, so
+ * the rotating store divides them among its buckets.
  */
 @Component
 @Scope("singleton")
-public class HintDBService {
-    private BloomFilter savedHints;
+public class HintDBService implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private final Counter heapBytesCounter = SimonManager.getCounter("won.matcher.hintStore.heapBytes");
+    @Value("${hintStore.type:memory}")
+    private String type = "memory";
+    @Value("${hintStore.expectedInsertions:10000000}")
+    private long expectedInsertions = 10000000;
+    @Value("${hintStore.falsePositiveProbability:0.0001}")
+    private double falsePositiveProbability = 0.0001;
+    @Value("${hintStore.directory:}")
+    private String directory = "";
+    @Value("${hintStore.memberId:}")
+    private String memberId = "";
+    @Value("${hintStore.bucket.hours:24}")
+    private long bucketHours = 24;
+    @Value("${hintStore.retention.days:30}")
+    private long retentionDays = 30;
+    @Value("${hintStore.flushInterval.seconds:60}")
+    private long flushIntervalSeconds = 60;
+    private HintStore hintStore;
+
+    @Override
+    public void afterPropertiesSet() {
+        if ("rotating".equals(type)) {
+            if (directory.isEmpty()) {
+                throw new IllegalArgumentException("hintStore.directory must be set for hint store type 'rotating'");
+            }
+            long bucketMillis = TimeUnit.HOURS.toMillis(bucketHours);
+            int retainedBuckets = (int) Math.max(1,
+                            (TimeUnit.DAYS.toMillis(retentionDays) + bucketMillis - 1) / bucketMillis);
+            // the settings apply to the whole retention period: a lookup checks all
+            // retained buckets, so their false positive probabilities add up
+            long expectedInsertionsPerBucket = Math.max(1,
+                            (expectedInsertions + retainedBuckets - 1) / retainedBuckets);
+            hintStore = new RotatingBloomFilterHintStore(new File(directory), getMemberId(), bucketMillis,
+                            retainedBuckets, expectedInsertionsPerBucket, falsePositiveProbability / retainedBuckets,
+                            TimeUnit.SECONDS.toMillis(flushIntervalSeconds));
+        } else if ("memory".equals(type)) {
+            hintStore = new InMemoryBloomFilterHintStore(expectedInsertions, falsePositiveProbability);
+        } else {
+            throw new IllegalArgumentException("Unknown hint store type '" + type + "', use 'memory' or 'rotating'");
+        }
+        reportHeapUsage();
+    }
 
-    public HintDBService() {
-        savedHints = BloomFilter.create(Funnels.stringFunnel(Charsets.UTF_8), 100000000, 0.0001);
+    @Override
+    public void destroy() {
+        if (hintStore != null) {
+            hintStore.close();
+        }
     }
 
     public void saveHint(HintEvent hint) {
-        savedHints.put(getHintIdentificationString(hint));
+        hintStore.save(getHintIdentificationString(hint));
+        // rotating stores grow when a new bucket is started
+        heapBytesCounter.set(hintStore.getApproximateHeapBytes());
     }
 
     public boolean mightHintSaved(HintEvent hint) {
-        return savedHints.mightContain(getHintIdentificationString(hint));
+        return hintStore.mightContain(getHintIdentificationString(hint));
+    }
+
+    /**
+     * Logs and publishes (as JavaSimon counter
+     * <code>won.matcher.hintStore.heapBytes</code>) the approximate heap used by
+     * the hint store.
+     */
+    public void reportHeapUsage() {
+        long heapBytes = hintStore.getApproximateHeapBytes();
+        heapBytesCounter.set(heapBytes);
+        logger.info("hint store ({}) uses approx. {} MB of heap", type, heapBytes / (1024 * 1024));
+    }
+
+    private String getMemberId() {
+        if (!memberId.isEmpty()) {
+            return memberId;
+        }
+        // the process id is not stable across restarts, so only use the host name
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            logger.warn("could not determine host name, using 'default' as hint store member id", e);
+            return "default";
+        }
     }
 
     private String getHintIdentificationString(HintEvent hint) {
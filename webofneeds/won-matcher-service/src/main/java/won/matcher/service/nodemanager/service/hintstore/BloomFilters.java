@@ -0,0 +1,19 @@
+package won.matcher.service.nodemanager.service.hintstore;
+
+/**
+ * Helpers for sizing bloom filters.
+ */
+class BloomFilters {
+    private BloomFilters() {
+    }
+
+    /**
+     * Approximate size of the bit array of a bloom filter created with the
+     * specified parameters, using the same formula as Guava's
+     * <code>BloomFilter.create()</code>.
+     */
+    static long approximateBytes(long expectedInsertions, double falsePositiveProbability) {
+        double bits = -expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2));
+        return (long) Math.ceil(bits / 8);
+    }
+}
@@ -0,0 +1,23 @@
+package won.matcher.service.nodemanager.service.hintstore;
+
+/**
+ * Remembers the identifying strings of hints that were sent, so that duplicate
+ * hints can be suppressed. Implementations may answer with false positives
+ * (i.e. a hint that was never saved is reported as saved) but never with false
+ * negatives for hints that are still retained.
+ */
+public interface HintStore {
+    void save(String hintIdentifier);
+
+    boolean mightContain(String hintIdentifier);
+
+    /**
+     * @return the approximate number of bytes this store keeps on the heap
+     */
+    long getApproximateHeapBytes();
+
+    /**
+     * Releases resources and persists the store's state, if it is persistent.
+     */
+    void close();
+}
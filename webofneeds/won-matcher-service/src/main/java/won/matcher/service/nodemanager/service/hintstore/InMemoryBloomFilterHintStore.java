@@ -0,0 +1,40 @@
+package won.matcher.service.nodemanager.service.hintstore;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Keeps all hints in one bloom filter on the heap. Hints are never forgotten and
+ * are lost on restart.
+ */
+public class InMemoryBloomFilterHintStore implements HintStore {
+    private final BloomFilter<CharSequence> savedHints;
+    private final long heapBytes;
+
+    public InMemoryBloomFilterHintStore(long expectedInsertions, double falsePositiveProbability) {
+        this.savedHints = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions,
+                        falsePositiveProbability);
+        this.heapBytes = BloomFilters.approximateBytes(expectedInsertions, falsePositiveProbability);
+    }
+
+    @Override
+    public synchronized void save(String hintIdentifier) {
+        savedHints.put(hintIdentifier);
+    }
+
+    @Override
+    public synchronized boolean mightContain(String hintIdentifier) {
+        return savedHints.mightContain(hintIdentifier);
+    }
+
+    @Override
+    public long getApproximateHeapBytes() {
+        return heapBytes;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,310 @@
+package won.matcher.service.nodemanager.service.hintstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+
+/**
+ * Keeps hints in one bloom filter per time bucket (e.g. one per day). Hints are
+ * saved to the filter of the current bucket and looked up in the filters of all
+ * retained buckets; buckets older than the retention period are dropped, so old
+ * hints are eventually forgotten and the memory needed only depends on the
+ * number of hints per bucket.
+ * <p>
+ * The filters are periodically written to the configured directory, one file per
+ * bucket and cluster member (<code>hints-[bucket]-[memberId].bloom</code>), and
+ * are read again on start. If several matcher services use the same directory
+ * (e.g. a shared volume), each one only writes its own files but also reads the
+ * others' changed files on every flush and merges them into its filters, so
+ * hints sent by one member are eventually known to all members. As merging bloom
+ * filters is idempotent, a member's files simply contain all hints it knows of.
+ * All members must use the same bucket size, expected insertions and false
+ * positive probability.
+ * </p>
+ * <p>
+ * Files are read and written without holding the store's monitor; only copying
+ * a changed filter before writing it and merging a filter that was read block
+ * {@link #save(String)} and {@link #mightContain(String)}.
+ * </p>
+ */
+public class RotatingBloomFilterHintStore implements HintStore {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("hints-(\\d+)-(.+)\\.bloom");
+    private final File directory;
+    private final String memberId;
+    private final long bucketMillis;
+    private final int retainedBuckets;
+    private final long expectedInsertionsPerBucket;
+    private final double falsePositiveProbability;
+    private final ScheduledExecutorService flushExecutor;
+    // bucket index -> hints saved by this member and those read from the others
+    private final TreeMap<Long, BloomFilter<CharSequence>> filters = new TreeMap<>();
+    // buckets with hints not written to this member's files yet
+    private final Set<Long> dirtyBuckets = new HashSet<>();
+    // only one flush at a time; guards lastModifiedRead
+    private final Object flushLock = new Object();
+    // file name -> modification time when it was last merged
+    private final Map<String, Long> lastModifiedRead = new HashMap<>();
+
+    /**
+     * @param directory where the filters are persisted
+     * @param memberId identifies this matcher service among the ones sharing the
+     * directory
+     * @param bucketMillis time span covered by one filter
+     * @param retainedBuckets number of buckets (including the current one) to
+     * consider for duplicate checks
+     * @param flushIntervalMillis interval for writing the filters to disk and
+     * reading the other members' filters, 0 to only write on close
+     */
+    public RotatingBloomFilterHintStore(File directory, String memberId, long bucketMillis, int retainedBuckets,
+                    long expectedInsertionsPerBucket, double falsePositiveProbability, long flushIntervalMillis) {
+        if (bucketMillis <= 0 || retainedBuckets <= 0) {
+            throw new IllegalArgumentException("bucket size and number of retained buckets must be positive");
+        }
+        this.directory = directory;
+        this.memberId = memberId.replaceAll("[^A-Za-z0-9_.]", "_");
+        this.bucketMillis = bucketMillis;
+        this.retainedBuckets = retainedBuckets;
+        this.expectedInsertionsPerBucket = expectedInsertionsPerBucket;
+        this.falsePositiveProbability = falsePositiveProbability;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create hint store directory " + directory);
+        }
+        synchronized (flushLock) {
+            load();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("hint store holds {} buckets, approx. {} bytes on heap", filters.size(),
+                            getApproximateHeapBytes());
+        }
+        if (flushIntervalMillis > 0) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hint-store-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                            TimeUnit.MILLISECONDS);
+        } else {
+            flushExecutor = null;
+        }
+    }
+
+    @Override
+    public synchronized void save(String hintIdentifier) {
+        long bucket = currentBucket();
+        filters.computeIfAbsent(bucket, b -> newFilter()).put(hintIdentifier);
+        dirtyBuckets.add(bucket);
+    }
+
+    @Override
+    public synchronized boolean mightContain(String hintIdentifier) {
+        long oldestBucket = oldestRetainedBucket();
+        for (Map.Entry<Long, BloomFilter<CharSequence>> entry : filters.descendingMap().entrySet()) {
+            if (entry.getKey() < oldestBucket) {
+                break;
+            }
+            if (entry.getValue().mightContain(hintIdentifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized long getApproximateHeapBytes() {
+        return filters.size() * BloomFilters.approximateBytes(expectedInsertionsPerBucket, falsePositiveProbability);
+    }
+
+    @Override
+    public void close() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            try {
+                flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushQuietly();
+    }
+
+    /**
+     * Writes the changed filters of this member, drops expired buckets and merges
+     * the filters written by other members since the last flush.
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            Map<Long, BloomFilter<CharSequence>> toWrite = new TreeMap<>();
+            synchronized (this) {
+                for (Long bucket : dirtyBuckets) {
+                    BloomFilter<CharSequence> filter = filters.get(bucket);
+                    if (filter != null) {
+                        toWrite.put(bucket, filter.copy());
+                    }
+                }
+                dirtyBuckets.clear();
+            }
+            try {
+                for (Iterator<Map.Entry<Long, BloomFilter<CharSequence>>> it = toWrite.entrySet().iterator(); it
+                                .hasNext();) {
+                    Map.Entry<Long, BloomFilter<CharSequence>> entry = it.next();
+                    write(entry.getKey(), entry.getValue());
+                    it.remove();
+                }
+            } finally {
+                if (!toWrite.isEmpty()) {
+                    // write again on the next flush
+                    synchronized (this) {
+                        dirtyBuckets.addAll(toWrite.keySet());
+                    }
+                }
+            }
+            dropExpiredBuckets();
+            load();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("could not flush hint store to " + directory, e);
+        }
+    }
+
+    /**
+     * Merges all files in the directory that changed since they were last read,
+     * one at a time. Files written by this member are only read on start.
+     */
+    private void load() {
+        long oldestBucket = oldestRetainedBucket();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            logger.warn("cannot list hint store directory {}", directory);
+            return;
+        }
+        Set<String> present = new HashSet<>();
+        for (File file : files) {
+            Matcher matcher = FILE_NAME_PATTERN.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            long bucket = Long.parseLong(matcher.group(1));
+            if (bucket < oldestBucket) {
+                continue;
+            }
+            present.add(file.getName());
+            long lastModified = file.lastModified();
+            Long lastRead = lastModifiedRead.get(file.getName());
+            if (lastRead != null && (lastRead == lastModified || memberId.equals(matcher.group(2)))) {
+                continue;
+            }
+            BloomFilter<CharSequence> filter = read(file);
+            if (filter == null) {
+                continue;
+            }
+            lastModifiedRead.put(file.getName(), lastModified);
+            merge(bucket, filter, file);
+        }
+        lastModifiedRead.keySet().retainAll(present);
+    }
+
+    private synchronized void merge(long bucket, BloomFilter<CharSequence> filter, File file) {
+        if (bucket < oldestRetainedBucket()) {
+            return;
+        }
+        BloomFilter<CharSequence> target = filters.get(bucket);
+        if (target == null) {
+            if (!newFilter().isCompatible(filter)) {
+                logger.warn("ignoring hint store file {}: bloom filter parameters differ from this member's", file);
+                return;
+            }
+            filters.put(bucket, filter);
+        } else if (target.isCompatible(filter)) {
+            target.putAll(filter);
+        } else {
+            logger.warn("ignoring hint store file {}: bloom filter parameters differ from this member's", file);
+        }
+    }
+
+    private void dropExpiredBuckets() {
+        long oldestBucket = oldestRetainedBucket();
+        synchronized (this) {
+            filters.headMap(oldestBucket).clear();
+            dirtyBuckets.removeIf(bucket -> bucket < oldestBucket);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // any member may remove expired files, they are never read again
+        for (File file : files) {
+            Matcher matcher = FILE_NAME_PATTERN.matcher(file.getName());
+            if (matcher.matches() && Long.parseLong(matcher.group(1)) < oldestBucket && !file.delete()
+                            && file.exists()) {
+                logger.warn("could not delete expired hint store file {}", file);
+            }
+        }
+    }
+
+    private void write(long bucket, BloomFilter<CharSequence> filter) throws IOException {
+        Path target = new File(directory, "hints-" + bucket + "-" + memberId + ".bloom").toPath();
+        Path tmp = new File(directory, "." + target.getFileName() + ".tmp").toPath();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+            filter.writeTo(out);
+        }
+        // others may read the file at any time, so replace it atomically
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // our own file holds nothing we don't know already
+        lastModifiedRead.put(target.getFileName().toString(), target.toFile().lastModified());
+    }
+
+    private BloomFilter<CharSequence> read(File file) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            return BloomFilter.readFrom(in, FUNNEL);
+        } catch (IOException e) {
+            logger.warn("could not read hint store file " + file, e);
+            return null;
+        }
+    }
+
+    private BloomFilter<CharSequence> newFilter() {
+        return BloomFilter.create(FUNNEL, expectedInsertionsPerBucket, falsePositiveProbability);
+    }
+
+    private long currentBucket() {
+        return System.currentTimeMillis() / bucketMillis;
+    }
+
+    private long oldestRetainedBucket() {
+        return currentBucket() - retainedBuckets + 1;
+    }
+}
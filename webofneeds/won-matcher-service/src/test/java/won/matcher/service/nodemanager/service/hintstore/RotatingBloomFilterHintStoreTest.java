@@ -0,0 +1,90 @@
+package won.matcher.service.nodemanager.service.hintstore;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RotatingBloomFilterHintStoreTest {
+    private static final long BUCKET_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long EXPECTED_INSERTIONS = 10000;
+    private static final double FPP = 0.001;
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RotatingBloomFilterHintStore createStore(File directory, String memberId) {
+        // no background flushing, the tests flush explicitly
+        return new RotatingBloomFilterHintStore(directory, memberId, BUCKET_MILLIS, 3, EXPECTED_INSERTIONS, FPP, 0);
+    }
+
+    @Test
+    public void testSaveAndLookup() throws IOException {
+        RotatingBloomFilterHintStore store = createStore(folder.newFolder(), "a");
+        Assert.assertFalse(store.mightContain("hint-1"));
+        store.save("hint-1");
+        Assert.assertTrue(store.mightContain("hint-1"));
+        Assert.assertFalse(store.mightContain("hint-2"));
+        store.close();
+    }
+
+    @Test
+    public void testOneFilterPerBucketOnHeap() throws IOException {
+        RotatingBloomFilterHintStore store = createStore(folder.newFolder(), "a");
+        Assert.assertEquals(0, store.getApproximateHeapBytes());
+        store.save("hint-1");
+        store.flush();
+        Assert.assertEquals(BloomFilters.approximateBytes(EXPECTED_INSERTIONS, FPP), store.getApproximateHeapBytes());
+        store.close();
+    }
+
+    @Test
+    public void testHintsSurviveRestart() throws IOException {
+        File directory = folder.newFolder();
+        RotatingBloomFilterHintStore store = createStore(directory, "a");
+        store.save("hint-1");
+        store.close();
+        RotatingBloomFilterHintStore reopened = createStore(directory, "a");
+        Assert.assertTrue(reopened.mightContain("hint-1"));
+        Assert.assertFalse(reopened.mightContain("hint-2"));
+        reopened.close();
+    }
+
+    @Test
+    public void testMembersShareHints() throws IOException {
+        File directory = folder.newFolder();
+        RotatingBloomFilterHintStore storeA = createStore(directory, "a");
+        RotatingBloomFilterHintStore storeB = createStore(directory, "b");
+        storeA.save("hint-a");
+        storeB.save("hint-b");
+        storeA.flush();
+        storeB.flush();
+        Assert.assertTrue(storeB.mightContain("hint-a"));
+        // a reads b's file on its next flush
+        storeA.flush();
+        Assert.assertTrue(storeA.mightContain("hint-b"));
+        // hints saved after merging are kept
+        storeA.save("hint-a2");
+        storeA.flush();
+        Assert.assertTrue(storeA.mightContain("hint-a2"));
+        Assert.assertTrue(storeA.mightContain("hint-a"));
+        storeA.close();
+        storeB.close();
+    }
+
+    @Test
+    public void testIncompatibleFilesAreIgnored() throws IOException {
+        File directory = folder.newFolder();
+        RotatingBloomFilterHintStore other = new RotatingBloomFilterHintStore(directory, "other", BUCKET_MILLIS, 3,
+                        EXPECTED_INSERTIONS * 10, FPP, 0);
+        other.save("hint-1");
+        other.close();
+        RotatingBloomFilterHintStore store = createStore(directory, "a");
+        Assert.assertFalse(store.mightContain("hint-1"));
+        store.save("hint-2");
+        Assert.assertTrue(store.mightContain("hint-2"));
+        store.close();
+    }
+}
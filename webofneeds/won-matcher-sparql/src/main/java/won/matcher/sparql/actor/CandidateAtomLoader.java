@@ -0,0 +1,226 @@
+package won.matcher.sparql.actor;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
+
+import won.matcher.sparql.config.SparqlMatcherConfig;
+import won.protocol.util.AtomModelWrapper;
+import won.protocol.util.RdfUtils;
+import won.protocol.util.linkeddata.LinkedDataSource;
+
+/**
+ * Loads the data of the match candidates found by the sparql queries. Shared by
+ * all matcher actors, so that the number of concurrent requests is bounded by
+ * <code>matcher.sparql.candidateFetch.threads</code> no matter how many atoms
+ * are matched at the same time.
+ * <p>
+ * Depending on <code>matcher.sparql.candidateFetch.source</code>, candidates
+ * are either fetched as linked data from their won nodes
+ * (<code>linkeddata</code>, one request per candidate, run concurrently) or
+ * read from the matcher's sparql endpoint (<code>sparql</code>, two queries
+ * per <code>matcher.sparql.candidateFetch.batchSize</code> candidates). Loaded
+ * candidates are kept for a short time, as the same atoms tend to be found for
+ * many atoms; every caller gets its own copy of their data.
+ * </p>
+ */
+@Component
+public class CandidateAtomLoader implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    public static final String SOURCE_SPARQL = "sparql";
+    @Autowired
+    private SparqlMatcherConfig config;
+    @Autowired
+    private LinkedDataSource linkedDataSource;
+    private ExecutorService executor;
+    private Cache<String, Dataset> candidates;
+
+    public void setConfig(SparqlMatcherConfig config) {
+        this.config = config;
+    }
+
+    public void setLinkedDataSource(LinkedDataSource linkedDataSource) {
+        this.linkedDataSource = linkedDataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(config.getCandidateFetchThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "candidate-fetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        candidates = CacheBuilder.newBuilder()
+                        .maximumSize(config.getCandidateCacheMaxSize())
+                        .expireAfterWrite(config.getCandidateCacheExpireAfterSeconds(), TimeUnit.SECONDS)
+                        .build();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Loads the atoms with the specified URIs. Atoms that could not be loaded in
+     * time or whose data does not describe an atom are missing from the result.
+     *
+     * @return atom URI -> atom
+     */
+    public Map<String, AtomModelWrapper> load(Collection<String> atomUris) {
+        Map<String, AtomModelWrapper> loaded = new HashMap<>();
+        Set<String> toFetch = new LinkedHashSet<>();
+        for (String atomUri : atomUris) {
+            Dataset cached = candidates.getIfPresent(atomUri);
+            if (cached != null) {
+                // each caller gets its own copy, the cached dataset is never handed out
+                loaded.put(atomUri, new AtomModelWrapper(RdfUtils.cloneDataset(cached)));
+            } else {
+                toFetch.add(atomUri);
+            }
+        }
+        if (toFetch.isEmpty()) {
+            return loaded;
+        }
+        List<Future<Map<String, Dataset>>> fetches = new ArrayList<>();
+        if (SOURCE_SPARQL.equals(config.getCandidateFetchSource())) {
+            for (List<String> batch : Iterables.partition(toFetch, config.getCandidateFetchBatchSize())) {
+                fetches.add(executor.submit(() -> fetchFromSparqlEndpoint(batch)));
+            }
+        } else {
+            for (String atomUri : toFetch) {
+                fetches.add(executor.submit(() -> fetchLinkedData(atomUri)));
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getCandidateFetchTimeoutSeconds());
+        for (Future<Map<String, Dataset>> fetch : fetches) {
+            try {
+                Map<String, Dataset> datasets = fetch.get(Math.max(0, deadline - System.nanoTime()),
+                                TimeUnit.NANOSECONDS);
+                datasets.forEach((atomUri, dataset) -> {
+                    if (AtomModelWrapper.isAAtom(dataset)) {
+                        candidates.put(atomUri, dataset);
+                        loaded.put(atomUri, new AtomModelWrapper(RdfUtils.cloneDataset(dataset)));
+                    }
+                });
+            } catch (TimeoutException e) {
+                fetch.cancel(true);
+                logger.info("timeout while loading match candidates, ignoring candidates not loaded yet");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fetches.forEach(f -> f.cancel(true));
+                break;
+            } catch (Exception e) {
+                logger.info("caught exception trying to load match candidates: {} (more on loglevel 'debug')",
+                                e.getMessage());
+                logger.debug("exception loading match candidates", e);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("loaded {} of {} match candidates, {} of them from cache", loaded.size(), atomUris.size(),
+                            atomUris.size() - toFetch.size());
+        }
+        return loaded;
+    }
+
+    private Map<String, Dataset> fetchLinkedData(String atomUri) {
+        Map<String, Dataset> result = new HashMap<>();
+        try {
+            // download the linked data
+            result.put(atomUri, linkedDataSource.getDataForPublicResource(URI.create(atomUri)));
+        } catch (Exception e) {
+            logger.info("caught exception trying to load atom URI {} : {} (more on loglevel 'debug')", atomUri,
+                            e.getMessage());
+            logger.debug("exception loading atom " + atomUri, e);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the graphs of all atoms in the batch from the sparql endpoint: first
+     * the names of the graphs that describe each atom, i.e. in which the atom is a
+     * subject (content, sysinfo, key graph, ...), then their content. These are
+     * the graphs the matcher service's crawler stored for the atom.
+     */
+    Map<String, Dataset> fetchFromSparqlEndpoint(List<String> atomUris) {
+        ParameterizedSparqlString graphsQuery = new ParameterizedSparqlString();
+        graphsQuery.append("select distinct ?atom ?g where { values ?atom {");
+        for (String atomUri : atomUris) {
+            graphsQuery.append(" ");
+            graphsQuery.appendIri(atomUri);
+        }
+        graphsQuery.append(" } graph ?g { ?atom ?p ?o. } }");
+        Map<String, Set<String>> atomsByGraph = new HashMap<>();
+        try (QueryExecution execution = createQueryExecution(graphsQuery.asQuery())) {
+            ResultSet resultSet = execution.execSelect();
+            while (resultSet.hasNext()) {
+                QuerySolution solution = resultSet.next();
+                atomsByGraph.computeIfAbsent(solution.getResource("g").getURI(), g -> new HashSet<>())
+                                .add(solution.getResource("atom").getURI());
+            }
+        }
+        Map<String, Dataset> result = new HashMap<>();
+        if (atomsByGraph.isEmpty()) {
+            return result;
+        }
+        ParameterizedSparqlString contentQuery = new ParameterizedSparqlString();
+        contentQuery.append("select ?g ?s ?p ?o where { values ?g {");
+        for (String graphUri : atomsByGraph.keySet()) {
+            contentQuery.append(" ");
+            contentQuery.appendIri(graphUri);
+        }
+        contentQuery.append(" } graph ?g { ?s ?p ?o. } }");
+        try (QueryExecution execution = createQueryExecution(contentQuery.asQuery())) {
+            ResultSet resultSet = execution.execSelect();
+            while (resultSet.hasNext()) {
+                QuerySolution solution = resultSet.next();
+                String graphUri = solution.getResource("g").getURI();
+                for (String atomUri : atomsByGraph.get(graphUri)) {
+                    Model model = result.computeIfAbsent(atomUri, uri -> DatasetFactory.createGeneral())
+                                    .getNamedModel(graphUri);
+                    model.add(solution.getResource("s"), model.createProperty(solution.getResource("p").getURI()),
+                                    solution.get("o"));
+                }
+            }
+        }
+        return result;
+    }
+
+    QueryExecution createQueryExecution(Query query) {
+        return QueryExecutionFactory.sparqlService(config.getSparqlEndpoint(), query);
+    }
+}
@@ -33,11 +33,9 @@ import won.matcher.service.common.event.*;
 import won.matcher.sparql.config.SparqlMatcherConfig;
 import won.protocol.model.AtomState;
 import won.protocol.util.AtomModelWrapper;
-import won.protocol.util.linkeddata.LinkedDataSource;
 import won.protocol.vocabulary.WONMATCH;
 
 import java.io.IOException;
-import java.net.URI;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -58,7 +56,7 @@ public class SparqlMatcherActor extends UntypedActor {
     @Autowired
     private SparqlMatcherConfig config;
     @Autowired
-    private LinkedDataSource linkedDataSource;
+    private CandidateAtomLoader candidateAtomLoader;
 
     private static String hashFunction(Object input) {
         return Integer.toHexString(input.hashCode());
@@ -291,8 +289,14 @@ public class SparqlMatcherActor extends UntypedActor {
             if (log.isDebugEnabled()) {
                 log.debug("transformed query: {}", hintForCounterpartQuery);
             }
-            return Stream.concat(executeQuery(noHintForCounterpartQuery, atom.getAtomUri()),
+            List<ScoredAtomUri> foundUris = Stream.concat(executeQuery(noHintForCounterpartQuery, atom.getAtomUri()),
                             executeQuery(hintForCounterpartQuery, atom.getAtomUri())).collect(Collectors.toList());
+            // load the candidates of both queries at once
+            Map<String, AtomModelWrapper> foundAtoms = candidateAtomLoader
+                            .load(foundUris.stream().map(foundUri -> foundUri.uri).collect(Collectors.toSet()));
+            return foundUris.stream().filter(foundUri -> foundAtoms.containsKey(foundUri.uri))
+                            .map(foundUri -> new ScoredAtom(foundAtoms.get(foundUri.uri), foundUri.score))
+                            .collect(Collectors.toList());
         }).orElse(Collections.emptyList());
         return atoms;
     }
@@ -305,7 +309,7 @@ public class SparqlMatcherActor extends UntypedActor {
      * @param atomURI - the URI of the atom we are matching for
      * @return
      */
-    private Stream<ScoredAtom> executeQuery(Op q, String atomURI) {
+    private Stream<ScoredAtomUri> executeQuery(Op q, String atomURI) {
         Query compiledQuery = OpAsQuery.asQuery(q);
         // if we were given an atomToCheck, restrict the query result to that uri so
         // that
@@ -361,25 +365,7 @@ public class SparqlMatcherActor extends UntypedActor {
             }
             return Stream.empty();
         }
-        // load data in parallel
-        return foundUris.parallelStream().map(foundAtomUri -> {
-            try {
-                // download the linked data and return a new AtomModelWrapper
-                Dataset ds = linkedDataSource.getDataForPublicResource(URI.create(foundAtomUri.uri));
-                // make sure we don't accidentally use empty or faulty results
-                if (!AtomModelWrapper.isAAtom(ds)) {
-                    return null;
-                }
-                return new ScoredAtom(new AtomModelWrapper(ds), foundAtomUri.score);
-            } catch (Exception e) {
-                log.info("caught exception trying to load atom URI {} : {} (more on loglevel 'debug')", foundAtomUri,
-                                e.getMessage());
-                if (log.isDebugEnabled()) {
-                    e.printStackTrace();
-                }
-                return null;
-            }
-        }).filter(foundAtom -> foundAtom != null);
+        return foundUris.stream();
     }
 
     private boolean postFilter(AtomModelWrapper atom, AtomModelWrapper foundAtom) {
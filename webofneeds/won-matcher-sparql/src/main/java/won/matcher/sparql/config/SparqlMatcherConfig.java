@@ -18,6 +18,18 @@ public class SparqlMatcherConfig {
     private String matcherUri;
     @Value("${matcher.sparql.limitResults}")
     private long limitResults;
+    @Value("${matcher.sparql.candidateFetch.source:linkeddata}")
+    private String candidateFetchSource;
+    @Value("${matcher.sparql.candidateFetch.threads:16}")
+    private int candidateFetchThreads;
+    @Value("${matcher.sparql.candidateFetch.batchSize:50}")
+    private int candidateFetchBatchSize;
+    @Value("${matcher.sparql.candidateFetch.timeoutSeconds:30}")
+    private long candidateFetchTimeoutSeconds;
+    @Value("${matcher.sparql.candidateCache.maxSize:1000}")
+    private long candidateCacheMaxSize;
+    @Value("${matcher.sparql.candidateCache.expireAfterSeconds:60}")
+    private long candidateCacheExpireAfterSeconds;
 
     public long getLimitResults() {
         return limitResults;
@@ -30,4 +42,28 @@ public class SparqlMatcherConfig {
     public String getMatcherUri() {
         return matcherUri;
     }
+
+    public String getCandidateFetchSource() {
+        return candidateFetchSource;
+    }
+
+    public int getCandidateFetchThreads() {
+        return candidateFetchThreads;
+    }
+
+    public int getCandidateFetchBatchSize() {
+        return candidateFetchBatchSize;
+    }
+
+    public long getCandidateFetchTimeoutSeconds() {
+        return candidateFetchTimeoutSeconds;
+    }
+
+    public long getCandidateCacheMaxSize() {
+        return candidateCacheMaxSize;
+    }
+
+    public long getCandidateCacheExpireAfterSeconds() {
+        return candidateCacheExpireAfterSeconds;
+    }
 }
@@ -0,0 +1,124 @@
+package won.matcher.sparql.actor;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import won.matcher.sparql.config.SparqlMatcherConfig;
+import won.protocol.util.AtomModelWrapper;
+import won.protocol.util.RdfUtils;
+
+public class CandidateAtomLoaderTest {
+    private static final String ATOM_1 = "https://node.example/won/resource/atom/a1";
+    private static final String ATOM_2 = "https://node.example/won/resource/atom/a2";
+    private static final String ATOM_3 = "https://node.example/won/resource/atom/a3";
+    private Dataset endpoint;
+    private AtomicInteger queries;
+    private CandidateAtomLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = DatasetFactory.createGeneral();
+        try (InputStream in = getClass().getResourceAsStream("/candidates/atoms.trig")) {
+            RDFDataMgr.read(endpoint, in, Lang.TRIG);
+        }
+        queries = new AtomicInteger();
+        loader = new CandidateAtomLoader() {
+            @Override
+            QueryExecution createQueryExecution(Query query) {
+                queries.incrementAndGet();
+                return QueryExecutionFactory.create(query, endpoint);
+            }
+        };
+        loader.setConfig(new SparqlMatcherConfig() {
+            @Override
+            public String getCandidateFetchSource() {
+                return CandidateAtomLoader.SOURCE_SPARQL;
+            }
+
+            @Override
+            public int getCandidateFetchThreads() {
+                return 2;
+            }
+
+            @Override
+            public int getCandidateFetchBatchSize() {
+                return 10;
+            }
+
+            @Override
+            public long getCandidateFetchTimeoutSeconds() {
+                return 10;
+            }
+
+            @Override
+            public long getCandidateCacheMaxSize() {
+                return 100;
+            }
+
+            @Override
+            public long getCandidateCacheExpireAfterSeconds() {
+                return 60;
+            }
+        });
+        loader.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        loader.destroy();
+    }
+
+    @Test
+    public void testBatchQueryReturnsAllGraphsOfTheAtoms() {
+        Map<String, Dataset> fetched = loader.fetchFromSparqlEndpoint(Arrays.asList(ATOM_1, ATOM_2));
+        Assert.assertEquals(2, fetched.size());
+        List<String> graphs = RdfUtils.getModelNames(fetched.get(ATOM_1));
+        Assert.assertEquals(3, graphs.size());
+        Assert.assertTrue(graphs.contains(ATOM_1 + "#atom"));
+        Assert.assertTrue(graphs.contains(ATOM_1 + "#sysinfo"));
+        Assert.assertTrue(graphs.contains(ATOM_1 + "#key"));
+        Assert.assertTrue(fetched.get(ATOM_1).getNamedModel(ATOM_1 + "#sysinfo").isIsomorphicWith(
+                        endpoint.getNamedModel(ATOM_1 + "#sysinfo")));
+        Assert.assertEquals(2, RdfUtils.getModelNames(fetched.get(ATOM_2)).size());
+        Assert.assertTrue(AtomModelWrapper.isAAtom(fetched.get(ATOM_1)));
+        Assert.assertTrue(AtomModelWrapper.isAAtom(fetched.get(ATOM_2)));
+    }
+
+    @Test
+    public void testUnknownAtomsAreMissing() {
+        Map<String, AtomModelWrapper> loaded = loader
+                        .load(Arrays.asList(ATOM_1, "https://node.example/won/resource/atom/unknown"));
+        Assert.assertEquals(1, loaded.size());
+        Assert.assertTrue(loaded.containsKey(ATOM_1));
+        // a3 only mentions a1, its graph is not part of a1's data
+        Assert.assertFalse(RdfUtils.getModelNames(loaded.get(ATOM_1).getDataset()).contains(ATOM_3 + "#atom"));
+    }
+
+    @Test
+    public void testCachedCandidatesAreCopied() {
+        AtomModelWrapper first = loader.load(Arrays.asList(ATOM_1)).get(ATOM_1);
+        int queriesForFirst = queries.get();
+        first.getDataset().removeNamedModel(ATOM_1 + "#sysinfo");
+        AtomModelWrapper second = loader.load(Arrays.asList(ATOM_1)).get(ATOM_1);
+        // served from the cache, unaffected by the change to the first copy
+        Assert.assertEquals(queriesForFirst, queries.get());
+        Assert.assertNotSame(first.getDataset(), second.getDataset());
+        Assert.assertTrue(second.getDataset().containsNamedModel(ATOM_1 + "#sysinfo"));
+        Assert.assertNotNull(second.getSysInfoModel());
+    }
+}
@@ -0,0 +1,174 @@
+package won.node.web;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.http.MediaType;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import won.auth.model.OperationRequest;
+import won.node.springsecurity.acl.WonAclEvalContext;
+
+/**
+ * Keeps serialized linked data responses so that requests for a resource
+ * version that was already served are answered without loading, filtering and
+ * serializing the dataset again. An entry is stored per resource, media type
+ * and ACL-equivalence class of the requester (see
+ * {@link #getRequesterClass(WonAclEvalContext)}), and holds the response for
+ * one version of the resource: a request for another version replaces it.
+ * <p>
+ * Responses for identified requesters may depend on the state of connections to
+ * other atoms, which does not change the resource version. They are therefore
+ * only reused for
+ * <code>linkeddata.responseCache.requesterEntries.expireAfterSeconds</code>,
+ * like the decisions in WonAclEvaluatorCache.
+ * </p>
+ * Hits and misses are counted in the JavaSimon counters
+ * <code>won.node.linkeddata.responseCache.hit/miss</code>.
+ */
+public class LinkedDataResponseCache implements InitializingBean {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String SIMON_PREFIX = "won.node.linkeddata.responseCache";
+    // requester class for requests that are not filtered by ACL
+    private static final String UNFILTERED = "*";
+    // requester class for filtered requests without webid
+    private static final String ANONYMOUS = "";
+    private final Counter hits = SimonManager.getCounter(SIMON_PREFIX + ".hit");
+    private final Counter misses = SimonManager.getCounter(SIMON_PREFIX + ".miss");
+    private int maxSizeMB = 64;
+    private int requesterEntriesExpireAfterSeconds = 60;
+    private Ticker ticker = Ticker.systemTicker();
+    private Cache<Key, CachedResponse> responses;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (maxSizeMB <= 0) {
+            logger.info("linked data response cache is disabled");
+            return;
+        }
+        this.responses = CacheBuilder.newBuilder()
+                        .maximumWeight(maxSizeMB * 1024L * 1024L)
+                        .weigher((Key key, CachedResponse response) -> response.body.length)
+                        .build();
+    }
+
+    public boolean isEnabled() {
+        return responses != null;
+    }
+
+    /**
+     * Returns the ACL-equivalence class of the requester: requesters in the same
+     * class get the same response for the same resource version. Returns empty if
+     * the response must not be cached, which is the case for requests that present
+     * tokens, as the tokens' validity is checked on every request.
+     */
+    public static Optional<String> getRequesterClass(WonAclEvalContext wonAclEvalContext) {
+        if (wonAclEvalContext == null || wonAclEvalContext.isModeAllowAll()) {
+            return Optional.of(UNFILTERED);
+        }
+        OperationRequest operationRequest = wonAclEvalContext.getOperationRequest();
+        if (operationRequest.getBearsTokens() != null && !operationRequest.getBearsTokens().isEmpty()) {
+            return Optional.empty();
+        }
+        URI requestor = operationRequest.getRequestor();
+        return Optional.of(requestor == null ? ANONYMOUS : requestor.toString());
+    }
+
+    /**
+     * Returns the serialized response for the specified resource version, if
+     * cached.
+     */
+    public Optional<byte[]> get(URI resourceUri, String etag, MediaType mediaType, String requesterClass) {
+        Key key = new Key(resourceUri, mediaType, requesterClass);
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached == null || !cached.etag.equals(etag) || isExpired(cached, requesterClass)) {
+            if (cached != null) {
+                // a new version or too old: drop it right away
+                responses.invalidate(key);
+            }
+            misses.increase();
+            return Optional.empty();
+        }
+        hits.increase();
+        return Optional.of(cached.body);
+    }
+
+    public void put(URI resourceUri, String etag, MediaType mediaType, String requesterClass, byte[] body) {
+        Objects.requireNonNull(etag);
+        responses.put(new Key(resourceUri, mediaType, requesterClass),
+                        new CachedResponse(etag, body, ticker.read()));
+    }
+
+    private boolean isExpired(CachedResponse cached, String requesterClass) {
+        if (UNFILTERED.equals(requesterClass) || ANONYMOUS.equals(requesterClass)) {
+            return false;
+        }
+        return ticker.read() - cached.created > TimeUnit.SECONDS.toNanos(requesterEntriesExpireAfterSeconds);
+    }
+
+    public void setMaxSizeMB(int maxSizeMB) {
+        this.maxSizeMB = maxSizeMB;
+    }
+
+    public void setRequesterEntriesExpireAfterSeconds(int requesterEntriesExpireAfterSeconds) {
+        this.requesterEntriesExpireAfterSeconds = requesterEntriesExpireAfterSeconds;
+    }
+
+    void setTicker(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    private static class Key {
+        private final URI resourceUri;
+        private final MediaType mediaType;
+        private final String requesterClass;
+
+        public Key(URI resourceUri, MediaType mediaType, String requesterClass) {
+            this.resourceUri = resourceUri;
+            this.mediaType = mediaType;
+            this.requesterClass = requesterClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return resourceUri.equals(key.resourceUri) && mediaType.equals(key.mediaType)
+                            && requesterClass.equals(key.requesterClass);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resourceUri, mediaType, requesterClass);
+        }
+    }
+
+    private static class CachedResponse {
+        private final String etag;
+        private final byte[] body;
+        // ticker time in nanoseconds
+        private final long created;
+
+        public CachedResponse(String etag, byte[] body, long created) {
+            this.etag = etag;
+            this.body = body;
+            this.created = created;
+        }
+    }
+}
@@ -15,6 +15,7 @@ import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.NodeIterator;
 import org.apache.jena.rdf.model.Property;
+import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.sparql.core.DatasetGraphFactory;
 import org.apache.jena.vocabulary.RDFS;
 import org.slf4j.Logger;
@@ -56,7 +57,10 @@ import won.protocol.model.AtomState;
 import won.protocol.model.Connection;
 import won.protocol.model.ConnectionState;
 import won.protocol.model.DataWithEtag;
+import won.protocol.rest.RDFMediaType;
+import won.protocol.rest.RdfDatasetConverter;
 import won.protocol.rest.WonEtagHelper;
+import won.protocol.util.KeysetCursor;
 import won.protocol.util.RdfUtils;
 import won.protocol.util.linkeddata.uriresolver.WonRelativeUriHelper;
 import won.protocol.vocabulary.CNT;
@@ -65,6 +69,7 @@ import won.protocol.vocabulary.WONMSG;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.invoke.MethodHandles;
@@ -76,6 +81,7 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -129,6 +135,11 @@ public class LinkedDataWebController implements InitializingBean {
     private static final String DATE_FORMAT_RFC_1123 = "EEE, dd MMM yyyy HH:mm:ss z";
     // timeout for resources that clients may cache for a short term
     private static final int SHORT_TERM_CACHE_TIMEOUT_SECONDS = 600;
+    // formats the controller can serialize to directly (for the response cache and
+    // streamed responses)
+    private static final List<MediaType> DIRECTLY_SERIALIZED_MEDIA_TYPES = Arrays.asList(
+                    RDFMediaType.APPLICATION_JSONLD,
+                    RDFMediaType.APPLICATION_TRIG, RDFMediaType.APPLICATION_NQUADS);
     // full prefix of an atom resource
     private String atomResourceURIPrefix;
     // full prefix of a connection resource
@@ -146,6 +157,8 @@ public class LinkedDataWebController implements InitializingBean {
     private RegistrationServer registrationServer;
     @Autowired
     private URIService uriService;
+    // optional cache for serialized atom responses
+    private LinkedDataResponseCache responseCache;
 
     private static AtomState getAtomState(final String state) {
         if (state != null) {
@@ -392,8 +405,7 @@ public class LinkedDataWebController implements InitializingBean {
             rdfDataset = linkedDataService.listAtomURIs(atomState, filterBySocketTypeUri, filterByAtomTypeUri);
         } else if (page != null) {
             AtomInformationService.PagedResource<Dataset, URI> resource = linkedDataService.listPagedAtomURIs(page,
-                            null,
-                            atomState);
+                            null, atomState, filterBySocketTypeUri, filterByAtomTypeUri);
             rdfDataset = resource.getContent();
         } else if (resumeBefore != null) {
             URI referenceAtom;
@@ -458,17 +470,44 @@ public class LinkedDataWebController implements InitializingBean {
         URI filterBySocketTypeUri = getURIOrNull(filterBySocketTypeUriString);
         URI filterByAtomTypeUri = getURIOrNull(filterByAtomTypeUriString);
         if (preferedSize == null && modifiedAfter == null && createdAfter == null) {
+            MediaType mediaType = getRequestedRdfMediaType(getHttpHeaders(request).getAccept());
+            if (mediaType != null) {
+                // the complete list: write it while it is read from the database
+                addLocationHeaderIfNecessary(headers, URI.create(request.getRequestURI()),
+                                URI.create(this.atomResourceURIPrefix));
+                addMutableResourceHeaders(headers);
+                addCORSHeader(headers);
+                writeStreamedResponse(response, headers, mediaType, out -> linkedDataService
+                                .writeAtomURIs(atomState, filterBySocketTypeUri, filterByAtomTypeUri, out));
+                return null;
+            }
             rdfDataset = linkedDataService.listAtomURIs(atomState, filterBySocketTypeUri, filterByAtomTypeUri);
         } else if (page == null && resumeBefore == null && resumeAfter == null && modifiedAfter == null
                         && createdAfter == null) {
             // return latest atoms
-            AtomInformationService.PagedResource<Dataset, URI> resource = linkedDataService.listPagedAtomURIs(1,
-                            preferedSize, atomState);
+            AtomInformationService.PagedResource<Dataset, URI> resource = linkedDataService.listPagedAtomURIsBefore(
+                            KeysetCursor.NEWEST, preferedSize, atomState, filterBySocketTypeUri, filterByAtomTypeUri);
             rdfDataset = resource.getContent();
             addPagedResourceInSequenceHeader(headers, URI.create(this.atomResourceURIPrefix), resource, passableQuery);
         } else if (page != null) {
             AtomInformationService.PagedResource<Dataset, URI> resource = linkedDataService.listPagedAtomURIs(page,
-                            preferedSize, atomState);
+                            preferedSize, atomState, filterBySocketTypeUri, filterByAtomTypeUri);
+            rdfDataset = resource.getContent();
+            addPagedResourceInSequenceHeader(headers, URI.create(this.atomResourceURIPrefix), resource, passableQuery);
+        } else if (KeysetCursor.isToken(resumeBefore)) {
+            // resumebefore means we are paging and we are interested in atoms newer than
+            // the cursor
+            AtomInformationService.PagedResource<Dataset, URI> resource = linkedDataService.listPagedAtomURIsAfter(
+                            KeysetCursor.fromToken(resumeBefore), preferedSize, atomState, filterBySocketTypeUri,
+                            filterByAtomTypeUri);
+            rdfDataset = resource.getContent();
+            addPagedResourceInSequenceHeader(headers, URI.create(this.atomResourceURIPrefix), resource, passableQuery);
+        } else if (KeysetCursor.isToken(resumeAfter)) {
+            // resumeafter means we are paging and we are interested in atoms older than
+            // the cursor
+            AtomInformationService.PagedResource<Dataset, URI> resource = linkedDataService.listPagedAtomURIsBefore(
+                            KeysetCursor.fromToken(resumeAfter), preferedSize, atomState, filterBySocketTypeUri,
+                            filterByAtomTypeUri);
             rdfDataset = resource.getContent();
             addPagedResourceInSequenceHeader(headers, URI.create(this.atomResourceURIPrefix), resource, passableQuery);
         } else if (resumeBefore != null) {
@@ -812,7 +851,16 @@ public class LinkedDataWebController implements InitializingBean {
             } else if (resumeBefore == null && resumeAfter == null) {
                 // return latest by the given timestamp
                 AtomInformationService.PagedResource<Dataset, Connection> resource = linkedDataService
-                                .listConnections(1, preferedSize, dateParam.getDate(), deep);
+                                .listConnectionsBefore(KeysetCursor.NEWEST, preferedSize, dateParam.getDate(), deep);
+                rdfDataset = resource.getContent();
+                addPagedConnectionResourceInSequenceHeader(headers, URI.create(this.connectionResourceURIPrefix),
+                                resource, passableMap);
+            } else if (KeysetCursor.isToken(resumeBefore) || KeysetCursor.isToken(resumeAfter)) {
+                AtomInformationService.PagedResource<Dataset, Connection> resource = resumeBefore != null
+                                ? linkedDataService.listConnectionsAfter(KeysetCursor.fromToken(resumeBefore),
+                                                preferedSize, dateParam.getDate(), deep)
+                                : linkedDataService.listConnectionsBefore(KeysetCursor.fromToken(resumeAfter),
+                                                preferedSize, dateParam.getDate(), deep);
                 rdfDataset = resource.getContent();
                 addPagedConnectionResourceInSequenceHeader(headers, URI.create(this.connectionResourceURIPrefix),
                                 resource, passableMap);
@@ -864,9 +912,16 @@ public class LinkedDataWebController implements InitializingBean {
 
     @RequestMapping(value = "${uri.path.data}/atom/{identifier}", method = RequestMethod.GET, produces = {
                     "application/ld+json", "application/trig", "application/n-quads" })
-    public ResponseEntity<Dataset> readAtom(HttpServletRequest request, HttpServletResponse response,
+    public ResponseEntity<?> readAtom(HttpServletRequest request, HttpServletResponse response,
                     @PathVariable(value = "identifier") String identifier) {
         logger.debug("readAtom() called");
+        if (responseCache != null && responseCache.isEnabled()) {
+            ResponseEntity<?> cachedResponse = readAtomUsingResponseCache(
+                            URI.create(atomResourceURIPrefix + "/" + identifier), request, response);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+        }
         return getResponseEntity(identifier, request, response, new EtagSupportingDataLoader<Dataset>() {
             @Override
             public URI createUriForIdentifier(final String identifier) {
@@ -887,6 +942,112 @@ public class LinkedDataWebController implements InitializingBean {
         });
     }
 
+    /**
+     * Answers the atom request from the response cache, or serializes the atom and
+     * adds it to the cache. Returns null if the response can't be cached (the
+     * requester presents tokens or accepts any RDF format) or if the client already
+     * has the current version, in which case the request is handled without the
+     * cache.
+     */
+    private ResponseEntity<?> readAtomUsingResponseCache(URI atomUri, HttpServletRequest request,
+                    HttpServletResponse response) {
+        HttpHeaders requestHeaders = getHttpHeaders(request);
+        MediaType mediaType = getRequestedRdfMediaType(requestHeaders.getAccept());
+        if (mediaType == null) {
+            return null;
+        }
+        WonAclEvalContext wonAclEvalContext = WonAclRequestHelper.getWonAclEvaluationContext(request);
+        Optional<String> requesterClass = LinkedDataResponseCache.getRequesterClass(wonAclEvalContext);
+        if (!requesterClass.isPresent()) {
+            return null;
+        }
+        Optional<String> etag = linkedDataService.getAtomEtag(atomUri);
+        if (!etag.isPresent()) {
+            return null;
+        }
+        String requestedVersion = WonEtagHelper
+                        .getVersionIdentifier(WonEtagHelper.fromHeaderIfCompatibleWithAcceptHeader(requestHeaders));
+        if (etag.get().equals(requestedVersion)) {
+            // not modified: no need for the body
+            return null;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        addCORSHeader(headers);
+        addPublicHeaders(headers);
+        Optional<byte[]> body = responseCache.get(atomUri, etag.get(), mediaType, requesterClass.get());
+        if (body.isPresent()) {
+            return getSerializedResponse(body.get(), etag.get(), mediaType, headers);
+        }
+        DataWithEtag<Dataset> dataWithEtag = linkedDataService.getAtomDataset(atomUri, null, wonAclEvalContext);
+        if (dataWithEtag == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (dataWithEtag.isDeleted() || dataWithEtag.isNotFound() || dataWithEtag.isForbidden()) {
+            return getResponseEntityForPossiblyNotModifiedResult(dataWithEtag, headers, request, response);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RdfDatasetConverter.write(dataWithEtag.getData(), mediaType, out);
+        byte[] serialized = out.toByteArray();
+        responseCache.put(atomUri, dataWithEtag.getEtag(), mediaType, requesterClass.get(), serialized);
+        return getSerializedResponse(serialized, dataWithEtag.getEtag(), mediaType, headers);
+    }
+
+    /**
+     * Returns the media type the response will be serialized in, if it is
+     * determined by the accept header.
+     */
+    private static MediaType getRequestedRdfMediaType(List<MediaType> acceptedMediaTypes) {
+        List<MediaType> sorted = new ArrayList<>(acceptedMediaTypes);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        for (MediaType accepted : sorted) {
+            if (accepted.isWildcardType() || accepted.isWildcardSubtype()) {
+                return null;
+            }
+            for (MediaType supported : DIRECTLY_SERIALIZED_MEDIA_TYPES) {
+                if (supported.isCompatibleWith(accepted)) {
+                    return supported;
+                }
+            }
+        }
+        return null;
+    }
+
+    private ResponseEntity<byte[]> getSerializedResponse(byte[] body, String etag, MediaType mediaType,
+                    HttpHeaders headers) {
+        headers.setContentType(mediaType);
+        WonEtagHelper etagHelper = WonEtagHelper.forVersion(etag);
+        if (etagHelper != null) {
+            etagHelper.setMediaType(mediaType);
+            WonEtagHelper.setEtagHeader(etagHelper, headers);
+        }
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Writes the response while the data is produced, for results too large to be
+     * collected in a Dataset first. The headers must be complete when this is
+     * called. If the writer fails before anything was sent, the response is reset
+     * so that the exception can be handled like in the other requests.
+     */
+    private void writeStreamedResponse(HttpServletResponse response, HttpHeaders headers, MediaType mediaType,
+                    Consumer<StreamRDF> writer) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setContentType(mediaType.toString());
+        StreamRDF out = RdfDatasetConverter.createStreamWriter(mediaType, response.getOutputStream());
+        try {
+            out.start();
+            writer.accept(out);
+            out.finish();
+        } catch (RuntimeException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+        response.flushBuffer();
+    }
+
     @RequestMapping(value = "${uri.path.data}/atom/{identifier}/unread", method = RequestMethod.POST, produces = {
                     "application/ld+json", "application/trig", "application/n-quads" })
     public ResponseEntity<org.apache.jena.rdf.model.Model> readUnreadInformationPost(
@@ -930,18 +1091,32 @@ public class LinkedDataWebController implements InitializingBean {
      */
     @RequestMapping(value = "${uri.path.data}/atom/{identifier}/deep", method = RequestMethod.GET, produces = {
                     "application/ld+json", "application/trig", "application/n-quads" })
-    public ResponseEntity<Dataset> readAtomDeep(HttpServletRequest request,
+    public ResponseEntity<Dataset> readAtomDeep(HttpServletRequest request, HttpServletResponse response,
                     @PathVariable(value = "identifier") String identifier,
-                    @RequestParam(value = "layer-size", required = false) Integer layerSize) {
+                    @RequestParam(value = "layer-size", required = false) Integer layerSize) throws IOException {
         logger.debug("readAtom() called");
         URI atomUri = URI.create(this.atomResourceURIPrefix + "/" + identifier);
         try {
-            Dataset dataset = linkedDataService.getAtomDataset(atomUri, true, layerSize,
-                            WonAclRequestHelper.getWonAclEvaluationContext(request));
-            // TODO: atom information does change over time. The immutable atom information
-            // should never expire, the mutable should
+            WonAclEvalContext wonAclEvalContext = WonAclRequestHelper.getWonAclEvaluationContext(request);
             HttpHeaders headers = new HttpHeaders();
             addCORSHeader(headers);
+            // check access to the atom before anything is written
+            DataWithEtag<Dataset> atomData = linkedDataService.getAtomDataset(atomUri, null, wonAclEvalContext);
+            if (atomData == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            if (atomData.isDeleted() || atomData.isNotFound() || atomData.isForbidden()) {
+                return getResponseEntityForPossiblyNotModifiedResult(atomData, headers, request, response);
+            }
+            MediaType mediaType = getRequestedRdfMediaType(getHttpHeaders(request).getAccept());
+            if (mediaType != null) {
+                writeStreamedResponse(response, headers, mediaType, out -> linkedDataService
+                                .writeDeepAtomDataset(atomUri, atomData.getData(), layerSize, out));
+                return null;
+            }
+            Dataset dataset = linkedDataService.getAtomDataset(atomUri, true, layerSize, wonAclEvalContext);
+            // TODO: atom information does change over time. The immutable atom information
+            // should never expire, the mutable should
             return new ResponseEntity<>(dataset, headers, HttpStatus.OK);
         } catch (NoSuchAtomException | NoSuchConnectionException | NoSuchMessageException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -1016,14 +1191,15 @@ public class LinkedDataWebController implements InitializingBean {
 
     @RequestMapping(value = "${uri.path.data}/atom/{atomId}/c/{identifier}/msg", method = RequestMethod.GET, produces = {
                     "application/ld+json", "application/trig", "application/n-quads" })
-    public ResponseEntity<Dataset> readConnectionEvents(HttpServletRequest request,
+    public ResponseEntity<Dataset> readConnectionEvents(HttpServletRequest request, HttpServletResponse response,
                     @PathVariable String atomId,
                     @PathVariable(value = "identifier") String identifier,
                     @RequestParam(value = "p", required = false) Integer page,
                     @RequestParam(value = "resumebefore", required = false) String resumeBefore,
                     @RequestParam(value = "resumeafter", required = false) String resumeAfter,
                     @RequestParam(value = "type", required = false) String type,
-                    @RequestParam(value = "deep", required = false, defaultValue = "false") boolean deep) {
+                    @RequestParam(value = "deep", required = false, defaultValue = "false") boolean deep)
+                    throws IOException {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
         logger.debug("readConnection() called");
@@ -1039,9 +1215,35 @@ public class LinkedDataWebController implements InitializingBean {
                 // client doesn't not support paging - return all members; does not support type
                 // filtering for clients that do
                 // not support paging
+                MediaType mediaType = getRequestedRdfMediaType(getHttpHeaders(request).getAccept());
+                if (mediaType != null) {
+                    // write the messages while they are read from the database
+                    addLocationHeaderIfNecessary(headers, URI.create(request.getRequestURI()),
+                                    URI.create(this.connectionResourceURIPrefix));
+                    addMutableResourceHeaders(headers);
+                    addCORSHeader(headers);
+                    writeStreamedResponse(response, headers, mediaType,
+                                    out -> linkedDataService.writeConnectionEventURIs(connectionUri, deep, out));
+                    return null;
+                }
                 rdfDataset = linkedDataService.listConnectionEventURIs(connectionUri, deep);
+            } else if (page == null && resumeBefore == null && resumeAfter == null) {
+                // return page with latest events
+                AtomInformationService.PagedResource<Dataset, URI> resource = linkedDataService
+                                .listConnectionEventURIsBefore(connectionUri, KeysetCursor.NEWEST, preferedSize,
+                                                msgType,
+                                                deep);
+                rdfDataset = resource.getContent();
+                addPagedResourceInSequenceHeader(headers, connectionEventsURI, resource, passableMap);
+            } else if (KeysetCursor.isToken(resumeBefore) || KeysetCursor.isToken(resumeAfter)) {
+                AtomInformationService.PagedResource<Dataset, URI> resource = resumeBefore != null
+                                ? linkedDataService.listConnectionEventURIsAfter(connectionUri,
+                                                KeysetCursor.fromToken(resumeBefore), preferedSize, msgType, deep)
+                                : linkedDataService.listConnectionEventURIsBefore(connectionUri,
+                                                KeysetCursor.fromToken(resumeAfter), preferedSize, msgType, deep);
+                rdfDataset = resource.getContent();
+                addPagedResourceInSequenceHeader(headers, connectionEventsURI, resource, passableMap);
             } else if (resumeBefore == null && resumeAfter == null) {
-                // if page == null -> return page with latest events
                 AtomInformationService.PagedResource<Dataset, URI> resource = linkedDataService.listConnectionEventURIs(
                                 connectionUri, page != null ? page : 1, preferedSize, msgType, deep); // FIXME:
                                                                                                       // does not
@@ -1263,8 +1465,8 @@ public class LinkedDataWebController implements InitializingBean {
                 // if no page or resume parameter is specified, display the latest connections:
             } else if (page == null && resumeBefore == null && resumeAfter == null) {
                 AtomInformationService.PagedResource<Dataset, Connection> resource = linkedDataService
-                                .listConnections(1, atomUri, preferedSize, eventsType, dateParam.getDate(), deep, true,
-                                                connectionState);
+                                .listConnectionsBefore(atomUri, KeysetCursor.NEWEST, preferedSize, eventsType,
+                                                dateParam.getDate(), deep, true, connectionState);
                 rdfDataset = resource.getContent();
                 addPagedConnectionResourceInSequenceHeader(headers, connectionsURI, resource, passableQuery);
             } else if (page != null) {
@@ -1273,6 +1475,16 @@ public class LinkedDataWebController implements InitializingBean {
                                 connectionState);
                 rdfDataset = resource.getContent();
                 addPagedConnectionResourceInSequenceHeader(headers, connectionsURI, resource, page, passableQuery);
+            } else if (KeysetCursor.isToken(resumeBefore) || KeysetCursor.isToken(resumeAfter)) {
+                AtomInformationService.PagedResource<Dataset, Connection> resource = resumeBefore != null
+                                ? linkedDataService.listConnectionsAfter(atomUri, KeysetCursor.fromToken(resumeBefore),
+                                                preferedSize, eventsType, dateParam.getDate(), deep, true,
+                                                connectionState)
+                                : linkedDataService.listConnectionsBefore(atomUri, KeysetCursor.fromToken(resumeAfter),
+                                                preferedSize, eventsType, dateParam.getDate(), deep, true,
+                                                connectionState);
+                rdfDataset = resource.getContent();
+                addPagedConnectionResourceInSequenceHeader(headers, connectionsURI, resource, passableQuery);
             } else {
                 // resume before parameter specified - display the connections with activities
                 // before the specified event id:
@@ -1410,12 +1622,14 @@ public class LinkedDataWebController implements InitializingBean {
         headers.add(HttpHeaders.LINK,
                         "<http://www.w3.org/ns/ldp#Resource>; rel=\"type\", <http://www.w3.org/ns/ldp#Page>; rel=\"type\"");
         if (resource.hasNext()) {
-            String id = resource.getResumeAfter().toString();
+            String id = resource.getResumeAfterCursor() != null ? resource.getResumeAfterCursor().toToken()
+                            : resource.getResumeAfter().toString();
             headers.add(HttpHeaders.LINK,
                             "<" + canonicalURI.toString() + "?resumeafter=" + id + queryPart + ">; rel=\"next\"");
         }
         if (resource.hasPrevious()) {
-            String id = resource.getResumeBefore().toString();
+            String id = resource.getResumeBeforeCursor() != null ? resource.getResumeBeforeCursor().toToken()
+                            : resource.getResumeBefore().toString();
             headers.add(HttpHeaders.LINK,
                             "<" + canonicalURI.toString() + "?resumebefore=" + id + queryPart + ">; rel=\"prev\"");
         }
@@ -1464,12 +1678,14 @@ public class LinkedDataWebController implements InitializingBean {
         headers.add(HttpHeaders.LINK,
                         "<http://www.w3.org/ns/ldp#Resource>; rel=\"type\", <http://www.w3.org/ns/ldp#Page>; rel=\"type\"");
         if (resource.hasNext()) {
-            String id = resource.getResumeAfter().getConnectionURI().toString();
+            String id = resource.getResumeAfterCursor() != null ? resource.getResumeAfterCursor().toToken()
+                            : resource.getResumeAfter().getConnectionURI().toString();
             headers.add(HttpHeaders.LINK,
                             "<" + canonicalURI.toString() + "?resumeafter=" + id + queryPart + ">; rel=\"next\"");
         }
         if (resource.hasPrevious()) {
-            String id = resource.getResumeBefore().getConnectionURI().toString();
+            String id = resource.getResumeBeforeCursor() != null ? resource.getResumeBeforeCursor().toToken()
+                            : resource.getResumeBefore().getConnectionURI().toString();
             headers.add(HttpHeaders.LINK,
                             "<" + canonicalURI.toString() + "?resumebefore=" + id + queryPart + ">; rel=\"prev\"");
         }
@@ -1630,6 +1846,10 @@ public class LinkedDataWebController implements InitializingBean {
         this.uriService = uriService;
     }
 
+    public void setResponseCache(final LinkedDataResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
     public void setAtomResourceURIPrefix(String atomResourceURIPrefix) {
         this.atomResourceURIPrefix = atomResourceURIPrefix;
     }
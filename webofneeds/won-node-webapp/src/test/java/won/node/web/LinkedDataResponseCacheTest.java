@@ -0,0 +1,102 @@
+package won.node.web;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import com.google.common.base.Ticker;
+
+import won.auth.model.AuthToken;
+import won.auth.model.OperationRequest;
+import won.node.springsecurity.acl.WonAclEvalContext;
+
+public class LinkedDataResponseCacheTest {
+    private static final URI ATOM = URI.create("https://wonnode/won/resource/atom/abc123");
+    private static final URI WEBID = URI.create("https://wonnode/won/resource/atom/def456");
+    private static final MediaType TRIG = MediaType.valueOf("application/trig");
+    private static final byte[] BODY = "body".getBytes(StandardCharsets.UTF_8);
+    private final FakeTicker ticker = new FakeTicker();
+    private LinkedDataResponseCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new LinkedDataResponseCache();
+        cache.setTicker(ticker);
+        cache.afterPropertiesSet();
+    }
+
+    @Test
+    public void testEntriesAreKeyedByVersionAndRequesterClass() {
+        String webIdClass = requesterClass(WEBID);
+        String anonymousClass = requesterClass(null);
+        Assert.assertNotEquals(webIdClass, anonymousClass);
+        cache.put(ATOM, "\"3\"", TRIG, webIdClass, BODY);
+        Assert.assertArrayEquals(BODY, cache.get(ATOM, "\"3\"", TRIG, webIdClass).get());
+        // other requesters may see other parts of the atom
+        Assert.assertFalse(cache.get(ATOM, "\"3\"", TRIG, anonymousClass).isPresent());
+        Assert.assertFalse(cache.get(ATOM, "\"3\"", TRIG,
+                        LinkedDataResponseCache.getRequesterClass(WonAclEvalContext.allowAll()).get()).isPresent());
+        Assert.assertFalse(cache.get(ATOM, "\"3\"", MediaType.valueOf("application/ld+json"), webIdClass)
+                        .isPresent());
+    }
+
+    @Test
+    public void testNewVersionIsNotServedFromCache() {
+        String anonymousClass = requesterClass(null);
+        cache.put(ATOM, "\"3\"", TRIG, anonymousClass, BODY);
+        Assert.assertFalse(cache.get(ATOM, "\"4\"", TRIG, anonymousClass).isPresent());
+        // the old version was dropped when the new one was requested
+        Assert.assertFalse(cache.get(ATOM, "\"3\"", TRIG, anonymousClass).isPresent());
+    }
+
+    @Test
+    public void testWebIdEntriesExpire() {
+        String webIdClass = requesterClass(WEBID);
+        String anonymousClass = requesterClass(null);
+        cache.put(ATOM, "\"3\"", TRIG, webIdClass, BODY);
+        cache.put(ATOM, "\"3\"", TRIG, anonymousClass, BODY);
+        ticker.advance(59, TimeUnit.SECONDS);
+        Assert.assertTrue(cache.get(ATOM, "\"3\"", TRIG, webIdClass).isPresent());
+        ticker.advance(2, TimeUnit.SECONDS);
+        Assert.assertFalse(cache.get(ATOM, "\"3\"", TRIG, webIdClass).isPresent());
+        // anonymous responses only depend on the atom version
+        Assert.assertTrue(cache.get(ATOM, "\"3\"", TRIG, anonymousClass).isPresent());
+    }
+
+    @Test
+    public void testRequestsWithTokensAreNotCached() {
+        OperationRequest operationRequest = new OperationRequest();
+        operationRequest.setRequestor(WEBID);
+        operationRequest.addBearsToken(new AuthToken());
+        Assert.assertEquals(Optional.empty(), LinkedDataResponseCache
+                        .getRequesterClass(WonAclEvalContext.contentFilter(operationRequest, null)));
+    }
+
+    private static String requesterClass(URI requestor) {
+        OperationRequest operationRequest = new OperationRequest();
+        if (requestor != null) {
+            operationRequest.setRequestor(requestor);
+        }
+        return LinkedDataResponseCache.getRequesterClass(WonAclEvalContext.contentFilter(operationRequest, null))
+                        .get();
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos = 0;
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package db.migration;
+
+import won.db.CopyMessageContainerConfirmationsMigration;
+
+/**
+ * Fills the tables created by V13_0 from the serialized sets before V13_2 drops
+ * them.
+ */
+public class V13_1__copy_message_container_confirmations extends CopyMessageContainerConfirmationsMigration {
+}
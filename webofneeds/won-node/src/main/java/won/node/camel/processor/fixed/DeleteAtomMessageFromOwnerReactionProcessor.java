@@ -23,6 +23,7 @@ import org.springframework.stereotype.Component;
 
 import won.node.camel.processor.AbstractCamelProcessor;
 import won.node.camel.processor.annotation.FixedMessageProcessor;
+import won.node.service.persistence.ConnectedSocketsCache;
 import won.protocol.exception.WonMessageProcessingException;
 import won.protocol.message.WonMessage;
 import won.protocol.message.builder.WonMessageBuilder;
@@ -42,6 +43,8 @@ public class DeleteAtomMessageFromOwnerReactionProcessor extends AbstractCamelPr
     Logger logger = LoggerFactory.getLogger(this.getClass());
     @Autowired
     EntityManager entityManager;
+    @Autowired
+    ConnectedSocketsCache connectedSocketsCache;
 
     public void process(final Exchange exchange) throws Exception {
         WonMessage wonMessage = (WonMessage) exchange.getIn().getHeader(WonCamelConstants.MESSAGE_HEADER);
@@ -62,6 +65,7 @@ public class DeleteAtomMessageFromOwnerReactionProcessor extends AbstractCamelPr
                 // Delete all connection data
                 messageEventRepository.deleteByParentURI(con.getConnectionURI());
                 connectionRepository.delete(con);
+                connectedSocketsCache.invalidate(con.getSocketURI());
             }
         } else {
             // Get only not closed connections of this atom to close them
@@ -7,13 +7,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import won.auth.AuthUtils;
 import won.auth.WonAclEvaluator;
-import won.auth.WonAclEvaluatorFactory;
-import won.auth.model.AclEvalResult;
 import won.auth.model.DecisionValue;
 import won.auth.model.MessageOperationExpression;
 import won.auth.model.OperationRequest;
 import won.node.camel.processor.AbstractCamelProcessor;
 import won.node.camel.service.WonCamelHelper;
+import won.node.springsecurity.acl.WonAclEvaluatorCache;
 import won.protocol.exception.ForbiddenMessageException;
 import won.protocol.exception.IllegalMessageSignerException;
 import won.protocol.message.WonMessage;
@@ -31,7 +30,7 @@ import static won.auth.model.Individuals.*;
 public class AclChecker extends AbstractCamelProcessor {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     @Autowired
-    private WonAclEvaluatorFactory wonAclEvaluatorFactory;
+    private WonAclEvaluatorCache wonAclEvaluatorCache;
 
     @Override
     public void process(Exchange exchange) throws Exception {
@@ -124,13 +123,19 @@ public class AclChecker extends AbstractCamelProcessor {
                                                             AuthUtils.toAuthMessageType(message.getMessageType()))
                                             .build());
         }
-        WonAclEvaluator evaluator = wonAclEvaluatorFactory.create(aclGraph.get());
+        WonAclEvaluator evaluator = wonAclEvaluatorCache.getEvaluator(atom, aclGraph.get());
         if (message.getMessageType().isReplace()) {
             // decision for replace messages is deferred to where replacement actually
             // happens
         } else {
-            AclEvalResult result = evaluator.decide(operationRequest);
-            if (DecisionValue.ACCESS_DENIED.equals(result.getDecision())) {
+            // the request carries no tokens, so it is fully described by these values
+            DecisionValue decision = wonAclEvaluatorCache.decide(evaluator, operationRequest,
+                            atom.getState(), requestor, isMessageOnBehalf, message.getMessageType(),
+                            con.map(Connection::getConnectionURI).orElse(null),
+                            con.map(Connection::getState).orElse(null),
+                            con.map(Connection::getTargetAtomURI).orElse(null),
+                            operationRequest.getReqSocket(), operationRequest.getReqSocketType());
+            if (DecisionValue.ACCESS_DENIED.equals(decision)) {
                 throw new ForbiddenMessageException(
                                 String.format("Message not allowed"));
             }
@@ -24,6 +24,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import won.node.camel.service.ParentLockException;
+import won.node.camel.service.ParentLockManager;
 import won.node.service.persistence.MessageService;
 import won.protocol.message.WonMessage;
 import won.protocol.message.WonMessageDirection;
@@ -36,7 +38,9 @@ import won.protocol.repository.ConnectionMessageContainerRepository;
 import won.protocol.repository.ConnectionRepository;
 
 /**
- * Acquires a pessimistic read lock on the message's parent.
+ * Acquires a pessimistic read lock on the message's parent, either on the
+ * parent's row in the database or, if configured, in memory (see
+ * {@link ParentLockManager}).
  */
 public class LockMessageParentWonMessageProcessor implements Processor {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
@@ -52,6 +56,8 @@ public class LockMessageParentWonMessageProcessor implements Processor {
     MessageService messageService;
     @Autowired
     EntityManager entityManager;
+    @Autowired
+    ParentLockManager parentLockManager;
 
     @Override
     public void process(Exchange exchange) throws Exception {
@@ -62,6 +68,9 @@ public class LockMessageParentWonMessageProcessor implements Processor {
                                         direction });
         try {
             lockParent(message, getDirectionRequired(exchange));
+        } catch (ParentLockException e) {
+            // processing the message without the lock is what the lock prevents
+            throw e;
         } catch (Exception e) {
             URI messageUri;
             try {
@@ -88,13 +97,10 @@ public class LockMessageParentWonMessageProcessor implements Processor {
                 logger.debug("Locking connection {} for message {} {}",
                                 new Object[] { conURI.get(), message.getMessageURI(),
                                                 direction });
-                Optional<Connection> con = connectionRepository.findOneByConnectionURIForUpdate(conURI.get());
-                if (con.isPresent()) {
-                    entityManager.refresh(con.get());
+                if (lockConnection(conURI.get())) {
                     logger.debug("Locked connection {} for message {} {}",
                                     new Object[] { conURI.get(), message.getMessageURI(),
                                                     direction });
-                    logger.debug("connection: {}", con.get());
                     return;
                 } else {
                     logger.debug("Did not lock connection {} for message {} {}",
@@ -111,11 +117,9 @@ public class LockMessageParentWonMessageProcessor implements Processor {
         // no connection found to lock or wanting to lock the atom too
         Optional<URI> atomURI = messageService.getAtomOfMessage(message, direction);
         if (atomURI.isPresent()) {
-            Optional<Atom> atom = atomRepository.findOneByAtomURIForUpdate(atomURI.get());
-            if (atom.isPresent()) {
-                entityManager.refresh(atom.get());
+            if (lockAtom(atomURI.get())) {
                 logger.debug("Locked atom {} for message {} {}",
-                                new Object[] { atom.get().getAtomURI(), message.getMessageURI(), direction });
+                                new Object[] { atomURI.get(), message.getMessageURI(), direction });
             } else {
                 logger.debug("Did not find atom {} to lock for message {} {}",
                                 new Object[] { atomURI.get(), message.getMessageURI(), direction });
@@ -127,4 +131,47 @@ public class LockMessageParentWonMessageProcessor implements Processor {
         // * the message is neither atom- nor conneciton-specific
         // * the message is a CREATE message - the atom doesn't exist yet
     }
+
+    /**
+     * Locks the connection if it exists, in memory if configured, otherwise in the
+     * database. Either way, the connection is refreshed after locking: processors
+     * that ran earlier in this transaction may have loaded it before we got the
+     * lock.
+     */
+    private boolean lockConnection(URI connectionURI) {
+        if (parentLockManager.isInMemory()) {
+            // if the connection doesn't exist (yet), the atom is locked instead. Don't
+            // lock the connection then: holding both locks could deadlock with a thread
+            // that takes them in the opposite order.
+            Optional<Connection> connection = connectionRepository.findOneByConnectionURI(connectionURI);
+            if (!connection.isPresent()) {
+                return false;
+            }
+            if (parentLockManager.lockUntilTransactionEnds(connectionURI)) {
+                return refresh(connection);
+            }
+        }
+        return refresh(connectionRepository.findOneByConnectionURIForUpdate(connectionURI));
+    }
+
+    /**
+     * Locks the atom, in memory if configured, otherwise in the database (if it
+     * exists). The atom is refreshed after locking.
+     */
+    private boolean lockAtom(URI atomURI) {
+        if (parentLockManager.isInMemory() && parentLockManager.lockUntilTransactionEnds(atomURI)) {
+            refresh(atomRepository.findOneByAtomURI(atomURI));
+            return true;
+        }
+        return refresh(atomRepository.findOneByAtomURIForUpdate(atomURI));
+    }
+
+    private boolean refresh(Optional<?> entity) {
+        if (entity.isPresent()) {
+            entityManager.refresh(entity.get());
+            logger.debug("locked and refreshed {}", entity.get());
+            return true;
+        }
+        return false;
+    }
 }
@@ -14,12 +14,14 @@ import java.lang.invoke.MethodHandles;
 import java.net.URI;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.StopWatch;
 
+import won.node.service.persistence.MessageService;
 import won.protocol.exception.WonMessageProcessingException;
 import won.protocol.message.WonMessage;
 import won.protocol.model.MessageContainer;
@@ -35,6 +37,8 @@ public class MessageReferencer {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     @Autowired
     private MessageContainerRepository messageContainerRepository;
+    @Autowired
+    private MessageService messageService;
 
     /**
      * Adds message references to <code>message</code>. All message URIs that are in
@@ -54,15 +58,12 @@ public class MessageReferencer {
             }
             Optional<MessageContainer> container = messageContainerRepository.findOneByParentUri(parentURI);
             if (container.isPresent()) {
-                message.addMessagePropertiesURI(WONMSG.previousMessage,
-                                container.get().getUnconfirmedAndIncrementAndCleanup());
-                // is
-                // visible in the MessageService
+                Set<URI> unconfirmed = messageService.getUnconfirmedAndIncrementAndCleanup(container.get());
+                message.addMessagePropertiesURI(WONMSG.previousMessage, unconfirmed);
                 if (logger.isDebugEnabled()) {
                     logger.debug("Added {} references to message {}: {}",
-                                    new Object[] { container.get().getUnconfirmedCount(),
-                                                    message.toShortStringForDebug(),
-                                                    container.get().peekAtUnconfirmed() });
+                                    new Object[] { unconfirmed.size(), message.toShortStringForDebug(),
+                                                    unconfirmed });
                 }
             } else {
                 logger.debug("No unconfirmed messages found");
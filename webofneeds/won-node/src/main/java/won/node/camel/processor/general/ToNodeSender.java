@@ -19,12 +19,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import won.protocol.jms.AtomProtocolCommunicationService;
 import won.protocol.jms.MessagingService;
+import won.protocol.jms.WonMessageWireFormat;
 import won.protocol.message.WonMessage;
 import won.protocol.message.WonMessageDirection;
-import won.protocol.message.WonMessageEncoder;
 import won.protocol.service.MessageRoutingInfoService;
+import won.protocol.service.WonNodeInformationService;
 
 import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import static won.node.camel.service.WonCamelHelper.*;
@@ -44,6 +47,8 @@ public class ToNodeSender implements Processor {
     private AtomProtocolCommunicationService atomProtocolCommunicationService;
     @Autowired
     private CamelContext camelContext;
+    @Autowired
+    private WonNodeInformationService wonNodeInformationService;
 
     public void process(Exchange exchange) throws Exception {
         logger.debug("processing message for sending to remote node");
@@ -61,7 +66,7 @@ public class ToNodeSender implements Processor {
             putMessage(newExchangeFromExternal, msg);
             putDirection(newExchangeFromExternal, WonMessageDirection.FROM_EXTERNAL);
             putMessageType(newExchangeFromExternal, msg.getMessageType());
-            messagingService.send(newExchangeFromExternal, "seda:msgFromExternal");
+            messagingService.send(newExchangeFromExternal, "direct:msgFromExternal");
             removeMessageToSend(exchange);
             return;
         }
@@ -72,12 +77,15 @@ public class ToNodeSender implements Processor {
                         .getEndpoint(recipientNode.get());
         // messageService.sendInOnlyMessage(null, null, wonMessage,
         // wonMessage.getRecipientNodeURI().toString());
-        String msgBody = WonMessageEncoder.encode(msg, Lang.TRIG);
+        // use the binary format if the recipient node supports it, TriG otherwise
+        Lang lang = WonMessageWireFormat.negotiateLang(wonNodeInformationService, recipientNode.get());
+        Object msgBody = WonMessageWireFormat.encode(msg, lang);
+        Map<String, Object> headers = WonMessageWireFormat.putContentTypeHeader(new HashMap<>(), lang);
         if (logger.isDebugEnabled()) {
-            logger.debug("sending message to node {}: {}", recipientNode,
+            logger.debug("sending message to node {} as {}: {}", recipientNode, lang.getName(),
                             msg.toStringForDebug(true));
         }
-        messagingService.sendInOnlyMessage(null, null, msgBody, ep);
+        messagingService.sendInOnlyMessage(null, headers, msgBody, ep);
         removeMessageToSend(exchange);
     }
 }
@@ -4,8 +4,9 @@ import static won.node.camel.service.WonCamelHelper.*;
 
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 
 import org.apache.camel.Exchange;
 import org.slf4j.Logger;
@@ -16,12 +17,11 @@ import org.springframework.stereotype.Component;
 import won.node.camel.processor.AbstractCamelProcessor;
 import won.node.camel.processor.annotation.SocketMessageProcessor;
 import won.node.camel.service.WonCamelHelper;
+import won.node.service.persistence.ConnectedSocketsCache;
 import won.protocol.message.WonMessage;
 import won.protocol.message.builder.WonMessageBuilder;
 import won.protocol.message.processor.camel.WonCamelConstants;
-import won.protocol.model.Connection;
-import won.protocol.model.ConnectionState;
-import won.protocol.repository.ConnectionRepository;
+import won.protocol.message.processor.impl.SignatureAddingWonMessageProcessor;
 import won.protocol.util.WonRdfUtils;
 import won.protocol.vocabulary.WONMSG;
 import won.protocol.vocabulary.WXGROUP;
@@ -35,7 +35,9 @@ import won.protocol.vocabulary.WXGROUP;
 public class SendMessageFromNodeGroupSocketImpl extends AbstractCamelProcessor {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     @Autowired
-    private ConnectionRepository connectionRepository;
+    private ConnectedSocketsCache connectedSocketsCache;
+    @Autowired
+    private SignatureAddingWonMessageProcessor signatureAdder;
 
     @Override
     public void process(final Exchange exchange) throws Exception {
@@ -65,37 +67,43 @@ public class SendMessageFromNodeGroupSocketImpl extends AbstractCamelProcessor {
                 }
             }
         }
-        final Optional<Connection> conOfIncomingMessage = connectionRepository.findOneBySocketURIAndTargetSocketURI(
-                        wonMessage.getRecipientSocketURIRequired(), wonMessage.getSenderSocketURIRequired());
-        final List<Connection> consInGroup = connectionRepository
-                        .findBySocketURIAndState(conOfIncomingMessage.get().getSocketURI(), ConnectionState.CONNECTED);
-        if (consInGroup == null || consInGroup.size() < 2)
+        URI groupSocket = wonMessage.getRecipientSocketURIRequired();
+        URI senderSocket = wonMessage.getSenderSocketURIRequired();
+        final List<URI> memberSockets = connectedSocketsCache.getConnectedTargetSockets(groupSocket);
+        if (memberSockets.size() < 2)
             return;
         if (logger.isDebugEnabled()) {
             logger.debug("processing message {} received from atom {} in group {} - preparing to send it to {} group members (text message: '{}'}",
                             new Object[] { wonMessage.getMessageURI(), wonMessage.getSenderAtomURI(),
-                                            wonMessage.getRecipientAtomURI(), consInGroup.size() - 1,
+                                            wonMessage.getRecipientAtomURI(), memberSockets.size() - 1,
                                             WonRdfUtils.MessageUtils.getTextMessage(wonMessage) });
         }
-        for (final Connection conToSendTo : consInGroup) {
+        // the forwarded messages are the same for all members: they are not copied
+        // into each message, and as they are the same objects that passed the
+        // signature check before, they are not verified again. Only the small
+        // envelope is built and signed per member.
+        URI forwardedMessageURI = headAndForwarded.getMessageURIRequired();
+        Set<WonMessage> forwardedMessages = headAndForwarded.getAllMessages();
+        for (final URI memberSocket : memberSockets) {
             try {
-                if (!conToSendTo.equals(conOfIncomingMessage.get())) {
+                if (!memberSocket.equals(senderSocket)) {
                     if (logger.isDebugEnabled()) {
                         logger.debug("forwarding message {} received from atom {} in group {} to group member {}",
                                         new Object[] { wonMessage.getMessageURI(), wonMessage.getSenderAtomURI(),
-                                                        wonMessage.getRecipientAtomURI(),
-                                                        conToSendTo.getTargetAtomURI() });
+                                                        wonMessage.getRecipientAtomURI(), memberSocket });
                     }
-                    WonMessage newWonMessage = WonMessageBuilder
+                    WonMessage envelope = WonMessageBuilder
                                     .connectionMessage()
                                     .direction()
                                     /**/.fromSystem()
-                                    .forward(headAndForwarded)
+                                    .forwardReference(forwardedMessageURI)
                                     .sockets()
-                                    /**/.sender(conToSendTo.getSocketURI())
-                                    /**/.recipient(conToSendTo.getTargetSocketURI())
+                                    /**/.sender(groupSocket)
+                                    /**/.recipient(memberSocket)
                                     .build();
-                    camelWonMessageService.sendSystemMessage(newWonMessage);
+                    List<WonMessage> parts = new ArrayList<>(forwardedMessages);
+                    parts.add(signatureAdder.signWithDefaultKey(envelope));
+                    camelWonMessageService.sendSystemMessage(WonMessage.of(parts));
                 }
             } catch (Exception e) {
                 logger.warn("caught Exception:", e);
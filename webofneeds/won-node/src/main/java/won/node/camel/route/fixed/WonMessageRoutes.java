@@ -7,7 +7,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import won.node.camel.predicate.IsReactionAllowedPredicate;
 import won.node.camel.predicate.ShouldCallSocketImplForMessagePredicate;
+import won.node.camel.service.ParentPartitioner;
 import won.protocol.message.WonMessage;
+import won.protocol.message.WonMessageDirection;
 import won.protocol.message.WonMessageType;
 import won.protocol.message.processor.camel.WonCamelConstants;
 import won.protocol.util.RdfUtils;
@@ -96,6 +98,8 @@ public class WonMessageRoutes extends RouteBuilder {
     @Override
     public void configure() throws Exception {
         ExecutorService executorSvc = Executors.newCachedThreadPool();
+        ParentPartitioner parentPartitioner = getContext().getRegistry().lookupByNameAndType("parentPartitioner",
+                        ParentPartitioner.class);
         from("direct:onExceptionFailResponder")
                         .routeId("direct:onExceptionFailResponder")
                         .onException(Exception.class)
@@ -133,16 +137,31 @@ public class WonMessageRoutes extends RouteBuilder {
                                         .routeId("activemq:queue:" + FROM_OWNER_QUEUENAME)
                                         .setHeader(WonCamelConstants.DIRECTION_HEADER,
                                                         constant(URI.create(WONMSG.FromOwnerString)))
-                                        .to("seda:msgFromOwner"); // after this, we have the response and the original
-                                                                  // in
-                                                                  // headers, and we know on behalf of which atom we're
-                                                                  // processing
+                                        .to("bean:wonMessageIntoCamelProcessor")
+                                        .to("direct:msgFromOwner"); // after this, we have the response and the
+                                                                    // original in headers, and we know on behalf of
+                                                                    // which atom we're processing
+        /**
+         * Dispatches messages from the owner or the system to the partition of their
+         * parent, which processes them in order, one at a time.
+         */
+        from("direct:msgFromOwner")
+                        .routeId("direct:msgFromOwner")
+                        .process(parentPartitioner.partitionAssigner("msgFromOwner", WonMessageDirection.FROM_OWNER))
+                        .toD("seda:msgFromOwner-${header." + ParentPartitioner.PARTITION_HEADER + "}");
+        for (int i = 0; i < parentPartitioner.getPartitions(); i++) {
+            String endpoint = ParentPartitioner.getPartitionEndpoint("msgFromOwner", i);
+            from(endpoint)
+                            .routeId(endpoint)
+                            .process(parentPartitioner.partitionConsumed("msgFromOwner", i))
+                            .to("direct:msgFromOwner_handle");
+        }
         /**
          * Handles messages from the owner ("FROM_OWNER") or generated by the system
          * ("FROM_SYSTEM")
          */
-        from("seda:msgFromOwner?concurrentConsumers=10")
-                        .routeId("seda:msgFromOwner")
+        from("direct:msgFromOwner_handle")
+                        .routeId("direct:msgFromOwner_handle")
                         .to("direct:msgFromOwner_process")
                         .to("direct:msgFromOwner_react")
                         .to("direct:msgFromOwner_forwardToNode")
@@ -216,7 +235,7 @@ public class WonMessageRoutes extends RouteBuilder {
                                         new URIConstant(URI.create(WONMSG.FromSystemString)))
                         .to("bean:signatureToMessageAdder")
                         // route to message processing logic
-                        .to("seda:msgFromOwner");
+                        .to("direct:msgFromOwner");
         from("direct:reactToMessage")
                         .to("bean:parentLocker")
                         .routeId("direct:reactToMessage")
@@ -231,13 +250,29 @@ public class WonMessageRoutes extends RouteBuilder {
                         + "?concurrentConsumers=5&transacted=false&usePooledConnection=true")
                                         .routeId("activemq:queue:" + FROM_NODE_QUEUENAME)
                                         .to("bean:wonMessageIntoCamelProcessor")
-                                        .to("seda:msgFromExternal")
+                                        .to("direct:msgFromExternal")
                                         .end();
+        /**
+         * Dispatches messages from other atoms to the partition of their parent, which
+         * processes them in order, one at a time.
+         */
+        from("direct:msgFromExternal")
+                        .routeId("direct:msgFromExternal")
+                        .process(parentPartitioner.partitionAssigner("msgFromExternal",
+                                        WonMessageDirection.FROM_EXTERNAL))
+                        .toD("seda:msgFromExternal-${header." + ParentPartitioner.PARTITION_HEADER + "}");
+        for (int i = 0; i < parentPartitioner.getPartitions(); i++) {
+            String endpoint = ParentPartitioner.getPartitionEndpoint("msgFromExternal", i);
+            from(endpoint)
+                            .routeId(endpoint)
+                            .process(parentPartitioner.partitionConsumed("msgFromExternal", i))
+                            .to("direct:msgFromExternal_handle");
+        }
         /**
          * Main 'fromExternal' route
          */
-        from("seda:msgFromExternal?concurrentConsumers=10")
-                        .routeId("seda:msgFromExternal")
+        from("direct:msgFromExternal_handle")
+                        .routeId("direct:msgFromExternal_handle")
                         .to("direct:msgFromExternal_process")
                         .to("direct:msgFromExternal_react")
                         .to("direct:msgFromExternal_respondToNode")
@@ -0,0 +1,16 @@
+package won.node.camel.service;
+
+/**
+ * Thrown by {@link ParentLockManager} if a parent could not be locked, either
+ * because the lock timed out or because the thread was interrupted. The message
+ * must not be processed without the lock.
+ */
+public class ParentLockException extends IllegalStateException {
+    public ParentLockException(final String message) {
+        super(message);
+    }
+
+    public ParentLockException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,126 @@
+package won.node.camel.service;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Serializes the processing of messages per parent (atom or connection) with
+ * locks held in memory instead of database row locks. Only correct if a single
+ * node process works on the database, therefore it is disabled by default
+ * (<code>parentlock.inMemory</code>); clustered deployments keep locking the
+ * parent row with <code>SELECT ... FOR UPDATE</code>.
+ * <p>
+ * Parents are mapped to <code>parentlock.stripes</code> fair locks by the hash
+ * of their URI, so threads waiting for the same parent get it in FIFO order,
+ * while messages for other parents are processed by the remaining threads. A
+ * parent's lock is held until the current transaction ends, like a row lock.
+ * </p>
+ * Contention is counted in the JavaSimon counters
+ * <code>won.node.parentLock.acquired/contended/timeout</code>, the time spent
+ * waiting in the stopwatch <code>won.node.parentLock.wait</code>.
+ */
+public class ParentLockManager implements InitializingBean {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String SIMON_PREFIX = "won.node.parentLock";
+    private final Counter acquired = SimonManager.getCounter(SIMON_PREFIX + ".acquired");
+    private final Counter contended = SimonManager.getCounter(SIMON_PREFIX + ".contended");
+    private final Counter timeouts = SimonManager.getCounter(SIMON_PREFIX + ".timeout");
+    private final Stopwatch waitTime = SimonManager.getStopwatch(SIMON_PREFIX + ".wait");
+    @Value("${parentlock.inMemory:false}")
+    private boolean inMemory = false;
+    @Value("${parentlock.stripes:1024}")
+    private int stripes = 1024;
+    @Value("${parentlock.timeoutSeconds:60}")
+    private int timeoutSeconds = 60;
+    private ReentrantLock[] locks;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (stripes <= 0) {
+            throw new IllegalStateException("parentlock.stripes must be positive");
+        }
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock(true);
+        }
+        if (inMemory) {
+            logger.info("locking message parents in memory, using {} locks", stripes);
+        }
+    }
+
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    /**
+     * Locks the parent until the current transaction ends.
+     *
+     * @return false if there is no transaction to wait for, in which case nothing
+     * is locked
+     * @throws ParentLockException if the lock could not be acquired within
+     * <code>parentlock.timeoutSeconds</code>
+     */
+    public boolean lockUntilTransactionEnds(URI parentURI) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        ReentrantLock lock = acquire(parentURI);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Acquires the lock for the parent. The caller has to unlock it.
+     */
+    ReentrantLock acquire(URI parentURI) {
+        ReentrantLock lock = locks[Math.floorMod(parentURI.hashCode(), locks.length)];
+        if (!lock.tryLock()) {
+            contended.increase();
+            Split split = waitTime.start();
+            try {
+                if (!lock.tryLock(timeoutSeconds, TimeUnit.SECONDS)) {
+                    timeouts.increase();
+                    throw new ParentLockException("Could not lock " + parentURI + " within " + timeoutSeconds
+                                    + " seconds");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ParentLockException("Interrupted while waiting for lock on " + parentURI, e);
+            } finally {
+                split.stop();
+            }
+        }
+        acquired.increase();
+        return lock;
+    }
+
+    public void setInMemory(boolean inMemory) {
+        this.inMemory = inMemory;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public void setTimeoutSeconds(int timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+}
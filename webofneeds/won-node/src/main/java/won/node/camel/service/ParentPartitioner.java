@@ -0,0 +1,128 @@
+package won.node.camel.service;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.apache.camel.Processor;
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+
+import won.protocol.message.WonMessage;
+import won.protocol.message.WonMessageDirection;
+import won.protocol.message.WonMessageType;
+import won.protocol.message.WonMessageUtils;
+
+/**
+ * Maps messages onto a fixed number of partitions by their parent (the atom or
+ * the connection they belong to), so that each partition can be consumed by a
+ * single thread. Messages for the same parent are then processed one after
+ * another in the order they arrived, without competing for the parent's lock,
+ * while messages for different parents are processed in parallel.
+ * <p>
+ * The parent is derived from the message alone, without a database lookup: the
+ * atom URI for atom messages and the pair of our socket and their socket for
+ * connection messages. All other messages are spread by their message URI.
+ * </p>
+ * The number of messages waiting in each partition is available in the
+ * JavaSimon counter <code>won.node.dispatch.[queue].[partition]</code>.
+ */
+public class ParentPartitioner implements InitializingBean {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    public static final String PARTITION_HEADER = "wonPartition";
+    private static final String SIMON_PREFIX = "won.node.dispatch";
+    @Value("${camel.dispatch.partitions:10}")
+    private int partitions = 10;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (partitions <= 0) {
+            throw new IllegalStateException("camel.dispatch.partitions must be positive");
+        }
+        logger.info("dispatching messages to {} partitions per queue", partitions);
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    /**
+     * Name of the seda endpoint for the partition of the specified queue.
+     */
+    public static String getPartitionEndpoint(String queue, int partition) {
+        return "seda:" + queue + "-" + partition;
+    }
+
+    /**
+     * Returns a processor that sets the <code>PARTITION_HEADER</code> for the
+     * message in the exchange, which must already be deserialized. The direction is
+     * taken from the exchange, using <code>defaultDirection</code> if it is not set
+     * yet.
+     */
+    public Processor partitionAssigner(String queue, WonMessageDirection defaultDirection) {
+        Counter[] queueDepths = new Counter[partitions];
+        for (int i = 0; i < partitions; i++) {
+            queueDepths[i] = getQueueDepth(queue, i);
+        }
+        return exchange -> {
+            WonMessageDirection direction = WonCamelHelper.getDirection(exchange).orElse(defaultDirection);
+            int partition = WonCamelHelper.getMessage(exchange)
+                            .map(msg -> getPartition(msg, direction))
+                            .orElse(0);
+            exchange.getIn().setHeader(PARTITION_HEADER, partition);
+            queueDepths[partition].increase();
+        };
+    }
+
+    /**
+     * Returns a processor to be called when a message is taken from a partition of
+     * the specified queue.
+     */
+    public Processor partitionConsumed(String queue, int partition) {
+        Counter queueDepth = getQueueDepth(queue, partition);
+        return exchange -> queueDepth.decrease();
+    }
+
+    public int getPartition(WonMessage msg, WonMessageDirection direction) {
+        return Math.floorMod(getPartitionKey(msg, direction), partitions);
+    }
+
+    static int getPartitionKey(WonMessage msg, WonMessageDirection direction) {
+        try {
+            WonMessageType type = msg.getMessageTypeRequired();
+            if (type.isResponseMessage()) {
+                type = msg.getRespondingToMessageTypeRequired();
+            }
+            if (type.isAtomSpecificMessage()) {
+                Optional<URI> atomURI = WonMessageUtils.getParentAtomUri(msg, direction);
+                if (atomURI.isPresent()) {
+                    return atomURI.get().hashCode();
+                }
+            } else if (type.isConnectionSpecificMessage() && !type.isHintMessage()) {
+                URI ourSocket = direction.isFromExternal() ? msg.getRecipientSocketURI() : msg.getSenderSocketURI();
+                URI theirSocket = direction.isFromExternal() ? msg.getSenderSocketURI()
+                                : msg.getRecipientSocketURI();
+                if (ourSocket != null && theirSocket != null) {
+                    return Objects.hash(ourSocket, theirSocket);
+                }
+            }
+        } catch (Exception e) {
+            // malformed messages are rejected during processing, any partition will do
+            logger.debug("could not determine parent of message {}: {}", msg.getMessageURI(), e.getMessage());
+        }
+        return Objects.hashCode(msg.getMessageURI());
+    }
+
+    private static Counter getQueueDepth(String queue, int partition) {
+        return SimonManager.getCounter(SIMON_PREFIX + "." + queue + "." + partition);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.node.maintenance;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.TaskScheduler;
+
+import won.node.service.persistence.AtomTypeIndexService;
+
+/**
+ * Fills the atom_type table for atoms created before it existed. Runs once in
+ * the background after startup, in batches of <code>batchSize</code> atoms, so
+ * that large nodes are not blocked while their atoms are indexed. Indexed atoms
+ * are marked, so later startups only look at atoms that were not reached yet.
+ * Atom lists filtered by atom type are incomplete until the indexer has
+ * finished.
+ */
+public class AtomTypeIndexer implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private TaskScheduler taskScheduler;
+    private int batchSize = 100;
+    private volatile boolean cancelled = false;
+    private ScheduledFuture<?> indexTask;
+    @Autowired
+    private AtomTypeIndexService atomTypeIndexService;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (this.taskScheduler == null) {
+            throw new IllegalStateException("taskScheduler must be set");
+        }
+        if (this.batchSize <= 0) {
+            return;
+        }
+        this.indexTask = taskScheduler.schedule(this::indexAtomTypes, new Date());
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        this.cancelled = true;
+        if (this.indexTask != null) {
+            this.indexTask.cancel(false);
+        }
+    }
+
+    private void indexAtomTypes() {
+        long indexed = 0;
+        Long lastId = 0L;
+        try {
+            while (!cancelled) {
+                Long next = atomTypeIndexService.indexAtomTypes(lastId, batchSize);
+                if (next == null) {
+                    break;
+                }
+                lastId = next;
+                indexed += batchSize;
+                logger.debug("indexed types of up to {} atoms", indexed);
+            }
+            if (indexed > 0) {
+                logger.info("finished indexing atom types, looked at up to {} atoms", indexed);
+            }
+        } catch (Exception e) {
+            logger.warn("could not index atom types after atom id " + lastId, e);
+        }
+    }
+
+    public void setTaskScheduler(TaskScheduler taskScheduler) {
+        this.taskScheduler = taskScheduler;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.node.maintenance;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.TaskScheduler;
+
+import won.node.service.persistence.DatasetHolderRecodingService;
+
+/**
+ * Converts the datasets in rdf_datasets that were stored as N-Quads text to the
+ * compressed binary format. Runs once in the background after startup, in
+ * batches of <code>batchSize</code> datasets. Datasets that are not converted
+ * yet are read in the old format, so the node is fully usable meanwhile. Only
+ * rows marked as being in the old format are read, so once all datasets are
+ * converted, this finds nothing to do.
+ */
+public class DatasetHolderMigrator implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private TaskScheduler taskScheduler;
+    private int batchSize = 50;
+    private volatile boolean cancelled = false;
+    private ScheduledFuture<?> migrationTask;
+    @Autowired
+    private DatasetHolderRecodingService datasetHolderRecodingService;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (this.taskScheduler == null) {
+            throw new IllegalStateException("taskScheduler must be set");
+        }
+        if (this.batchSize <= 0) {
+            return;
+        }
+        this.migrationTask = taskScheduler.schedule(this::migrateDatasets, new Date());
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        this.cancelled = true;
+        if (this.migrationTask != null) {
+            this.migrationTask.cancel(false);
+        }
+    }
+
+    private void migrateDatasets() {
+        DatasetHolderRecodingService.RecodingResult result = new DatasetHolderRecodingService.RecodingResult();
+        Long lastId = 0L;
+        try {
+            while (!cancelled) {
+                Long next = datasetHolderRecodingService.recodeDatasets(lastId, batchSize, result);
+                if (next == null) {
+                    break;
+                }
+                lastId = next;
+                logger.debug("recoded {} datasets up to id {}", result.getRecoded(), lastId);
+            }
+            if (result.getRecoded() > 0) {
+                logger.info("finished recoding datasets, recoded {} datasets", result.getRecoded());
+            }
+        } catch (Exception e) {
+            logger.warn("could not recode datasets after dataset id " + lastId, e);
+        }
+    }
+
+    public void setTaskScheduler(TaskScheduler taskScheduler) {
+        this.taskScheduler = taskScheduler;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
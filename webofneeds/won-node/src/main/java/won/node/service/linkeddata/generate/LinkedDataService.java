@@ -13,9 +13,11 @@ package won.node.service.linkeddata.generate;
 import java.net.URI;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Optional;
 
 import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.system.StreamRDF;
 import org.springframework.context.NoSuchMessageException;
 
 import won.node.service.persistence.AtomInformationService;
@@ -27,6 +29,7 @@ import won.protocol.model.AtomState;
 import won.protocol.model.Connection;
 import won.protocol.model.ConnectionState;
 import won.protocol.model.DataWithEtag;
+import won.protocol.util.KeysetCursor;
 
 /**
  * User: fkleedorfer Date: 26.11.12
@@ -59,6 +62,13 @@ public interface LinkedDataService {
      */
     Dataset listAtomURIs(AtomState atomState, URI filterBySocketTypeUri, URI filterByAtomTypeUri);
 
+    /**
+     * Writes the same data as {@link #listAtomURIs(AtomState, URI, URI)} to the
+     * stream while the URIs are read from the database, without collecting them
+     * first. The caller has to start and finish the stream.
+     */
+    void writeAtomURIs(AtomState atomState, URI filterBySocketTypeUri, URI filterByAtomTypeUri, StreamRDF out);
+
     /**
      * Returns a model containing all atom URIs. If page {@literal >=} 0, paging is
      * used and the respective page is returned.
@@ -82,6 +92,24 @@ public interface LinkedDataService {
                     final Integer preferedSize,
                     AtomState atomState);
 
+    /**
+     * Returns a model containing all atom URIs that are in the specified state and
+     * have the specified socket type and atom type.
+     *
+     * @param page
+     * @param preferedSize preferred number of atom uris per page (null means use
+     * default)
+     * @param atomState
+     * @param filterBySocketTypeUri socket type uri that an atom needs to have to be
+     * included
+     * @param filterByAtomTypeUri atom type uri that an atom needs to have to be
+     * included
+     * @return
+     */
+    AtomInformationService.PagedResource<Dataset, URI> listPagedAtomURIs(final int page,
+                    final Integer preferedSize, AtomState atomState, URI filterBySocketTypeUri,
+                    URI filterByAtomTypeUri);
+
     /**
      * Return all atom URIs that where created before the provided atom
      *
@@ -360,6 +388,12 @@ public interface LinkedDataService {
     DataWithEtag<Dataset> getAtomDataset(final URI atomUri, String etag,
                     WonAclEvalContext wonAclEvalContext);
 
+    /**
+     * Returns the current etag of the atom without loading its dataset, or empty if
+     * there is no such atom.
+     */
+    Optional<String> getAtomEtag(final URI atomUri);
+
     Dataset getAtomDatasetForFilter(final URI atomUri);
 
     /**
@@ -379,6 +413,20 @@ public interface LinkedDataService {
                     WonAclEvalContext wonAclEvalContext)
                     throws NoSuchAtomException, NoSuchConnectionException, NoSuchMessageException;
 
+    /**
+     * Writes the same data as the deep atom dataset (see
+     * {@link #getAtomDataset(URI, boolean, Integer, WonAclEvalContext)}) to the
+     * stream part by part, without merging the parts into one dataset. The atom's
+     * own graphs are passed as <code>atomDataset</code>, as returned by
+     * {@link #getAtomDataset(URI, String, WonAclEvalContext)} for the requester:
+     * the caller has to check that the requester may read the atom before
+     * anything is written, and has to start and finish the stream.
+     *
+     * @throws NoSuchAtomException before anything is written
+     */
+    void writeDeepAtomDataset(final URI atomUri, Dataset atomDataset, final Integer deepLayerSize,
+                    StreamRDF out) throws NoSuchAtomException, NoSuchConnectionException, NoSuchMessageException;
+
     /**
      * Returns a dataset describing the connection, if the etag indicates that it
      * has changed.
@@ -402,6 +450,16 @@ public interface LinkedDataService {
     Dataset listConnectionEventURIs(final URI connectionUri, final boolean deep)
                     throws NoSuchConnectionException;
 
+    /**
+     * Writes the same data as {@link #listConnectionEventURIs(URI, boolean)} to the
+     * stream while the messages are read from the database, without collecting them
+     * first. The caller has to start and finish the stream.
+     *
+     * @throws NoSuchConnectionException before anything is written
+     */
+    void writeConnectionEventURIs(final URI connectionUri, final boolean deep, StreamRDF out)
+                    throws NoSuchConnectionException;
+
     /**
      * Returns paged resource containing all event uris belonging to the specified
      * connection. If deep is true, the event dataset is added to the result.
@@ -452,6 +510,79 @@ public interface LinkedDataService {
                     final URI msgURI, Integer preferedSize, WonMessageType msgType, boolean deep)
                     throws NoSuchConnectionException;
 
+    /**
+     * Keyset pagination: returns the page of atom URIs created before the cursor
+     * position, newest first. The returned resource carries the cursors of the
+     * previous and next page.
+     *
+     * @param cursor {@link KeysetCursor#NEWEST} for the first page
+     * @param preferedSize preferred number of atom uris per page (null means use
+     * default)
+     * @param atomState null {@literal =>} all states
+     * @param filterBySocketTypeUri socket type uri that an atom needs to have to be
+     * included
+     * @param filterByAtomTypeUri atom type uri that an atom needs to have to be
+     * included
+     * @return
+     */
+    AtomInformationService.PagedResource<Dataset, URI> listPagedAtomURIsBefore(KeysetCursor cursor,
+                    Integer preferedSize, AtomState atomState, URI filterBySocketTypeUri, URI filterByAtomTypeUri);
+
+    /**
+     * Keyset pagination: returns the page of atom URIs created after the cursor
+     * position, newest first.
+     */
+    AtomInformationService.PagedResource<Dataset, URI> listPagedAtomURIsAfter(KeysetCursor cursor,
+                    Integer preferedSize, AtomState atomState, URI filterBySocketTypeUri, URI filterByAtomTypeUri);
+
+    /**
+     * Keyset pagination: returns the page of connections created before the cursor
+     * position (and before timeSpot), newest first.
+     */
+    AtomInformationService.PagedResource<Dataset, Connection> listConnectionsBefore(KeysetCursor cursor,
+                    Integer preferredSize, Date timeSpot, boolean deep) throws NoSuchConnectionException;
+
+    /**
+     * Keyset pagination: returns the page of connections created after the cursor
+     * position (and before timeSpot), newest first.
+     */
+    AtomInformationService.PagedResource<Dataset, Connection> listConnectionsAfter(KeysetCursor cursor,
+                    Integer preferredSize, Date timeSpot, boolean deep) throws NoSuchConnectionException;
+
+    /**
+     * Keyset pagination: returns the page of the atom's connections created before
+     * the cursor position (and before timeSpot), newest first.
+     */
+    AtomInformationService.PagedResource<Dataset, Connection> listConnectionsBefore(URI atomURI,
+                    KeysetCursor cursor, Integer preferredSize, WonMessageType messageType, Date timeSpot,
+                    boolean deep, boolean addMetadata, ConnectionState filterByConnectionState)
+                    throws NoSuchAtomException, NoSuchConnectionException;
+
+    /**
+     * Keyset pagination: returns the page of the atom's connections created after
+     * the cursor position (and before timeSpot), newest first.
+     */
+    AtomInformationService.PagedResource<Dataset, Connection> listConnectionsAfter(URI atomURI,
+                    KeysetCursor cursor, Integer preferredSize, WonMessageType messageType, Date timeSpot,
+                    boolean deep, boolean addMetadata, ConnectionState filterByConnectionState)
+                    throws NoSuchAtomException, NoSuchConnectionException;
+
+    /**
+     * Keyset pagination: returns the page of the connection's message URIs created
+     * before the cursor position, newest first.
+     */
+    AtomInformationService.PagedResource<Dataset, URI> listConnectionEventURIsBefore(URI connectionUri,
+                    KeysetCursor cursor, Integer preferedSize, WonMessageType msgType, boolean deep)
+                    throws NoSuchConnectionException;
+
+    /**
+     * Keyset pagination: returns the page of the connection's message URIs created
+     * after the cursor position, newest first.
+     */
+    AtomInformationService.PagedResource<Dataset, URI> listConnectionEventURIsAfter(URI connectionUri,
+                    KeysetCursor cursor, Integer preferedSize, WonMessageType msgType, boolean deep)
+                    throws NoSuchConnectionException;
+
     Dataset getNodeDataset();
 
     /**
@@ -11,12 +11,18 @@
 package won.node.service.linkeddata.generate;
 
 import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
 import org.slf4j.Logger;
@@ -44,6 +50,7 @@ import won.node.service.persistence.AtomInformationService;
 import won.node.springsecurity.acl.WonAclEvalContext;
 import won.protocol.exception.NoSuchAtomException;
 import won.protocol.exception.NoSuchConnectionException;
+import won.protocol.jms.WonMessageWireFormat;
 import won.protocol.message.WonMessage;
 import won.protocol.message.WonMessageType;
 import won.protocol.model.*;
@@ -54,13 +61,15 @@ import won.protocol.repository.DatasetHolderRepository;
 import won.protocol.repository.MessageContainerRepository;
 import won.protocol.repository.MessageEventRepository;
 import won.protocol.service.impl.UnreadInformationService;
-import won.protocol.util.DefaultAtomModelWrapper;
 import won.protocol.util.DefaultPrefixUtils;
+import won.protocol.util.KeysetCursor;
+import won.protocol.util.KeysetPageItem;
 import won.protocol.util.RdfUtils;
 import won.protocol.util.linkeddata.uriresolver.WonRelativeUriHelper;
 import won.protocol.vocabulary.RDFG;
 import won.protocol.vocabulary.WON;
 
+import javax.persistence.EntityManager;
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -68,6 +77,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static won.auth.model.Individuals.POSITION_ATOM_GRAPH;
 
@@ -108,6 +118,8 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
     private UnreadInformationService unreadInformationService;
     @Autowired
     private AtomInformationService atomInformationService;
+    @Autowired
+    private EntityManager entityManager;
     @Value("${uri.protocol.activemq}")
     private String activeMqEndpoint;
     @Value("${activemq.queuename.atom.incoming}")
@@ -148,8 +160,22 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
     public Dataset listAtomURIs(AtomState atomState, URI filterSocketTypeUri, URI filterAtomTypeUri) {
         Model model = ModelFactory.createDefaultModel();
         setNsPrefixes(model);
-        Collection<URI> uris = atomInformationService.listAtomURIs(atomState);
-        return getFilteredAtomURIListDataset(model, uris, filterSocketTypeUri, filterAtomTypeUri);
+        Collection<URI> uris = atomInformationService.listAtomURIs(atomState, filterSocketTypeUri,
+                        filterAtomTypeUri);
+        return getAtomURIListDataset(model, uris);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public void writeAtomURIs(AtomState atomState, URI filterSocketTypeUri, URI filterAtomTypeUri, StreamRDF out) {
+        Node atomListResource = NodeFactory.createURI(this.atomResourceURIPrefix + "/");
+        Node graph = NodeFactory.createURI(createDataGraphUriFromUri(URI.create(atomListResource.getURI())));
+        sendBaseUriAndDefaultPrefixes(out);
+        try (Stream<URI> uris = atomRepository.streamAllAtomURIs(atomState, filterSocketTypeUri,
+                        filterAtomTypeUri)) {
+            uris.forEach(atomURI -> out.quad(Quad.create(graph, atomListResource, RDFS.Nodes.member,
+                            NodeFactory.createURI(atomURI.toString()))));
+        }
     }
 
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
@@ -174,6 +200,15 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
         return toContainerPage(this.atomResourceURIPrefix + "/", slice);
     }
 
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public AtomInformationService.PagedResource<Dataset, URI> listPagedAtomURIs(final int pageNum,
+                    final Integer preferedSize, AtomState atomState, URI filterSocketTypeUri,
+                    URI filterAtomTypeUri) {
+        Slice<URI> slice = atomInformationService.listPagedAtomURIs(pageNum, preferedSize, atomState,
+                        filterSocketTypeUri, filterAtomTypeUri);
+        return toContainerPage(this.atomResourceURIPrefix + "/", slice);
+    }
+
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
     public AtomInformationService.PagedResource<Dataset, URI> listPagedAtomURIsBefore(final URI atom,
                     final Integer preferedSize, AtomState atomState) {
@@ -193,8 +228,9 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
                     URI filterAtomTypeUri) {
         Model model = ModelFactory.createDefaultModel();
         setNsPrefixes(model);
-        Collection<URI> uris = atomInformationService.listAtomURIsModifiedAfter(modifiedDate, atomState);
-        return getFilteredAtomURIListDataset(model, uris, filterSocketTypeUri, filterAtomTypeUri);
+        Collection<URI> uris = atomInformationService.listAtomURIsModifiedAfter(modifiedDate, atomState,
+                        filterSocketTypeUri, filterAtomTypeUri);
+        return getAtomURIListDataset(model, uris);
     }
 
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
@@ -202,8 +238,16 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
                     URI filterAtomTypeUri) {
         Model model = ModelFactory.createDefaultModel();
         setNsPrefixes(model);
-        Collection<URI> uris = atomInformationService.listAtomURIsCreatedAfter(createdDate, atomState);
-        return getFilteredAtomURIListDataset(model, uris, filterSocketTypeUri, filterAtomTypeUri);
+        Collection<URI> uris = atomInformationService.listAtomURIsCreatedAfter(createdDate, atomState,
+                        filterSocketTypeUri, filterAtomTypeUri);
+        return getAtomURIListDataset(model, uris);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public Optional<String> getAtomEtag(final URI atomUri) {
+        // same as the etag of readAtom()
+        return atomRepository.findVersionByAtomURI(atomUri).map(version -> Integer.toString(version));
     }
 
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
@@ -342,7 +386,7 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
                     WonAclEvalContext wonAclEvalContext)
                     throws NoSuchAtomException, NoSuchConnectionException, NoSuchMessageException {
         Dataset dataset = getAtomDataset(atomUri, null, wonAclEvalContext).getData();
-        if (deep) {
+        if (deep && dataset != null) {
             Atom atom = atomInformationService.readAtom(atomUri);
             if (atom.getState() == AtomState.ACTIVE) {
                 // only add deep data if atom is active
@@ -362,6 +406,34 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
         return dataset;
     }
 
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public void writeDeepAtomDataset(final URI atomUri, Dataset atomDataset, Integer deepLayerSize, StreamRDF out)
+                    throws NoSuchAtomException, NoSuchConnectionException, NoSuchMessageException {
+        Objects.requireNonNull(atomDataset, "atomDataset must not be null");
+        Atom atom = atomInformationService.readAtom(atomUri);
+        StreamRDF sink = withoutStartAndFinish(out);
+        sendBaseUriAndDefaultPrefixes(sink);
+        StreamRDFOps.sendDatasetToStream(atomDataset.asDatasetGraph(), sink);
+        if (atom.getState() != AtomState.ACTIVE) {
+            // only add deep data if atom is active
+            return;
+        }
+        Slice<URI> slice = atomInformationService.listConnectionURIs(atomUri, 1, deepLayerSize, null, null);
+        AtomInformationService.PagedResource<Dataset, URI> connectionsResource = toContainerPage(
+                        this.uriService.createConnectionContainerURIForAtom(atomUri).toString(), slice);
+        StreamRDFOps.sendDatasetToStream(connectionsResource.getContent().asDatasetGraph(), sink);
+        for (URI connectionURI : slice.getContent()) {
+            DataWithEtag<Dataset> connectionDataset = getConnectionDataset(connectionURI, true, null);
+            StreamRDFOps.sendDatasetToStream(connectionDataset.getData().asDatasetGraph(), sink);
+        }
+        for (URI connectionUri : slice.getContent()) {
+            AtomInformationService.PagedResource<Dataset, URI> eventsResource = listConnectionEventURIs(
+                            connectionUri, 1, deepLayerSize, null, true);
+            StreamRDFOps.sendDatasetToStream(eventsResource.getContent().asDatasetGraph(), sink);
+        }
+    }
+
     @Override
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
     public Model getUnreadInformationForAtom(URI atomURI, Collection<URI> lastSeenMessageURIs) {
@@ -443,6 +515,8 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
                         .addProperty(WON.atomDeletedTopic, this.activeMqMatcherProtocolTopicNameAtomDeleted,
                                         XSDDatatype.XSDstring)
                         .addProperty(WON.atomCreatedTopic, this.activeMqMatcherProtocolTopicNameAtomCreated,
+                                        XSDDatatype.XSDstring)
+                        .addProperty(WON.supportsMessageFormat, WonMessageWireFormat.getSupportedBinaryContentType(),
                                         XSDDatatype.XSDstring);
         Resource blankNodeUriSpec = model.createResource();
         res.addProperty(WON.uriPrefixSpecification, blankNodeUriSpec);
@@ -732,6 +806,32 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
         return eventsContainerDataset;
     }
 
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public void writeConnectionEventURIs(final URI connectionUri, boolean deep, StreamRDF out)
+                    throws NoSuchConnectionException {
+        Connection connection = atomInformationService.readConnection(connectionUri);
+        Node messageContainer = NodeFactory.createURI(connection.getConnectionURI().toString() + "/msg");
+        Node graph = NodeFactory.createURI(createDataGraphUriFromUri(URI.create(messageContainer.getURI())));
+        StreamRDF sink = withoutStartAndFinish(out);
+        sendBaseUriAndDefaultPrefixes(sink);
+        sink.quad(Quad.create(graph, messageContainer, RDF.Nodes.type, WON.MessageContainer.asNode()));
+        try (Stream<URI> messageURIs = messageEventRepository.streamMessageURIsByParentURI(connectionUri)) {
+            messageURIs.forEach(messageURI -> sink.quad(Quad.create(graph, messageContainer, RDFS.Nodes.member,
+                            NodeFactory.createURI(messageURI.toString()))));
+        }
+        if (deep) {
+            try (Stream<DatasetHolder> datasetHolders = messageEventRepository
+                            .streamDatasetHoldersByParentURI(connectionUri)) {
+                datasetHolders.forEach(datasetHolder -> {
+                    datasetHolder.readDataset(sink);
+                    // don't keep the messages in the persistence context
+                    entityManager.detach(datasetHolder);
+                });
+            }
+        }
+    }
+
     @Override
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
     public AtomInformationService.PagedResource<Dataset, URI> listConnectionEventURIs(final URI connectionUri,
@@ -768,6 +868,102 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
                         deep);
     }
 
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public AtomInformationService.PagedResource<Dataset, URI> listPagedAtomURIsBefore(KeysetCursor cursor,
+                    Integer preferedSize, AtomState atomState, URI filterSocketTypeUri, URI filterAtomTypeUri) {
+        Slice<KeysetPageItem> slice = atomInformationService.listPagedAtomURIsBefore(cursor, preferedSize, atomState,
+                        filterSocketTypeUri, filterAtomTypeUri);
+        // the cursor's atom is on the previous page - unless we are on the first page
+        return toKeysetContainerPage(this.atomResourceURIPrefix + "/", slice, !cursor.isNewest(), slice.hasNext());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public AtomInformationService.PagedResource<Dataset, URI> listPagedAtomURIsAfter(KeysetCursor cursor,
+                    Integer preferedSize, AtomState atomState, URI filterSocketTypeUri, URI filterAtomTypeUri) {
+        Slice<KeysetPageItem> slice = atomInformationService.listPagedAtomURIsAfter(cursor, preferedSize, atomState,
+                        filterSocketTypeUri, filterAtomTypeUri);
+        // the cursor's atom is on the next page
+        return toKeysetContainerPage(this.atomResourceURIPrefix + "/", slice, slice.hasNext(), true);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public AtomInformationService.PagedResource<Dataset, Connection> listConnectionsBefore(KeysetCursor cursor,
+                    Integer preferredSize, Date timeSpot, boolean deep) throws NoSuchConnectionException {
+        Slice<Connection> slice = atomInformationService.listConnectionsBefore(cursor, preferredSize, timeSpot);
+        return toKeysetConnectionsContainerPage(this.connectionResourceURIPrefix + "/", slice, !cursor.isNewest(),
+                        slice.hasNext(), deep);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public AtomInformationService.PagedResource<Dataset, Connection> listConnectionsAfter(KeysetCursor cursor,
+                    Integer preferredSize, Date timeSpot, boolean deep) throws NoSuchConnectionException {
+        Slice<Connection> slice = atomInformationService.listConnectionsAfter(cursor, preferredSize, timeSpot);
+        return toKeysetConnectionsContainerPage(this.connectionResourceURIPrefix + "/", slice, slice.hasNext(), true,
+                        deep);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public AtomInformationService.PagedResource<Dataset, Connection> listConnectionsBefore(URI atomURI,
+                    KeysetCursor cursor, Integer preferredSize, WonMessageType messageType, Date timeSpot,
+                    boolean deep, boolean addMetadata, ConnectionState filterByConnectionState)
+                    throws NoSuchAtomException, NoSuchConnectionException {
+        Slice<Connection> slice = atomInformationService.listConnectionsBefore(atomURI, cursor, preferredSize,
+                        messageType, timeSpot, filterByConnectionState);
+        URI connectionsUri = this.uriService.createConnectionContainerURIForAtom(atomURI);
+        AtomInformationService.PagedResource<Dataset, Connection> connectionsContainerPage = toKeysetConnectionsContainerPage(
+                        connectionsUri.toString(), slice, !cursor.isNewest(), slice.hasNext(), deep);
+        if (addMetadata) {
+            addConnectionMetadata(connectionsContainerPage.getContent(), atomURI, connectionsUri);
+        }
+        return connectionsContainerPage;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public AtomInformationService.PagedResource<Dataset, Connection> listConnectionsAfter(URI atomURI,
+                    KeysetCursor cursor, Integer preferredSize, WonMessageType messageType, Date timeSpot,
+                    boolean deep, boolean addMetadata, ConnectionState filterByConnectionState)
+                    throws NoSuchAtomException, NoSuchConnectionException {
+        Slice<Connection> slice = atomInformationService.listConnectionsAfter(atomURI, cursor, preferredSize,
+                        messageType, timeSpot, filterByConnectionState);
+        URI connectionsUri = this.uriService.createConnectionContainerURIForAtom(atomURI);
+        AtomInformationService.PagedResource<Dataset, Connection> connectionsContainerPage = toKeysetConnectionsContainerPage(
+                        connectionsUri.toString(), slice, slice.hasNext(), true, deep);
+        if (addMetadata) {
+            addConnectionMetadata(connectionsContainerPage.getContent(), atomURI, connectionsUri);
+        }
+        return connectionsContainerPage;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public AtomInformationService.PagedResource<Dataset, URI> listConnectionEventURIsBefore(URI connectionUri,
+                    KeysetCursor cursor, Integer preferedSize, WonMessageType msgType, boolean deep)
+                    throws NoSuchConnectionException {
+        Slice<MessageEvent> slice = atomInformationService.listConnectionEventsBefore(connectionUri, cursor,
+                        preferedSize, msgType, deep);
+        return eventsToKeysetContainerPage(
+                        this.uriService.createMessageContainerURIForConnection(connectionUri).toString(), slice, deep,
+                        !cursor.isNewest(), slice.hasNext());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public AtomInformationService.PagedResource<Dataset, URI> listConnectionEventURIsAfter(URI connectionUri,
+                    KeysetCursor cursor, Integer preferedSize, WonMessageType msgType, boolean deep)
+                    throws NoSuchConnectionException {
+        Slice<MessageEvent> slice = atomInformationService.listConnectionEventsAfter(connectionUri, cursor,
+                        preferedSize, msgType, deep);
+        return eventsToKeysetContainerPage(
+                        this.uriService.createMessageContainerURIForConnection(connectionUri).toString(), slice, deep,
+                        slice.hasNext(), true);
+    }
+
     @Override
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
     public DataWithEtag<Dataset> getDatasetForUri(URI datasetUri, String etag) {
@@ -828,14 +1024,31 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
      */
     private Dataset addBaseUriAndDefaultPrefixes(Dataset dataset) {
         setNsPrefixes(dataset.getDefaultModel());
-        addPrefixForSpecialResources(dataset, "local", this.resourceURIPrefix);
-        addPrefixForSpecialResources(dataset, "atom", this.atomResourceURIPrefix);
-        addPrefixForSpecialResources(dataset, "event", this.messageResourceURIPrefix);
-        addPrefixForSpecialResources(dataset, "conn", this.connectionResourceURIPrefix);
+        getPrefixesForSpecialResources().forEach(
+                        (prefix, uri) -> dataset.getDefaultModel().getGraph().getPrefixMapping().setNsPrefix(prefix,
+                                        uri));
         return dataset;
     }
 
-    private void addPrefixForSpecialResources(Dataset dataset, String prefix, String uri) {
+    /**
+     * Sends the prefixes added by {@link #addBaseUriAndDefaultPrefixes(Dataset)} to
+     * the stream.
+     */
+    private void sendBaseUriAndDefaultPrefixes(StreamRDF out) {
+        DefaultPrefixUtils.getDefaultPrefixes().getNsPrefixMap().forEach(out::prefix);
+        getPrefixesForSpecialResources().forEach(out::prefix);
+    }
+
+    private Map<String, String> getPrefixesForSpecialResources() {
+        Map<String, String> prefixes = new LinkedHashMap<>();
+        addPrefixForSpecialResources(prefixes, "local", this.resourceURIPrefix);
+        addPrefixForSpecialResources(prefixes, "atom", this.atomResourceURIPrefix);
+        addPrefixForSpecialResources(prefixes, "event", this.messageResourceURIPrefix);
+        addPrefixForSpecialResources(prefixes, "conn", this.connectionResourceURIPrefix);
+        return prefixes;
+    }
+
+    private void addPrefixForSpecialResources(Map<String, String> prefixes, String prefix, String uri) {
         if (uri == null) {
             return; // ignore if no uri specified
         }
@@ -845,7 +1058,23 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
         if (!uri.endsWith("/") && !uri.endsWith("#")) {
             uri += "/";
         }
-        dataset.getDefaultModel().getGraph().getPrefixMapping().setNsPrefix(prefix, uri);
+        prefixes.put(prefix, uri);
+    }
+
+    /**
+     * Passes data on to the stream, which is started and finished by the caller,
+     * not by the parsers and helpers that send the data.
+     */
+    private static StreamRDF withoutStartAndFinish(StreamRDF out) {
+        return new StreamRDFWrapper(out) {
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void finish() {
+            }
+        };
     }
 
     private AtomInformationService.PagedResource<Dataset, URI> toContainerPage(String containerUri, Slice<URI> slice) {
@@ -872,6 +1101,31 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
                 }
             }
         }
+        Dataset dataset = makeUriContainer(containerUri, uris);
+        return new AtomInformationService.PagedResource(dataset, slice.hasPrevious() ? resumeBefore : null,
+                        slice.hasNext() ? resumeAfter : null);
+    }
+
+    /**
+     * Creates a page of a newest-first list selected by keyset pagination, with the
+     * cursors of the newest and oldest item for the previous and next page.
+     */
+    private AtomInformationService.PagedResource<Dataset, URI> toKeysetContainerPage(String containerUri,
+                    Slice<KeysetPageItem> slice, boolean hasPrevious, boolean hasNext) {
+        List<KeysetPageItem> items = slice.getContent();
+        Dataset dataset = makeUriContainer(containerUri,
+                        items.stream().map(KeysetPageItem::getUri).collect(Collectors.toList()));
+        if (items.isEmpty()) {
+            return new AtomInformationService.PagedResource<>(dataset);
+        }
+        KeysetPageItem newest = items.get(0);
+        KeysetPageItem oldest = items.get(items.size() - 1);
+        return new AtomInformationService.PagedResource<>(dataset, hasPrevious ? newest.getUri() : null,
+                        hasNext ? oldest.getUri() : null, hasPrevious ? newest.getCursor() : null,
+                        hasNext ? oldest.getCursor() : null);
+    }
+
+    private Dataset makeUriContainer(String containerUri, List<URI> uris) {
         Model model = ModelFactory.createDefaultModel();
         setNsPrefixes(model);
         Resource atomListPageResource = model.createResource(containerUri);
@@ -881,8 +1135,7 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
         }
         Dataset dataset = newDatasetWithNamedModel(createDataGraphUriFromResource(atomListPageResource), model);
         addBaseUriAndDefaultPrefixes(dataset);
-        return new AtomInformationService.PagedResource(dataset, slice.hasPrevious() ? resumeBefore : null,
-                        slice.hasNext() ? resumeAfter : null);
+        return dataset;
     }
 
     private AtomInformationService.PagedResource<Dataset, Connection> toConnectionsContainerPage(String containerUri,
@@ -909,6 +1162,31 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
                         slice.hasNext() ? resumeAfter : null);
     }
 
+    /**
+     * Creates a page of a newest-first connection list selected by keyset
+     * pagination.
+     */
+    private AtomInformationService.PagedResource<Dataset, Connection> toKeysetConnectionsContainerPage(
+                    String containerUri, Slice<Connection> slice, boolean hasPrevious, boolean hasNext,
+                    boolean deep) {
+        List<Connection> connections = slice.getContent();
+        Dataset dataset = makeConnectionContainer(containerUri, connections);
+        addBaseUriAndDefaultPrefixes(dataset);
+        if (deep) {
+            addDeepConnectionData(dataset,
+                            connections.stream().map(Connection::getConnectionURI).collect(Collectors.toList()));
+        }
+        if (connections.isEmpty()) {
+            return new AtomInformationService.PagedResource<>(dataset);
+        }
+        Connection newest = connections.get(0);
+        Connection oldest = connections.get(connections.size() - 1);
+        return new AtomInformationService.PagedResource<>(dataset, hasPrevious ? newest : null,
+                        hasNext ? oldest : null,
+                        hasPrevious ? new KeysetCursor(newest.getCreationDate(), newest.getId()) : null,
+                        hasNext ? new KeysetCursor(oldest.getCreationDate(), oldest.getId()) : null);
+    }
+
     @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED, readOnly = true)
     public Dataset makeConnectionContainer(String containerUri, List<Connection> connections) {
         Model model = ModelFactory.createDefaultModel();
@@ -950,6 +1228,30 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
                 }
             }
         }
+        Dataset dataset = makeEventsContainer(containerUri, events, deep);
+        return new AtomInformationService.PagedResource(dataset, slice.hasPrevious() ? resumeBefore : null,
+                        slice.hasNext() ? resumeAfter : null);
+    }
+
+    /**
+     * Creates a page of a newest-first message list selected by keyset pagination.
+     */
+    private AtomInformationService.PagedResource<Dataset, URI> eventsToKeysetContainerPage(String containerUri,
+                    Slice<MessageEvent> slice, boolean deep, boolean hasPrevious, boolean hasNext) {
+        List<MessageEvent> events = slice.getContent();
+        Dataset dataset = makeEventsContainer(containerUri, events, deep);
+        if (events.isEmpty()) {
+            return new AtomInformationService.PagedResource<>(dataset);
+        }
+        MessageEvent newest = events.get(0);
+        MessageEvent oldest = events.get(events.size() - 1);
+        return new AtomInformationService.PagedResource<>(dataset, hasPrevious ? newest.getMessageURI() : null,
+                        hasNext ? oldest.getMessageURI() : null,
+                        hasPrevious ? new KeysetCursor(newest.getCreationDate(), newest.getId()) : null,
+                        hasNext ? new KeysetCursor(oldest.getCreationDate(), oldest.getId()) : null);
+    }
+
+    private Dataset makeEventsContainer(String containerUri, List<MessageEvent> events, boolean deep) {
         Model model = ModelFactory.createDefaultModel();
         setNsPrefixes(model);
         Resource atomListPageResource = model.createResource(containerUri);
@@ -964,8 +1266,7 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
         Dataset dataset = aggregator.aggregate();
         dataset.addNamedModel(createDataGraphUriFromResource(atomListPageResource), model);
         addBaseUriAndDefaultPrefixes(dataset);
-        return new AtomInformationService.PagedResource(dataset, slice.hasPrevious() ? resumeBefore : null,
-                        slice.hasNext() ? resumeAfter : null);
+        return dataset;
     }
 
     private void addDeepConnectionData(Dataset dataset, List<URI> connectionURIs) {
@@ -1036,48 +1337,21 @@ public class LinkedDataServiceImpl implements LinkedDataService, InitializingBea
         this.activeMqMatcherProtocolTopicNameAtomDeleted = activeMqMatcherProtocolTopicNameAtomDeleted;
     }
 
-    private Dataset getFilteredAtomURIListDataset(Model model, Collection<URI> uris, URI filterSocketTypeUri,
-                    URI filterAtomTypeUri) {
+    /**
+     * Builds the atom list container. Filtering by socket type and atom type is
+     * done by the database, using the sockets and the atom types copied from the
+     * atom content on create and replace.
+     */
+    private Dataset getAtomURIListDataset(Model model, Collection<URI> uris) {
         Resource atomListPageResource = model.createResource(this.atomResourceURIPrefix + "/");
         Instant start = logger.isDebugEnabled() ? Instant.now() : null;
-        if (filterSocketTypeUri == null && filterAtomTypeUri == null) {
-            uris.forEach(atomURI -> model.add(model.createStatement(atomListPageResource, RDFS.member,
-                            model.createResource(atomURI.toString()))));
-        } else {
-            uris.forEach(atomURI -> {
-                Dataset atomDataset = getAtomDatasetForFilter(atomURI);
-                DefaultAtomModelWrapper atomModelWrapper = new DefaultAtomModelWrapper(atomDataset);
-                if ((filterSocketTypeUri == null ||
-                                atomModelWrapper.getSocketTypeUriMap().containsValue(filterSocketTypeUri)) &&
-                                (filterAtomTypeUri == null ||
-                                                atomModelWrapper.getContentTypes().contains(filterAtomTypeUri))) {
-                    model.add(model.createStatement(atomListPageResource, RDFS.member,
-                                    model.createResource(atomURI.toString())));
-                }
-            });
-            // Parallel Approach 1:
-            // The parallel Approach leads to LazyInitializationException due to the lazy
-            // fetch of the Atom, and thus cant be used
-            // for now, TODO: FIGURE OUT A DIFFERENT APPROACH TO MAKE PARALLEL PROCESSING
-            // POSSIBLE OR TO ENHANCE THE PERFORMANCE
-            //
-            // uris.parallelStream().filter(atomURI -> {
-            // Dataset atomDataset = getAtomDatasetForFilter(atomURI);
-            // DefaultAtomModelWrapper atomModelWrapper = new
-            // DefaultAtomModelWrapper(atomDataset);
-            // return (filterSocketTypeUri == null
-            // || atomModelWrapper.getSocketTypeUriMap().containsValue(filterSocketTypeUri))
-            // && (filterAtomTypeUri == null
-            // || atomModelWrapper.getContentTypes().contains(filterAtomTypeUri));
-            // }).collect(Collectors.toList()).forEach(atomURI ->
-            // model.add(model.createStatement(atomListPageResource,
-            // RDFS.member, model.createResource(atomURI.toString()))));
-        }
+        uris.forEach(atomURI -> model.add(model.createStatement(atomListPageResource, RDFS.member,
+                        model.createResource(atomURI.toString()))));
         Dataset ret = newDatasetWithNamedModel(createDataGraphUriFromResource(atomListPageResource), model);
         addBaseUriAndDefaultPrefixes(ret);
         if (logger.isDebugEnabled() && start != null) {
             Instant finish = Instant.now();
-            logger.debug("getFilteredAtomURIListDataset for {} Uris took {}ms", uris.size(),
+            logger.debug("getAtomURIListDataset for {} Uris took {}ms", uris.size(),
                             Duration.between(start, finish).toMillis());
         }
         return ret;
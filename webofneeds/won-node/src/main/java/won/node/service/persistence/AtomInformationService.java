@@ -22,6 +22,8 @@ import won.protocol.exception.NoSuchAtomException;
 import won.protocol.exception.NoSuchConnectionException;
 import won.protocol.message.WonMessageType;
 import won.protocol.model.*;
+import won.protocol.util.KeysetCursor;
+import won.protocol.util.KeysetPageItem;
 
 /**
  * Service for obtaining information about atoms and connections in the system
@@ -43,6 +45,18 @@ public interface AtomInformationService {
      */
     Collection<URI> listAtomURIs(AtomState atomState);
 
+    /**
+     * Retrieves a list of all atoms with the given atomState, socket type and atom
+     * type on the atomserver.
+     *
+     * @param atomState Active/Inactive, null {@literal =>} all states
+     * @param socketType socket type an atom needs to have, null {@literal =>} all
+     * atoms
+     * @param atomType type an atom needs to have, null {@literal =>} all atoms
+     * @return a collection of all atom URIs.
+     */
+    Collection<URI> listAtomURIs(AtomState atomState, URI socketType, URI atomType);
+
     /**
      * Retrieves a page of the list of atoms on the atomserver that have a given
      * state with number of atom uris per page preference.
@@ -55,6 +69,22 @@ public interface AtomInformationService {
      */
     Slice<URI> listPagedAtomURIs(int page, Integer preferredSize, AtomState atomState);
 
+    /**
+     * Retrieves a page of the list of atoms on the atomserver that have a given
+     * state, socket type and atom type.
+     *
+     * @param page the page number
+     * @param preferredSize preferred number of members per page, null {@literal =>}
+     * use default
+     * @param atomState Active/Inactive, null {@literal =>} all states
+     * @param socketType socket type an atom needs to have, null {@literal =>} all
+     * atoms
+     * @param atomType type an atom needs to have, null {@literal =>} all atoms
+     * @return a collection of all atom URIs.
+     */
+    Slice<URI> listPagedAtomURIs(int page, Integer preferredSize, AtomState atomState, URI socketType,
+                    URI atomType);
+
     /**
      * Retrieves list of atoms on the atomserver that where created earlier than the
      * given atom that have a given state with number of atom uris per page
@@ -90,6 +120,19 @@ public interface AtomInformationService {
      */
     Collection<URI> listAtomURIsModifiedAfter(Date modifiedAfter, AtomState atomState);
 
+    /**
+     * retrieves atoms with the given socket type and atom type that have been
+     * modified after a certain date
+     *
+     * @param modifiedAfter modification date of the atoms to retrieve
+     * @param atomState filterBy
+     * @param socketType filterBy, null {@literal =>} all atoms
+     * @param atomType filterBy, null {@literal =>} all atoms
+     * @return collection of modified atoms
+     */
+    Collection<URI> listAtomURIsModifiedAfter(Date modifiedAfter, AtomState atomState, URI socketType,
+                    URI atomType);
+
     /**
      * retrieves atoms that have been modified after a certain date
      *
@@ -99,6 +142,19 @@ public interface AtomInformationService {
      */
     Collection<URI> listAtomURIsCreatedAfter(Date createdAfter, AtomState atomState);
 
+    /**
+     * retrieves atoms with the given socket type and atom type that have been
+     * created after a certain date
+     *
+     * @param createdAfter creation date of the atoms to retrieve
+     * @param atomState filterBy
+     * @param socketType filterBy, null {@literal =>} all atoms
+     * @param atomType filterBy, null {@literal =>} all atoms
+     * @return collection of created atoms
+     */
+    Collection<URI> listAtomURIsCreatedAfter(Date createdAfter, AtomState atomState, URI socketType,
+                    URI atomType);
+
     /**
      * Retrieves all connection URIs (regardless of state).
      *
@@ -340,10 +396,103 @@ public interface AtomInformationService {
     Slice<MessageEvent> listConnectionEventsAfter(URI connectionUri, URI msgURI,
                     Integer preferredPageSize, WonMessageType msgType);
 
+    /**
+     * Keyset pagination: retrieves atoms created before the cursor position, with
+     * the given state, socket type and atom type (null {@literal =>} all). Use
+     * {@link KeysetCursor#NEWEST} for the first page.
+     *
+     * @return the atoms, newest first; {@link Slice#hasNext()} tells if there are
+     * older atoms
+     */
+    Slice<KeysetPageItem> listPagedAtomURIsBefore(KeysetCursor cursor, Integer preferredSize, AtomState atomState,
+                    URI socketType, URI atomType);
+
+    /**
+     * Keyset pagination: retrieves atoms created after the cursor position, with
+     * the given state, socket type and atom type (null {@literal =>} all).
+     *
+     * @return the atoms, newest first; {@link Slice#hasNext()} tells if there are
+     * newer atoms
+     */
+    Slice<KeysetPageItem> listPagedAtomURIsAfter(KeysetCursor cursor, Integer preferredSize, AtomState atomState,
+                    URI socketType, URI atomType);
+
+    /**
+     * Keyset pagination: retrieves connections created before the cursor position
+     * and before timeSpot.
+     *
+     * @param timeSpot time at which we want the list state to be fixed, if null -
+     * current state
+     * @return the connections, newest first; {@link Slice#hasNext()} tells if there
+     * are older connections
+     */
+    Slice<Connection> listConnectionsBefore(KeysetCursor cursor, Integer preferredPageSize, Date timeSpot);
+
+    /**
+     * Keyset pagination: retrieves connections created after the cursor position
+     * and before timeSpot.
+     *
+     * @param timeSpot time at which we want the list state to be fixed, if null -
+     * current state
+     * @return the connections, newest first; {@link Slice#hasNext()} tells if there
+     * are newer connections
+     */
+    Slice<Connection> listConnectionsAfter(KeysetCursor cursor, Integer preferredPageSize, Date timeSpot);
+
+    /**
+     * Keyset pagination: retrieves the atom's connections created before the cursor
+     * position and before timeSpot.
+     *
+     * @param messageType if not null, only connections with messages of this type
+     * are returned
+     * @param timeSpot time at which we want the list state to be fixed, if null -
+     * current state
+     * @param filterByConnectionState if not null, only return connections with the
+     * given connectionState
+     * @return the connections, newest first; {@link Slice#hasNext()} tells if there
+     * are older connections
+     */
+    Slice<Connection> listConnectionsBefore(URI atomURI, KeysetCursor cursor, Integer preferredPageSize,
+                    WonMessageType messageType, Date timeSpot, ConnectionState filterByConnectionState);
+
+    /**
+     * Keyset pagination: retrieves the atom's connections created after the cursor
+     * position and before timeSpot.
+     *
+     * @return the connections, newest first; {@link Slice#hasNext()} tells if there
+     * are newer connections
+     */
+    Slice<Connection> listConnectionsAfter(URI atomURI, KeysetCursor cursor, Integer preferredPageSize,
+                    WonMessageType messageType, Date timeSpot, ConnectionState filterByConnectionState);
+
+    /**
+     * Keyset pagination: retrieves the connection's messages created before the
+     * cursor position.
+     *
+     * @param fetchDatasets if true, the messages' datasets are loaded, too
+     * @return the messages, newest first; {@link Slice#hasNext()} tells if there
+     * are older messages
+     */
+    Slice<MessageEvent> listConnectionEventsBefore(URI connectionUri, KeysetCursor cursor,
+                    Integer preferredPageSize, WonMessageType msgType, boolean fetchDatasets);
+
+    /**
+     * Keyset pagination: retrieves the connection's messages created after the
+     * cursor position.
+     *
+     * @param fetchDatasets if true, the messages' datasets are loaded, too
+     * @return the messages, newest first; {@link Slice#hasNext()} tells if there
+     * are newer messages
+     */
+    Slice<MessageEvent> listConnectionEventsAfter(URI connectionUri, KeysetCursor cursor,
+                    Integer preferredPageSize, WonMessageType msgType, boolean fetchDatasets);
+
     class PagedResource<T, E> {
         private T content;
         private E resumeBefore = null;
         private E resumeAfter = null;
+        private KeysetCursor resumeBeforeCursor = null;
+        private KeysetCursor resumeAfterCursor = null;
 
         public PagedResource(final T content) {
             this.content = content;
@@ -355,6 +504,17 @@ public interface AtomInformationService {
             this.resumeAfter = resumeAfter;
         }
 
+        /**
+         * Creates a keyset-paged resource, whose previous and next pages are identified
+         * by cursors instead of entity URIs.
+         */
+        public PagedResource(final T content, final E resumeBefore, final E resumeAfter,
+                        final KeysetCursor resumeBeforeCursor, final KeysetCursor resumeAfterCursor) {
+            this(content, resumeBefore, resumeAfter);
+            this.resumeBeforeCursor = resumeBeforeCursor;
+            this.resumeAfterCursor = resumeAfterCursor;
+        }
+
         public T getContent() {
             return content;
         }
@@ -374,5 +534,21 @@ public interface AtomInformationService {
         public E getResumeBefore() {
             return resumeBefore;
         }
+
+        /**
+         * @return the cursor of the next page, or null if the page was not selected by
+         * keyset pagination
+         */
+        public KeysetCursor getResumeAfterCursor() {
+            return resumeAfterCursor;
+        }
+
+        /**
+         * @return the cursor of the previous page, or null if the page was not selected
+         * by keyset pagination
+         */
+        public KeysetCursor getResumeBeforeCursor() {
+            return resumeBeforeCursor;
+        }
     }
 }
@@ -14,6 +14,7 @@ import org.apache.jena.rdf.model.Model;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 import won.node.service.nodeconfig.URIService;
@@ -26,10 +27,15 @@ import won.protocol.repository.AtomRepository;
 import won.protocol.repository.ConnectionRepository;
 import won.protocol.repository.MessageEventRepository;
 import won.protocol.util.DataAccessUtils;
+import won.protocol.util.KeysetCursor;
+import won.protocol.util.KeysetPageItem;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -58,6 +64,11 @@ public class AtomInformationServiceImpl implements AtomInformationService {
         return atomRepository.getAllAtomURIs(atomState);
     }
 
+    @Override
+    public Collection<URI> listAtomURIs(AtomState atomState, URI socketType, URI atomType) {
+        return atomRepository.getAllAtomURIs(atomState, socketType, atomType);
+    }
+
     @Override
     public Slice<URI> listPagedAtomURIs(int page, Integer preferedPageSize, AtomState atomState) {
         int pageSize = this.pageSize;
@@ -70,6 +81,19 @@ public class AtomInformationServiceImpl implements AtomInformationService {
                         PageRequest.of(pageNum, pageSize, Sort.by(Sort.Direction.DESC, "creationDate")));
     }
 
+    @Override
+    public Slice<URI> listPagedAtomURIs(int page, Integer preferedPageSize, AtomState atomState, URI socketType,
+                    URI atomType) {
+        int pageSize = this.pageSize;
+        int pageNum = page - 1;
+        if (preferedPageSize != null && preferedPageSize < this.pageSize) {
+            pageSize = preferedPageSize;
+        }
+        // use 'creationDate' to keep a constant atom order over requests
+        return atomRepository.getAllAtomURIs(atomState, socketType, atomType,
+                        PageRequest.of(pageNum, pageSize, Sort.by(Sort.Direction.DESC, "creationDate")));
+    }
+
     @Override
     public Slice<URI> listPagedAtomURIsBefore(URI atomURI, Integer preferedPageSize, AtomState atomState) {
         Atom referenceAtom = atomRepository.findOneByAtomURI(atomURI)
@@ -97,11 +121,23 @@ public class AtomInformationServiceImpl implements AtomInformationService {
         return atomRepository.getAllAtomURIsModifiedAfter(modifiedAfter, atomState);
     }
 
+    @Override
+    public Collection<URI> listAtomURIsModifiedAfter(Date modifiedAfter, AtomState atomState, URI socketType,
+                    URI atomType) {
+        return atomRepository.getAllAtomURIsModifiedAfter(modifiedAfter, atomState, socketType, atomType);
+    }
+
     @Override
     public Collection<URI> listAtomURIsCreatedAfter(Date createdAfter, AtomState atomState) {
         return atomRepository.getAllAtomURIsCreatedAfter(createdAfter, atomState);
     }
 
+    @Override
+    public Collection<URI> listAtomURIsCreatedAfter(Date createdAfter, AtomState atomState, URI socketType,
+                    URI atomType) {
+        return atomRepository.getAllAtomURIsCreatedAfter(createdAfter, atomState, socketType, atomType);
+    }
+
     @Override
     public Slice<URI> listPagedAtomURIsAfter(URI atomURI, Integer preferedPageSize, AtomState atomState) {
         Atom referenceAtom = atomRepository.findOneByAtomURI(atomURI)
@@ -417,6 +453,104 @@ public class AtomInformationServiceImpl implements AtomInformationService {
         return slice;
     }
 
+    @Override
+    public Slice<KeysetPageItem> listPagedAtomURIsBefore(KeysetCursor cursor, Integer preferredSize,
+                    AtomState atomState, URI socketType, URI atomType) {
+        if (cursor.isNewest()) {
+            return atomRepository.getNewestAtomURIs(atomState, socketType, atomType,
+                            PageRequest.of(0, getPageSize(preferredSize)));
+        }
+        return atomRepository.getAtomURIsBeforeCursor(cursor.getCreationDate(), cursor.getId(), atomState,
+                        socketType, atomType, PageRequest.of(0, getPageSize(preferredSize)));
+    }
+
+    @Override
+    public Slice<KeysetPageItem> listPagedAtomURIsAfter(KeysetCursor cursor, Integer preferredSize,
+                    AtomState atomState, URI socketType, URI atomType) {
+        return newestFirst(atomRepository.getAtomURIsAfterCursor(cursor.getCreationDate(), cursor.getId(), atomState,
+                        socketType, atomType, PageRequest.of(0, getPageSize(preferredSize))));
+    }
+
+    @Override
+    public Slice<Connection> listConnectionsBefore(KeysetCursor cursor, Integer preferredPageSize, Date timeSpot) {
+        if (cursor.isNewest()) {
+            return connectionRepository.getNewestConnections(timeSpotOrNow(timeSpot),
+                            PageRequest.of(0, getPageSize(preferredPageSize)));
+        }
+        return connectionRepository.getConnectionsBeforeCursor(cursor.getCreationDate(), cursor.getId(),
+                        timeSpotOrNow(timeSpot), PageRequest.of(0, getPageSize(preferredPageSize)));
+    }
+
+    @Override
+    public Slice<Connection> listConnectionsAfter(KeysetCursor cursor, Integer preferredPageSize, Date timeSpot) {
+        return newestFirst(connectionRepository.getConnectionsAfterCursor(cursor.getCreationDate(), cursor.getId(),
+                        timeSpotOrNow(timeSpot), PageRequest.of(0, getPageSize(preferredPageSize))));
+    }
+
+    @Override
+    public Slice<Connection> listConnectionsBefore(URI atomURI, KeysetCursor cursor, Integer preferredPageSize,
+                    WonMessageType messageType, Date timeSpot, ConnectionState filterByConnectionState) {
+        if (cursor.isNewest()) {
+            return connectionRepository.getNewestConnections(atomURI, messageType, timeSpotOrNow(timeSpot),
+                            filterByConnectionState, PageRequest.of(0, getPageSize(preferredPageSize)));
+        }
+        return connectionRepository.getConnectionsBeforeCursor(atomURI, cursor.getCreationDate(), cursor.getId(),
+                        messageType, timeSpotOrNow(timeSpot), filterByConnectionState,
+                        PageRequest.of(0, getPageSize(preferredPageSize)));
+    }
+
+    @Override
+    public Slice<Connection> listConnectionsAfter(URI atomURI, KeysetCursor cursor, Integer preferredPageSize,
+                    WonMessageType messageType, Date timeSpot, ConnectionState filterByConnectionState) {
+        return newestFirst(connectionRepository.getConnectionsAfterCursor(atomURI, cursor.getCreationDate(),
+                        cursor.getId(), messageType, timeSpotOrNow(timeSpot), filterByConnectionState,
+                        PageRequest.of(0, getPageSize(preferredPageSize))));
+    }
+
+    @Override
+    public Slice<MessageEvent> listConnectionEventsBefore(URI connectionUri, KeysetCursor cursor,
+                    Integer preferredPageSize, WonMessageType msgType, boolean fetchDatasets) {
+        PageRequest pageRequest = PageRequest.of(0, getPageSize(preferredPageSize));
+        if (cursor.isNewest()) {
+            return fetchDatasets
+                            ? messageEventRepository.findNewestByParentURIFetchDatasetEagerly(connectionUri, msgType,
+                                            pageRequest)
+                            : messageEventRepository.findNewestByParentURI(connectionUri, msgType, pageRequest);
+        }
+        if (fetchDatasets) {
+            return messageEventRepository.findByParentURIBeforeCursorFetchDatasetEagerly(connectionUri,
+                            cursor.getCreationDate(), cursor.getId(), msgType, pageRequest);
+        }
+        return messageEventRepository.findByParentURIBeforeCursor(connectionUri, cursor.getCreationDate(),
+                        cursor.getId(), msgType, pageRequest);
+    }
+
+    @Override
+    public Slice<MessageEvent> listConnectionEventsAfter(URI connectionUri, KeysetCursor cursor,
+                    Integer preferredPageSize, WonMessageType msgType, boolean fetchDatasets) {
+        PageRequest pageRequest = PageRequest.of(0, getPageSize(preferredPageSize));
+        if (fetchDatasets) {
+            return newestFirst(messageEventRepository.findByParentURIAfterCursorFetchDatasetEagerly(connectionUri,
+                            cursor.getCreationDate(), cursor.getId(), msgType, pageRequest));
+        }
+        return newestFirst(messageEventRepository.findByParentURIAfterCursor(connectionUri, cursor.getCreationDate(),
+                        cursor.getId(), msgType, pageRequest));
+    }
+
+    /**
+     * The 'after cursor' queries return the entities closest to the cursor first,
+     * i.e. oldest first; turn them around so that all pages are newest first.
+     */
+    private static <T> Slice<T> newestFirst(Slice<T> oldestFirst) {
+        List<T> content = new ArrayList<>(oldestFirst.getContent());
+        Collections.reverse(content);
+        return new SliceImpl<>(content, oldestFirst.getPageable(), oldestFirst.hasNext());
+    }
+
+    private static Date timeSpotOrNow(Date timeSpot) {
+        return timeSpot == null ? new Date() : timeSpot;
+    }
+
     private int getPageSize(final Integer preferredPageSize) {
         int pageSize = this.pageSize;
         if (preferredPageSize != null && preferredPageSize < this.pageSize) {
@@ -16,6 +16,7 @@ import won.auth.model.GraphType;
 import won.auth.model.OperationRequest;
 import won.auth.socket.SocketAuthorizationSource;
 import won.node.service.nodeconfig.URIService;
+import won.node.springsecurity.acl.WonAclEvaluatorCache;
 import won.protocol.exception.*;
 import won.protocol.message.WonMessage;
 import won.protocol.message.WonMessageDirection;
@@ -67,6 +68,8 @@ public class AtomService {
     SocketAuthorizationSource socketAuthorizationSource;
     @Autowired
     SocketAclService socketAclService;
+    @Autowired(required = false)
+    WonAclEvaluatorCache wonAclEvaluatorCache;
 
     public Optional<Atom> getAtomForUpdate(URI atomURI) {
         Optional<Atom> atom = atomRepository.findOneByAtomURIForUpdate(atomURI);
@@ -193,6 +196,8 @@ public class AtomService {
         }
         atom.setDatatsetHolder(datasetHolder);
         atom.setAttachmentDatasetHolders(attachments);
+        atom.setTypes(AtomTypeIndexService.getAtomTypes(atomModelWrapper.getDataset()));
+        atom.setTypesIndexed(true);
         atom = atomRepository.save(atom);
         connectionContainerRepository.save(connectionContainer);
         socketEntities.forEach(socket -> socketRepository.save(socket));
@@ -276,7 +281,12 @@ public class AtomService {
         socketAclService.removeLocalSocketAcls(atomURI, removedSockets, newAtomContent);
         datasetHolder.setDataset(newAtomContent);
         atom.setDatatsetHolder(datasetHolder);
+        atom.setTypes(AtomTypeIndexService.getAtomTypes(newAtomContent));
+        atom.setTypesIndexed(true);
         atom.setAttachmentDatasetHolders(attachments);
+        if (wonAclEvaluatorCache != null) {
+            wonAclEvaluatorCache.invalidate(atomURI);
+        }
         dataDerivationService.deriveDataIfNecessary(atom);
         return atomRepository.save(atom);
     }
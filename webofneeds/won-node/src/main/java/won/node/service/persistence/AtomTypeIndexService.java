@@ -0,0 +1,121 @@
+package won.node.service.persistence;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.apache.jena.query.Dataset;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import won.protocol.model.Atom;
+import won.protocol.model.AtomState;
+import won.protocol.model.DatasetHolder;
+import won.protocol.repository.AtomRepository;
+import won.protocol.util.DefaultAtomModelWrapper;
+
+/**
+ * Keeps the atom types (the rdf:types of the atom's content) in the
+ * <code>atom_type</code> table, so that atom lists can be filtered by type
+ * without loading the atoms' datasets.
+ */
+@Component
+public class AtomTypeIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    @Autowired
+    private AtomRepository atomRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Returns the types of the atom described by the dataset.
+     */
+    public static Set<URI> getAtomTypes(Dataset atomDataset) {
+        return new HashSet<>(new DefaultAtomModelWrapper(atomDataset).getContentTypes());
+    }
+
+    /**
+     * Copies the types of the next <code>batchSize</code> atoms that were created
+     * before the atom_type table existed from their datasets, and marks them as
+     * indexed. Atoms whose types can't be read are marked as well, so that they
+     * are not looked at again.
+     * <p>
+     * The atoms are written with plain SQL rather than through the entities, so
+     * that their version and last update date stay unchanged. An atom is only
+     * indexed if it is still unmarked when it is marked here: if its content was
+     * replaced in the meantime, the new types are already there. The persistence
+     * context is cleared afterwards, as it would still hold the unmarked atoms.
+     * </p>
+     *
+     * @param afterId only atoms with a greater id are indexed
+     * @return the id of the last atom looked at, or null if there are none left
+     */
+    @Transactional
+    public Long indexAtomTypes(Long afterId, int batchSize) {
+        Slice<Atom> atoms = atomRepository.findAtomsWithTypesNotIndexedAfter(afterId,
+                        PageRequest.of(0, batchSize));
+        if (atoms.isEmpty()) {
+            return null;
+        }
+        Map<Long, Set<URI>> typesById = new LinkedHashMap<>();
+        for (Atom atom : atoms) {
+            Set<URI> types = Collections.emptySet();
+            DatasetHolder datasetHolder = atom.getDatatsetHolder();
+            if (atom.getState() != AtomState.DELETED && datasetHolder != null) {
+                try {
+                    types = getAtomTypes(datasetHolder.getDataset());
+                } catch (Exception e) {
+                    logger.warn("could not index types of atom {}: {}", atom.getAtomURI(), e.getMessage());
+                }
+            }
+            typesById.put(atom.getId(), types);
+        }
+        entityManager.flush();
+        entityManager.unwrap(Session.class).doWork(connection -> writeAtomTypes(connection, typesById));
+        entityManager.clear();
+        return atoms.getContent().get(atoms.getNumberOfElements() - 1).getId();
+    }
+
+    private static void writeAtomTypes(Connection connection, Map<Long, Set<URI>> typesById) throws SQLException {
+        List<Long> ids = new ArrayList<>(typesById.keySet());
+        try (PreparedStatement mark = connection
+                        .prepareStatement("UPDATE atom SET types_indexed = true WHERE id = ? AND NOT types_indexed");
+                        PreparedStatement insert = connection
+                                        .prepareStatement("INSERT INTO atom_type (atom_id, typeuri) VALUES (?, ?)")) {
+            for (Long id : ids) {
+                mark.setLong(1, id);
+                mark.addBatch();
+            }
+            int[] marked = mark.executeBatch();
+            for (int i = 0; i < ids.size(); i++) {
+                if (marked[i] == 0) {
+                    // indexed concurrently
+                    continue;
+                }
+                for (URI type : typesById.get(ids.get(i))) {
+                    insert.setLong(1, ids.get(i));
+                    insert.setString(2, type.toString());
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+}
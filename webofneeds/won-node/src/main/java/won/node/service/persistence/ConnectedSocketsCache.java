@@ -0,0 +1,85 @@
+package won.node.service.persistence;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import won.protocol.model.Connection;
+import won.protocol.model.ConnectionState;
+import won.protocol.repository.ConnectionRepository;
+
+/**
+ * Caches the target sockets of all CONNECTED connections of a socket, which a
+ * group socket needs for every message it forwards. The
+ * {@link ConnectionService} invalidates a socket's entry whenever the state of
+ * one of its connections changes, once immediately and once more when the
+ * transaction ends, so that a list loaded concurrently with the change is not
+ * kept.
+ */
+@Component
+public class ConnectedSocketsCache {
+    private static final int MAX_SIZE = 10000;
+    private static final String SIMON_PREFIX = "won.node.connectedSocketsCache";
+    private final Counter hits = SimonManager.getCounter(SIMON_PREFIX + ".hit");
+    private final Counter misses = SimonManager.getCounter(SIMON_PREFIX + ".miss");
+    private final Cache<URI, List<URI>> cache = CacheBuilder.newBuilder().maximumSize(MAX_SIZE).build();
+    // incremented on each invalidation, so a list loaded in the meantime is not
+    // cached
+    private final AtomicLong invalidations = new AtomicLong();
+    @Autowired
+    private ConnectionRepository connectionRepository;
+
+    /**
+     * Returns the target sockets of the socket's connections that are in state
+     * CONNECTED.
+     */
+    public List<URI> getConnectedTargetSockets(URI socketURI) {
+        List<URI> targetSockets = cache.getIfPresent(socketURI);
+        if (targetSockets != null) {
+            hits.increase();
+            return targetSockets;
+        }
+        misses.increase();
+        long invalidationsBefore = invalidations.get();
+        targetSockets = connectionRepository.findBySocketURIAndState(socketURI, ConnectionState.CONNECTED)
+                        .stream()
+                        .map(Connection::getTargetSocketURI)
+                        .collect(Collectors.toUnmodifiableList());
+        if (invalidations.get() == invalidationsBefore) {
+            cache.put(socketURI, targetSockets);
+        }
+        return targetSockets;
+    }
+
+    /**
+     * Removes the socket's entry now and, if a transaction is active, again when it
+     * ends.
+     */
+    public void invalidate(URI socketURI) {
+        invalidateNow(socketURI);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateNow(socketURI);
+                }
+            });
+        }
+    }
+
+    private void invalidateNow(URI socketURI) {
+        invalidations.incrementAndGet();
+        cache.invalidate(socketURI);
+    }
+}
@@ -64,6 +64,8 @@ public class ConnectionService {
     EntityManager entityManager;
     @Autowired
     SocketAclService socketAclService;
+    @Autowired
+    ConnectedSocketsCache connectedSocketsCache;
 
     public Optional<Connection> getConnection(URI connectionURI) {
         return connectionRepository.findOneByConnectionURI(connectionURI);
@@ -162,7 +164,7 @@ public class ConnectionService {
                         "socket compatibility");
         // state transiation
         ConnectionState nextState = con.getState().transit(ConnectionEventType.OWNER_CONNECT);
-        con.changeStateTo(nextState);
+        changeState(con, nextState);
         if (logger.isDebugEnabled()) {
             logger.debug("connect from owner: set connection {} state to: {}", con.getConnectionURI(),
                             con.getState());
@@ -259,7 +261,7 @@ public class ConnectionService {
             }
         }
         ConnectionState nextState = con.getState().transit(ConnectionEventType.PARTNER_CONNECT);
-        con.changeStateTo(nextState);
+        changeState(con, nextState);
         if (logger.isDebugEnabled()) {
             logger.debug("connect from node: set connection {} state to: {}", con.getConnectionURI(), con.getState());
         }
@@ -384,6 +386,7 @@ public class ConnectionService {
         con.setTargetAtomURI(otherAtomURI);
         con.setTypeURI(socketTypeURI);
         con.setSocketURI(socketURI);
+        connectedSocketsCache.invalidate(socketURI);
         if (targetSocketURI != null) {
             con.setTargetSocketURI(targetSocketURI);
         }
@@ -471,7 +474,7 @@ public class ConnectionService {
         // perform state transit
         ConnectionState nextState = performStateTransit(con, connectionEventType);
         // set new state and save in the db
-        con.changeStateTo(nextState);
+        changeState(con, nextState);
         // save in the db
         return connectionRepository.save(con);
     }
@@ -481,7 +484,7 @@ public class ConnectionService {
         // perform state transit
         ConnectionState nextState = performStateTransit(con, connectionEventType);
         // set new state and save in the db
-        con.changeStateTo(nextState);
+        changeState(con, nextState);
         // save in the db
         dataDerivationService.deriveDataIfNecessary(con);
         if (con.getState() == ConnectionState.CLOSED) {
@@ -610,6 +613,11 @@ public class ConnectionService {
      * @throws won.protocol.exception.IllegalMessageForConnectionStateException if
      * the message is not allowed in the connection's current state
      */
+    private void changeState(Connection con, ConnectionState nextState) {
+        con.changeStateTo(nextState);
+        connectedSocketsCache.invalidate(con.getSocketURI());
+    }
+
     private ConnectionState performStateTransit(Connection con, ConnectionEventType msg)
                     throws IllegalMessageForConnectionStateException {
         if (!msg.isMessageAllowed(con.getState())) {
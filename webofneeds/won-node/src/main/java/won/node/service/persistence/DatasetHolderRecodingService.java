@@ -0,0 +1,131 @@
+package won.node.service.persistence;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import won.protocol.model.DatasetHolder;
+import won.protocol.repository.DatasetHolderRepository;
+
+/**
+ * Converts datasets stored by earlier versions (N-Quads text) to the compressed
+ * binary format written by {@link DatasetHolder#setDataset}.
+ */
+@Component
+public class DatasetHolderRecodingService {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    @Autowired
+    private DatasetHolderRepository datasetHolderRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Recodes the next <code>batchSize</code> datasets that are not stored in the
+     * current format yet. Only these rows are read and locked, so that concurrent
+     * updates of a dataset are not lost.
+     * <p>
+     * The recoded datasets are written with plain SQL rather than through the
+     * entities: the content does not change, so their version (and the ETags
+     * derived from it) stays the same. The dataset column holds a large object
+     * reference, and writing a new large object would leave the old one behind,
+     * so the old one is unlinked in the same transaction.
+     * </p>
+     *
+     * @param afterId only datasets with a greater id are looked at
+     * @param result counts the datasets that were recoded
+     * @return the id of the last dataset looked at, or null if there are none left
+     */
+    @Transactional
+    public Long recodeDatasets(Long afterId, int batchSize, RecodingResult result) {
+        Slice<DatasetHolder> datasetHolders = datasetHolderRepository.findByFormatAfterIdForUpdate(
+                        DatasetHolder.FORMAT_LEGACY, afterId, PageRequest.of(0, batchSize));
+        Long lastId = null;
+        Map<Long, byte[]> recoded = new LinkedHashMap<>();
+        List<Long> alreadyRecoded = new ArrayList<>();
+        for (DatasetHolder datasetHolder : datasetHolders) {
+            lastId = datasetHolder.getId();
+            try {
+                if (datasetHolder.recode()) {
+                    recoded.put(datasetHolder.getId(), datasetHolder.getDatasetBytes());
+                } else {
+                    alreadyRecoded.add(datasetHolder.getId());
+                }
+            } catch (Exception e) {
+                // leave the dataset as it is
+                logger.warn("could not recode dataset {}: {}", datasetHolder.getUri(), e.getMessage());
+            }
+            // the holders must not be flushed, that would change their version
+            entityManager.detach(datasetHolder);
+        }
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            writeRecodedDatasets(connection, recoded);
+            markAsRecoded(connection, alreadyRecoded);
+        });
+        result.recoded += recoded.size();
+        return lastId;
+    }
+
+    private static void writeRecodedDatasets(Connection connection, Map<Long, byte[]> recoded) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT dataset FROM rdf_datasets WHERE id = ?");
+                        PreparedStatement update = connection.prepareStatement(
+                                        "UPDATE rdf_datasets SET dataset = lo_from_bytea(0, ?), format = ? WHERE id = ?");
+                        PreparedStatement unlink = connection.prepareStatement("SELECT lo_unlink(?)")) {
+            for (Map.Entry<Long, byte[]> entry : recoded.entrySet()) {
+                long oldDataset;
+                select.setLong(1, entry.getKey());
+                try (ResultSet rs = select.executeQuery()) {
+                    if (!rs.next()) {
+                        continue;
+                    }
+                    oldDataset = rs.getLong(1);
+                }
+                update.setBytes(1, entry.getValue());
+                update.setInt(2, DatasetHolder.FORMAT_CURRENT);
+                update.setLong(3, entry.getKey());
+                update.executeUpdate();
+                unlink.setLong(1, oldDataset);
+                unlink.execute();
+            }
+        }
+    }
+
+    private static void markAsRecoded(Connection connection, List<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement update = connection.prepareStatement("UPDATE rdf_datasets SET format = ? WHERE id = ?")) {
+            for (Long id : ids) {
+                update.setInt(1, DatasetHolder.FORMAT_CURRENT);
+                update.setLong(2, id);
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+    }
+
+    public static class RecodingResult {
+        private long recoded = 0;
+
+        public long getRecoded() {
+            return recoded;
+        }
+    }
+}
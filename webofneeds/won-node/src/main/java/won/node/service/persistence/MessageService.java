@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
+import won.protocol.WonConstants;
 import won.protocol.exception.DuplicateResponseException;
 import won.protocol.exception.IncoherentDatabaseStateException;
 import won.protocol.exception.NoSuchMessageException;
@@ -37,6 +38,10 @@ public class MessageService {
     @Autowired
     private MessageEventRepository messageEventRepository;
     @Autowired
+    private UnconfirmedMessageRepository unconfirmedMessageRepository;
+    @Autowired
+    private PendingConfirmationRepository pendingConfirmationRepository;
+    @Autowired
     private EntityManager entityManager;
 
     public Optional<MessageEvent> getMessage(URI messageURI, URI parentURI) {
@@ -145,33 +150,27 @@ public class MessageService {
             logger.debug("no previous messages found, not removing any unconfirmed messages");
             return;
         }
-        sw.start("load pending");
-        Map<URI, Set<URI>> pending = container.getPendingConfirmations();
-        sw.stop();
         sw.start("determine confirmed");
-        Set<URI> confirmed = pending
-                        .entrySet()
-                        .stream()
-                        .filter(e -> previous.contains(e.getKey()))
-                        .flatMap(e -> e.getValue().stream())
-                        .collect(Collectors.toSet());
+        List<URI> confirmed = pendingConfirmationRepository.findConfirmedMessageURIs(container, previous);
         sw.stop();
         if (logger.isDebugEnabled()) {
             logger.debug("{} unconfirmed for message container of {}, removing {} transitively confirmed",
-                            new Object[] { container.getUnconfirmedCount(), parent, confirmed.size() });
-            logger.debug("unconfirmed: {}", container.peekAtUnconfirmed());
+                            new Object[] { unconfirmedMessageRepository.countByContainer(container), parent,
+                                            confirmed.size() });
+            logger.debug("unconfirmed: {}", unconfirmedMessageRepository.findByContainer(container));
             logger.debug("transitively confirmed: {}", confirmed);
         }
         sw.start("remove unconfirmed");
-        container.removeUnconfirmed(confirmed);
+        if (!confirmed.isEmpty()) {
+            unconfirmedMessageRepository.deleteByContainerAndMessageURIs(container, confirmed);
+        }
         sw.stop();
         sw.start("remove pending");
-        // container.removePendingConfirmations(previous);
-        container.removePendingConfirmations(previous);
+        pendingConfirmationRepository.deleteByContainerAndConfirmingMessageURIs(container, previous);
         sw.stop();
         if (logger.isDebugEnabled()) {
             logger.debug("{} messages left in unconfirmed list of the message container of {}",
-                            new Object[] { container.getUnconfirmedCount(), parent });
+                            new Object[] { unconfirmedMessageRepository.countByContainer(container), parent });
         }
         logger.debug("removing confirmed took {} millis", sw.getLastTaskTimeMillis());
         if (logger.isDebugEnabled()) {
@@ -179,39 +178,35 @@ public class MessageService {
         }
     }
 
+    /**
+     * Stores the message, or all messages of the delivery chain, in the message
+     * container of the parent. The container, duplicate responses and the dataset
+     * holders of messages already stored elsewhere are looked up once for all
+     * messages, and the new message events are saved together, so that they are
+     * inserted in JDBC batches when the transaction is flushed.
+     */
     public void saveMessage(final WonMessage messageOrDeliveryChain, URI parent) {
         StopWatch sw = new StopWatch();
-        for (WonMessage wonMessage : messageOrDeliveryChain.getAllMessages()) {
+        Set<WonMessage> messages = messageOrDeliveryChain.getAllMessages();
+        sw.start("get message container");
+        MessageContainer container = loadOrCreateMessageContainer(parent, getContainerMessageType(messages));
+        sw.stop();
+        sw.start("check for duplicate responses");
+        checkForDuplicateResponses(messages, parent);
+        sw.stop();
+        sw.start("get event dataset ids (if any)");
+        // a message can be in multiple containers (=parents), such messages share a
+        // datasetholder
+        Map<URI, Long> datasetHolderIds = getDatasetHolderIds(messages);
+        sw.stop();
+        List<MessageEvent> events = new ArrayList<>(messages.size());
+        for (WonMessage wonMessage : messages) {
             logger.debug("STORING {} message {} under parent {}", new Object[] { wonMessage.getMessageType(),
                             wonMessage.getMessageURI(), parent });
-            sw.start("get message container");
-            MessageContainer container = loadOrCreateMessageContainer(parent, wonMessage.getMessageType());
-            sw.stop();
             // unconfirmed list:
             // - add any success response message from partner in a connection
             // - add any of our system responses messages if we 're in an atom's message
             // container.
-            if (wonMessage.getMessageTypeRequired().isSuccessResponse()) {
-                sw.start("check for duplicate response");
-                // make sure it's not a duplicate response
-                URI respondingTo = wonMessage.getRespondingToMessageURIRequired();
-                URI responseContainer = wonMessage.getAtomURI();
-                if (responseContainer == null) {
-                    responseContainer = wonMessage.getConnectionURIRequired();
-                }
-                Optional<MessageEvent> duplicate = messageEventRepository
-                                .findOneByParentURIAndRespondingToURIAndResponseContainerURI(parent, respondingTo,
-                                                responseContainer);
-                if (duplicate.isPresent()) {
-                    logger.debug("Detected duplicate response to {} from container {} in container {}: {}",
-                                    new Object[] { respondingTo, responseContainer, parent,
-                                                    wonMessage.toShortStringForDebug() });
-                    throw new DuplicateResponseException(MessageFormat.format(
-                                    "Detected duplicate response to {0} from container {1} in container {2}: {3}",
-                                    respondingTo, responseContainer, parent, wonMessage.toShortStringForDebug()));
-                }
-                sw.stop();
-            }
             if (isExternalSuccessResponseInConnection(parent, wonMessage)) {
                 sw.start("process external response in connection");
                 if (logger.isDebugEnabled()) {
@@ -236,12 +231,11 @@ public class MessageService {
                 // our message confirms a number of remote ones (those that were in the
                 // unconfirmed list). However, only when a remote message confirms ours, we can
                 // remove them from the unconfirmed list
-                List<URI> previous = wonMessage.getPreviousMessageURIs();
-                if (!previous.isEmpty()) {
-                    container.addPendingConfirmation(
-                                    wonMessage.getMessageURIRequired(),
-                                    previous.stream().collect(Collectors.toSet()));
-                }
+                URI confirming = wonMessage.getMessageURIRequired();
+                pendingConfirmationRepository.saveAll(wonMessage.getPreviousMessageURIs().stream()
+                                .distinct()
+                                .map(confirmed -> new PendingConfirmation(container, confirming, confirmed))
+                                .collect(Collectors.toList()));
                 sw.stop();
             } else if (isOwnSuccessResponseInAtom(parent, wonMessage)) {
                 sw.start("process own response in atom's message container");
@@ -255,32 +249,121 @@ public class MessageService {
             }
             sw.start("create event");
             MessageEvent event = new MessageEvent(parent, wonMessage, container);
-            // a message can be in multiple containers (=parents), such messages share a
-            // datasetholder
-            sw.stop();
-            sw.start("get event dataset id (if any)");
-            Optional<Long> datasetHolderId = datasetHolderRepository.findIdByUri(wonMessage.getMessageURIRequired());
-            sw.stop();
-            sw.start("Add dataset to message");
-            if (datasetHolderId.isPresent()) {
-                DatasetHolder datasetHolder = entityManager.getReference(DatasetHolder.class, datasetHolderId.get());
-                event.setDatasetHolder(datasetHolder);
+            Long datasetHolderId = datasetHolderIds.get(wonMessage.getMessageURIRequired());
+            if (datasetHolderId != null) {
+                event.setDatasetHolder(entityManager.getReference(DatasetHolder.class, datasetHolderId));
             } else {
                 event.setDatasetHolder(new DatasetHolder(wonMessage.getMessageURI(),
                                 WonMessageEncoder.encodeAsDataset(wonMessage)));
             }
-            sw.stop();
-            sw.start("store message");
-            event = messageEventRepository.save(event);
+            events.add(event);
             sw.stop();
         }
+        sw.start("store messages");
+        messageEventRepository.saveAll(events);
+        sw.stop();
         if (logger.isDebugEnabled()) {
-            logger.debug("Timing info:\n{}", sw.prettyPrint());
+            logger.debug("Timing info for storing {} message(s) under parent {}:\n{}",
+                            new Object[] { events.size(), parent, sw.prettyPrint() });
+        }
+    }
+
+    /**
+     * Returns the message type that determines which kind of message container is
+     * created for the messages, if the parent does not have one yet.
+     */
+    private static WonMessageType getContainerMessageType(Set<WonMessage> messages) {
+        WonMessageType containerMessageType = null;
+        for (WonMessage message : messages) {
+            WonMessageType messageType = message.getMessageType();
+            if (WonMessageType.CREATE_ATOM.equals(messageType) || WonMessageType.CONNECT.equals(messageType)
+                            || WonMessageType.SOCKET_HINT_MESSAGE.equals(messageType)) {
+                return messageType;
+            }
+            containerMessageType = messageType;
         }
+        return containerMessageType;
+    }
+
+    /**
+     * Makes sure that none of the success responses is a duplicate response, i.e.
+     * one responding to the same message from the same container as a response that
+     * is already stored, or as another response in the messages.
+     *
+     * @throws DuplicateResponseException
+     */
+    private void checkForDuplicateResponses(Set<WonMessage> messages, URI parent) {
+        // (respondingTo, responseContainer) -> response
+        Map<List<URI>, WonMessage> responses = new HashMap<>();
+        for (WonMessage wonMessage : messages) {
+            if (!wonMessage.getMessageTypeRequired().isSuccessResponse()) {
+                continue;
+            }
+            URI respondingTo = wonMessage.getRespondingToMessageURIRequired();
+            URI responseContainer = wonMessage.getAtomURI();
+            if (responseContainer == null) {
+                responseContainer = wonMessage.getConnectionURIRequired();
+            }
+            if (responses.put(Arrays.asList(respondingTo, responseContainer), wonMessage) != null) {
+                throw newDuplicateResponseException(respondingTo, responseContainer, parent, wonMessage);
+            }
+        }
+        if (responses.isEmpty()) {
+            return;
+        }
+        Set<URI> respondingToURIs = responses.keySet().stream().map(key -> key.get(0)).collect(Collectors.toSet());
+        for (Object[] stored : messageEventRepository.findRespondingToAndResponseContainerURIs(parent,
+                        respondingToURIs)) {
+            WonMessage duplicate = responses.get(Arrays.asList(stored[0], stored[1]));
+            if (duplicate != null) {
+                throw newDuplicateResponseException((URI) stored[0], (URI) stored[1], parent, duplicate);
+            }
+        }
+    }
+
+    private static DuplicateResponseException newDuplicateResponseException(URI respondingTo,
+                    URI responseContainer, URI parent, WonMessage wonMessage) {
+        logger.debug("Detected duplicate response to {} from container {} in container {}: {}",
+                        new Object[] { respondingTo, responseContainer, parent, wonMessage.toShortStringForDebug() });
+        return new DuplicateResponseException(MessageFormat.format(
+                        "Detected duplicate response to {0} from container {1} in container {2}: {3}",
+                        respondingTo, responseContainer, parent, wonMessage.toShortStringForDebug()));
+    }
+
+    /**
+     * Returns the ids of the dataset holders that already exist for the messages,
+     * by message URI.
+     */
+    private Map<URI, Long> getDatasetHolderIds(Set<WonMessage> messages) {
+        Set<URI> messageURIs = messages.stream().map(WonMessage::getMessageURIRequired).collect(Collectors.toSet());
+        Map<URI, Long> ids = new HashMap<>();
+        for (Object[] uriAndId : datasetHolderRepository.findUrisAndIdsByUris(messageURIs)) {
+            ids.put((URI) uriAndId[0], (Long) uriAndId[1]);
+        }
+        return ids;
     }
 
     private void addUnconfirmed(MessageContainer container, WonMessage toAdd) {
-        container.addUnconfirmed(toAdd.getMessageURIRequired());
+        URI messageURI = toAdd.getMessageURIRequired();
+        if (!unconfirmedMessageRepository.existsByContainerAndMessageURI(container, messageURI)) {
+            unconfirmedMessageRepository.save(new UnconfirmedMessage(container, messageURI));
+        }
+    }
+
+    /**
+     * Returns the URIs of the unconfirmed messages of the container, increments
+     * their reference counts and removes those that have now been referenced
+     * <code>WonConstants.MAX_CONFIRMATIONS</code> times.
+     *
+     * @return the unconfirmed message URIs
+     */
+    public Set<URI> getUnconfirmedAndIncrementAndCleanup(MessageContainer container) {
+        Set<URI> result = new HashSet<>(unconfirmedMessageRepository.findMessageURIsByContainer(container));
+        if (!result.isEmpty()) {
+            unconfirmedMessageRepository.deleteReferencedAtLeast(container, WonConstants.MAX_CONFIRMATIONS);
+            unconfirmedMessageRepository.incrementReferenceCounts(container);
+        }
+        return result;
     }
 
     public boolean isOwnSuccessResponseInAtom(URI parent, WonMessage wonMessage) {
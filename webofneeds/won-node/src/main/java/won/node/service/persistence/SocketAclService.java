@@ -9,6 +9,7 @@ import org.springframework.stereotype.Component;
 import won.auth.socket.SocketAuthorizationSource;
 import won.auth.socket.SocketAuthorizations;
 import won.auth.socket.support.SocketAclAlgorithms;
+import won.node.springsecurity.acl.WonAclEvaluatorCache;
 import won.protocol.model.Atom;
 import won.protocol.model.Connection;
 import won.protocol.model.Socket;
@@ -28,6 +29,8 @@ public class SocketAclService {
     ConnectionService connectionService;
     @Autowired
     SocketAuthorizationSource socketAuthorizationSource;
+    @Autowired(required = false)
+    WonAclEvaluatorCache wonAclEvaluatorCache;
     SocketAclAlgorithms socketAuthorizationAclModifierAlgorithms = new SocketAclAlgorithms();
 
     /**
@@ -55,6 +58,7 @@ public class SocketAclService {
             }
         }
         atomDataset.addNamedModel(socketAclGraphUri.toString(), ModelFactory.createModelForGraph(socketAcls));
+        invalidateAclEvaluator(atomURI);
     }
 
     /**
@@ -81,6 +85,7 @@ public class SocketAclService {
                                             con.getTargetAtomURI());
         }
         atomDataset.addNamedModel(socketAclGraphUri.toString(), ModelFactory.createModelForGraph(socketAcls));
+        invalidateAclEvaluator(atomUri);
     }
 
     /**
@@ -105,6 +110,7 @@ public class SocketAclService {
                                             atomURI, true);
         }
         atomDataset.addNamedModel(socketAclGraphUri.toString(), ModelFactory.createModelForGraph(socketAcls));
+        invalidateAclEvaluator(atomURI);
     }
 
     /**
@@ -128,5 +134,12 @@ public class SocketAclService {
                         .removeAuthorizationsForSocket(socketAcls, con.getSocketURI(),
                                         con.getTargetAtomURI(), removeAsRequestingSocket);
         atomDataset.addNamedModel(socketAclGraphUri.toString(), ModelFactory.createModelForGraph(socketAcls));
+        invalidateAclEvaluator(atomUri);
+    }
+
+    private void invalidateAclEvaluator(URI atomUri) {
+        if (wonAclEvaluatorCache != null) {
+            wonAclEvaluatorCache.invalidate(atomUri);
+        }
     }
 }
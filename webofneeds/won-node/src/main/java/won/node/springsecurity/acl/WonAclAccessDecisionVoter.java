@@ -68,6 +68,8 @@ public class WonAclAccessDecisionVoter implements AccessDecisionVoter<FilterInvo
     private CryptographyService cryptographyService;
     @Autowired
     private WonAclEvaluatorFactory wonAclEvaluatorFactory;
+    @Autowired
+    private WonAclEvaluatorCache wonAclEvaluatorCache;
 
     public WonAclAccessDecisionVoter() {
     }
@@ -282,7 +284,7 @@ public class WonAclAccessDecisionVoter implements AccessDecisionVoter<FilterInvo
                             WonAclEvalContext.allowAll());
             return legacyImpl.get();
         }
-        WonAclEvaluator wonAclEvaluator = wonAclEvaluatorFactory.create(aclGraph.get());
+        WonAclEvaluator wonAclEvaluator = wonAclEvaluatorCache.getEvaluator(atom.get(), aclGraph.get());
         // set up request object
         OperationRequest request = new OperationRequest();
         request.setReqAtom(atomUri);
@@ -0,0 +1,182 @@
+package won.node.springsecurity.acl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.jena.graph.Graph;
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import won.auth.WonAclEvaluator;
+import won.auth.WonAclEvaluatorFactory;
+import won.auth.model.DecisionValue;
+import won.auth.model.OperationRequest;
+import won.protocol.model.Atom;
+import won.protocol.model.DatasetHolder;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one {@link WonAclEvaluator} per atom so that the atom's authorizations
+ * are not instantiated from the ACL graph for every message. The evaluator is
+ * reused as long as the atom's dataset holder and its version are unchanged;
+ * code that changes an atom's ACL graph in place should also call
+ * {@link #invalidate(URI)}, which drops the evaluator immediately and once more
+ * when the transaction ends, so that an evaluator created concurrently from the
+ * old graph is not kept.
+ * <p>
+ * Optionally, decisions for identical requests can be cached for a short time
+ * (<code>acl.decisionCache.expireAfterSeconds</code>, 0 disables the cache).
+ * Decisions may depend on connection states of other atoms, so a cached
+ * decision can be that old - much like an issued token, which stays valid for
+ * {@link WonAclEvaluator#DEFAULT_TOKEN_EXPIRES_AFTER_SECONDS}.
+ * </p>
+ */
+public class WonAclEvaluatorCache implements InitializingBean {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String SIMON_PREFIX = "won.node.acl";
+    private final Counter evaluatorHits = SimonManager.getCounter(SIMON_PREFIX + ".evaluatorCache.hit");
+    private final Counter evaluatorMisses = SimonManager.getCounter(SIMON_PREFIX + ".evaluatorCache.miss");
+    private final Counter decisionHits = SimonManager.getCounter(SIMON_PREFIX + ".decisionCache.hit");
+    private final Counter decisionMisses = SimonManager.getCounter(SIMON_PREFIX + ".decisionCache.miss");
+    @Autowired
+    private WonAclEvaluatorFactory wonAclEvaluatorFactory;
+    @Value("${acl.evaluatorCache.maxSize:10000}")
+    private int evaluatorCacheMaxSize = 10000;
+    @Value("${acl.decisionCache.maxSize:100000}")
+    private int decisionCacheMaxSize = 100000;
+    @Value("${acl.decisionCache.expireAfterSeconds:60}")
+    private int decisionCacheExpireAfterSeconds = 60;
+    private Cache<URI, VersionedEvaluator> evaluators;
+    private Cache<List<Object>, DecisionValue> decisions;
+    // incremented on each invalidation, so an evaluator created in the meantime is
+    // not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public WonAclEvaluatorCache() {
+    }
+
+    public WonAclEvaluatorCache(WonAclEvaluatorFactory wonAclEvaluatorFactory) {
+        this.wonAclEvaluatorFactory = wonAclEvaluatorFactory;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.evaluators = CacheBuilder.newBuilder()
+                        .maximumSize(evaluatorCacheMaxSize)
+                        .build();
+        this.decisions = CacheBuilder.newBuilder()
+                        .maximumSize(decisionCacheMaxSize)
+                        .expireAfterWrite(decisionCacheExpireAfterSeconds, TimeUnit.SECONDS)
+                        .build();
+    }
+
+    /**
+     * Returns the evaluator for the atom's current ACL graph.
+     *
+     * @param atom the atom
+     * @param aclGraph the atom's ACL graph, as obtained by
+     * {@link Atom#getAclGraph()}
+     */
+    public WonAclEvaluator getEvaluator(Atom atom, Graph aclGraph) {
+        DatasetHolder datasetHolder = atom.getDatatsetHolder();
+        if (datasetHolder == null || datasetHolder.getId() == null) {
+            // not persisted yet, we can't tell if it changes
+            return wonAclEvaluatorFactory.create(aclGraph);
+        }
+        URI atomUri = atom.getAtomURI();
+        VersionedEvaluator cached = evaluators.getIfPresent(atomUri);
+        if (cached != null && cached.isFor(datasetHolder)) {
+            evaluatorHits.increase();
+            return cached.evaluator;
+        }
+        evaluatorMisses.increase();
+        long invalidationsBefore = invalidations.get();
+        if (logger.isDebugEnabled()) {
+            logger.debug("creating acl evaluator for atom {}, dataset version {}", atomUri,
+                            datasetHolder.getVersion());
+        }
+        WonAclEvaluator evaluator = wonAclEvaluatorFactory.create(aclGraph);
+        if (invalidations.get() == invalidationsBefore) {
+            evaluators.put(atomUri, new VersionedEvaluator(datasetHolder.getId(), datasetHolder.getVersion(),
+                            evaluator));
+        }
+        return evaluator;
+    }
+
+    /**
+     * Decides the request, or returns the decision made earlier for an identical
+     * request with the same evaluator. As generated model classes such as
+     * {@link OperationRequest} do not have value equality, the caller has to
+     * describe the request by <code>requestKey</code>: values that, together with
+     * the evaluator, determine the decision. Requests that carry tokens must not be
+     * decided this way, as the tokens' validity is not checked again.
+     */
+    public DecisionValue decide(WonAclEvaluator evaluator, OperationRequest request, Object... requestKey) {
+        if (decisionCacheExpireAfterSeconds <= 0) {
+            return evaluator.decide(request).getDecision();
+        }
+        List<Object> key = new ArrayList<>(requestKey.length + 1);
+        // WonAclEvaluator has identity equality: a new evaluator means new decisions
+        key.add(evaluator);
+        key.addAll(Arrays.asList(requestKey));
+        DecisionValue decision = decisions.getIfPresent(key);
+        if (decision != null) {
+            decisionHits.increase();
+            return decision;
+        }
+        decisionMisses.increase();
+        decision = evaluator.decide(request).getDecision();
+        decisions.put(key, decision);
+        return decision;
+    }
+
+    /**
+     * Drops the evaluator for the atom, e.g. after its ACL graph was changed. If a
+     * transaction is active, it is dropped again when the transaction ends.
+     */
+    public void invalidate(URI atomUri) {
+        invalidateNow(atomUri);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateNow(atomUri);
+                }
+            });
+        }
+    }
+
+    private void invalidateNow(URI atomUri) {
+        invalidations.incrementAndGet();
+        evaluators.invalidate(atomUri);
+    }
+
+    private static class VersionedEvaluator {
+        private final Long datasetHolderId;
+        private final int version;
+        private final WonAclEvaluator evaluator;
+
+        public VersionedEvaluator(Long datasetHolderId, int version, WonAclEvaluator evaluator) {
+            this.datasetHolderId = datasetHolderId;
+            this.version = version;
+            this.evaluator = evaluator;
+        }
+
+        public boolean isFor(DatasetHolder datasetHolder) {
+            return Objects.equals(datasetHolderId, datasetHolder.getId()) && version == datasetHolder.getVersion();
+        }
+    }
+}
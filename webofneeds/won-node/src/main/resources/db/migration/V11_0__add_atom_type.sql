@@ -0,0 +1,13 @@
+-- rdf:types of atoms, for filtering atom lists by type
+CREATE TABLE atom_type
+(
+    atom_id BIGINT NOT NULL REFERENCES atom (id),
+    typeuri VARCHAR(255) NOT NULL
+);
+CREATE INDEX IDX_ATOM_TYPE_ATOM_ID ON atom_type (atom_id);
+CREATE INDEX IDX_ATOM_TYPE_TYPE_URI ON atom_type (typeuri);
+
+-- for filtering atom lists by socket type
+CREATE INDEX IDX_SOCKET_TYPE_ATOM ON socket (typeuri, atomuri);
+
+-- atom_type is filled for existing atoms by AtomTypeIndexer on startup
@@ -0,0 +1,6 @@
+-- format of rdf_datasets.dataset, so that DatasetHolderMigrator only reads and
+-- locks the rows it still has to convert. Rows already written in the current
+-- format (header byte 1) are marked here.
+ALTER TABLE rdf_datasets ADD COLUMN format integer DEFAULT 0 NOT NULL;
+UPDATE rdf_datasets SET format = 1 WHERE lo_get(dataset, 0, 1) = '\x01'::bytea;
+CREATE INDEX IDX_RDF_DATASETS_LEGACY_FORMAT ON rdf_datasets (id) WHERE format = 0;
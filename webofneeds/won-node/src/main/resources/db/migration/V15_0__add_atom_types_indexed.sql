@@ -0,0 +1,6 @@
+-- marks atoms whose types have been copied to atom_type, so that AtomTypeIndexer
+-- does not look at atoms without any type again on every startup. Atoms that
+-- already have types are marked here.
+ALTER TABLE atom ADD COLUMN types_indexed boolean DEFAULT false NOT NULL;
+UPDATE atom SET types_indexed = true WHERE id IN (SELECT atom_id FROM atom_type);
+CREATE INDEX IDX_ATOM_TYPES_NOT_INDEXED ON atom (id) WHERE NOT types_indexed;
@@ -19,7 +19,9 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
 import won.node.service.linkeddata.lookup.SocketLookupFromLinkedData;
 import won.node.service.nodeconfig.URIService;
+import won.node.service.persistence.AtomInformationService;
 import won.node.service.persistence.AtomService;
+import won.node.service.persistence.AtomTypeIndexService;
 import won.node.service.persistence.ConnectionService;
 import won.node.service.persistence.DataDerivationService;
 import won.node.service.persistence.MessageService;
@@ -33,6 +35,8 @@ import won.protocol.repository.AtomMessageContainerRepository;
 import won.protocol.repository.AtomRepository;
 import won.protocol.repository.MessageEventRepository;
 import won.protocol.service.WonNodeInformationService;
+import won.protocol.util.KeysetCursor;
+import won.protocol.util.KeysetPageItem;
 import won.protocol.util.linkeddata.LinkedDataSource;
 
 import java.io.IOException;
@@ -40,12 +44,16 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 
 @ContextConfiguration(locations = { "classpath:/won/node/PersistenceTest.xml",
@@ -76,6 +84,10 @@ public class PersistenceTest {
     MessageService messageService;
     @Autowired
     ConnectionService connectionService;
+    @Autowired
+    AtomTypeIndexService atomTypeIndexService;
+    @Autowired
+    AtomInformationService atomInformationService;
     @MockBean
     URIService uriService;
     @Autowired
@@ -154,6 +166,91 @@ public class PersistenceTest {
         assertEquals(2, messageEventRepository.findByParentURI(atom2.getAtomURI()).size());
     }
 
+    @Test
+    public void test_keyset_pages() throws Exception {
+        Dataset ds = createTestDataset("/won/node/test-messages/create-atom.trig");
+        WonMessage msg = WonMessage.of(ds);
+        Atom atom = atomService.createAtom(msg);
+        URI atomURI = atom.getAtomURI();
+        messageService.saveMessage(msg, atomURI);
+        messageService.saveMessage(WonMessageBuilder
+                        .response()
+                        .respondingToMessageFromOwner(msg)
+                        .success()
+                        .build(), atomURI);
+        // the first pages must not bind KeysetCursor.NEWEST, which is out of the
+        // database's timestamp range
+        List<KeysetPageItem> atoms = atomInformationService
+                        .listPagedAtomURIsBefore(KeysetCursor.NEWEST, 10, null, null, null).getContent();
+        assertTrue(atoms.stream().anyMatch(item -> item.getUri().equals(atomURI)));
+        KeysetPageItem newestAtom = atoms.get(0);
+        assertFalse(atomInformationService.listPagedAtomURIsBefore(newestAtom.getCursor(), 10, null, null, null)
+                        .getContent().stream().anyMatch(item -> item.getUri().equals(newestAtom.getUri())));
+        List<MessageEvent> messages = atomInformationService
+                        .listConnectionEventsBefore(atomURI, KeysetCursor.NEWEST, 10, null, false).getContent();
+        assertEquals(2, messages.size());
+        assertEquals(2, atomInformationService.listConnectionEventsBefore(atomURI, KeysetCursor.NEWEST, 10, null,
+                        true).getContent().size());
+        KeysetCursor afterNewestMessage = new KeysetCursor(messages.get(0).getCreationDate(),
+                        messages.get(0).getId());
+        List<MessageEvent> older = atomInformationService
+                        .listConnectionEventsBefore(atomURI, afterNewestMessage, 10, null, false).getContent();
+        assertEquals(1, older.size());
+        assertEquals(messages.get(1).getId(), older.get(0).getId());
+        KeysetCursor afterOldestMessage = new KeysetCursor(older.get(0).getCreationDate(), older.get(0).getId());
+        assertEquals(1, atomInformationService.listConnectionEventsAfter(atomURI, afterOldestMessage, 10, null, false)
+                        .getContent().size());
+        atomInformationService.listConnectionsBefore(KeysetCursor.NEWEST, 10, null);
+        assertTrue(atomInformationService.listConnectionsBefore(atomURI, KeysetCursor.NEWEST, 10, null, null, null)
+                        .getContent().isEmpty());
+    }
+
+    @Test
+    public void test_filter_Atoms_by_state_and_types() throws Exception {
+        URI product = URI.create("http://schema.org/Product");
+        URI chatSocket = URI.create("https://w3id.org/won/ext/chat#ChatSocket");
+        URI other = URI.create("http://schema.org/Event");
+        Atom atom = atomService.createAtom(WonMessage.of(createTestDataset("/won/node/test-messages/create-atom.trig")));
+        URI atomURI = atom.getAtomURI();
+        assertTrue(atom.isTypesIndexed());
+        assertTrue(atom.getTypes().contains(product));
+        assertTrue(atomRepository.getAllAtomURIs(null, null, product).contains(atomURI));
+        assertTrue(atomRepository.getAllAtomURIs(AtomState.ACTIVE, chatSocket, product).contains(atomURI));
+        assertTrue(atomRepository.getAllAtomURIs(AtomState.ACTIVE, chatSocket, null).contains(atomURI));
+        assertFalse(atomRepository.getAllAtomURIs(AtomState.INACTIVE, chatSocket, product).contains(atomURI));
+        assertFalse(atomRepository.getAllAtomURIs(null, null, other).contains(atomURI));
+        assertFalse(atomRepository.getAllAtomURIs(null, other, null).contains(atomURI));
+        // deleted atoms are only listed when not filtering by type
+        atom.setState(AtomState.DELETED);
+        atomRepository.saveAndFlush(atom);
+        assertTrue(atomRepository.getAllAtomURIs(null, null, null).contains(atomURI));
+        assertFalse(atomRepository.getAllAtomURIs(null, null, product).contains(atomURI));
+        assertFalse(atomRepository.getAllAtomURIs(null, chatSocket, null).contains(atomURI));
+    }
+
+    @Test
+    public void test_index_types_of_Atoms_created_before_atom_type() throws Exception {
+        Atom atom = atomService.createAtom(WonMessage.of(createTestDataset("/won/node/test-messages/create-atom.trig")));
+        Set<URI> types = Set.copyOf(atom.getTypes());
+        atom.getTypes().clear();
+        atom.setTypesIndexed(false);
+        atomRepository.saveAndFlush(atom);
+        int version = atom.getVersion();
+        Date lastUpdate = atom.getLastUpdate();
+        assertEquals(atom.getId(), atomTypeIndexService.indexAtomTypes(atom.getId() - 1, 10));
+        Atom indexed = atomService.getAtomRequired(atom.getAtomURI());
+        assertTrue(indexed.isTypesIndexed());
+        assertEquals(types, indexed.getTypes());
+        // indexing is not an update of the atom
+        assertEquals(version, indexed.getVersion());
+        assertEquals(lastUpdate, indexed.getLastUpdate());
+        // indexed atoms are not looked at again, even if they have no types
+        indexed.getTypes().clear();
+        atomRepository.saveAndFlush(indexed);
+        assertNull(atomTypeIndexService.indexAtomTypes(atom.getId() - 1, 10));
+        assertTrue(atomService.getAtomRequired(atom.getAtomURI()).getTypes().isEmpty());
+    }
+
     @Test
     public void test_create_two_atoms_and_connect() throws Exception {
         // create an atom, as before
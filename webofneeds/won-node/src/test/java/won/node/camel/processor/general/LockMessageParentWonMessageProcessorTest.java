@@ -0,0 +1,127 @@
+package won.node.camel.processor.general;
+
+import static org.mockito.ArgumentMatchers.any;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import won.node.camel.service.ParentLockException;
+import won.node.camel.service.ParentLockManager;
+import won.node.camel.service.WonCamelHelper;
+import won.node.service.persistence.MessageService;
+import won.protocol.message.WonMessage;
+import won.protocol.message.WonMessageDirection;
+import won.protocol.message.WonMessageType;
+import won.protocol.model.Atom;
+import won.protocol.model.Connection;
+import won.protocol.repository.AtomRepository;
+import won.protocol.repository.ConnectionRepository;
+
+public class LockMessageParentWonMessageProcessorTest {
+    private static final URI ATOM = URI.create("https://wonnode/won/resource/atom/abc123");
+    private static final URI CONNECTION = URI.create("https://wonnode/won/resource/atom/abc123/c/def456");
+    private static final URI MESSAGE = URI.create("wm:/msg123");
+    private LockMessageParentWonMessageProcessor processor;
+    private ParentLockManager parentLockManager;
+    private Exchange exchange;
+
+    @Before
+    public void setUp() {
+        parentLockManager = new ParentLockManager();
+        parentLockManager.setInMemory(true);
+        parentLockManager.setTimeoutSeconds(1);
+        parentLockManager.afterPropertiesSet();
+        processor = new LockMessageParentWonMessageProcessor();
+        processor.parentLockManager = parentLockManager;
+        processor.messageService = Mockito.mock(MessageService.class);
+        processor.connectionRepository = Mockito.mock(ConnectionRepository.class);
+        processor.atomRepository = Mockito.mock(AtomRepository.class);
+        processor.entityManager = Mockito.mock(EntityManager.class);
+        WonMessage message = Mockito.mock(WonMessage.class);
+        Mockito.when(message.getMessageURI()).thenReturn(MESSAGE);
+        Mockito.when(message.getMessageType()).thenReturn(WonMessageType.CONNECTION_MESSAGE);
+        Mockito.when(message.getMessageTypeRequired()).thenReturn(WonMessageType.CONNECTION_MESSAGE);
+        Mockito.when(processor.messageService.getConnectionofMessage(any(), any()))
+                        .thenReturn(Optional.of(CONNECTION));
+        Mockito.when(processor.messageService.getAtomOfMessage(any(), any())).thenReturn(Optional.of(ATOM));
+        Mockito.when(processor.atomRepository.findOneByAtomURI(ATOM))
+                        .thenReturn(Optional.of(Mockito.mock(Atom.class)));
+        exchange = new DefaultExchange(new DefaultCamelContext());
+        WonCamelHelper.putMessage(exchange, message);
+        WonCamelHelper.putDirection(exchange, WonMessageDirection.FROM_EXTERNAL);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(0));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void testExistingConnectionIsLocked() throws Exception {
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(processor.connectionRepository.findOneByConnectionURI(CONNECTION))
+                        .thenReturn(Optional.of(connection));
+        processor.process(exchange);
+        // only the connection is locked
+        Assert.assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+        Mockito.verify(processor.entityManager).refresh(connection);
+        Mockito.verify(processor.atomRepository, Mockito.never()).findOneByAtomURI(any());
+    }
+
+    @Test
+    public void testOnlyAtomIsLockedIfConnectionDoesNotExist() throws Exception {
+        Mockito.when(processor.connectionRepository.findOneByConnectionURI(CONNECTION)).thenReturn(Optional.empty());
+        processor.process(exchange);
+        // holding the connection's lock as well could deadlock
+        Assert.assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+        Mockito.verify(processor.atomRepository).findOneByAtomURI(ATOM);
+    }
+
+    @Test
+    public void testLockTimeoutIsRethrown() throws Exception {
+        Mockito.when(processor.connectionRepository.findOneByConnectionURI(CONNECTION)).thenReturn(Optional.empty());
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        // another transaction holds the atom's lock
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                parentLockManager.lockUntilTransactionEnds(ATOM);
+                locked.countDown();
+                done.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(0));
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+        Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+        try {
+            processor.process(exchange);
+            Assert.fail("expected a ParentLockException");
+        } catch (ParentLockException e) {
+            // expected: the message must not be processed without the lock
+        } finally {
+            done.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        }
+    }
+}
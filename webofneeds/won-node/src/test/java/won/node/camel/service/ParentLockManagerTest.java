@@ -0,0 +1,74 @@
+package won.node.camel.service;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ParentLockManagerTest {
+    private static final URI ATOM = URI.create("https://wonnode/won/resource/atom/abc123");
+    private ParentLockManager parentLockManager;
+
+    @Before
+    public void setUp() {
+        parentLockManager = new ParentLockManager();
+        parentLockManager.setInMemory(true);
+        parentLockManager.setTimeoutSeconds(1);
+        parentLockManager.afterPropertiesSet();
+    }
+
+    @Test
+    public void testSameParentIsLockedForOtherThreads() throws Exception {
+        ReentrantLock lock = parentLockManager.acquire(ATOM);
+        try {
+            CompletableFuture<Void> other = CompletableFuture.runAsync(() -> parentLockManager.acquire(ATOM));
+            try {
+                other.get(5, TimeUnit.SECONDS);
+                Assert.fail("expected a timeout");
+            } catch (Exception e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    public void testLockIsReentrant() {
+        ReentrantLock lock = parentLockManager.acquire(ATOM);
+        ReentrantLock again = parentLockManager.acquire(ATOM);
+        Assert.assertSame(lock, again);
+        Assert.assertEquals(2, lock.getHoldCount());
+        again.unlock();
+        lock.unlock();
+        Assert.assertFalse(lock.isLocked());
+    }
+
+    @Test
+    public void testLockIsReleasedWhenTransactionEnds() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Assert.assertTrue(parentLockManager.lockUntilTransactionEnds(ATOM));
+            ReentrantLock lock = parentLockManager.acquire(ATOM);
+            lock.unlock();
+            Assert.assertTrue(lock.isHeldByCurrentThread());
+            TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(0));
+            Assert.assertFalse(lock.isLocked());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testNothingIsLockedWithoutTransaction() {
+        Assert.assertFalse(parentLockManager.lockUntilTransactionEnds(ATOM));
+        ReentrantLock lock = parentLockManager.acquire(ATOM);
+        Assert.assertEquals(1, lock.getHoldCount());
+        lock.unlock();
+    }
+}
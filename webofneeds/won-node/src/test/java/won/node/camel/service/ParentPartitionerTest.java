@@ -0,0 +1,64 @@
+package won.node.camel.service;
+
+import java.net.URI;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import won.protocol.message.WonMessage;
+import won.protocol.message.WonMessageDirection;
+import won.protocol.message.builder.WonMessageBuilder;
+
+public class ParentPartitionerTest {
+    private static final URI ATOM = URI.create("uri:/localAtom");
+    private static final URI OUR_SOCKET = URI.create("uri:/localAtom#socket");
+    private static final URI THEIR_SOCKET = URI.create("uri:/targetAtom#socket");
+    private static final URI OTHER_SOCKET = URI.create("uri:/otherAtom#socket");
+    private ParentPartitioner parentPartitioner;
+
+    @Before
+    public void setUp() {
+        parentPartitioner = new ParentPartitioner();
+        parentPartitioner.setPartitions(16);
+        parentPartitioner.afterPropertiesSet();
+    }
+
+    @Test
+    public void testMessagesOfConnectionShareAPartition() {
+        int fromOwner = parentPartitioner.getPartition(connectionMessage(OUR_SOCKET, THEIR_SOCKET, "hello"),
+                        WonMessageDirection.FROM_OWNER);
+        int fromOwnerAgain = parentPartitioner.getPartition(connectionMessage(OUR_SOCKET, THEIR_SOCKET, "again"),
+                        WonMessageDirection.FROM_OWNER);
+        int fromExternal = parentPartitioner.getPartition(connectionMessage(THEIR_SOCKET, OUR_SOCKET, "reply"),
+                        WonMessageDirection.FROM_EXTERNAL);
+        Assert.assertEquals(fromOwner, fromOwnerAgain);
+        Assert.assertEquals(fromOwner, fromExternal);
+    }
+
+    @Test
+    public void testConnectionsAreDistinguishedByBothSockets() {
+        Assert.assertNotEquals(
+                        ParentPartitioner.getPartitionKey(connectionMessage(OUR_SOCKET, THEIR_SOCKET, "hello"),
+                                        WonMessageDirection.FROM_OWNER),
+                        ParentPartitioner.getPartitionKey(connectionMessage(OUR_SOCKET, OTHER_SOCKET, "hello"),
+                                        WonMessageDirection.FROM_OWNER));
+    }
+
+    @Test
+    public void testAtomMessagesArePartitionedByAtom() {
+        WonMessage deactivate = WonMessageBuilder.deactivate().atom(ATOM).direction().fromOwner().build();
+        WonMessage activate = WonMessageBuilder.activate().atom(ATOM).direction().fromOwner().build();
+        int partition = parentPartitioner.getPartition(deactivate, WonMessageDirection.FROM_OWNER);
+        Assert.assertEquals(Math.floorMod(ATOM.hashCode(), 16), partition);
+        Assert.assertEquals(partition, parentPartitioner.getPartition(activate, WonMessageDirection.FROM_OWNER));
+    }
+
+    private static WonMessage connectionMessage(URI sender, URI recipient, String text) {
+        return WonMessageBuilder.connectionMessage()
+                        .sockets()
+                        .sender(sender)
+                        .recipient(recipient)
+                        .content().text(text).build();
+    }
+}
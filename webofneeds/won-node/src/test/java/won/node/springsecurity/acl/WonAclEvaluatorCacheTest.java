@@ -0,0 +1,71 @@
+package won.node.springsecurity.acl;
+
+import java.net.URI;
+import java.util.Collections;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import won.auth.WonAclEvaluator;
+import won.auth.WonAclEvaluatorFactory;
+import won.protocol.model.Atom;
+import won.protocol.model.DatasetHolder;
+
+public class WonAclEvaluatorCacheTest {
+    private static final URI ATOM = URI.create("https://wonnode/won/resource/atom/abc123");
+    private final Graph aclGraph = GraphFactory.createGraphMem();
+    private WonAclEvaluatorCache cache;
+    private Atom atom;
+
+    @Before
+    public void setUp() {
+        cache = new WonAclEvaluatorCache(new WonAclEvaluatorFactory() {
+            @Override
+            public WonAclEvaluator create(Graph dataGraph) {
+                return new WonAclEvaluator(Collections.emptySet(), null, null, null);
+            }
+        });
+        cache.afterPropertiesSet();
+        DatasetHolder datasetHolder = new DatasetHolder(ATOM, DatasetFactory.createGeneral());
+        datasetHolder.setId(1L);
+        atom = new Atom();
+        atom.setAtomURI(ATOM);
+        atom.setDatatsetHolder(datasetHolder);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testEvaluatorIsReused() {
+        WonAclEvaluator evaluator = cache.getEvaluator(atom, aclGraph);
+        Assert.assertSame(evaluator, cache.getEvaluator(atom, aclGraph));
+        cache.invalidate(ATOM);
+        Assert.assertNotSame(evaluator, cache.getEvaluator(atom, aclGraph));
+    }
+
+    @Test
+    public void testEvaluatorCreatedBeforeCommitIsDropped() {
+        TransactionSynchronizationManager.initSynchronization();
+        WonAclEvaluator evaluator = cache.getEvaluator(atom, aclGraph);
+        cache.invalidate(ATOM);
+        // e.g. another thread that still sees the old ACL graph
+        WonAclEvaluator beforeCommit = cache.getEvaluator(atom, aclGraph);
+        Assert.assertNotSame(evaluator, beforeCommit);
+        Assert.assertSame(beforeCommit, cache.getEvaluator(atom, aclGraph));
+        TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        Assert.assertNotSame(beforeCommit, cache.getEvaluator(atom, aclGraph));
+    }
+}
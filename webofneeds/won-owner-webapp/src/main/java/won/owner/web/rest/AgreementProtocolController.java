@@ -12,6 +12,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import won.protocol.agreement.AgreementProtocolCheckpointStore;
 import won.protocol.agreement.AgreementProtocolState;
 import won.protocol.agreement.AgreementProtocolUris;
 import won.protocol.agreement.effect.MessageEffect;
@@ -29,6 +30,8 @@ public class AgreementProtocolController {
     @Autowired
     @Qualifier("onBehalfOfAtom")
     private LinkedDataSource linkedDataSourceOnBehalfOfAtom;
+    @Autowired(required = false)
+    private AgreementProtocolCheckpointStore agreementProtocolCheckpointStore;
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     public void setLinkedDataSource(LinkedDataSource linkedDataSource) {
@@ -125,7 +128,8 @@ public class AgreementProtocolController {
     private AgreementProtocolState getAgreementProtocolState(URI connectionUri) {
         try {
             AuthenticationThreadLocal.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
-            return WonConversationUtils.getAgreementProtocolState(connectionUri, linkedDataSourceOnBehalfOfAtom);
+            return WonConversationUtils.getAgreementProtocolState(connectionUri, linkedDataSourceOnBehalfOfAtom,
+                            agreementProtocolCheckpointStore);
         } finally {
             // be sure to remove the principal from the threadlocal
             AuthenticationThreadLocal.remove();
@@ -8,6 +8,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import won.protocol.agreement.AgreementProtocolCheckpointStore;
 import won.protocol.agreement.AgreementProtocolState;
 import won.protocol.agreement.petrinet.PetriNetStates;
 import won.protocol.agreement.petrinet.PetriNetUris;
@@ -24,6 +25,8 @@ public class PetriNetController {
     @Autowired
     @Qualifier("onBehalfOfAtom")
     private LinkedDataSource linkedDataSourceOnBehalfOfAtom;
+    @Autowired(required = false)
+    private AgreementProtocolCheckpointStore agreementProtocolCheckpointStore;
 
     public void setLinkedDataSource(LinkedDataSource linkedDataSource) {
         this.linkedDataSourceOnBehalfOfAtom = linkedDataSource;
@@ -38,7 +41,8 @@ public class PetriNetController {
     private AgreementProtocolState getAgreementProtocolState(URI connectionUri) {
         try {
             AuthenticationThreadLocal.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
-            return WonConversationUtils.getAgreementProtocolState(connectionUri, linkedDataSourceOnBehalfOfAtom);
+            return WonConversationUtils.getAgreementProtocolState(connectionUri, linkedDataSourceOnBehalfOfAtom,
+                            agreementProtocolCheckpointStore);
         } finally {
             // be sure to remove the principal from the threadlocal
             AuthenticationThreadLocal.remove();
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012 Research Studios Austria Forschungsges.m.b.H. Licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package won.owner.web.websocket;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.javasimon.Counter;
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Bounded outbound queue of one websocket session. Messages are sent by a task
+ * on the shared executor, at most one per session at a time, so that a slow
+ * browser connection only delays its own messages. If the queue is full, the
+ * configured {@link SlowConsumerPolicy} applies. Queue depth and send latency
+ * are recorded in JavaSimon under
+ * <code>won.owner.websocket.session.[sessionId]</code>.
+ */
+public class WebSocketSendQueue {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String SIMON_PREFIX = "won.owner.websocket";
+    private static final Stopwatch allSessionsSendStopwatch = SimonManager.getStopwatch(SIMON_PREFIX + ".send");
+    private static final Counter droppedCounter = SimonManager.getCounter(SIMON_PREFIX + ".dropped");
+
+    /**
+     * What to do with a message that does not fit into the queue of a session.
+     */
+    public enum SlowConsumerPolicy {
+        /**
+         * Drop the message for this session, the session stays open. If the message
+         * can't be delivered to any session, the user is notified by push/email.
+         */
+        NOTIFY_OTHER_CHANNEL,
+        /**
+         * Close the session and fail all messages still queued for it. The client
+         * reconnects and reloads its state.
+         */
+        CLOSE_SESSION
+    }
+
+    private final WebSocketSession session;
+    private final BlockingQueue<Entry> queue;
+    private final Executor executor;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final Stopwatch sendStopwatch;
+    private final Counter queueDepthCounter;
+
+    public WebSocketSendQueue(WebSocketSession session, int capacity, Executor executor,
+                    SlowConsumerPolicy slowConsumerPolicy) {
+        this.session = session;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.executor = executor;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        String simonName = SIMON_PREFIX + ".session." + session.getId().replaceAll("[^A-Za-z0-9_]", "_");
+        this.sendStopwatch = SimonManager.getStopwatch(simonName + ".send");
+        this.queueDepthCounter = SimonManager.getCounter(simonName + ".queueDepth");
+    }
+
+    /**
+     * Queues the message for sending. The message supplier is only called when the
+     * message is actually sent, so serialization can be deferred and shared between
+     * sessions.
+     *
+     * @param message supplies the message to send
+     * @param onDone called with <code>true</code> once the message is sent, with
+     * <code>false</code> if it was dropped or sending failed. Called exactly once,
+     * possibly on the calling thread.
+     * @return false if the message was not queued (<code>onDone</code> has then
+     * already been called)
+     */
+    public boolean offer(Supplier<? extends WebSocketMessage<?>> message, Consumer<Boolean> onDone) {
+        Entry entry = new Entry(message, onDone);
+        if (closed.get() || !session.isOpen()) {
+            logger.debug("session {} is closed, can't send message", session.getId());
+            entry.done(false);
+            return false;
+        }
+        if (!queue.offer(entry)) {
+            droppedCounter.increase();
+            handleSlowConsumer(entry);
+            return false;
+        }
+        queueDepthCounter.set(queue.size());
+        if (closed.get()) {
+            // close() may have emptied the queue before we added our entry
+            failAll();
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * Stops sending on this queue. All messages not sent yet are failed and the
+     * session's simons are destroyed.
+     */
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            failAll();
+            SimonManager.destroySimon(sendStopwatch.getName());
+            SimonManager.destroySimon(queueDepthCounter.getName());
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    private void handleSlowConsumer(Entry entry) {
+        switch (slowConsumerPolicy) {
+            case CLOSE_SESSION:
+                logger.info("outbound queue of websocket session {} is full, closing session", session.getId());
+                entry.done(false);
+                close();
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (Exception e) {
+                    logger.debug("could not close websocket session " + session.getId(), e);
+                }
+                return;
+            case NOTIFY_OTHER_CHANNEL:
+            default:
+                logger.debug("outbound queue of websocket session {} is full, dropping message", session.getId());
+                entry.done(false);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                logger.warn("cannot send on websocket session {}: executor rejected send task", session.getId());
+                drainScheduled.set(false);
+                failAll();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Entry entry;
+            while (!closed.get() && (entry = queue.poll()) != null) {
+                queueDepthCounter.set(queue.size());
+                send(entry);
+            }
+        } finally {
+            drainScheduled.set(false);
+        }
+        // an entry may have been added after our last poll but before we reset the
+        // flag
+        if (!queue.isEmpty()) {
+            if (closed.get()) {
+                failAll();
+            } else {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private void send(Entry entry) {
+        if (!session.isOpen()) {
+            logger.debug("session {} is closed, can't send message", session.getId());
+            entry.done(false);
+            return;
+        }
+        boolean success = false;
+        Split split = sendStopwatch.start();
+        Split allSplit = allSessionsSendStopwatch.start();
+        try {
+            WebSocketMessage<?> message = entry.message.get();
+            if (logger.isDebugEnabled()) {
+                logger.debug("OA Server - sending WebSocket message: {}", message);
+            }
+            session.sendMessage(message);
+            success = true;
+        } catch (Exception e) {
+            logger.warn("caught exception while trying to send on session " + session.getId(), e);
+        } finally {
+            split.stop();
+            allSplit.stop();
+        }
+        entry.done(success);
+    }
+
+    private void failAll() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            entry.done(false);
+        }
+        queueDepthCounter.set(0);
+    }
+
+    private static class Entry {
+        private final Supplier<? extends WebSocketMessage<?>> message;
+        private final Consumer<Boolean> onDone;
+
+        public Entry(Supplier<? extends WebSocketMessage<?>> message, Consumer<Boolean> onDone) {
+            this.message = message;
+            this.onDone = onDone;
+        }
+
+        public void done(boolean success) {
+            try {
+                onDone.accept(success);
+            } catch (Exception e) {
+                logger.warn("error in websocket send callback", e);
+            }
+        }
+    }
+}
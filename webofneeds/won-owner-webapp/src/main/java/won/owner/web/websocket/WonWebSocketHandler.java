@@ -10,6 +10,7 @@
  */
 package won.owner.web.websocket;
 
+import com.google.common.base.Suppliers;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.node.ObjectNode;
@@ -18,14 +19,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
 import org.springframework.mail.MailException;
 import org.springframework.security.core.Authentication;
 import org.springframework.session.Session;
 import org.springframework.session.SessionRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
@@ -41,6 +46,7 @@ import won.owner.web.WonOwnerMailSender;
 import won.owner.web.WonOwnerPushSender;
 import won.owner.web.service.ServerSideActionService;
 import won.owner.web.service.UserAtomService;
+import won.owner.web.websocket.WebSocketSendQueue.SlowConsumerPolicy;
 import won.protocol.message.WonMessage;
 import won.protocol.message.WonMessageDecoder;
 import won.protocol.message.WonMessageEncoder;
@@ -62,16 +68,28 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
-import java.text.MessageFormat;
 import java.time.Duration;
 import java.util.Base64;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * User: syim Date: 06.08.14
+ * <p>
+ * Messages from the node are handed to a {@link WebSocketSendQueue} per session
+ * and sent asynchronously, so a slow browser connection does not block delivery
+ * to other users.
+ * </p>
  */
 public class WonWebSocketHandler extends TextWebSocketHandler
                 implements WonMessageProcessor, InitializingBean, DisposableBean {
@@ -101,10 +119,27 @@ public class WonWebSocketHandler extends TextWebSocketHandler
     @Autowired
     private URIService uriService;
     private BatchingConsumer<String, String[]> batchingConsumer = new BatchingConsumer<>();
+    // outbound queues by websocket session id
+    private final Map<String, WebSocketSendQueue> sendQueues = new ConcurrentHashMap<>();
+    private ExecutorService sendExecutor;
+    // push and email notifications after sending, kept off the send threads
+    private ExecutorService notificationExecutor;
+    @Autowired
+    private PlatformTransactionManager platformTransactionManager;
+    @Value("${owner.websocket.sendQueueCapacity:200}")
+    private int sendQueueCapacity = 200;
+    @Value("${owner.websocket.sendThreads:4}")
+    private int sendThreads = 4;
+    @Value("${owner.websocket.notificationThreads:2}")
+    private int notificationThreads = 2;
+    @Value("${owner.websocket.slowConsumerPolicy:NOTIFY_OTHER_CHANNEL}")
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.NOTIFY_OTHER_CHANNEL;
 
     @Override
     public void afterPropertiesSet() throws Exception {
         this.ownerApplicationService.setMessageProcessorDelegate(this);
+        this.sendExecutor = Executors.newFixedThreadPool(sendThreads);
+        this.notificationExecutor = Executors.newFixedThreadPool(notificationThreads);
     }
 
     @Override
@@ -112,11 +147,22 @@ public class WonWebSocketHandler extends TextWebSocketHandler
     public void destroy() throws Exception {
         // send all mails that are being held back for batching
         this.batchingConsumer.consumeAllBatches();
+        this.sendExecutor.shutdown();
+        if (!this.sendExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+            this.sendExecutor.shutdownNow();
+        }
+        this.sendQueues.values().forEach(WebSocketSendQueue::close);
+        this.notificationExecutor.shutdown();
+        if (!this.notificationExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+            this.notificationExecutor.shutdownNow();
+        }
     }
 
     @Override
     public void afterConnectionEstablished(final WebSocketSession session) throws Exception {
         super.afterConnectionEstablished(session);
+        sendQueues.computeIfAbsent(session.getId(),
+                        id -> new WebSocketSendQueue(session, sendQueueCapacity, sendExecutor, slowConsumerPolicy));
         // remember which user or (if not logged in) which atomUri the session is bound
         // to
         User user = getUserForSession(session);
@@ -131,6 +177,10 @@ public class WonWebSocketHandler extends TextWebSocketHandler
     @Override
     public void afterConnectionClosed(final WebSocketSession session, final CloseStatus status) throws Exception {
         super.afterConnectionClosed(session, status);
+        WebSocketSendQueue sendQueue = sendQueues.remove(session.getId());
+        if (sendQueue != null) {
+            sendQueue.close();
+        }
         User user = getUserForSession(session);
         if (user != null) {
             logger.debug("session closed, removing session bindings to user {}", user.getId());
@@ -274,8 +324,6 @@ public class WonWebSocketHandler extends TextWebSocketHandler
     public WonMessage process(final WonMessage wonMessage) {
         try {
             logger.debug("processing message {} incoming from node", wonMessage.getMessageURI());
-            String wonMessageJsonLdString = WonMessageEncoder.encodeAsJsonLd(wonMessage);
-            WebSocketMessage<String> webSocketMessage = new TextMessage(wonMessageJsonLdString);
             logger.debug("determining which owned atom is to be informed of message {} ", wonMessage.getMessageURI());
             URI atomUri = getOwnedAtomURIForMessageFromNode(wonMessage);
             logger.debug("obtaining WebSocketSessions for message {} ", wonMessage.getMessageURI());
@@ -309,40 +357,21 @@ public class WonWebSocketHandler extends TextWebSocketHandler
             // we can send it - pre-cache the delivery chain:
             logger.debug("put message {} into cache before sending on websocket", wonMessage.getMessageURI());
             eagerlyCachePopulatingProcessor.process(wonMessage);
+            // serialize once, by whichever session sends first
+            Supplier<WebSocketMessage<String>> webSocketMessage = Suppliers
+                            .memoize(() -> new TextMessage(WonMessageEncoder.encodeAsJsonLd(wonMessage)));
             // send to owner webapp
-            int successfullySent = 0;
+            MessageDelivery delivery = new MessageDelivery(wonMessage, atomUri, user, webSocketSessions.size());
             for (WebSocketSession session : webSocketSessions) {
-                logger.debug("sending message {} via websocket session", wonMessage.getMessageURI());
-                successfullySent += sendMessageForSession(wonMessage, webSocketMessage, session, atomUri, user) ? 1 : 0;
-            }
-            logger.debug("sent message {} via {} websocket sessions", wonMessage.getMessageURI(), successfullySent);
-            if (successfullySent == 0) {
-                // we did not manage to send the message via the websocket, send it by email.
-                if (logger.isDebugEnabled()) {
-                    logger.debug("cannot deliver message {}: none of the associated websocket sessions worked. Trying to send message by webpush and email.",
-                                    wonMessage.toShortStringForDebug());
+                WebSocketSendQueue sendQueue = sendQueues.get(session.getId());
+                if (sendQueue == null) {
+                    // the session has been closed meanwhile
+                    delivery.sessionDone(session, false);
+                    continue;
                 }
-                // TODO: ideally in this case
-                // 1. collect multiple events occurring in close succession
-                // 2. try to push
-                // 3. email only if push was not successful
-                notifyUserOnDifferentChannel(wonMessage, atomUri, user);
-            } else {
-                // Always send possible pushNotifications:
-                // - maybe session is active -> message was send, but Tab is not focused
-                // - Browser is running in background -> user needs to get push notification
-                Optional<URI> connectionURI = WonLinkedDataUtils.getConnectionURIForIncomingMessage(wonMessage,
-                                linkedDataSource);
-                if (connectionURI.isPresent()) {
-                    logger.debug("notifying user per web push for message {}", wonMessage.getMessageURI());
-                    UserAtom userAtom = getAtomOfUser(user, atomUri);
-                    if (userAtom == null) {
-                        userOpt = Optional.ofNullable(userRepository.findByAtomUri(atomUri));
-                        user = userOpt.orElse(null);
-                    }
-                    notifyPerPush(user, atomUri, wonMessage, connectionURI.get());
-                }
-                logger.debug("cannot notify user: cannot determine connection URI");
+                logger.debug("queueing message {} for websocket session {}", wonMessage.getMessageURI(),
+                                session.getId());
+                sendQueue.offer(webSocketMessage, success -> delivery.sessionDone(session, success));
             }
             return wonMessage;
         } finally {
@@ -627,40 +656,91 @@ public class WonWebSocketHandler extends TextWebSocketHandler
     }
 
     /**
-     * Sends the specified message over the socket unless it is a successresponse to
-     * create, deactivate, activate.
-     * 
-     * @param wonMessage
-     * @param webSocketMessage
-     * @param session
-     * @param atomUri
-     * @param user
-     * @return true if a message was sent (or suppressed as planned), false if
-     * something went wrong and the message could not be sent
+     * Collects the outcome of sending one message on all of the user's sessions.
+     * When all sessions are done, the user is notified per push - or, if no session
+     * managed to send the message, on a different channel. Notifications may fetch
+     * linked data and send mails, so they run on the notification executor, in a
+     * transaction of their own, not on the send thread that finished last.
      */
-    private synchronized boolean sendMessageForSession(final WonMessage wonMessage,
-                    final WebSocketMessage<String> webSocketMessage, final WebSocketSession session, URI atomUri,
-                    User user) {
-        if (!session.isOpen()) {
-            logger.debug("session {} is closed, can't send message", session.getId());
-            return false;
+    private class MessageDelivery {
+        private final WonMessage wonMessage;
+        private final URI atomUri;
+        private final User user;
+        private final AtomicInteger pendingSessions;
+        private final AtomicBoolean sent = new AtomicBoolean(false);
+
+        public MessageDelivery(WonMessage wonMessage, URI atomUri, User user, int sessionCount) {
+            this.wonMessage = wonMessage;
+            this.atomUri = atomUri;
+            this.user = user;
+            this.pendingSessions = new AtomicInteger(sessionCount);
         }
-        try {
-            logger.debug("OA Server - sending WebSocket message: {}", webSocketMessage);
-            session.sendMessage(webSocketMessage);
-        } catch (Exception e) {
-            logger.warn(MessageFormat.format(
-                            "caught exception while trying to send on session {1} for atomUri {2}, " + "user {3}",
-                            session.getId(), atomUri, user == null ? "(null)" : user.getId()), e);
-            if (user != null) {
-                webSocketSessionService.removeMapping(user, session);
+
+        public void sessionDone(WebSocketSession session, boolean success) {
+            if (success) {
+                sent.set(true);
+            } else {
+                logger.debug("could not send message {} on session {}", wonMessage.getMessageURI(), session.getId());
+                if (!session.isOpen()) {
+                    if (user != null) {
+                        webSocketSessionService.removeMapping(user, session);
+                    }
+                    if (atomUri != null) {
+                        webSocketSessionService.removeMapping(atomUri, session);
+                    }
+                }
             }
-            if (atomUri != null) {
-                webSocketSessionService.removeMapping(atomUri, session);
+            if (pendingSessions.decrementAndGet() == 0) {
+                try {
+                    notificationExecutor.execute(this::notifyInTransaction);
+                } catch (RejectedExecutionException e) {
+                    logger.warn("cannot notify user of message {}: notification executor rejected task",
+                                    wonMessage.getMessageURI());
+                }
+            }
+        }
+
+        private void notifyInTransaction() {
+            try {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(platformTransactionManager);
+                transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+                transactionTemplate.executeWithoutResult(status -> allSessionsDone());
+            } catch (Exception e) {
+                logger.warn("could not notify user of message " + wonMessage.getMessageURI(), e);
+            }
+        }
+
+        private void allSessionsDone() {
+            if (!sent.get()) {
+                // we did not manage to send the message via the websocket, send it by email.
+                if (logger.isDebugEnabled()) {
+                    logger.debug("cannot deliver message {}: none of the associated websocket sessions worked. Trying to send message by webpush and email.",
+                                    wonMessage.toShortStringForDebug());
+                }
+                // TODO: ideally in this case
+                // 1. collect multiple events occurring in close succession
+                // 2. try to push
+                // 3. email only if push was not successful
+                notifyUserOnDifferentChannel(wonMessage, atomUri, user);
+                return;
+            }
+            logger.debug("sent message {} via websocket", wonMessage.getMessageURI());
+            // Always send possible pushNotifications:
+            // - maybe session is active -> message was send, but Tab is not focused
+            // - Browser is running in background -> user needs to get push notification
+            Optional<URI> connectionURI = WonLinkedDataUtils.getConnectionURIForIncomingMessage(wonMessage,
+                            linkedDataSource);
+            if (connectionURI.isPresent()) {
+                logger.debug("notifying user per web push for message {}", wonMessage.getMessageURI());
+                User pushUser = user;
+                if (pushUser == null || getAtomOfUser(pushUser, atomUri) == null) {
+                    pushUser = userRepository.findByAtomUri(atomUri);
+                }
+                notifyPerPush(pushUser, atomUri, wonMessage, connectionURI.get());
+            } else {
+                logger.debug("cannot notify user: cannot determine connection URI");
             }
-            return false;
         }
-        return true;
     }
 
     private User getUserForSession(final WebSocketSession session) {
@@ -0,0 +1,148 @@
+package won.owner.web.websocket;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import won.owner.web.websocket.WebSocketSendQueue.SlowConsumerPolicy;
+
+public class WebSocketSendQueueTest {
+    /**
+     * Collects the tasks submitted to it; they are run by {@link #runAll()}.
+     */
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        public void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    /**
+     * Records the messages sent on it.
+     */
+    private static class SessionStub {
+        private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicBoolean open = new AtomicBoolean(true);
+        private final WebSocketSession session = (WebSocketSession) Proxy.newProxyInstance(
+                        WebSocketSendQueueTest.class.getClassLoader(), new Class<?>[] { WebSocketSession.class },
+                        (proxy, method, args) -> {
+                            switch (method.getName()) {
+                                case "getId":
+                                    return "session-1";
+                                case "isOpen":
+                                    return open.get();
+                                case "close":
+                                    open.set(false);
+                                    return null;
+                                case "sendMessage":
+                                    sent.add(((TextMessage) args[0]).getPayload());
+                                    return null;
+                                case "hashCode":
+                                    return System.identityHashCode(proxy);
+                                case "equals":
+                                    return proxy == args[0];
+                                default:
+                                    return null;
+                            }
+                        });
+    }
+
+    private static boolean offer(WebSocketSendQueue queue, String payload, List<String> outcomes) {
+        return queue.offer(() -> (WebSocketMessage<?>) new TextMessage(payload),
+                        success -> outcomes.add(payload + ":" + success));
+    }
+
+    @Test
+    public void testMessagesAreSentInOrder() {
+        SessionStub stub = new SessionStub();
+        ManualExecutor executor = new ManualExecutor();
+        WebSocketSendQueue queue = new WebSocketSendQueue(stub.session, 10, executor,
+                        SlowConsumerPolicy.NOTIFY_OTHER_CHANNEL);
+        List<String> outcomes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(offer(queue, "m" + i, outcomes));
+        }
+        // one drain task for all queued messages
+        Assert.assertEquals(1, executor.tasks.size());
+        Assert.assertEquals(5, queue.getQueueDepth());
+        executor.runAll();
+        Assert.assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), stub.sent);
+        Assert.assertEquals(List.of("m0:true", "m1:true", "m2:true", "m3:true", "m4:true"), outcomes);
+        Assert.assertEquals(0, queue.getQueueDepth());
+        queue.close();
+    }
+
+    @Test
+    public void testOverflowDropsMessageAndKeepsSessionOpen() {
+        SessionStub stub = new SessionStub();
+        ManualExecutor executor = new ManualExecutor();
+        WebSocketSendQueue queue = new WebSocketSendQueue(stub.session, 2, executor,
+                        SlowConsumerPolicy.NOTIFY_OTHER_CHANNEL);
+        List<String> outcomes = new ArrayList<>();
+        Assert.assertTrue(offer(queue, "m0", outcomes));
+        Assert.assertTrue(offer(queue, "m1", outcomes));
+        Assert.assertFalse(offer(queue, "m2", outcomes));
+        Assert.assertEquals(List.of("m2:false"), outcomes);
+        Assert.assertTrue(stub.open.get());
+        executor.runAll();
+        Assert.assertEquals(List.of("m0", "m1"), stub.sent);
+        // there is room again
+        Assert.assertTrue(offer(queue, "m3", outcomes));
+        executor.runAll();
+        Assert.assertEquals(List.of("m0", "m1", "m3"), stub.sent);
+        queue.close();
+    }
+
+    @Test
+    public void testOverflowClosesSession() {
+        SessionStub stub = new SessionStub();
+        ManualExecutor executor = new ManualExecutor();
+        WebSocketSendQueue queue = new WebSocketSendQueue(stub.session, 2, executor,
+                        SlowConsumerPolicy.CLOSE_SESSION);
+        List<String> outcomes = new ArrayList<>();
+        offer(queue, "m0", outcomes);
+        offer(queue, "m1", outcomes);
+        Assert.assertFalse(offer(queue, "m2", outcomes));
+        Assert.assertFalse(stub.open.get());
+        // the overflowing message and all queued ones have failed
+        Assert.assertEquals(3, outcomes.size());
+        Assert.assertTrue(outcomes.containsAll(List.of("m0:false", "m1:false", "m2:false")));
+        executor.runAll();
+        Assert.assertTrue(stub.sent.isEmpty());
+    }
+
+    @Test
+    public void testCloseFailsQueuedAndLaterMessages() {
+        SessionStub stub = new SessionStub();
+        ManualExecutor executor = new ManualExecutor();
+        WebSocketSendQueue queue = new WebSocketSendQueue(stub.session, 10, executor,
+                        SlowConsumerPolicy.NOTIFY_OTHER_CHANNEL);
+        List<String> outcomes = new ArrayList<>();
+        offer(queue, "m0", outcomes);
+        offer(queue, "m1", outcomes);
+        queue.close();
+        Assert.assertEquals(List.of("m0:false", "m1:false"), outcomes);
+        Assert.assertFalse(offer(queue, "m2", outcomes));
+        Assert.assertEquals(List.of("m0:false", "m1:false", "m2:false"), outcomes);
+        executor.runAll();
+        Assert.assertTrue(stub.sent.isEmpty());
+        Assert.assertEquals(0, queue.getQueueDepth());
+    }
+}
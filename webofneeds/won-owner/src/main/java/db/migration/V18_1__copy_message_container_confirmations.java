@@ -0,0 +1,10 @@
+package db.migration;
+
+import won.db.CopyMessageContainerConfirmationsMigration;
+
+/**
+ * Fills the tables created by V18_0 from the serialized sets before V18_2 drops
+ * them.
+ */
+public class V18_1__copy_message_container_confirmations extends CopyMessageContainerConfirmationsMigration {
+}
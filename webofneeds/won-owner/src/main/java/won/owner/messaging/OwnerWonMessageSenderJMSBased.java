@@ -16,8 +16,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
 import won.protocol.jms.MessagingService;
+import won.protocol.jms.WonMessageWireFormat;
 import won.protocol.message.WonMessage;
-import won.protocol.message.WonMessageEncoder;
 import won.protocol.message.WonMessageUtils;
 import won.protocol.message.processor.camel.WonCamelConstants;
 import won.protocol.message.processor.impl.KeyForNewAtomAddingProcessor;
@@ -26,6 +26,7 @@ import won.protocol.message.sender.WonMessageSender;
 import won.protocol.message.sender.exception.WonMessageSenderException;
 import won.protocol.model.WonNode;
 import won.protocol.repository.WonNodeRepository;
+import won.protocol.service.WonNodeInformationService;
 import won.protocol.util.LoggingUtils;
 import won.protocol.util.RdfUtils;
 
@@ -54,6 +55,8 @@ public class OwnerWonMessageSenderJMSBased implements ApplicationListener<WonNod
     private SignatureAddingWonMessageProcessor signatureAddingProcessor;
     @Autowired
     private KeyForNewAtomAddingProcessor atomKeyGeneratorAndAdder;
+    @Autowired(required = false)
+    private WonNodeInformationService wonNodeInformationService;
 
     @Override
     public void prepareAndSendMessage(WonMessage message) throws WonMessageSenderException {
@@ -130,7 +133,10 @@ public class OwnerWonMessageSenderJMSBased implements ApplicationListener<WonNod
             Map<String, Object> headerMap = new HashMap<>();
             headerMap.put(WonCamelConstants.OWNER_APPLICATION_ID_HEADER, ownerApplicationId);
             headerMap.put(WonCamelConstants.REMOTE_BROKER_ENDPOINT_HEADER, ep);
-            messagingService.sendInOnlyMessage(null, headerMap, WonMessageEncoder.encode(wonMessage, Lang.TRIG),
+            // use the binary format if the node supports it, TriG otherwise
+            Lang lang = WonMessageWireFormat.negotiateLang(wonNodeInformationService, wonNodeUri);
+            WonMessageWireFormat.putContentTypeHeader(headerMap, lang);
+            messagingService.sendInOnlyMessage(null, headerMap, WonMessageWireFormat.encode(wonMessage, lang),
                             startingEndpoint);
             // camelContext.getShutdownStrategy().setSuppressLoggingOnTimeout(true);
         } catch (Exception e) {
@@ -0,0 +1,3 @@
+-- format of rdf_datasets.dataset (see DatasetHolder), 1 for compressed RDF Thrift
+ALTER TABLE rdf_datasets ADD COLUMN format integer DEFAULT 0 NOT NULL;
+UPDATE rdf_datasets SET format = 1 WHERE lo_get(dataset, 0, 1) = '\x01'::bytea;
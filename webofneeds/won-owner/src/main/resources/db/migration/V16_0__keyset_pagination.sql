@@ -0,0 +1,14 @@
+-- creation date of connections, for keyset pagination of connection lists.
+-- existing connections get the date of their first message (truncated to the
+-- precision of java.util.Date so that cursors match exactly)
+ALTER TABLE connection ADD COLUMN creationdate TIMESTAMP;
+UPDATE connection c SET creationdate = date_trunc('milliseconds', coalesce(
+    (SELECT min(m.creationdate) FROM message_event m WHERE m.parenturi = c.connectionuri), c.last_update));
+ALTER TABLE connection ALTER COLUMN creationdate SET DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE connection ALTER COLUMN creationdate SET NOT NULL;
+
+-- keyset pagination orders by (creationdate, id)
+CREATE INDEX IDX_ATOM_CREATIONDATE_ID ON atom (creationdate, id);
+CREATE INDEX IDX_CONNECTION_CREATIONDATE_ID ON connection (creationdate, id);
+CREATE INDEX IDX_CONNECTION_ATOMURI_CREATIONDATE_ID ON connection (atomuri, creationdate, id);
+CREATE INDEX IDX_ME_PARENT_URI_CREATIONDATE_ID ON message_event (parenturi, creationdate, id);
@@ -0,0 +1,11 @@
+-- rdf:types of atoms (Atom.types), as on the node (node V11_0 and V15_0). The
+-- owner does not filter by type, so the table is not filled for existing atoms.
+CREATE TABLE atom_type
+(
+    atom_id BIGINT NOT NULL REFERENCES atom (id),
+    typeuri VARCHAR(255) NOT NULL
+);
+CREATE INDEX IDX_ATOM_TYPE_ATOM_ID ON atom_type (atom_id);
+CREATE INDEX IDX_ATOM_TYPE_TYPE_URI ON atom_type (typeuri);
+
+ALTER TABLE atom ADD COLUMN types_indexed boolean DEFAULT false NOT NULL;
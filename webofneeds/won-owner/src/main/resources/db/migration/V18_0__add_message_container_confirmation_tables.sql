@@ -0,0 +1,22 @@
+-- unconfirmed messages and pending confirmations of message containers, previously
+-- stored as serialized java objects in message_container.unconfirmed and
+-- message_container.pendingconfirmations
+CREATE TABLE unconfirmed_message
+(
+    id             BIGINT       NOT NULL PRIMARY KEY,
+    container_id   BIGINT       NOT NULL REFERENCES message_container (id),
+    messageuri     VARCHAR(255) NOT NULL,
+    referencecount INTEGER      NOT NULL DEFAULT 0
+);
+CREATE UNIQUE INDEX IDX_UNIQUE_UNCONFIRMED_MESSAGE ON unconfirmed_message (container_id, messageuri);
+
+CREATE TABLE pending_confirmation
+(
+    id                   BIGINT       NOT NULL PRIMARY KEY,
+    container_id         BIGINT       NOT NULL REFERENCES message_container (id),
+    confirmingmessageuri VARCHAR(255) NOT NULL,
+    confirmedmessageuri  VARCHAR(255) NOT NULL
+);
+CREATE INDEX IDX_PENDING_CONFIRMATION_CONFIRMING ON pending_confirmation (container_id, confirmingmessageuri);
+
+-- the existing sets are copied by V18_1__copy_message_container_confirmations
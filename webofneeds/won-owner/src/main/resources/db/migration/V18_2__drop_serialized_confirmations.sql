@@ -0,0 +1,3 @@
+-- copied to unconfirmed_message and pending_confirmation by V18_1
+ALTER TABLE message_container DROP COLUMN unconfirmed;
+ALTER TABLE message_container DROP COLUMN pendingconfirmations;
@@ -0,0 +1,330 @@
+package won.protocol.agreement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RiotException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import won.protocol.agreement.effect.Accepts;
+import won.protocol.agreement.effect.MessageEffect;
+import won.protocol.agreement.effect.MessageEffectsBuilder;
+import won.protocol.agreement.effect.Proposes;
+
+/**
+ * Snapshot of an {@link AgreementProtocolState} after processing all messages
+ * up to a point in the conversation where no delivery chain was open. Use
+ * {@link AgreementProtocolState#resume(AgreementProtocolCheckpoint, Dataset)}
+ * to continue from there without replaying the conversation.
+ * <p>
+ * Checkpoints are stored as JSON documents (see {@link #write(OutputStream)}),
+ * with the datasets as N-Quads.
+ * </p>
+ */
+public class AgreementProtocolCheckpoint {
+    // increase when the JSON format changes; checkpoints of other versions are
+    // not read
+    private static final int FORMAT_VERSION = 1;
+    // the caller closes the streams
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+                    .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+                    .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+    private static final Lang LANG = Lang.RDFTHRIFT;
+    private final HashSet<URI> settledMessageUris;
+    private final HashSet<URI> notAcknowledgedMessageUris;
+    private final HashSet<URI> deadReferenceTargets;
+    private final HashSet<URI> horizonMessageUris;
+    private final URI lastEffectiveMessageUri;
+    private final HashMap<URI, Set<MessageEffect>> effects;
+    private final HashSet<URI> retractedUris;
+    private final HashSet<URI> acceptedCancellationProposalUris;
+    private final HashSet<URI> removedConversationGraphUris;
+    private final byte[] pendingProposals;
+    private final byte[] agreements;
+    private final byte[] claims;
+    private final byte[] cancelledAgreements;
+    private final byte[] rejected;
+
+    AgreementProtocolCheckpoint(Set<URI> settledMessageUris, Set<URI> notAcknowledgedMessageUris,
+                    Set<URI> deadReferenceTargets, Set<URI> horizonMessageUris, URI lastEffectiveMessageUri,
+                    Map<URI, Set<MessageEffect>> effects, Set<URI> retractedUris,
+                    Set<URI> acceptedCancellationProposalUris, Set<URI> removedConversationGraphUris,
+                    Dataset pendingProposals, Dataset agreements, Dataset claims, Dataset cancelledAgreements,
+                    Dataset rejected) {
+        this.settledMessageUris = new HashSet<>(settledMessageUris);
+        this.notAcknowledgedMessageUris = new HashSet<>(notAcknowledgedMessageUris);
+        this.deadReferenceTargets = new HashSet<>(deadReferenceTargets);
+        this.horizonMessageUris = new HashSet<>(horizonMessageUris);
+        this.lastEffectiveMessageUri = lastEffectiveMessageUri;
+        this.effects = new HashMap<>();
+        effects.forEach((uri, messageEffects) -> this.effects.put(uri, new HashSet<>(messageEffects)));
+        this.retractedUris = new HashSet<>(retractedUris);
+        this.acceptedCancellationProposalUris = new HashSet<>(acceptedCancellationProposalUris);
+        this.removedConversationGraphUris = new HashSet<>(removedConversationGraphUris);
+        this.pendingProposals = toBytes(pendingProposals);
+        this.agreements = toBytes(agreements);
+        this.claims = toBytes(claims);
+        this.cancelledAgreements = toBytes(cancelledAgreements);
+        this.rejected = toBytes(rejected);
+    }
+
+    private static byte[] toBytes(Dataset dataset) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, dataset, LANG);
+        return out.toByteArray();
+    }
+
+    private static Dataset fromBytes(byte[] data) {
+        Dataset dataset = DatasetFactory.createGeneral();
+        RDFDataMgr.read(dataset, new ByteArrayInputStream(data), LANG);
+        return dataset;
+    }
+
+    /**
+     * Writes the checkpoint as a JSON document.
+     */
+    public void write(OutputStream out) throws IOException {
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put("version", FORMAT_VERSION);
+        putUris(json, "settledMessageUris", settledMessageUris);
+        putUris(json, "notAcknowledgedMessageUris", notAcknowledgedMessageUris);
+        putUris(json, "deadReferenceTargets", deadReferenceTargets);
+        putUris(json, "horizonMessageUris", horizonMessageUris);
+        if (lastEffectiveMessageUri != null) {
+            json.put("lastEffectiveMessageUri", lastEffectiveMessageUri.toString());
+        }
+        ObjectNode effectsJson = json.putObject("effects");
+        effects.forEach((uri, messageEffects) -> {
+            ArrayNode messageEffectsJson = effectsJson.putArray(uri.toString());
+            messageEffects.forEach(effect -> messageEffectsJson.add(toJson(effect)));
+        });
+        putUris(json, "retractedUris", retractedUris);
+        putUris(json, "acceptedCancellationProposalUris", acceptedCancellationProposalUris);
+        putUris(json, "removedConversationGraphUris", removedConversationGraphUris);
+        json.put("pendingProposals", toNQuads(pendingProposals));
+        json.put("agreements", toNQuads(agreements));
+        json.put("claims", toNQuads(claims));
+        json.put("cancelledAgreements", toNQuads(cancelledAgreements));
+        json.put("rejected", toNQuads(rejected));
+        objectMapper.writeValue(out, json);
+    }
+
+    /**
+     * Reads a checkpoint written by {@link #write(OutputStream)}.
+     *
+     * @throws IOException if the input is not a checkpoint of the current format
+     */
+    public static AgreementProtocolCheckpoint read(InputStream in) throws IOException {
+        JsonNode json = objectMapper.readTree(in);
+        if (json == null || json.path("version").asInt() != FORMAT_VERSION) {
+            throw new IOException("not an agreement protocol checkpoint of format version " + FORMAT_VERSION);
+        }
+        try {
+            Map<URI, Set<MessageEffect>> effects = new HashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = required(json, "effects").fields(); it.hasNext();) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                Set<MessageEffect> messageEffects = new HashSet<>();
+                for (JsonNode effectJson : entry.getValue()) {
+                    messageEffects.add(fromJson(effectJson));
+                }
+                effects.put(URI.create(entry.getKey()), messageEffects);
+            }
+            return new AgreementProtocolCheckpoint(getUris(json, "settledMessageUris"),
+                            getUris(json, "notAcknowledgedMessageUris"), getUris(json, "deadReferenceTargets"),
+                            getUris(json, "horizonMessageUris"),
+                            json.hasNonNull("lastEffectiveMessageUri")
+                                            ? URI.create(json.get("lastEffectiveMessageUri").asText())
+                                            : null,
+                            effects, getUris(json, "retractedUris"), getUris(json, "acceptedCancellationProposalUris"),
+                            getUris(json, "removedConversationGraphUris"), fromNQuads(json, "pendingProposals"),
+                            fromNQuads(json, "agreements"), fromNQuads(json, "claims"),
+                            fromNQuads(json, "cancelledAgreements"), fromNQuads(json, "rejected"));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("invalid URI in agreement protocol checkpoint", e);
+        }
+    }
+
+    private static ObjectNode toJson(MessageEffect effect) {
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put("messageUri", effect.getMessageUri().toString());
+        json.put("type", effect.getType().name());
+        switch (effect.getType()) {
+            case PROPOSES:
+                Proposes proposes = effect.asProposes();
+                putUris(json, "proposes", proposes.getProposes());
+                putUris(json, "proposesToCancel", proposes.getProposesToCancel());
+                break;
+            case ACCEPTS:
+                Accepts accepts = effect.asAccepts();
+                json.put("target", accepts.getAcceptedMessageUri().toString());
+                putUris(json, "cancelledAgreementUris", accepts.getCancelledAgreementURIs());
+                break;
+            case REJECTS:
+                json.put("target", effect.asRejects().getRejectedMessageUri().toString());
+                break;
+            case RETRACTS:
+                json.put("target", effect.asRetracts().getRetractedMessageUri().toString());
+                break;
+            case CLAIMS:
+                json.put("target", effect.asClaims().getClaimedMessageUri().toString());
+                break;
+        }
+        return json;
+    }
+
+    private static MessageEffect fromJson(JsonNode json) throws IOException {
+        MessageEffectsBuilder builder = new MessageEffectsBuilder(URI.create(required(json, "messageUri").asText()));
+        String type = required(json, "type").asText();
+        switch (type) {
+            case "PROPOSES":
+                getUris(json, "proposes").forEach(builder::proposes);
+                getUris(json, "proposesToCancel").forEach(builder::proposesToCancel);
+                break;
+            case "ACCEPTS":
+                builder.accepts(getTarget(json), getUris(json, "cancelledAgreementUris"));
+                break;
+            case "REJECTS":
+                builder.rejects(getTarget(json));
+                break;
+            case "RETRACTS":
+                builder.retracts(getTarget(json));
+                break;
+            case "CLAIMS":
+                builder.claims(getTarget(json));
+                break;
+            default:
+                throw new IOException("unknown message effect type " + type);
+        }
+        Set<MessageEffect> built = builder.build();
+        if (built.size() != 1) {
+            throw new IOException("message effect of type " + type + " has no target");
+        }
+        return built.iterator().next();
+    }
+
+    private static URI getTarget(JsonNode json) throws IOException {
+        return URI.create(required(json, "target").asText());
+    }
+
+    private static void putUris(ObjectNode json, String field, Collection<URI> uris) {
+        ArrayNode array = json.putArray(field);
+        uris.forEach(uri -> array.add(uri.toString()));
+    }
+
+    private static Set<URI> getUris(JsonNode json, String field) throws IOException {
+        Set<URI> uris = new HashSet<>();
+        for (JsonNode uri : required(json, field)) {
+            uris.add(URI.create(uri.asText()));
+        }
+        return uris;
+    }
+
+    private static JsonNode required(JsonNode json, String field) throws IOException {
+        JsonNode value = json.get(field);
+        if (value == null || value.isNull()) {
+            throw new IOException("agreement protocol checkpoint lacks '" + field + "'");
+        }
+        return value;
+    }
+
+    private static String toNQuads(byte[] data) {
+        StringWriter out = new StringWriter();
+        RDFDataMgr.write(out, fromBytes(data), Lang.NQUADS);
+        return out.toString();
+    }
+
+    private static Dataset fromNQuads(JsonNode json, String field) throws IOException {
+        Dataset dataset = DatasetFactory.createGeneral();
+        try {
+            RDFDataMgr.read(dataset, new StringReader(required(json, field).asText()), null, Lang.NQUADS);
+        } catch (RiotException e) {
+            throw new IOException("could not read '" + field + "' of agreement protocol checkpoint", e);
+        }
+        return dataset;
+    }
+
+    /**
+     * The URIs of all messages whose processing is final.
+     */
+    public Set<URI> getSettledMessageUris() {
+        return Collections.unmodifiableSet(settledMessageUris);
+    }
+
+    /**
+     * The latest settled messages, i.e. those no other settled message is after.
+     */
+    public Set<URI> getHorizonMessageUris() {
+        return Collections.unmodifiableSet(horizonMessageUris);
+    }
+
+    Set<URI> getNotAcknowledgedMessageUris() {
+        return notAcknowledgedMessageUris;
+    }
+
+    Set<URI> getDeadReferenceTargets() {
+        return deadReferenceTargets;
+    }
+
+    URI getLastEffectiveMessageUri() {
+        return lastEffectiveMessageUri;
+    }
+
+    Map<URI, Set<MessageEffect>> getEffects() {
+        return effects;
+    }
+
+    Set<URI> getRetractedUris() {
+        return retractedUris;
+    }
+
+    Set<URI> getAcceptedCancellationProposalUris() {
+        return acceptedCancellationProposalUris;
+    }
+
+    Set<URI> getRemovedConversationGraphUris() {
+        return removedConversationGraphUris;
+    }
+
+    Dataset getPendingProposals() {
+        return fromBytes(pendingProposals);
+    }
+
+    Dataset getAgreements() {
+        return fromBytes(agreements);
+    }
+
+    Dataset getClaims() {
+        return fromBytes(claims);
+    }
+
+    Dataset getCancelledAgreements() {
+        return fromBytes(cancelledAgreements);
+    }
+
+    Dataset getRejected() {
+        return fromBytes(rejected);
+    }
+}
@@ -0,0 +1,24 @@
+package won.protocol.agreement;
+
+import java.net.URI;
+
+/**
+ * Keeps the latest {@link AgreementProtocolCheckpoint} per connection, so that
+ * the agreement protocol state of a conversation can be resumed instead of being
+ * calculated from scratch.
+ */
+public interface AgreementProtocolCheckpointStore {
+    /**
+     * @param connectionUri
+     * @return the checkpoint stored for the connection, or null
+     */
+    AgreementProtocolCheckpoint get(URI connectionUri);
+
+    /**
+     * Stores the checkpoint for the connection, replacing any previous one.
+     *
+     * @param connectionUri
+     * @param checkpoint
+     */
+    void put(URI connectionUri, AgreementProtocolCheckpoint checkpoint);
+}
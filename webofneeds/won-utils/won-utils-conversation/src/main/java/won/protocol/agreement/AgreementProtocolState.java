@@ -10,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import won.protocol.agreement.effect.MessageEffect;
 import won.protocol.agreement.effect.MessageEffectsBuilder;
 import won.protocol.agreement.effect.ProposalType;
+import won.protocol.message.WonMessage;
 import won.protocol.message.WonMessageDirection;
 import won.protocol.message.WonMessageType;
 import won.protocol.util.RdfUtils;
@@ -24,6 +25,26 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Result of applying the acknowledgement, modification and agreement protocols
+ * to a conversation.
+ * <p>
+ * The state can be kept up to date with {@link #update(Dataset)} instead of
+ * being recalculated for each new message. Messages are processed in two parts:
+ * the <em>settled</em> messages, whose processing cannot be changed by any
+ * later message, and the <em>tail</em>, i.e. all messages after the last point
+ * where all delivery chains were terminated. An update only rolls back and
+ * reprocesses the tail. If the new messages could change the outcome for
+ * settled messages (e.g. because they are not after the settled ones or they
+ * resolve a dead reference), the whole conversation is recalculated. The
+ * settled part can be stored as an {@link AgreementProtocolCheckpoint} and
+ * continued with {@link #resume(AgreementProtocolCheckpoint, Dataset)}.
+ * </p>
+ * <p>
+ * Not thread-safe. If an update fails with an exception, the instance must be
+ * discarded.
+ * </p>
+ */
 public class AgreementProtocolState {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     private final Dataset pendingProposals = DatasetFactory.createGeneral();
@@ -36,6 +57,28 @@ public class AgreementProtocolState {
     private final Set<URI> acceptedCancellationProposalUris = new HashSet<URI>();
     private Map<URI, ConversationMessage> messagesByURI = new HashMap<>();
     private Set<DeliveryChain> deliveryChains = new HashSet<>();
+    // the unprocessed conversation data. Only copied when the state is updated
+    private Dataset rawConversation = null;
+    private boolean ownsRawConversation = false;
+    // settled part of the conversation
+    private final Set<URI> settledMessageUris = new HashSet<>();
+    private final Set<DeliveryChain> settledDeliveryChains = new HashSet<>();
+    private final Set<URI> notAcknowledgedUris = new HashSet<>();
+    private final Set<URI> deadReferenceTargets = new HashSet<>();
+    private final Set<URI> removedConversationGraphUris = new HashSet<>();
+    // the latest settled messages, i.e. those no other settled message is after
+    private final Set<URI> horizonMessageUris = new HashSet<>();
+    private URI lastEffectiveMessageUri = null;
+    // tail of the conversation, reprocessed on each update
+    private Set<URI> tailMessageUris = new HashSet<>();
+    private Set<DeliveryChain> tailDeliveryChains = new HashSet<>();
+    private Set<URI> tailNotAcknowledgedUris = new HashSet<>();
+    private Set<URI> tailDeadReferenceTargets = new HashSet<>();
+    private ConversationMessage tailLastEffectiveMessage = null;
+    private final ChangeJournal journal = new ChangeJournal();
+    // how much work was done, to tell incremental processing from recalculation
+    private int processedMessageCount = 0;
+    private int fullRecalculationCount = 0;
 
     public static AgreementProtocolState of(URI connectionURI, LinkedDataSource linkedDataSource) {
         Dataset fullConversationDataset = WonLinkedDataUtils.getConversationAndAtomsDatasetUsingAtomUriAsWebId(
@@ -56,9 +99,144 @@ public class AgreementProtocolState {
         return instance;
     }
 
+    /**
+     * Restores the state from the checkpoint and processes all messages in the
+     * conversation that are not covered by it.
+     *
+     * @param checkpoint obtained by {@link #getCheckpoint()}
+     * @param conversation must contain all messages of the checkpoint
+     * @return
+     */
+    public static AgreementProtocolState resume(AgreementProtocolCheckpoint checkpoint, Dataset conversation) {
+        AgreementProtocolState instance = new AgreementProtocolState();
+        instance.restore(checkpoint, conversation);
+        return instance;
+    }
+
     private AgreementProtocolState() {
     }
 
+    /**
+     * Adds the specified messages to the conversation and updates the state.
+     *
+     * @param newMessages
+     */
+    public void update(Collection<WonMessage> newMessages) {
+        Dataset newMessagesData = DatasetFactory.createGeneral();
+        newMessages.forEach(msg -> RdfUtils.addDatasetToDataset(newMessagesData, msg.getCompleteDataset()));
+        update(newMessagesData);
+    }
+
+    /**
+     * Adds the specified data to the conversation and updates the state. Only the
+     * tail of the conversation is reprocessed unless the new data could change the
+     * processing of settled messages.
+     *
+     * @param newMessagesData the new messages
+     */
+    public void update(Dataset newMessagesData) {
+        if (!ownsRawConversation) {
+            rawConversation = RdfUtils.cloneDataset(rawConversation);
+            ownsRawConversation = true;
+        }
+        if (settledMessageUris.isEmpty()) {
+            settleIfQuiescent();
+        }
+        Set<URI> newMessageUris = ConversationMessagesReader.readConversationMessages(newMessagesData).keySet();
+        boolean incremental = !settledMessageUris.isEmpty()
+                        && Collections.disjoint(newMessageUris, settledMessageUris)
+                        && Collections.disjoint(newMessageUris, deadReferenceTargets);
+        for (Iterator<String> names = newMessagesData.listNames(); names.hasNext();) {
+            String name = names.next();
+            if (rawConversation.containsNamedModel(name)) {
+                // existing data is changed, which we cannot track
+                incremental = false;
+            } else {
+                conversation.addNamedModel(name, RdfUtils.cloneModel(newMessagesData.getNamedModel(name)));
+            }
+        }
+        conversation.getDefaultModel().add(newMessagesData.getDefaultModel());
+        RdfUtils.addDatasetToDataset(rawConversation, newMessagesData);
+        if (incremental) {
+            Set<URI> tailUris = new HashSet<>(tailMessageUris);
+            tailUris.addAll(newMessageUris);
+            rollbackTail();
+            if (logger.isDebugEnabled()) {
+                logger.debug("processing {} new messages, reprocessing tail of {} messages", newMessageUris.size(),
+                                tailUris.size());
+            }
+            incremental = processTail(readConversationMessages(tailUris), true);
+        }
+        if (!incremental) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("cannot process {} new messages incrementally, recalculating", newMessageUris.size());
+            }
+            recalculateFully();
+        }
+        settleIfQuiescent();
+    }
+
+    /**
+     * Returns a snapshot of the settled part of this state. Messages after the last
+     * point where all delivery chains were terminated are not included.
+     *
+     * @return
+     */
+    public AgreementProtocolCheckpoint getCheckpoint() {
+        settleIfQuiescent();
+        Map<URI, Set<MessageEffect>> effects = new HashMap<>();
+        settledMessageUris.stream().map(messagesByURI::get).filter(m -> m != null && !m.getEffects().isEmpty())
+                        .forEach(m -> effects.put(m.getMessageURI(), m.getEffects()));
+        Set<URI> settledRetractedUris = new HashSet<>(retractedUris);
+        settledRetractedUris.removeAll(journal.addedRetractedUris);
+        Set<URI> settledAcceptedCancellationProposalUris = new HashSet<>(acceptedCancellationProposalUris);
+        settledAcceptedCancellationProposalUris.removeAll(journal.addedAcceptedCancellationProposalUris);
+        return new AgreementProtocolCheckpoint(settledMessageUris, notAcknowledgedUris, deadReferenceTargets,
+                        horizonMessageUris, lastEffectiveMessageUri, effects, settledRetractedUris,
+                        settledAcceptedCancellationProposalUris, removedConversationGraphUris,
+                        journal.settledCopy(pendingProposals), journal.settledCopy(agreements),
+                        journal.settledCopy(claims), journal.settledCopy(cancelledAgreements),
+                        journal.settledCopy(rejected));
+    }
+
+    /**
+     * Number of messages processed by this instance so far, including messages
+     * processed again. A state resumed from a checkpoint only processes the
+     * messages not covered by it.
+     *
+     * @return
+     */
+    int getProcessedMessageCount() {
+        return processedMessageCount;
+    }
+
+    /**
+     * Number of times an update or resume had to fall back to processing the whole
+     * conversation.
+     *
+     * @return
+     */
+    int getFullRecalculationCount() {
+        return fullRecalculationCount;
+    }
+
+    /**
+     * Recalculates the state from scratch and checks if the result equals this
+     * state.
+     *
+     * @return true if the recalculated state is the same
+     */
+    public boolean isConsistentWithFullRecalculation() {
+        AgreementProtocolState recalculated = AgreementProtocolState.of(rawConversation);
+        return RdfUtils.isIsomorphicWith(pendingProposals, recalculated.pendingProposals)
+                        && RdfUtils.isIsomorphicWith(agreements, recalculated.agreements)
+                        && RdfUtils.isIsomorphicWith(claims, recalculated.claims)
+                        && RdfUtils.isIsomorphicWith(cancelledAgreements, recalculated.cancelledAgreements)
+                        && RdfUtils.isIsomorphicWith(rejected, recalculated.rejected)
+                        && retractedUris.equals(recalculated.retractedUris)
+                        && acceptedCancellationProposalUris.equals(recalculated.acceptedCancellationProposalUris);
+    }
+
     public AgreementProtocolUris getAgreementProtocolUris() {
         AgreementProtocolUris uris = new AgreementProtocolUris();
         uris.addAgreementUris(getAgreementUris());
@@ -598,175 +776,390 @@ public class AgreementProtocolState {
      * Calculates all agreements present in the specified conversation dataset.
      */
     private void recalculate(Dataset conversationDataset) {
+        this.rawConversation = conversationDataset;
+        this.ownsRawConversation = false;
+        this.conversation = RdfUtils.cloneDataset(conversationDataset);
+        processTail(readConversationMessages(null), false);
+    }
+
+    /**
+     * Discards all results and processes the whole conversation again.
+     */
+    private void recalculateFully() {
+        fullRecalculationCount++;
+        for (Dataset dataset : Arrays.asList(pendingProposals, agreements, claims, cancelledAgreements, rejected)) {
+            RdfUtils.getGraphUris(dataset).forEach(uri -> dataset.removeNamedModel(uri.toString()));
+            dataset.getDefaultModel().removeAll();
+        }
+        retractedUris.clear();
+        acceptedCancellationProposalUris.clear();
+        messagesByURI = new HashMap<>();
+        deliveryChains = new HashSet<>();
+        settledMessageUris.clear();
+        settledDeliveryChains.clear();
+        notAcknowledgedUris.clear();
+        deadReferenceTargets.clear();
+        removedConversationGraphUris.clear();
+        horizonMessageUris.clear();
+        lastEffectiveMessageUri = null;
+        tailMessageUris = new HashSet<>();
+        journal.clear();
+        recalculate(rawConversation);
+        ownsRawConversation = true;
+    }
+
+    /**
+     * Restores the settled part from the checkpoint and processes the remaining
+     * messages as tail.
+     */
+    private void restore(AgreementProtocolCheckpoint checkpoint, Dataset conversationDataset) {
+        this.rawConversation = RdfUtils.cloneDataset(conversationDataset);
+        this.ownsRawConversation = true;
+        Map<URI, ConversationMessage> allMessages = readConversationMessages(null);
+        if (!allMessages.keySet().containsAll(checkpoint.getSettledMessageUris())) {
+            throw new IllegalArgumentException("conversation does not contain all messages of the checkpoint");
+        }
+        checkpoint.getSettledMessageUris().forEach(uri -> messagesByURI.put(uri, allMessages.remove(uri)));
+        List<ConversationMessage> settled = messagesByURI.values().stream()
+                        .filter(m -> !m.getMessageType().isHintMessage()).collect(Collectors.toList());
+        // dead references of settled messages have been checked when they were
+        // processed
+        Set<DeadReferenceConversationMessage> deadReferences = new HashSet<>();
+        settled.forEach(m -> linkMessage(m, messagesByURI, deadReferences));
+        settled.forEach(m -> {
+            if (checkpoint.getNotAcknowledgedMessageUris().contains(m.getMessageURI())) {
+                m.removeHighlevelProtocolProperties();
+            }
+            Set<MessageEffect> effects = checkpoint.getEffects().get(m.getMessageURI());
+            if (effects != null) {
+                m.setEffects(effects);
+            }
+            settledDeliveryChains.add(m.getDeliveryChain());
+        });
+        settledMessageUris.addAll(checkpoint.getSettledMessageUris());
+        notAcknowledgedUris.addAll(checkpoint.getNotAcknowledgedMessageUris());
+        deadReferenceTargets.addAll(checkpoint.getDeadReferenceTargets());
+        removedConversationGraphUris.addAll(checkpoint.getRemovedConversationGraphUris());
+        horizonMessageUris.addAll(checkpoint.getHorizonMessageUris());
+        lastEffectiveMessageUri = checkpoint.getLastEffectiveMessageUri();
+        retractedUris.addAll(checkpoint.getRetractedUris());
+        acceptedCancellationProposalUris.addAll(checkpoint.getAcceptedCancellationProposalUris());
+        RdfUtils.addDatasetToDataset(pendingProposals, checkpoint.getPendingProposals());
+        RdfUtils.addDatasetToDataset(agreements, checkpoint.getAgreements());
+        RdfUtils.addDatasetToDataset(claims, checkpoint.getClaims());
+        RdfUtils.addDatasetToDataset(cancelledAgreements, checkpoint.getCancelledAgreements());
+        RdfUtils.addDatasetToDataset(rejected, checkpoint.getRejected());
+        conversation = RdfUtils.cloneDataset(rawConversation);
+        removedConversationGraphUris.forEach(uri -> conversation.removeNamedModel(uri.toString()));
+        deliveryChains = new HashSet<>(settledDeliveryChains);
+        if (!processTail(allMessages, !settledMessageUris.isEmpty())) {
+            recalculateFully();
+        }
+    }
+
+    /**
+     * Reads the specified messages (or all messages if null) from the raw
+     * conversation.
+     */
+    private Map<URI, ConversationMessage> readConversationMessages(Collection<URI> messageUris) {
+        rawConversation.begin(ReadWrite.READ);
+        try {
+            return messageUris == null ? ConversationMessagesReader.readConversationMessages(rawConversation)
+                            : ConversationMessagesReader.readConversationMessages(rawConversation, messageUris);
+        } finally {
+            rawConversation.end();
+        }
+    }
+
+    /**
+     * Undoes the processing of the tail, restoring the settled state.
+     */
+    private void rollbackTail() {
+        tailMessageUris.forEach(uri -> {
+            ConversationMessage message = messagesByURI.remove(uri);
+            if (message != null) {
+                message.unlink();
+            }
+        });
+        journal.rollback();
+        journal.removedConversationGraphs.stream().filter(rawConversation::containsNamedModel)
+                        .forEach(name -> conversation.addNamedModel(name,
+                                        RdfUtils.cloneModel(rawConversation.getNamedModel(name))));
+        retractedUris.removeAll(journal.addedRetractedUris);
+        acceptedCancellationProposalUris.removeAll(journal.addedAcceptedCancellationProposalUris);
+        journal.clear();
+        tailMessageUris = new HashSet<>();
+        deliveryChains = new HashSet<>(settledDeliveryChains);
+    }
+
+    /**
+     * Makes the tail part of the settled state if all its delivery chains are
+     * terminated. No later message can change how the tail was processed then, as
+     * long as it is after the horizon (see {@link #isAfterHorizon}).
+     */
+    private void settleIfQuiescent() {
+        if (!tailDeliveryChains.stream().allMatch(DeliveryChain::isTerminated)) {
+            return;
+        }
+        List<ConversationMessage> candidates = tailMessageUris.stream().map(messagesByURI::get)
+                        .filter(m -> !m.getMessageType().isHintMessage()).collect(Collectors.toList());
+        horizonMessageUris.forEach(uri -> candidates.add(messagesByURI.get(uri)));
+        horizonMessageUris.clear();
+        candidates.stream().filter(m -> candidates.stream().noneMatch(other -> other.isAfter(m)))
+                        .forEach(m -> horizonMessageUris.add(m.getMessageURI()));
+        if (logger.isDebugEnabled()) {
+            logger.debug("settling {} messages, horizon is now {}", tailMessageUris.size(), horizonMessageUris);
+        }
+        settledMessageUris.addAll(tailMessageUris);
+        settledDeliveryChains.addAll(tailDeliveryChains);
+        notAcknowledgedUris.addAll(tailNotAcknowledgedUris);
+        deadReferenceTargets.addAll(tailDeadReferenceTargets);
+        journal.removedConversationGraphs.forEach(name -> removedConversationGraphUris.add(URI.create(name)));
+        if (tailLastEffectiveMessage != null) {
+            lastEffectiveMessageUri = tailLastEffectiveMessage.getMessageURI();
+        }
+        journal.clear();
+        tailMessageUris = new HashSet<>();
+        tailDeliveryChains = new HashSet<>();
+        tailNotAcknowledgedUris = new HashSet<>();
+        tailDeadReferenceTargets = new HashSet<>();
+        tailLastEffectiveMessage = null;
+    }
+
+    /**
+     * Processes the specified messages on top of the settled state.
+     *
+     * @param tailMessages messages not processed yet
+     * @param checkSettled if true, the messages are checked to be after all settled
+     * messages
+     * @return false if the check failed. The state must then be recalculated.
+     */
+    private boolean processTail(Map<URI, ConversationMessage> tailMessages, boolean checkSettled) {
         if (logger.isDebugEnabled()) {
             logger.debug("starting conversation analysis for high-level protocols");
         }
+        processedMessageCount += tailMessages.size();
+        messagesByURI.putAll(tailMessages);
+        tailMessageUris = new HashSet<>(tailMessages.keySet());
+        tailNotAcknowledgedUris = new HashSet<>();
+        tailDeadReferenceTargets = new HashSet<>();
+        tailLastEffectiveMessage = null;
+        // filter out messages we don't care about
+        List<ConversationMessage> messages = tailMessages.values().stream()
+                        .filter(m -> !m.getMessageType().isHintMessage()).collect(Collectors.toList());
+        Set<DeadReferenceConversationMessage> deadReferences = new HashSet<>();
+        // iterate over messages and interconnect them
+        messages.forEach(message -> linkMessage(message, messagesByURI, deadReferences));
+        checkDeadReferences(deadReferences);
+        if (logger.isDebugEnabled()) {
+            messages.stream().forEach(m -> logger.debug(m.toString()));
+        }
+        // link messages to deliveryChains
+        tailDeliveryChains = messages.stream().map(m -> {
+            if (logger.isDebugEnabled()) {
+                logger.debug("deliveryChain for message {}: {}", m.getMessageURI(), m.getDeliveryChain());
+            }
+            return m.getDeliveryChain();
+        }).collect(Collectors.toSet());
+        if (checkSettled) {
+            boolean afterSettled = tailDeliveryChains.stream()
+                            .allMatch(dc -> tailMessageUris.contains(dc.getHeadURI()) && isAfterHorizon(dc.getHead()));
+            if (!afterSettled) {
+                return false;
+            }
+        }
+        // find interleaved delivery chains. Settled chains cannot be interleaved with
+        // the tail as all tail chains are after them
+        tailDeliveryChains.stream().forEach(dc -> tailDeliveryChains.stream().forEach(dc2 -> {
+            dc.determineRelationshipWith(dc2);
+        }));
+        // apply acknowledgment protocol to whole conversation first:
+        acknowledgedSelection(messages);
+        if (checkSettled && lastEffectiveMessageUri != null) {
+            // the tail must not contain messages that would have been processed
+            // before the last settled message
+            ConversationMessage lastEffective = messagesByURI.get(lastEffectiveMessageUri);
+            if (messages.stream().anyMatch(m -> m.isHeadOfDeliveryChain() && m.isAgreementProtocolMessage()
+                            && m.compareTo(lastEffective) <= 0)) {
+                return false;
+            }
+        }
+        deliveryChains = new HashSet<>(settledDeliveryChains);
+        deliveryChains.addAll(tailDeliveryChains);
         pendingProposals.begin(ReadWrite.WRITE);
         agreements.begin(ReadWrite.WRITE);
         cancelledAgreements.begin(ReadWrite.WRITE);
         rejected.begin(ReadWrite.WRITE);
         claims.begin(ReadWrite.WRITE);
-        conversationDataset.begin(ReadWrite.READ);
-        this.messagesByURI = ConversationMessagesReader.readConversationMessages(conversationDataset);
-        Set<ConversationMessage> roots = new HashSet<ConversationMessage>();
-        Collection<ConversationMessage> messages = messagesByURI.values();
-        Set<DeadReferenceConversationMessage> messagesWithDeadReferences = new HashSet<>();
-        // filter out messages we don't care about
-        messages = messages.stream().filter(m -> !m.getMessageType().isHintMessage()).collect(Collectors.toList());
-        // iterate over messages and interconnect them
-        messages.stream().forEach(message -> {
-            message.getPrevious().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
-                ConversationMessage other = messagesByURI.get(uri);
-                if (other != null) {
-                    message.addPreviousRef(other);
-                    other.addPreviousInverseRef(message);
-                } else {
-                    messagesWithDeadReferences
-                                    .add(new DeadReferenceConversationMessage(message, "msg:previousMessage", uri));
-                }
-            });
-            message.getForwarded().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
-                ConversationMessage other = messagesByURI.get(uri);
-                if (other != null) {
-                    message.addForwardedRef(other);
-                    other.addForwardedInverseRef(message);
-                } else {
-                    messagesWithDeadReferences
-                                    .add(new DeadReferenceConversationMessage(message, "msg:forwardedMessage", uri));
-                }
-            });
-            message.getAccepts().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
-                ConversationMessage other = messagesByURI.get(uri);
-                if (other != null) {
-                    message.addAcceptsRef(other);
-                    other.addAcceptsInverseRef(message);
-                } else {
-                    messagesWithDeadReferences.add(new DeadReferenceConversationMessage(message, "agr:accepts", uri));
-                }
-            });
-            message.getProposes().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
-                ConversationMessage other = messagesByURI.get(uri);
-                if (other != null) {
-                    message.addProposesRef(other);
-                    other.addProposesInverseRef(message);
-                } else {
-                    messagesWithDeadReferences.add(new DeadReferenceConversationMessage(message, "agr:proposes", uri));
-                }
-            });
-            message.getClaims().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
-                ConversationMessage other = messagesByURI.get(uri);
-                if (other != null) {
-                    message.addClaimsRef(other);
-                    other.addClaimsInverseRef(message);
-                } else {
-                    messagesWithDeadReferences.add(new DeadReferenceConversationMessage(message, "agr:claims", uri));
-                }
-            });
-            message.getRejects().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
-                ConversationMessage other = messagesByURI.get(uri);
-                if (other != null) {
-                    message.addRejectsRef(other);
-                    other.addRejectsInverseRef(message);
-                } else {
-                    messagesWithDeadReferences.add(new DeadReferenceConversationMessage(message, "agr:rejects", uri));
-                }
-            });
-            message.getProposesToCancel().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
-                ConversationMessage other = messagesByURI.get(uri);
-                if (other != null) {
-                    message.addProposesToCancelRef(other);
-                    other.addProposesToCancelInverseRef(message);
-                } else {
-                    messagesWithDeadReferences
-                                    .add(new DeadReferenceConversationMessage(message, "agr:proposesToCancel", uri));
-                }
-            });
-            message.getRetracts().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
-                ConversationMessage other = messagesByURI.get(uri);
-                if (other != null) {
-                    message.addRetractsRef(other);
-                    other.addRetractsInverseRef(message);
-                } else {
-                    messagesWithDeadReferences.add(new DeadReferenceConversationMessage(message, "mod:retracts", uri));
-                }
-            });
-            if (message.getRespondingTo() != null && !message.getRespondingTo().equals(message.getMessageURI())) {
-                ConversationMessage other = messagesByURI.get(message.getRespondingTo());
-                if (other != null) {
-                    if (other.getSenderAtomURI().equals(message.getSenderAtomURI())) {
-                        if (other.getRespondingToInverseRef() != null
-                                        && !message.equals(other.getRespondingToInverseRef())) {
-                            throw new InconsistentConversationDataException(
-                                            "Message " + other.getMessageURI() + " has more than one response: "
-                                                            + other.getRespondingToInverseRef().getMessageURI()
-                                                            + " and " + message.getMessageURI());
-                        }
-                        message.setRespondingToRef(other);
-                        other.setRespondingToInverseRef(message);
-                    } else {
-                        // change from respondingTo to remotelyRespondingTo
-                        if (other.getRemotelyRespondingToInverseRef() != null
-                                        && !message.equals(other.getRemotelyRespondingToInverseRef())) {
-                            throw new InconsistentConversationDataException(
-                                            "Message " + other.getMessageURI()
-                                                            + " has more than one remote response: "
-                                                            + other.getRemotelyRespondingToInverseRef().getMessageURI()
-                                                            + " and "
-                                                            + message.getMessageURI());
-                        }
-                        message.setRemotelyRespondingTo(message.getRespondingTo());
-                        message.setRespondingTo(null); // clear original reference
-                        message.setRemotelyRespondingToRef(other);
-                        other.setRemotelyRespondingToInverseRef(message);
+        rawConversation.begin(ReadWrite.READ);
+        tailLastEffectiveMessage = processInOrder(messages);
+        pendingProposals.commit();
+        agreements.commit();
+        cancelledAgreements.commit();
+        rejected.commit();
+        claims.commit();
+        rawConversation.end();
+        return true;
+    }
+
+    /**
+     * Checks that the message is after all settled messages it could be related to,
+     * i.e. those with the same conversation root. Then its delivery chain cannot be
+     * interleaved with or contained in a settled one.
+     */
+    private boolean isAfterHorizon(ConversationMessage message) {
+        return horizonMessageUris.stream().map(messagesByURI::get)
+                        .allMatch(h -> !message.sharesReachableRootsWith(h) || message.isAfter(h));
+    }
+
+    private void linkMessage(ConversationMessage message, Map<URI, ConversationMessage> lookup,
+                    Set<DeadReferenceConversationMessage> deadReferences) {
+        message.getPrevious().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
+            ConversationMessage other = lookup.get(uri);
+            if (other != null) {
+                message.addPreviousRef(other);
+                other.addPreviousInverseRef(message);
+            } else {
+                deadReferences
+                                .add(new DeadReferenceConversationMessage(message, "msg:previousMessage", uri));
+            }
+        });
+        message.getForwarded().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
+            ConversationMessage other = lookup.get(uri);
+            if (other != null) {
+                message.addForwardedRef(other);
+                other.addForwardedInverseRef(message);
+            } else {
+                deadReferences
+                                .add(new DeadReferenceConversationMessage(message, "msg:forwardedMessage", uri));
+            }
+        });
+        message.getAccepts().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
+            ConversationMessage other = lookup.get(uri);
+            if (other != null) {
+                message.addAcceptsRef(other);
+                other.addAcceptsInverseRef(message);
+            } else {
+                deadReferences.add(new DeadReferenceConversationMessage(message, "agr:accepts", uri));
+            }
+        });
+        message.getProposes().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
+            ConversationMessage other = lookup.get(uri);
+            if (other != null) {
+                message.addProposesRef(other);
+                other.addProposesInverseRef(message);
+            } else {
+                deadReferences.add(new DeadReferenceConversationMessage(message, "agr:proposes", uri));
+            }
+        });
+        message.getClaims().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
+            ConversationMessage other = lookup.get(uri);
+            if (other != null) {
+                message.addClaimsRef(other);
+                other.addClaimsInverseRef(message);
+            } else {
+                deadReferences.add(new DeadReferenceConversationMessage(message, "agr:claims", uri));
+            }
+        });
+        message.getRejects().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
+            ConversationMessage other = lookup.get(uri);
+            if (other != null) {
+                message.addRejectsRef(other);
+                other.addRejectsInverseRef(message);
+            } else {
+                deadReferences.add(new DeadReferenceConversationMessage(message, "agr:rejects", uri));
+            }
+        });
+        message.getProposesToCancel().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
+            ConversationMessage other = lookup.get(uri);
+            if (other != null) {
+                message.addProposesToCancelRef(other);
+                other.addProposesToCancelInverseRef(message);
+            } else {
+                deadReferences
+                                .add(new DeadReferenceConversationMessage(message, "agr:proposesToCancel", uri));
+            }
+        });
+        message.getRetracts().stream().filter(uri -> !uri.equals(message.getMessageURI())).forEach(uri -> {
+            ConversationMessage other = lookup.get(uri);
+            if (other != null) {
+                message.addRetractsRef(other);
+                other.addRetractsInverseRef(message);
+            } else {
+                deadReferences.add(new DeadReferenceConversationMessage(message, "mod:retracts", uri));
+            }
+        });
+        if (message.getRespondingTo() != null && !message.getRespondingTo().equals(message.getMessageURI())) {
+            ConversationMessage other = lookup.get(message.getRespondingTo());
+            if (other != null) {
+                if (other.getSenderAtomURI().equals(message.getSenderAtomURI())) {
+                    if (other.getRespondingToInverseRef() != null
+                                    && !message.equals(other.getRespondingToInverseRef())) {
+                        throw new InconsistentConversationDataException(
+                                        "Message " + other.getMessageURI() + " has more than one response: "
+                                                        + other.getRespondingToInverseRef().getMessageURI()
+                                                        + " and " + message.getMessageURI());
                     }
+                    message.setRespondingToRef(other);
+                    other.setRespondingToInverseRef(message);
                 } else {
-                    messagesWithDeadReferences.add(new DeadReferenceConversationMessage(message, "msg:respondingTo",
-                                    message.getRespondingTo()));
+                    // change from respondingTo to remotelyRespondingTo
+                    if (other.getRemotelyRespondingToInverseRef() != null
+                                    && !message.equals(other.getRemotelyRespondingToInverseRef())) {
+                        throw new InconsistentConversationDataException(
+                                        "Message " + other.getMessageURI()
+                                                        + " has more than one remote response: "
+                                                        + other.getRemotelyRespondingToInverseRef().getMessageURI()
+                                                        + " and "
+                                                        + message.getMessageURI());
+                    }
+                    message.setRemotelyRespondingTo(message.getRespondingTo());
+                    message.setRespondingTo(null); // clear original reference
+                    message.setRemotelyRespondingToRef(other);
+                    other.setRemotelyRespondingToInverseRef(message);
                 }
+            } else {
+                deadReferences.add(new DeadReferenceConversationMessage(message, "msg:respondingTo",
+                                message.getRespondingTo()));
             }
-            if (message.getPrevious().isEmpty()) {
-                roots.add(message);
-            }
-        });
-        //
+        }
+    }
+
+    /**
+     * Throws an exception for dead references unless they are tolerated, in which
+     * case the missing message is remembered.
+     */
+    private void checkDeadReferences(Set<DeadReferenceConversationMessage> deadReferences) {
         // now revisit all messages with dead references. Throw an exception if the
         // message is not a forwarded message
-        messagesWithDeadReferences.stream().forEach(deadRef -> {
+        deadReferences.stream().forEach(deadRef -> {
             if (deadRef.message.getMessageType() == WonMessageType.FAILURE_RESPONSE) {
                 // we are lenient here because we may be processing a failure response
                 // a failure response may refer to an original message that the server did no
                 // store
                 // eg because it failed consistency checks
+                tailDeadReferenceTargets.add(deadRef.deadReference);
                 return;
             }
             if (deadRef.message.isForwardedMessage()) {
                 // we are lenient here because a forwarded message should not cause an
                 // exception, even
                 // if it points to a missing message
+                tailDeadReferenceTargets.add(deadRef.deadReference);
                 return;
             }
             throw new IncompleteConversationDataException(deadRef.message.getMessageURI(), deadRef.deadReference,
                             deadRef.predicate);
         });
-        if (logger.isDebugEnabled()) {
-            messages.stream().forEach(m -> logger.debug(m.toString()));
-        }
-        // link messages to deliveryChains
-        deliveryChains = messages.stream().map(m -> {
-            if (logger.isDebugEnabled()) {
-                logger.debug("deliveryChain for message {}: {}", m.getMessageURI(), m.getDeliveryChain());
-            }
-            return m.getDeliveryChain();
-        }).collect(Collectors.toSet());
-        // find interleaved delivery chains
-        deliveryChains.stream().forEach(dc -> deliveryChains.stream().forEach(dc2 -> {
-            dc.determineRelationshipWith(dc2);
-        }));
-        // apply acknowledgment protocol to whole conversation first:
-        conversation = acknowledgedSelection(conversationDataset, messages);
-        // on top of this, apply modification and agreement protocol on a per-message
-        // basis, starting with the root(s)
-        // expect proposals and agreements to be empty
+    }
+
+    /**
+     * Applies the modification and agreement protocol on a per-message basis,
+     * starting with the root(s).
+     *
+     * @return the last message that was processed as agreement protocol message
+     */
+    private ConversationMessage processInOrder(Collection<ConversationMessage> messages) {
         PriorityQueue<ConversationMessage> currentMessages = new PriorityQueue<ConversationMessage>();
         currentMessages.addAll(messages);
         // we need to use a priority queue for the messages, which is
@@ -778,7 +1171,7 @@ public class AgreementProtocolState {
         if (logger.isDebugEnabled()) {
             processedInOrder = new ArrayList<>();
         }
-        ConversationMessage last = null;
+        ConversationMessage lastEffective = null;
         while (!currentMessages.isEmpty()) {
             ConversationMessage msg = currentMessages.poll();
             if (processed.contains(msg)) {
@@ -789,15 +1182,15 @@ public class AgreementProtocolState {
             if (logger.isDebugEnabled() && processedInOrder != null) {
                 processedInOrder.add(msg);
             }
-            last = msg;
             if (!msg.isHeadOfDeliveryChain()) {
                 continue;
             }
             if (!msg.isAgreementProtocolMessage()) {
                 continue;
             }
+            lastEffective = msg;
             if (msg.isRetractsMessage()) {
-                removeContentGraphs(conversation, msg);
+                removeContentGraphs(msg);
                 if (logger.isDebugEnabled()) {
                     msg.getRetractsRefs().forEach(other -> {
                         logger.debug("{} retracts {}", msg.getMessageURI(), other.getMessageURI());
@@ -812,8 +1205,8 @@ public class AgreementProtocolState {
                                                         other.getMessageURI());
                                     }
                                     boolean changedSomething = false;
-                                    changedSomething = removeContentGraphs(conversation, other) || changedSomething;
-                                    retractedUris.add(other.getMessageURI());
+                                    changedSomething = removeContentGraphs(other) || changedSomething;
+                                    addRetractedUri(other.getMessageURI());
                                     if (other.isProposesMessage() || other.isProposesToCancelMessage()) {
                                         changedSomething = retractProposal(other.getMessageURI()) || changedSomething;
                                     }
@@ -829,7 +1222,7 @@ public class AgreementProtocolState {
                 }
             }
             if (msg.isRejectsMessage()) {
-                removeContentGraphs(conversation, msg);
+                removeContentGraphs(msg);
                 if (logger.isDebugEnabled()) {
                     msg.getRejectsRefs().forEach(other -> {
                         logger.debug("{} rejects {}", msg.getMessageURI(), other.getMessageURI());
@@ -879,13 +1272,13 @@ public class AgreementProtocolState {
                                         logger.debug("{} proposes {}: valid, computing effects", msg.getMessageURI(),
                                                         other.getMessageURI());
                                     }
-                                    boolean changedSomething = propose(conversationDataset, other.getContentGraphs(),
+                                    boolean changedSomething = propose(rawConversation, other.getContentGraphs(),
                                                     proposalContent);
                                     if (changedSomething) {
                                         effectsBuilder.proposes(other.getMessageURI());
                                     }
                                 });
-                pendingProposals.addNamedModel(msg.getMessageURI().toString(), proposalContent);
+                addNamedModel(pendingProposals, msg.getMessageURI().toString(), proposalContent);
                 if (logger.isDebugEnabled()) {
                     logger.debug("agreement data: {}", agrDataToString());
                 }
@@ -905,14 +1298,13 @@ public class AgreementProtocolState {
                                         logger.debug("{} proposesToCancel {}: valid, computing effects",
                                                         msg.getMessageURI(), other.getMessageURI());
                                     }
-                                    boolean changedSomething = propose(conversationDataset, other.getContentGraphs(),
+                                    boolean changedSomething = propose(rawConversation, other.getContentGraphs(),
                                                     proposeToCancelContent);
                                     if (changedSomething) {
                                         effectsBuilder.proposesToCancel(other.getMessageURI());
                                     }
                                 });
-                pendingProposals.addNamedModel(msg.getMessageURI().toString(),
-                                proposeToCancelContent);
+                addNamedModel(pendingProposals, msg.getMessageURI().toString(), proposeToCancelContent);
                 if (logger.isDebugEnabled()) {
                     logger.debug("agreement data: {}", agrDataToString());
                 }
@@ -931,13 +1323,13 @@ public class AgreementProtocolState {
                                         logger.debug("{} claims {}: valid, computing effects", msg.getMessageURI(),
                                                         other.getMessageURI());
                                     }
-                                    boolean changedSomething = claim(conversationDataset, other.getContentGraphs(),
+                                    boolean changedSomething = claim(rawConversation, other.getContentGraphs(),
                                                     claimContent);
                                     if (changedSomething) {
                                         effectsBuilder.claims(other.getMessageURI());
                                     }
                                 });
-                claims.addNamedModel(msg.getMessageURI().toString(), claimContent);
+                addNamedModel(claims, msg.getMessageURI().toString(), claimContent);
                 if (logger.isDebugEnabled()) {
                     logger.debug("agreement data: {}", agrDataToString());
                 }
@@ -989,12 +1381,7 @@ public class AgreementProtocolState {
             }
             logger.debug("finished conversation analysis for high-level protocols");
         }
-        pendingProposals.commit();
-        agreements.commit();
-        cancelledAgreements.commit();
-        rejected.commit();
-        claims.commit();
-        conversationDataset.end();
+        return lastEffective;
     }
 
     private String agrDataToString() {
@@ -1026,15 +1413,18 @@ public class AgreementProtocolState {
         return sb.toString();
     }
 
-    private Dataset acknowledgedSelection(Dataset conversationDataset, Collection<ConversationMessage> messages) {
-        Dataset copy = RdfUtils.cloneDataset(conversationDataset);
+    /**
+     * Removes the content graphs of messages that are not acknowledged from the
+     * conversation.
+     */
+    private void acknowledgedSelection(Collection<ConversationMessage> messages) {
         messages.stream().forEach(message -> {
             if (message.getMessageType() == null) {
                 return;
             }
             if (message.getDirection() == WonMessageDirection.FROM_SYSTEM && !message.isResponse()) {
                 if (!message.isAcknowledgedLocally()) {
-                    notAcknowledged(copy, message);
+                    notAcknowledged(message);
                 }
                 return;
             }
@@ -1055,14 +1445,14 @@ public class AgreementProtocolState {
                 case ATOM_HINT_MESSAGE:
                 case SOCKET_HINT_MESSAGE:
                     if (!message.isAcknowledgedLocally()) {
-                        notAcknowledged(copy, message);
+                        notAcknowledged(message);
                     }
                     break;
                 case CONNECT:
                 case CONNECTION_MESSAGE:
                 case CLOSE:
                     if (!message.isAcknowledgedRemotely()) {
-                        notAcknowledged(copy, message);
+                        notAcknowledged(message);
                     }
                 default:
                     break;
@@ -1086,7 +1476,7 @@ public class AgreementProtocolState {
                 if (logger.isDebugEnabled()) {
                     logger.debug("ignoring delivery chain {} as it contains other chains", msgChain.getHeadURI());
                 }
-                notAcknowledged(copy, message);
+                notAcknowledged(message);
             } else {
                 msgChain.getInterleavedDeliveryChains().stream().filter(otherChain -> otherChain.isTerminated())
                                 .forEach(otherChain -> {
@@ -1096,32 +1486,32 @@ public class AgreementProtocolState {
                                         logger.debug("ignoring delivery chain {} as it is interleaved with {}",
                                                         message.getMessageURI(), otherChain.getHead().getMessageURI());
                                     }
-                                    notAcknowledged(copy, message);
+                                    notAcknowledged(message);
                                 });
             }
         });
-        return copy;
     }
 
-    private void notAcknowledged(Dataset copy, ConversationMessage message) {
+    private void notAcknowledged(ConversationMessage message) {
         if (logger.isDebugEnabled()) {
             logger.debug("not acknowledged: " + message.getMessageURI());
         }
+        tailNotAcknowledgedUris.add(message.getMessageURI());
         message.removeHighlevelProtocolProperties();
-        removeContentGraphs(copy, message);
+        removeContentGraphs(message);
     }
 
     /**
-     * @param conversationDataset
      * @param message
      * @return true if the operation had any effect, false otherwise
      */
-    private boolean removeContentGraphs(Dataset conversationDataset, ConversationMessage message) {
+    private boolean removeContentGraphs(ConversationMessage message) {
         AtomicBoolean changedSomething = new AtomicBoolean(false);
         message.getContentGraphs().stream().forEach(uri -> {
             String uriString = uri.toString();
-            if (conversationDataset.containsNamedModel(uriString)) {
-                conversationDataset.removeNamedModel(uriString);
+            if (conversation.containsNamedModel(uriString)) {
+                journal.removedConversationGraphs.add(uriString);
+                conversation.removeNamedModel(uriString);
             }
             changedSomething.set(true);
         });
@@ -1179,7 +1569,9 @@ public class AgreementProtocolState {
         if (effects.size() > 0) {
             for (MessageEffect effect : effects) {
                 if (!changedSomething && effect.isProposes() && effect.asProposes().getProposesToCancel().size() > 0) {
-                    this.acceptedCancellationProposalUris.add(proposalUri);
+                    if (this.acceptedCancellationProposalUris.add(proposalUri)) {
+                        journal.addedAcceptedCancellationProposalUris.add(proposalUri);
+                    }
                     changedSomething = true;
                 }
                 for (URI toCancel : effect.asProposes().getProposesToCancel()) {
@@ -1220,7 +1612,7 @@ public class AgreementProtocolState {
         if (pendingProposals.containsNamedModel(proposalUri.toString())) {
             changedSomething = true;
         }
-        pendingProposals.removeNamedModel(proposalUri.toString());
+        removeNamedModel(pendingProposals, proposalUri.toString());
         changedSomething = removeCancellationProposal(proposalUri) || changedSomething;
         return changedSomething;
     }
@@ -1236,7 +1628,7 @@ public class AgreementProtocolState {
         if (claims.containsNamedModel(claimUri.toString())) {
             changedSomething = true;
         }
-        claims.removeNamedModel(claimUri.toString());
+        removeNamedModel(claims, claimUri.toString());
         return changedSomething;
     }
 
@@ -1278,7 +1670,7 @@ public class AgreementProtocolState {
             for (MessageEffect effect : effects) {
                 if (effect.isProposes() && effect.asProposes().getProposesToCancel().size() > 0) {
                     changedSomething = true;
-                    pendingProposals.removeNamedModel(proposalUri.toString());
+                    removeNamedModel(pendingProposals, proposalUri.toString());
                 }
             }
         }
@@ -1294,14 +1686,82 @@ public class AgreementProtocolState {
     private boolean moveNamedGraph(URI graphUri, Dataset fromDataset, Dataset toDataset) {
         boolean changedSomething = false;
         Model model = fromDataset.getNamedModel(graphUri.toString());
-        fromDataset.removeNamedModel(graphUri.toString());
+        removeNamedModel(fromDataset, graphUri.toString());
         if (model != null && model.size() > 0) {
-            toDataset.addNamedModel(graphUri.toString(), model);
+            addNamedModel(toDataset, graphUri.toString(), model);
             changedSomething = true;
         }
         return changedSomething;
     }
 
+    private void addNamedModel(Dataset dataset, String name, Model model) {
+        journal.beforeChange(dataset, name);
+        dataset.addNamedModel(name, model);
+    }
+
+    private void removeNamedModel(Dataset dataset, String name) {
+        journal.beforeChange(dataset, name);
+        dataset.removeNamedModel(name);
+    }
+
+    private void addRetractedUri(URI uri) {
+        if (retractedUris.add(uri)) {
+            journal.addedRetractedUris.add(uri);
+        }
+    }
+
+    /**
+     * Records the changes made since the last settled state, so the tail can be
+     * rolled back.
+     */
+    private static class ChangeJournal {
+        // contents of changed graphs before the first change, empty if absent
+        private final Map<Dataset, Map<String, Optional<Model>>> preImages = new IdentityHashMap<>();
+        private final Set<String> removedConversationGraphs = new HashSet<>();
+        private final Set<URI> addedRetractedUris = new HashSet<>();
+        private final Set<URI> addedAcceptedCancellationProposalUris = new HashSet<>();
+
+        public void beforeChange(Dataset dataset, String name) {
+            Map<String, Optional<Model>> graphs = preImages.computeIfAbsent(dataset, ds -> new HashMap<>());
+            if (!graphs.containsKey(name)) {
+                graphs.put(name, dataset.containsNamedModel(name)
+                                ? Optional.of(RdfUtils.cloneModel(dataset.getNamedModel(name)))
+                                : Optional.empty());
+            }
+        }
+
+        /**
+         * Restores the changed graphs. The conversation graphs and the URI sets have to
+         * be restored by the caller.
+         */
+        public void rollback() {
+            preImages.forEach((dataset, graphs) -> graphs.forEach((name, preImage) -> restore(dataset, name,
+                            preImage)));
+        }
+
+        /**
+         * Returns a copy of the dataset as it was in the settled state.
+         */
+        public Dataset settledCopy(Dataset dataset) {
+            Dataset copy = RdfUtils.cloneDataset(dataset);
+            preImages.getOrDefault(dataset, Collections.emptyMap())
+                            .forEach((name, preImage) -> restore(copy, name, preImage));
+            return copy;
+        }
+
+        private static void restore(Dataset dataset, String name, Optional<Model> preImage) {
+            dataset.removeNamedModel(name);
+            preImage.ifPresent(model -> dataset.addNamedModel(name, RdfUtils.cloneModel(model)));
+        }
+
+        public void clear() {
+            preImages.clear();
+            removedConversationGraphs.clear();
+            addedRetractedUris.clear();
+            addedAcceptedCancellationProposalUris.clear();
+        }
+    }
+
     private class DeadReferenceConversationMessage {
         ConversationMessage message;
         String predicate;
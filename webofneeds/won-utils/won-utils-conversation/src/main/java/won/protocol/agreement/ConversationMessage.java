@@ -140,6 +140,30 @@ public class ConversationMessage implements Comparable<ConversationMessage> {
         this.retractsInverseRefs.remove(other);
     }
 
+    /**
+     * Removes the inverse references to this message from all messages it refers
+     * to, so this instance can be replaced by a new one for the same message.
+     */
+    void unlink() {
+        this.previousRefs.forEach(other -> other.previousInverseRefs.remove(this));
+        this.forwardedRefs.forEach(other -> other.forwardedInverseRefs.remove(this));
+        this.proposesRefs.forEach(other -> other.proposesInverseRefs.remove(this));
+        this.claimsRefs.forEach(other -> other.claimsInverseRefs.remove(this));
+        this.rejectsRefs.forEach(other -> other.rejectsInverseRefs.remove(this));
+        this.acceptsRefs.forEach(other -> other.acceptsInverseRefs.remove(this));
+        this.retractsRefs.forEach(other -> other.retractsInverseRefs.remove(this));
+        this.proposesToCancelRefs.forEach(other -> other.proposesToCancelInverseRefs.remove(this));
+        this.respondingToOption.ifPresent(other -> {
+            if (this.equals(other.respondingToInverseRef)) {
+                other.respondingToInverseRef = null;
+            }
+        });
+        if (this.remotelyRespondingToRef != null
+                        && this.equals(this.remotelyRespondingToRef.remotelyRespondingToInverseRef)) {
+            this.remotelyRespondingToRef.remotelyRespondingToInverseRef = null;
+        }
+    }
+
     public boolean isForwardedMessage() {
         return !this.forwardedInverseRefs.isEmpty();
     }
@@ -1,9 +1,14 @@
 package won.protocol.agreement;
 
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.vocabulary.RDF;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,8 +22,10 @@ import won.protocol.vocabulary.WONMSG;
 
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.function.BiConsumer;
 
@@ -40,6 +47,33 @@ public class ConversationMessagesReader {
         return messages;
     }
 
+    /**
+     * Reads only the specified messages, i.e. the statements having one of the
+     * specified URIs as subject.
+     *
+     * @param dataset
+     * @param messageUris
+     * @return
+     */
+    public static Map<URI, ConversationMessage> readConversationMessages(Dataset dataset,
+                    Collection<URI> messageUris) {
+        Map<URI, ConversationMessage> messages = new HashMap<>();
+        DatasetGraph datasetGraph = dataset.asDatasetGraph();
+        Model model = dataset.getDefaultModel();
+        for (URI messageUri : messageUris) {
+            Iterator<Quad> quads = datasetGraph.find(Node.ANY, NodeFactory.createURI(messageUri.toString()),
+                            Node.ANY, Node.ANY);
+            while (quads.hasNext()) {
+                Statement stmt = model.asStatement(quads.next().asTriple());
+                BiConsumer<Map<URI, ConversationMessage>, Statement> handler = handlers.get(stmt.getPredicate());
+                if (handler != null) {
+                    handler.accept(messages, stmt);
+                }
+            }
+        }
+        return messages;
+    }
+
     private static URI getUri(RDFNode node) {
         if (!node.isResource() || node.isAnon()) {
             return null;
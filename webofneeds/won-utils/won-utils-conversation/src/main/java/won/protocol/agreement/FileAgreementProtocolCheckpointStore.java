@@ -0,0 +1,152 @@
+package won.protocol.agreement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+/**
+ * Stores checkpoints as JSON files in a directory, one per connection, and
+ * keeps recently used ones in memory. Files that cannot be read are ignored, so
+ * the state is then calculated from scratch. Files not written or read for
+ * <code>maxAgeDays</code> are deleted, checked at most once per hour when a
+ * checkpoint is stored.
+ */
+public class FileAgreementProtocolCheckpointStore implements AgreementProtocolCheckpointStore {
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+    private static final String SUFFIX = ".json";
+    // serialized checkpoints written by earlier versions, only deleted
+    private static final String LEGACY_SUFFIX = ".checkpoint";
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private final File directory;
+    private final Cache<URI, AgreementProtocolCheckpoint> cache;
+    private final long maxAgeMillis;
+    private final AtomicLong nextPruneMillis = new AtomicLong(0);
+
+    /**
+     * @param directory where the checkpoints are stored, created when the first
+     * checkpoint is written
+     * @param cachedCheckpoints number of checkpoints kept in memory
+     */
+    public FileAgreementProtocolCheckpointStore(File directory, int cachedCheckpoints) {
+        this(directory, cachedCheckpoints, 30);
+    }
+
+    /**
+     * @param directory where the checkpoints are stored, created when the first
+     * checkpoint is written
+     * @param cachedCheckpoints number of checkpoints kept in memory
+     * @param maxAgeDays checkpoints not used for that long are deleted
+     */
+    public FileAgreementProtocolCheckpointStore(File directory, int cachedCheckpoints, int maxAgeDays) {
+        this.directory = directory;
+        this.cache = CacheBuilder.newBuilder().maximumSize(cachedCheckpoints).expireAfterAccess(1, TimeUnit.HOURS)
+                        .build();
+        this.maxAgeMillis = TimeUnit.DAYS.toMillis(maxAgeDays);
+    }
+
+    @Override
+    public AgreementProtocolCheckpoint get(URI connectionUri) {
+        AgreementProtocolCheckpoint checkpoint = cache.getIfPresent(connectionUri);
+        if (checkpoint != null) {
+            return checkpoint;
+        }
+        Path file = fileFor(connectionUri);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            checkpoint = AgreementProtocolCheckpoint.read(in);
+        } catch (IOException e) {
+            logger.info("could not read agreement protocol checkpoint {}: {}", file, e.getMessage());
+            return null;
+        }
+        try {
+            // still in use, so not to be pruned
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            logger.debug("could not touch agreement protocol checkpoint {}: {}", file, e.getMessage());
+        }
+        cache.put(connectionUri, checkpoint);
+        return checkpoint;
+    }
+
+    @Override
+    public void put(URI connectionUri, AgreementProtocolCheckpoint checkpoint) {
+        cache.put(connectionUri, checkpoint);
+        Path file = fileFor(connectionUri);
+        try {
+            Files.createDirectories(directory.toPath());
+            Path tmp = Files.createTempFile(directory.toPath(), ".checkpoint", ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                    checkpoint.write(out);
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            // the checkpoint is still cached, and can be recreated
+            logger.warn("could not write agreement protocol checkpoint " + file, e);
+        }
+        long next = nextPruneMillis.get();
+        long now = System.currentTimeMillis();
+        if (now >= next && nextPruneMillis.compareAndSet(next, now + PRUNE_INTERVAL_MILLIS)) {
+            prune(now - maxAgeMillis);
+        }
+    }
+
+    /**
+     * Deletes the checkpoint files last written or read before the specified
+     * time, and those written by earlier versions.
+     */
+    void prune(long olderThanMillis) {
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory.toPath(),
+                        "*{" + SUFFIX + "," + LEGACY_SUFFIX + "}")) {
+            for (Path file : files) {
+                try {
+                    if (file.toString().endsWith(LEGACY_SUFFIX)
+                                    || Files.getLastModifiedTime(file).toMillis() < olderThanMillis) {
+                        Files.deleteIfExists(file);
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    logger.debug("could not prune agreement protocol checkpoint {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("could not prune agreement protocol checkpoints in " + directory, e);
+            return;
+        }
+        if (deleted > 0) {
+            logger.info("deleted {} agreement protocol checkpoints not used for {} days", deleted,
+                            TimeUnit.MILLISECONDS.toDays(maxAgeMillis));
+        }
+    }
+
+    private Path fileFor(URI connectionUri) {
+        String name = Hashing.sha256().hashString(connectionUri.toString(), StandardCharsets.UTF_8).toString();
+        return new File(directory, name + SUFFIX).toPath();
+    }
+}
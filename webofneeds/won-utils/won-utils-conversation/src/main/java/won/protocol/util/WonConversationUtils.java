@@ -3,6 +3,8 @@ package won.protocol.util;
 import org.apache.jena.query.Dataset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import won.protocol.agreement.AgreementProtocolCheckpoint;
+import won.protocol.agreement.AgreementProtocolCheckpointStore;
 import won.protocol.agreement.AgreementProtocolState;
 import won.protocol.agreement.IncompleteConversationDataException;
 import won.protocol.rest.LinkedDataFetchingException;
@@ -70,6 +72,21 @@ public class WonConversationUtils {
 
     public static AgreementProtocolState getAgreementProtocolState(URI connectionUri,
                     LinkedDataSource linkedDataSource) {
+        return getAgreementProtocolState(connectionUri, linkedDataSource, null);
+    }
+
+    /**
+     * Calculates the agreement protocol state of the connection. If a checkpoint
+     * is stored for the connection, only the messages not covered by it are
+     * processed, and the checkpoint is replaced when more messages got settled.
+     *
+     * @param connectionUri
+     * @param linkedDataSource
+     * @param checkpointStore may be null
+     * @return
+     */
+    public static AgreementProtocolState getAgreementProtocolState(URI connectionUri,
+                    LinkedDataSource linkedDataSource, AgreementProtocolCheckpointStore checkpointStore) {
         URI atomUri = WonRelativeUriHelper.stripConnectionSuffix(connectionUri);
         // allow each resource to be re-crawled once for each reason
         Set<URI> recrawledForIncompleteness = new HashSet<>();
@@ -80,7 +97,10 @@ public class WonConversationUtils {
                 Dataset conversationDataset = WonLinkedDataUtils.getConversationAndAtomsDatasetUsingAtomUriAsWebId(
                                 connectionUri,
                                 linkedDataSource);
-                return AgreementProtocolState.of(conversationDataset);
+                if (checkpointStore == null) {
+                    return AgreementProtocolState.of(conversationDataset);
+                }
+                return getAgreementProtocolState(connectionUri, conversationDataset, checkpointStore);
             } catch (IncompleteConversationDataException e) {
                 // we may have tried to crawl a conversation dataset of which messages
                 // were still in-flight. we allow one re-crawl attempt per exception before
@@ -102,6 +122,38 @@ public class WonConversationUtils {
         }
     }
 
+    /**
+     * Calculates the agreement protocol state of the conversation, resuming from
+     * the checkpoint stored for the connection if it fits the conversation.
+     *
+     * @param connectionUri
+     * @param conversationDataset
+     * @param checkpointStore
+     * @return
+     */
+    public static AgreementProtocolState getAgreementProtocolState(URI connectionUri, Dataset conversationDataset,
+                    AgreementProtocolCheckpointStore checkpointStore) {
+        AgreementProtocolCheckpoint checkpoint = checkpointStore.get(connectionUri);
+        AgreementProtocolState state = null;
+        if (checkpoint != null) {
+            try {
+                state = AgreementProtocolState.resume(checkpoint, conversationDataset);
+            } catch (IllegalArgumentException e) {
+                // the checkpoint does not fit the conversation we fetched
+                logger.debug("connection {}: cannot resume from checkpoint: {}", connectionUri, e.getMessage());
+            }
+        }
+        boolean resumed = state != null;
+        if (!resumed) {
+            state = AgreementProtocolState.of(conversationDataset);
+        }
+        AgreementProtocolCheckpoint newCheckpoint = state.getCheckpoint();
+        if (!resumed || newCheckpoint.getSettledMessageUris().size() > checkpoint.getSettledMessageUris().size()) {
+            checkpointStore.put(connectionUri, newCheckpoint);
+        }
+        return state;
+    }
+
     private static void refreshDataForConnection(URI connectionUri, URI atomUri, LinkedDataSource linkedDataSource) {
         // we may have tried to crawl a conversation dataset of which messages
         // were still in-flight. we allow one re-crawl attempt per exception before
@@ -0,0 +1,267 @@
+package won.protocol.agreement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import won.protocol.util.RdfUtils;
+import won.protocol.util.WonConversationUtils;
+import won.protocol.vocabulary.WONMSG;
+
+/**
+ * Feeds conversations to {@link AgreementProtocolState#update(Dataset)} one
+ * message at a time and checks that the result is the same as when calculating
+ * the state for the whole conversation at once.
+ */
+public class AgreementProtocolStateUpdateTest {
+    private static final String inputFolder = "/won/protocol/highlevel/agreements/input/";
+    private static final String expectedOutputFolder = "/won/protocol/highlevel/agreements/expected/";
+    private static final URI connectionUri = URI.create("https://node.example/won/resource/atom/a/c/1");
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setLogLevel() {
+        Logger root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+    }
+
+    @Test
+    public void oneAgreementTest() throws IOException {
+        testUpdates("one-agreement.trig");
+    }
+
+    @Test
+    public void oneAgreementOneCancellationTest() throws IOException {
+        testUpdates("one-agreement-one-cancellation.trig");
+    }
+
+    @Test
+    public void oneAgreementAcceptContainsRetractTest() throws IOException {
+        testUpdates("one-agreement-accept-contains-retract.trig");
+    }
+
+    @Test
+    public void threeClaimsOneRejectedTest() throws IOException {
+        testUpdates("three-claims-one-rejected.trig");
+    }
+
+    @Test
+    public void oneAcceptedClaimTest() throws IOException {
+        testUpdates("one-accepted-claim.trig");
+    }
+
+    @Test
+    public void twoProposalsTwoAgreementsOneCancelledTest() throws IOException {
+        testUpdates("twoProposalsTwoAgreementsOneCancelled.trig");
+    }
+
+    @Test
+    public void resumeFromCheckpointTest() throws Exception {
+        Dataset input = loadDataset(inputFolder + "twoProposalsTwoAgreementsOneCancelled.trig");
+        List<Dataset> parts = splitByMessage(input);
+        int half = parts.size() / 2;
+        AgreementProtocolState state = AgreementProtocolState.of(parts.get(0));
+        parts.subList(1, half).forEach(state::update);
+        AgreementProtocolCheckpoint checkpoint = writeAndRead(state.getCheckpoint());
+        Assert.assertFalse(checkpoint.getSettledMessageUris().isEmpty());
+        AgreementProtocolState resumed = AgreementProtocolState.resume(checkpoint, input);
+        // only the messages after the checkpoint were processed
+        Assert.assertEquals(0, resumed.getFullRecalculationCount());
+        Assert.assertEquals(messageCount(input) - checkpoint.getSettledMessageUris().size(),
+                        resumed.getProcessedMessageCount());
+        Assert.assertTrue(resumed.isConsistentWithFullRecalculation());
+        Assert.assertTrue(RdfUtils.isIsomorphicWith(loadDataset(expectedOutputFolder
+                        + "twoProposalsTwoAgreementsOneCancelled.trig"), resumed.getAgreements()));
+    }
+
+    @Test
+    public void updatesAreProcessedIncrementallyTest() throws IOException {
+        Dataset input = loadDataset(inputFolder + "twoProposalsTwoAgreementsOneCancelled.trig");
+        List<Dataset> parts = splitByMessage(input);
+        AgreementProtocolState state = AgreementProtocolState.of(parts.get(0));
+        int recalculationCost = 0;
+        for (int i = 1; i < parts.size(); i++) {
+            state.update(parts.get(i));
+            recalculationCost += i;
+        }
+        Assert.assertTrue(state.getFullRecalculationCount() < parts.size() - 1);
+        Assert.assertTrue(state.getProcessedMessageCount() < recalculationCost);
+    }
+
+    @Test
+    public void checkpointStoreTest() throws Exception {
+        Dataset input = loadDataset(inputFolder + "twoProposalsTwoAgreementsOneCancelled.trig");
+        List<Dataset> parts = splitByMessage(input);
+        Dataset firstHalf = DatasetFactory.createGeneral();
+        parts.subList(0, parts.size() / 2).forEach(part -> RdfUtils.addDatasetToDataset(firstHalf, part));
+        AgreementProtocolCheckpointStore store = new FileAgreementProtocolCheckpointStore(folder.getRoot(), 10);
+        Assert.assertNull(store.get(connectionUri));
+        AgreementProtocolState first = WonConversationUtils.getAgreementProtocolState(connectionUri, firstHalf,
+                        store);
+        Assert.assertEquals(0, first.getFullRecalculationCount());
+        AgreementProtocolCheckpoint stored = store.get(connectionUri);
+        Assert.assertNotNull(stored);
+        Assert.assertFalse(stored.getSettledMessageUris().isEmpty());
+        // a new store only has the file to go by
+        store = new FileAgreementProtocolCheckpointStore(folder.getRoot(), 10);
+        Assert.assertEquals(stored.getSettledMessageUris(), store.get(connectionUri).getSettledMessageUris());
+        AgreementProtocolState second = WonConversationUtils.getAgreementProtocolState(connectionUri, input, store);
+        Assert.assertEquals(0, second.getFullRecalculationCount());
+        Assert.assertEquals(messageCount(input) - stored.getSettledMessageUris().size(),
+                        second.getProcessedMessageCount());
+        Assert.assertTrue(RdfUtils.isIsomorphicWith(loadDataset(expectedOutputFolder
+                        + "twoProposalsTwoAgreementsOneCancelled.trig"), second.getAgreements()));
+        Assert.assertTrue(store.get(connectionUri).getSettledMessageUris().size() >= stored.getSettledMessageUris()
+                        .size());
+    }
+
+    @Test
+    public void unfittingCheckpointIsIgnoredTest() throws Exception {
+        Dataset input = loadDataset(inputFolder + "twoProposalsTwoAgreementsOneCancelled.trig");
+        Dataset other = loadDataset(inputFolder + "one-agreement.trig");
+        AgreementProtocolCheckpointStore store = new FileAgreementProtocolCheckpointStore(folder.getRoot(), 10);
+        WonConversationUtils.getAgreementProtocolState(connectionUri, input, store);
+        AgreementProtocolState state = WonConversationUtils.getAgreementProtocolState(connectionUri, other, store);
+        Assert.assertTrue(RdfUtils.isIsomorphicWith(loadDataset(expectedOutputFolder + "one-agreement.trig"),
+                        state.getAgreements()));
+        // the checkpoint of the conversation actually seen replaces the unfitting one
+        Assert.assertTrue(ConversationMessagesReader.readConversationMessages(other).keySet()
+                        .containsAll(store.get(connectionUri).getSettledMessageUris()));
+    }
+
+    @Test
+    public void unusedCheckpointsArePrunedTest() throws Exception {
+        Dataset input = loadDataset(inputFolder + "twoProposalsTwoAgreementsOneCancelled.trig");
+        FileAgreementProtocolCheckpointStore store = new FileAgreementProtocolCheckpointStore(folder.getRoot(), 10);
+        WonConversationUtils.getAgreementProtocolState(connectionUri, input, store);
+        File legacy = folder.newFile("0123.checkpoint");
+        store.prune(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+        Assert.assertFalse(legacy.exists());
+        Assert.assertEquals(1, folder.getRoot().listFiles().length);
+        store.prune(System.currentTimeMillis() + 1000);
+        Assert.assertEquals(0, folder.getRoot().listFiles().length);
+        Assert.assertNull(new FileAgreementProtocolCheckpointStore(folder.getRoot(), 10).get(connectionUri));
+    }
+
+    @Test
+    public void invalidCheckpointFileIsIgnoredTest() throws Exception {
+        Dataset input = loadDataset(inputFolder + "twoProposalsTwoAgreementsOneCancelled.trig");
+        WonConversationUtils.getAgreementProtocolState(connectionUri, input,
+                        new FileAgreementProtocolCheckpointStore(folder.getRoot(), 10));
+        File[] files = folder.getRoot().listFiles();
+        Assert.assertEquals(1, files.length);
+        Files.write(files[0].toPath(), "{\"version\": 1}".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNull(new FileAgreementProtocolCheckpointStore(folder.getRoot(), 10).get(connectionUri));
+    }
+
+    private static int messageCount(Dataset conversation) {
+        return ConversationMessagesReader.readConversationMessages(conversation).size();
+    }
+
+    private void testUpdates(String filename) throws IOException {
+        Dataset input = loadDataset(inputFolder + filename);
+        List<Dataset> parts = splitByMessage(input);
+        AgreementProtocolState state = AgreementProtocolState.of(parts.get(0));
+        for (Dataset part : parts.subList(1, parts.size())) {
+            state.update(part);
+            Assert.assertTrue(state.isConsistentWithFullRecalculation());
+        }
+        Dataset expectedOutput = loadDataset(expectedOutputFolder + filename);
+        Assert.assertTrue(RdfUtils.isIsomorphicWith(expectedOutput, state.getAgreements()));
+    }
+
+    /**
+     * Splits the conversation into one dataset per message, ordered by timestamp
+     * but such that each message comes after the messages it refers to. The first
+     * dataset contains all graphs that do not belong to a message.
+     */
+    private static List<Dataset> splitByMessage(Dataset input) {
+        Map<URI, ConversationMessage> messages = ConversationMessagesReader.readConversationMessages(input);
+        Map<URI, Dataset> graphsByMessage = new HashMap<>();
+        Dataset other = DatasetFactory.createGeneral();
+        other.getDefaultModel().add(input.getDefaultModel());
+        for (Iterator<String> names = input.listNames(); names.hasNext();) {
+            String name = names.next();
+            URI messageUri = URI.create(name.replaceAll("#.*$", ""));
+            Dataset target = messages.containsKey(messageUri)
+                            ? graphsByMessage.computeIfAbsent(messageUri, uri -> DatasetFactory.createGeneral())
+                            : other;
+            target.addNamedModel(name, RdfUtils.cloneModel(input.getNamedModel(name)));
+        }
+        Map<URI, Long> timestamps = new HashMap<>();
+        RdfUtils.toStatementStream(input).filter(stmt -> stmt.getPredicate().equals(WONMSG.timestamp))
+                        .forEach(stmt -> timestamps.put(URI.create(stmt.getSubject().getURI()),
+                                        stmt.getObject().asLiteral().getLong()));
+        Set<URI> ordered = new LinkedHashSet<>();
+        messages.keySet().stream()
+                        .sorted(Comparator.comparing((URI uri) -> timestamps.getOrDefault(uri, 0L))
+                                        .thenComparing(Comparator.naturalOrder()))
+                        .forEach(uri -> addInOrder(uri, messages, ordered, new HashSet<>()));
+        List<Dataset> parts = new ArrayList<>();
+        parts.add(other);
+        ordered.stream().filter(graphsByMessage::containsKey).forEach(uri -> parts.add(graphsByMessage.get(uri)));
+        return parts;
+    }
+
+    private static void addInOrder(URI uri, Map<URI, ConversationMessage> messages, Set<URI> ordered,
+                    Set<URI> visiting) {
+        ConversationMessage msg = messages.get(uri);
+        if (msg == null || ordered.contains(uri) || !visiting.add(uri)) {
+            return;
+        }
+        Stream.of(msg.getPrevious(), msg.getForwarded(), msg.getAccepts(), msg.getProposes(), msg.getClaims(),
+                        msg.getRejects(), msg.getRetracts(), msg.getProposesToCancel())
+                        .flatMap(refs -> refs.stream()).collect(Collectors.toList())
+                        .forEach(ref -> addInOrder(ref, messages, ordered, visiting));
+        if (msg.getRespondingTo() != null) {
+            addInOrder(msg.getRespondingTo(), messages, ordered, visiting);
+        }
+        ordered.add(uri);
+    }
+
+    private static AgreementProtocolCheckpoint writeAndRead(AgreementProtocolCheckpoint checkpoint)
+                    throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        checkpoint.write(out);
+        return AgreementProtocolCheckpoint.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static Dataset loadDataset(String path) throws IOException {
+        Dataset dataset = DatasetFactory.createGeneral();
+        try (InputStream is = AgreementProtocolStateUpdateTest.class.getResourceAsStream(path)) {
+            RDFDataMgr.read(dataset, is, RDFFormat.TRIG.getLang());
+        }
+        return dataset;
+    }
+}